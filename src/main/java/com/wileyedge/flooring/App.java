@@ -1,7 +1,7 @@
 package com.wileyedge.flooring;
 
 import com.wileyedge.flooring.controller.Controller;
-import org.springframework.context.ApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.context.support.ClassPathXmlApplicationContext;
 
 /**
@@ -12,12 +12,17 @@ public class App {
 
     public static void main(String[] args) {
         // Load Spring ApplicationContext from XML configuration
-        ApplicationContext ctx = new ClassPathXmlApplicationContext("applicationContext.xml");
+        ConfigurableApplicationContext ctx = new ClassPathXmlApplicationContext("applicationContext.xml");
+
+        // Close beans such as the audit writer cleanly, even on Ctrl+C
+        ctx.registerShutdownHook();
 
         // Get the controller bean from Spring
         Controller controller = ctx.getBean("controller", Controller.class);
 
         // Run the application
         controller.run();
+
+        ctx.close();
     }
 }
\ No newline at end of file
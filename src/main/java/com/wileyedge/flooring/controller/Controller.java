@@ -1,17 +1,23 @@
 package com.wileyedge.flooring.controller;
 
+import com.wileyedge.flooring.dao.AuditReader;
+import com.wileyedge.flooring.dto.AuditRecord;
+import com.wileyedge.flooring.dto.ExportProgress;
 import com.wileyedge.flooring.dto.Order;
 import com.wileyedge.flooring.dto.Product;
+import com.wileyedge.flooring.dto.ReplayResult;
 import com.wileyedge.flooring.dto.Tax;
 import com.wileyedge.flooring.exceptions.NoSuchOrderException;
 import com.wileyedge.flooring.exceptions.PersistenceException;
+import com.wileyedge.flooring.service.ExportScheduler;
 import com.wileyedge.flooring.service.ServiceLayer;
 import com.wileyedge.flooring.ui.View;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.math.BigDecimal;
+import java.io.IOException;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 
 
@@ -20,11 +26,13 @@ public class Controller {
 
     private final View view;
     private final ServiceLayer service;
+    private final ExportScheduler exportScheduler;
 
     @Autowired
-    public Controller(View view, ServiceLayer service) {
+    public Controller(View view, ServiceLayer service, ExportScheduler exportScheduler) {
         this.view = view;
         this.service = service;
+        this.exportScheduler = exportScheduler;
     }
 
     public void run() {
@@ -52,6 +60,18 @@ public class Controller {
                         exportData();
                         break;
                     case 6:
+                        exportStatus();
+                        break;
+                    case 7:
+                        restoreData();
+                        break;
+                    case 8:
+                        auditHistory();
+                        break;
+                    case 9:
+                        repriceOrders();
+                        break;
+                    case 10:
                         keepGoing = false;
                         break;
                     default:
@@ -86,23 +106,8 @@ public class Controller {
         // Set order number
         order.setOrderNumber(service.getNextOrderNumber());
 
-        // Manually calculate order totals for preview
-        BigDecimal area = order.getArea();
-        BigDecimal costPerSqFt = order.getCostPerSquareFoot();
-        BigDecimal laborCostPerSqFt = order.getLaborCostPerSquareFoot();
-        BigDecimal taxRate = order.getTaxRate();
-
-        BigDecimal materialCost = area.multiply(costPerSqFt).setScale(2, java.math.RoundingMode.HALF_UP);
-        BigDecimal laborCost = area.multiply(laborCostPerSqFt).setScale(2, java.math.RoundingMode.HALF_UP);
-        BigDecimal tax = materialCost.add(laborCost)
-                .multiply(taxRate.divide(new BigDecimal("100"), 4, java.math.RoundingMode.HALF_UP))
-                .setScale(2, java.math.RoundingMode.HALF_UP);
-        BigDecimal total = materialCost.add(laborCost).add(tax).setScale(2, java.math.RoundingMode.HALF_UP);
-
-        order.setMaterialCost(materialCost);
-        order.setLaborCost(laborCost);
-        order.setTax(tax);
-        order.setTotal(total);
+        // Price at the rates in force on the order date for preview
+        service.priceOrder(order);
 
         // Show order summary and confirm
         view.displayOrderInfo(order);
@@ -134,23 +139,8 @@ public class Controller {
 
             Order editedOrder = view.getEditOrderInput(existingOrder, taxes, products);
 
-            // Manually calculate order totals for preview
-            BigDecimal area = editedOrder.getArea();
-            BigDecimal costPerSqFt = editedOrder.getCostPerSquareFoot();
-            BigDecimal laborCostPerSqFt = editedOrder.getLaborCostPerSquareFoot();
-            BigDecimal taxRate = editedOrder.getTaxRate();
-
-            BigDecimal materialCost = area.multiply(costPerSqFt).setScale(2, java.math.RoundingMode.HALF_UP);
-            BigDecimal laborCost = area.multiply(laborCostPerSqFt).setScale(2, java.math.RoundingMode.HALF_UP);
-            BigDecimal tax = materialCost.add(laborCost)
-                    .multiply(taxRate.divide(new BigDecimal("100"), 4, java.math.RoundingMode.HALF_UP))
-                    .setScale(2, java.math.RoundingMode.HALF_UP);
-            BigDecimal total = materialCost.add(laborCost).add(tax).setScale(2, java.math.RoundingMode.HALF_UP);
-
-            editedOrder.setMaterialCost(materialCost);
-            editedOrder.setLaborCost(laborCost);
-            editedOrder.setTax(tax);
-            editedOrder.setTotal(total);
+            // Price at the rates in force on the order date for preview
+            service.priceOrder(editedOrder);
 
             // Show updated order summary
             view.displayOrderInfo(editedOrder);
@@ -197,9 +187,132 @@ public class Controller {
         view.pressEnterToContinue();
     }
 
-    private void exportData() throws PersistenceException {
-        service.exportAllData();
-        view.displayExportDataSuccess();
+    private void exportData() {
+        ExportProgress previous = exportScheduler.getCurrentExport();
+        ExportProgress progress = exportScheduler.startExport();
+
+        view.displayExportStarted(progress, progress == previous);
+        view.pressEnterToContinue();
+    }
+
+    private void exportStatus() {
+        boolean keepGoing = true;
+
+        while (keepGoing) {
+            view.displayExportStatus(exportScheduler.getCurrentExport(), exportScheduler.getNextRun());
+
+            switch (view.getExportStatusSelection()) {
+                case 1:
+                    break;
+                case 2:
+                    if (exportScheduler.cancelExport()) {
+                        view.displayExportCancelRequested();
+                    } else {
+                        view.displayErrorMessage("No export is running.");
+                    }
+                    break;
+                case 3:
+                    exportScheduler.scheduleDaily(view.getTimeInput());
+                    view.displayExportScheduleUpdated();
+                    break;
+                case 4:
+                    exportScheduler.cancelSchedule();
+                    view.displayExportScheduleUpdated();
+                    break;
+                default:
+                    keepGoing = false;
+            }
+        }
+    }
+
+    private void restoreData() {
+        view.displayRestoreBanner();
+
+        int source = view.getRestoreSourceSelection();
+        if (source == 3) {
+            return;
+        }
+
+        boolean confirm = view.getConfirmation(source == 1
+                ? "\nAre you sure you want to restore from the backup?"
+                : "\nAre you sure you want to rebuild orders from the audit log?");
+
+        if (confirm) {
+            try {
+                if (source == 1) {
+                    int restoredOrders = service.restoreFromExport();
+                    view.displayRestoreSuccess(restoredOrders);
+                } else {
+                    ReplayResult result = service.rebuildFromAuditLog();
+                    view.displayRebuildSuccess(result);
+                }
+            } catch (PersistenceException e) {
+                view.displayErrorMessage(e.getMessage());
+            }
+        } else {
+            view.displayErrorMessage("Nothing was restored.");
+        }
+
+        view.pressEnterToContinue();
+    }
+
+    private void repriceOrders() {
+        view.displayRepriceBanner();
+
+        boolean confirm = view.getConfirmation("\nAre you sure you want to reprice all orders?");
+
+        if (confirm) {
+            try {
+                int repricedOrders = service.repriceOrders();
+                view.displayRepriceSuccess(repricedOrders);
+            } catch (PersistenceException e) {
+                view.displayErrorMessage(e.getMessage());
+            }
+        } else {
+            view.displayErrorMessage("No orders were repriced.");
+        }
+
+        view.pressEnterToContinue();
+    }
+
+    private void auditHistory() {
+        boolean keepGoing = true;
+
+        while (keepGoing) {
+            try {
+                switch (view.getAuditHistorySelection()) {
+                    case 1:
+                        displayAuditEntries(service.getAuditHistory(view.getOrderNumberInput()));
+                        break;
+                    case 2:
+                        LocalDateTime from = view.getDateTimeInput("Enter start of range");
+                        LocalDateTime to = view.getDateTimeInput("Enter end of range");
+                        // Include the whole last minute
+                        displayAuditEntries(service.getAuditHistory(from, to.plusSeconds(59)));
+                        break;
+                    default:
+                        keepGoing = false;
+                }
+            } catch (PersistenceException e) {
+                view.displayErrorMessage(e.getMessage());
+            }
+        }
+    }
+
+    private void displayAuditEntries(AuditReader entries) throws PersistenceException {
+        int count = 0;
+
+        try (AuditReader reader = entries) {
+            AuditRecord record;
+            while ((record = reader.readEntry()) != null) {
+                view.displayAuditRecord(record);
+                count++;
+            }
+        } catch (IOException e) {
+            throw new PersistenceException("Could not read audit log.", e);
+        }
+
+        view.displayAuditRecordCount(count);
         view.pressEnterToContinue();
     }
 
@@ -0,0 +1,11 @@
+package com.wileyedge.flooring.dao;
+
+/**
+ * What an audit writer does when its buffer is full
+ */
+public enum AuditBackpressure {
+    /** Wait for the writer thread to make room */
+    BLOCK,
+    /** Drop the entry and count it */
+    DROP
+}
@@ -2,6 +2,8 @@ package com.wileyedge.flooring.dao;
 
 import com.wileyedge.flooring.exceptions.PersistenceException;
 
+import java.time.LocalDateTime;
+
 public interface AuditDao {
 
     /**
@@ -10,4 +12,39 @@ public interface AuditDao {
      * @throws PersistenceException if unable to write to audit log
      */
     void writeAuditEntry(String entry) throws PersistenceException;
-}
\ No newline at end of file
+
+    /**
+     * Blocks until every entry written so far is in the audit log
+     * @throws PersistenceException if unable to write to audit log
+     */
+    void flush() throws PersistenceException;
+
+    /**
+     * Finds every audit entry about an order, oldest first
+     * @param orderNumber the order number
+     * @return a reader over the matching entries; close it when done
+     * @throws PersistenceException if unable to read the audit log
+     */
+    AuditReader findEntriesForOrder(int orderNumber) throws PersistenceException;
+
+    /**
+     * Finds every audit entry written in a time window, oldest first
+     * @param from start of the window, inclusive
+     * @param to end of the window, inclusive
+     * @return a reader over the matching entries; close it when done
+     * @throws PersistenceException if unable to read the audit log
+     */
+    AuditReader findEntriesBetween(LocalDateTime from, LocalDateTime to) throws PersistenceException;
+
+    /**
+     * Reads the whole audit log, oldest entry first
+     * @return a reader over every entry; close it when done
+     * @throws PersistenceException if unable to read the audit log
+     */
+    AuditReader readAllEntries() throws PersistenceException;
+
+    /**
+     * @return how much of an order its audit records should carry
+     */
+    AuditMode getMode();
+}
@@ -3,40 +3,390 @@ package com.wileyedge.flooring.dao;
 import com.wileyedge.flooring.exceptions.PersistenceException;
 import org.springframework.stereotype.Component;
 
-import java.io.FileWriter;
+import java.io.Closeable;
+import java.io.File;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
+/**
+ * Writes audit entries from a background thread. Callers only timestamp the
+ * entry and put it on a lock-free ring buffer; the writer thread takes entries
+ * off in batches and appends them through one channel that stays open.
+ * A batch is written once it is full or its oldest entry has waited for the
+ * flush interval, whichever comes first.
+ * The log is rotated into numbered segments by size and by day; see
+ * {@link AuditSegmentStore}. Entries can be read back by order number through
+ * {@link AuditOrderIndex}, or by time through the segment indexes.
+ */
 @Component
-public class AuditDaoFileImpl implements AuditDao {
+public class AuditDaoFileImpl implements AuditDao, Closeable {
+
+    private static final int DEFAULT_CAPACITY = 8192;
+    private static final int DEFAULT_BATCH_SIZE = 256;
+    private static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 50;
+    private static final long DEFAULT_MAX_SEGMENT_BYTES = 64L * 1024 * 1024;
+    private static final AuditMode DEFAULT_MODE = AuditMode.CHANGES;
+    // Set to EVENTS to log every field, so orders can be rebuilt from the log
+    private static final String MODE_PROPERTY = "flooring.auditMode";
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
 
     private final String AUDIT_FILE;
+    private final RingBuffer<AuditEntry> ring;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final AuditBackpressure backpressure;
+    private final boolean syncOnFlush;
+    private final AuditSegmentStore segments;
+    private final AuditOrderIndex orderIndex;
+    private final AuditMode mode;
+    private final Thread writerThread;
+    private final Object flushLock = new Object();
+    private final AtomicLong droppedEntries = new AtomicLong();
+
+    private volatile boolean closing = false;
+    private volatile boolean writerWaiting = false;
+    private volatile boolean flushRequested = false;
+    private volatile long writtenEntries = 0;
+    private volatile IOException writeError;
+
+    private long lastTimestamp = Long.MIN_VALUE;
+    private long cachedSecond = Long.MIN_VALUE;
+    private byte[] cachedTimestamp;
 
     public AuditDaoFileImpl() {
-        this.AUDIT_FILE = "audit.txt";
+        this("audit.txt");
     }
 
     public AuditDaoFileImpl(String auditFile) {
+        this(auditFile, DEFAULT_CAPACITY, DEFAULT_BATCH_SIZE, DEFAULT_FLUSH_INTERVAL_MILLIS,
+                AuditBackpressure.BLOCK, false);
+    }
+
+    /**
+     * @param auditFile file entries are appended to
+     * @param capacity entries the buffer holds before backpressure applies
+     * @param batchSize most entries written per batch
+     * @param flushIntervalMillis longest an entry waits for its batch to fill
+     * @param backpressure what to do when the buffer is full
+     * @param syncOnFlush force each batch to disk before counting it written
+     */
+    public AuditDaoFileImpl(String auditFile, int capacity, int batchSize, long flushIntervalMillis,
+                            AuditBackpressure backpressure, boolean syncOnFlush) {
+        this(auditFile, capacity, batchSize, flushIntervalMillis, backpressure, syncOnFlush,
+                DEFAULT_MAX_SEGMENT_BYTES, true);
+    }
+
+    /**
+     * @param auditFile active audit file; segments are numbered alongside it
+     * @param capacity entries the buffer holds before backpressure applies
+     * @param batchSize most entries written per batch
+     * @param flushIntervalMillis longest an entry waits for its batch to fill
+     * @param backpressure what to do when the buffer is full
+     * @param syncOnFlush force each batch to disk before counting it written
+     * @param maxSegmentBytes rotate before the active file grows past this, 0 for no limit
+     * @param rotateDaily rotate when the first entry of a new day is written
+     */
+    public AuditDaoFileImpl(String auditFile, int capacity, int batchSize, long flushIntervalMillis,
+                            AuditBackpressure backpressure, boolean syncOnFlush, long maxSegmentBytes,
+                            boolean rotateDaily) {
+        this(auditFile, capacity, batchSize, flushIntervalMillis, backpressure, syncOnFlush, maxSegmentBytes,
+                rotateDaily, configuredMode());
+    }
+
+    /**
+     * @param auditFile active audit file; segments are numbered alongside it
+     * @param capacity entries the buffer holds before backpressure applies
+     * @param batchSize most entries written per batch
+     * @param flushIntervalMillis longest an entry waits for its batch to fill
+     * @param backpressure what to do when the buffer is full
+     * @param syncOnFlush force each batch to disk before counting it written
+     * @param maxSegmentBytes rotate before the active file grows past this, 0 for no limit
+     * @param rotateDaily rotate when the first entry of a new day is written
+     * @param mode how much of an order its audit records carry
+     */
+    public AuditDaoFileImpl(String auditFile, int capacity, int batchSize, long flushIntervalMillis,
+                            AuditBackpressure backpressure, boolean syncOnFlush, long maxSegmentBytes,
+                            boolean rotateDaily, AuditMode mode) {
+        if (batchSize < 1 || flushIntervalMillis < 0) {
+            throw new IllegalArgumentException("Batch size must be positive and flush interval not negative.");
+        }
         this.AUDIT_FILE = auditFile;
+        this.ring = new RingBuffer<>(capacity);
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.backpressure = backpressure;
+        this.syncOnFlush = syncOnFlush;
+        this.segments = new AuditSegmentStore(new File(auditFile), maxSegmentBytes, rotateDaily);
+        this.orderIndex = new AuditOrderIndex(new File(auditFile));
+        this.mode = mode;
+
+        this.writerThread = new Thread(this::runWriter, "audit-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
     }
 
     @Override
     public void writeAuditEntry(String entry) throws PersistenceException {
-        PrintWriter out;
+        if (writeError != null) {
+            throw new PersistenceException("Could not write to audit file.", writeError);
+        }
+        if (closing) {
+            throw new PersistenceException("Audit log is closed.");
+        }
+
+        AuditEntry auditEntry = new AuditEntry(System.currentTimeMillis(), entry);
+
+        while (!ring.offer(auditEntry)) {
+            if (backpressure == AuditBackpressure.DROP) {
+                droppedEntries.incrementAndGet();
+                return;
+            }
+            // Full: make sure the writer is awake and give it a moment
+            LockSupport.unpark(writerThread);
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(50));
+            if (writeError != null || closing) {
+                throw new PersistenceException("Could not write to audit file.", writeError);
+            }
+        }
+
+        if (writerWaiting) {
+            LockSupport.unpark(writerThread);
+        }
+    }
+
+    /**
+     * Blocks until every entry accepted so far has been written
+     */
+    @Override
+    public void flush() throws PersistenceException {
+        long target = ring.getOfferedCount();
+        flushRequested = true;
+        LockSupport.unpark(writerThread);
+
+        synchronized (flushLock) {
+            while (writtenEntries < target && writeError == null && writerThread.isAlive()) {
+                try {
+                    flushLock.wait(10);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new PersistenceException("Interrupted while flushing audit log.", e);
+                }
+            }
+        }
+
+        if (writeError != null) {
+            throw new PersistenceException("Could not write to audit file.", writeError);
+        }
+    }
+
+    @Override
+    public AuditReader findEntriesForOrder(int orderNumber) throws PersistenceException {
+        flush();
+        try {
+            return AuditReader.forOrder(segments, orderNumber, orderIndex.lookup(orderNumber));
+        } catch (IOException e) {
+            throw new PersistenceException("Could not read audit log.", e);
+        }
+    }
+
+    @Override
+    public AuditReader findEntriesBetween(LocalDateTime from, LocalDateTime to) throws PersistenceException {
+        if (from.isAfter(to)) {
+            return AuditReader.empty();
+        }
+
+        flush();
+        try {
+            // Entries carry whole seconds, so the end of the window covers its last second
+            return AuditReader.forTimeRange(segments, toEpochMillis(from), toEpochMillis(to));
+        } catch (IOException e) {
+            throw new PersistenceException("Could not read audit log.", e);
+        }
+    }
+
+    @Override
+    public AuditReader readAllEntries() throws PersistenceException {
+        flush();
+        return AuditReader.forAll(segments);
+    }
+
+    /**
+     * @return the mode named by the flooring.auditMode system property, or
+     * CHANGES if it is not set
+     */
+    private static AuditMode configuredMode() {
+        String mode = System.getProperty(MODE_PROPERTY);
+        if (mode == null || mode.trim().isEmpty()) {
+            return DEFAULT_MODE;
+        }
+        try {
+            return AuditMode.valueOf(mode.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown audit mode " + mode + "; expected CHANGES or EVENTS.", e);
+        }
+    }
+
+    @Override
+    public AuditMode getMode() {
+        return mode;
+    }
+
+    /**
+     * @return entries thrown away because the buffer was full
+     */
+    public long getDroppedEntries() {
+        return droppedEntries.get();
+    }
+
+    /**
+     * Stops taking entries, writes everything still buffered and closes the file
+     */
+    @Override
+    public void close() {
+        if (closing) {
+            return;
+        }
+        closing = true;
+        LockSupport.unpark(writerThread);
+
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runWriter() {
+        List<AuditEntry> batch = new ArrayList<>(batchSize);
+        long batchDeadline = 0;
+
+        try {
+            segments.open();
+            orderIndex.open(segments);
+
+            while (true) {
+                boolean wasEmpty = batch.isEmpty();
+                ring.drainTo(batch, batchSize - batch.size());
+                if (wasEmpty && !batch.isEmpty()) {
+                    batchDeadline = System.nanoTime() + flushIntervalNanos;
+                }
+
+                boolean stopping = closing;
+                if (!batch.isEmpty() && (batch.size() >= batchSize || flushRequested || stopping
+                        || System.nanoTime() - batchDeadline >= 0)) {
+                    writeBatch(batch);
+                    batch.clear();
+                    continue;
+                }
+
+                if (batch.isEmpty() && ring.isEmpty()) {
+                    if (stopping) {
+                        break;
+                    }
+                    if (flushRequested) {
+                        flushRequested = false;
+                        markWritten(0);
+                    }
+                }
 
+                // Sleep until the batch is due, or until a producer wakes us
+                writerWaiting = true;
+                if (ring.isEmpty() && !closing) {
+                    if (batch.isEmpty()) {
+                        LockSupport.park(this);
+                    } else {
+                        LockSupport.parkNanos(this, batchDeadline - System.nanoTime());
+                    }
+                }
+                writerWaiting = false;
+            }
+        } catch (IOException e) {
+            writeError = e;
+        } finally {
+            closeSegments();
+            synchronized (flushLock) {
+                flushLock.notifyAll();
+            }
+        }
+    }
+
+    private void writeBatch(List<AuditEntry> batch) throws IOException {
+        for (AuditEntry entry : batch) {
+            // Producers can hand over entries a moment out of order; keep the log in time order
+            lastTimestamp = Math.max(lastTimestamp, entry.timestamp);
+            long offset = segments.append(lastTimestamp, formatTimestamp(lastTimestamp),
+                    entry.text.getBytes(StandardCharsets.UTF_8), LINE_SEPARATOR);
+
+            int orderNumber = AuditOrderIndex.orderNumberOf(entry.text);
+            if (orderNumber >= 0) {
+                orderIndex.add(orderNumber, segments.getActiveSegment(), offset);
+            }
+        }
+
+        // Entries first, so the order index never points past them
+        segments.flush(syncOnFlush);
+        orderIndex.flush(syncOnFlush);
+        markWritten(batch.size());
+    }
+
+    private void markWritten(int count) {
+        synchronized (flushLock) {
+            writtenEntries += count;
+            flushLock.notifyAll();
+        }
+    }
+
+    /**
+     * Timestamps only change once a second, so the formatted prefix is reused
+     */
+    private byte[] formatTimestamp(long timestamp) {
+        long second = Math.floorDiv(timestamp, 1000);
+        if (second != cachedSecond) {
+            LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochMilli(timestamp), ZoneId.systemDefault());
+            cachedTimestamp = (time.format(TIMESTAMP_FORMAT) + " : ").getBytes(StandardCharsets.US_ASCII);
+            cachedSecond = second;
+        }
+        return cachedTimestamp;
+    }
+
+    private long toEpochMillis(LocalDateTime time) {
+        return time.withNano(0).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private void closeSegments() {
         try {
-            out = new PrintWriter(new FileWriter(AUDIT_FILE, true));
+            segments.close();
         } catch (IOException e) {
-            throw new PersistenceException("Could not write to audit file.", e);
+            if (writeError == null) {
+                writeError = e;
+            }
         }
+        try {
+            orderIndex.close();
+        } catch (IOException e) {
+            if (writeError == null) {
+                writeError = e;
+            }
+        }
+    }
 
-        LocalDateTime timestamp = LocalDateTime.now();
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static class AuditEntry {
+        private final long timestamp;
+        private final String text;
 
-        out.println(timestamp.format(formatter) + " : " + entry);
-        out.flush();
-        out.close();
+        AuditEntry(long timestamp, String text) {
+            this.timestamp = timestamp;
+            this.text = text;
+        }
     }
-}
\ No newline at end of file
+}
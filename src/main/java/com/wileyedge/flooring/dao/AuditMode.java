@@ -0,0 +1,11 @@
+package com.wileyedge.flooring.dao;
+
+/**
+ * How much of an order an audit record carries
+ */
+public enum AuditMode {
+    /** Only the fields an edit or removal changed */
+    CHANGES,
+    /** Every field on add, edit and remove, so orders can be rebuilt from the log */
+    EVENTS
+}
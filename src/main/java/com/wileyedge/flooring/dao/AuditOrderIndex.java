@@ -0,0 +1,235 @@
+package com.wileyedge.flooring.dao;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Finds the audit entries for an order without reading the whole log. Every
+ * entry that names an order ("Order 12 ..." or a {@link OrderChangeEncoder}
+ * record) gets a "OrderNumber,Segment,Offset"
+ * line in audit.orders.idx, appended by the writer thread right after the entry
+ * itself is written. Positions are kept in memory as one long per entry,
+ * segment number in the high bits and offset in the low bits.
+ * On open, entries the index has not caught up with (an older log, or a crash
+ * between the two writes) are scanned and added.
+ */
+class AuditOrderIndex implements Closeable {
+
+    private static final String DELIMITER = ",";
+    private static final String HEADER = "OrderNumber,Segment,Offset";
+    private static final String ORDER_PREFIX = "Order ";
+    private static final String ENTRY_SEPARATOR = " : ";
+    private static final int OFFSET_BITS = 40;
+    private static final long OFFSET_MASK = (1L << OFFSET_BITS) - 1;
+
+    private final File indexFile;
+    private final Map<Integer, long[]> positions = new ConcurrentHashMap<>();
+    private final StringBuilder pending = new StringBuilder();
+    private final Map<Integer, long[]> pendingPositions = new TreeMap<>();
+    private final CountDownLatch loaded = new CountDownLatch(1);
+
+    private FileChannel channel;
+
+    /**
+     * @param activeFile active audit file the index sits beside
+     */
+    AuditOrderIndex(File activeFile) {
+        String path = activeFile.getPath();
+        String baseName = path.endsWith(".txt") ? path.substring(0, path.length() - 4) : path;
+        this.indexFile = new File(baseName + ".orders.idx");
+    }
+
+    /**
+     * Loads the index and catches it up with the log. Must run on the writer
+     * thread before anything is appended.
+     */
+    void open(AuditSegmentStore store) throws IOException {
+        try {
+            long last = readIndex();
+            channel = FileChannel.open(indexFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+            if (channel.size() == 0) {
+                write((HEADER + System.lineSeparator()).getBytes(StandardCharsets.US_ASCII));
+            }
+
+            int lastSegment = last < 0 ? 0 : segmentOf(last);
+            long lastOffset = last < 0 ? -1 : offsetOf(last);
+            for (Map.Entry<Integer, File> segment : store.getNumberedSegments().tailMap(lastSegment).entrySet()) {
+                int number = segment.getKey();
+                long start = number == lastSegment ? Math.max(lastOffset, 0) : 0;
+                AuditSegmentStore.scanLines(segment.getValue(), start, (offset, line) -> {
+                    if (offset > lastOffset || number != lastSegment) {
+                        int orderNumber = orderNumberOf(entryText(line));
+                        if (orderNumber >= 0) {
+                            add(orderNumber, number, offset);
+                        }
+                    }
+                });
+            }
+            flush(false);
+        } finally {
+            loaded.countDown();
+        }
+    }
+
+    /**
+     * Records an entry's position; visible to lookups after the next flush
+     */
+    void add(int orderNumber, int segment, long offset) {
+        pending.append(orderNumber).append(DELIMITER).append(segment).append(DELIMITER).append(offset)
+                .append(System.lineSeparator());
+        pendingPositions.merge(orderNumber, new long[]{pack(segment, offset)}, AuditOrderIndex::concat);
+    }
+
+    /**
+     * Appends pending positions to the index file, then publishes them. Call
+     * only once their entries are written.
+     */
+    void flush(boolean sync) throws IOException {
+        if (pending.length() > 0) {
+            write(pending.toString().getBytes(StandardCharsets.US_ASCII));
+            pending.setLength(0);
+        }
+        for (Map.Entry<Integer, long[]> entry : pendingPositions.entrySet()) {
+            positions.merge(entry.getKey(), entry.getValue(), AuditOrderIndex::concat);
+        }
+        pendingPositions.clear();
+
+        if (sync && channel != null) {
+            channel.force(false);
+        }
+    }
+
+    /**
+     * @return positions of the order's entries in log order, each packed as
+     * segment and offset; empty if there are none
+     * @throws IOException if the index could not be loaded
+     */
+    long[] lookup(int orderNumber) throws IOException {
+        try {
+            loaded.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while loading the audit order index.");
+        }
+        long[] found = positions.get(orderNumber);
+        if (found == null) {
+            return new long[0];
+        }
+
+        // Entries re-scanned after a crash can be recorded twice
+        long[] sorted = found.clone();
+        Arrays.sort(sorted);
+        int count = 0;
+        for (long position : sorted) {
+            if (count == 0 || sorted[count - 1] != position) {
+                sorted[count++] = position;
+            }
+        }
+        return Arrays.copyOf(sorted, count);
+    }
+
+    @Override
+    public void close() throws IOException {
+        loaded.countDown();
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    /**
+     * @return the order number an entry is about, or -1 if it names none
+     */
+    static int orderNumberOf(String text) {
+        int start;
+        if (text == null) {
+            return -1;
+        } else if (text.startsWith(ORDER_PREFIX)) {
+            start = ORDER_PREFIX.length();
+        } else if (text.startsWith(OrderChangeEncoder.RECORD_PREFIX)) {
+            start = OrderChangeEncoder.RECORD_PREFIX.length();
+        } else {
+            return -1;
+        }
+
+        long orderNumber = 0;
+        int digits = 0;
+        for (int i = start; i < text.length(); i++, digits++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                break;
+            }
+            orderNumber = orderNumber * 10 + (c - '0');
+            if (orderNumber > Integer.MAX_VALUE) {
+                return -1;
+            }
+        }
+        return digits == 0 ? -1 : (int) orderNumber;
+    }
+
+    /**
+     * @return the entry text of an audit line, without its timestamp
+     */
+    static String entryText(String line) {
+        int separator = line.indexOf(ENTRY_SEPARATOR);
+        return separator < 0 ? line : line.substring(separator + ENTRY_SEPARATOR.length());
+    }
+
+    static int segmentOf(long position) {
+        return (int) (position >>> OFFSET_BITS);
+    }
+
+    static long offsetOf(long position) {
+        return position & OFFSET_MASK;
+    }
+
+    private static long pack(int segment, long offset) {
+        return ((long) segment << OFFSET_BITS) | offset;
+    }
+
+    private static long[] concat(long[] first, long[] second) {
+        long[] joined = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, joined, first.length, second.length);
+        return joined;
+    }
+
+    /**
+     * Loads the index file into memory
+     * @return the last position recorded, or -1 if there is none
+     */
+    private long readIndex() throws IOException {
+        long last = -1;
+        if (!indexFile.exists()) {
+            return last;
+        }
+
+        try (BufferedReader in = new BufferedReader(new FileReader(indexFile))) {
+            String currentLine = in.readLine(); // Skip header line
+            while ((currentLine = in.readLine()) != null) {
+                String[] tokens = currentLine.split(DELIMITER);
+                if (tokens.length != 3) {
+                    continue; // Cut short by a crash
+                }
+                long position = pack(Integer.parseInt(tokens[1]), Long.parseLong(tokens[2]));
+                positions.merge(Integer.parseInt(tokens[0]), new long[]{position}, AuditOrderIndex::concat);
+                last = Math.max(last, position);
+            }
+        }
+        return last;
+    }
+
+    private void write(byte[] data) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
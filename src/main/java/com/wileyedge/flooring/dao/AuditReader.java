@@ -0,0 +1,202 @@
+package com.wileyedge.flooring.dao;
+
+import com.wileyedge.flooring.dto.AuditRecord;
+import com.wileyedge.flooring.exceptions.PersistenceException;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Streams audit entries matched by a query, one at a time, so a long history
+ * never has to be held in memory. Entries come back in the order they were
+ * written.
+ */
+public class AuditReader implements Closeable {
+
+    private static final int RANGE_BUFFER_SIZE = 64 * 1024;
+    private static final int ENTRY_BUFFER_SIZE = 512;
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final int TIMESTAMP_LENGTH = 19;
+
+    private final AuditSegmentStore store;
+    private final List<AuditSegmentStore.SegmentPosition> rangeStarts;
+    private final long from;
+    private final long to;
+    private final long[] entryPositions;
+    private final int orderNumber;
+
+    private int next = 0;
+    private BufferedReader current;
+    private boolean finished = false;
+
+    // Many entries share a second, so the last timestamp parsed is reused
+    private String lastTimestampText;
+    private long lastTimestampMillis = -1;
+    private LocalDateTime lastTimestamp;
+
+    private AuditReader(AuditSegmentStore store, List<AuditSegmentStore.SegmentPosition> rangeStarts,
+                        long from, long to, long[] entryPositions, int orderNumber) {
+        this.store = store;
+        this.rangeStarts = rangeStarts;
+        this.from = from;
+        this.to = to;
+        this.entryPositions = entryPositions;
+        this.orderNumber = orderNumber;
+    }
+
+    /**
+     * @return a reader with no entries
+     */
+    public static AuditReader empty() {
+        return new AuditReader(null, Collections.emptyList(), 0, -1, null, -1);
+    }
+
+    /**
+     * Reads every entry timestamped from from to to inclusive, starting each
+     * segment at the index point just before from
+     */
+    static AuditReader forTimeRange(AuditSegmentStore store, long from, long to) throws IOException {
+        return new AuditReader(store, new ArrayList<>(store.locate(from, to)), from, to, null, -1);
+    }
+
+    /**
+     * Reads every timestamped entry in every segment
+     */
+    static AuditReader forAll(AuditSegmentStore store) {
+        List<AuditSegmentStore.SegmentPosition> starts = new ArrayList<>();
+        for (File segment : store.getSegments()) {
+            starts.add(new AuditSegmentStore.SegmentPosition(segment, 0));
+        }
+        return new AuditReader(store, starts, Long.MIN_VALUE, Long.MAX_VALUE, null, -1);
+    }
+
+    /**
+     * Reads the entries at the given positions, skipping any that turn out not
+     * to be about the order
+     */
+    static AuditReader forOrder(AuditSegmentStore store, int orderNumber, long[] entryPositions) {
+        return new AuditReader(store, null, 0, -1, entryPositions, orderNumber);
+    }
+
+    /**
+     * Reads the next matching entry
+     * @return the entry, or null once there are no more
+     * @throws PersistenceException if the audit log cannot be read
+     */
+    public AuditRecord readEntry() throws PersistenceException {
+        try {
+            return entryPositions != null ? readOrderEntry() : readRangeEntry();
+        } catch (IOException e) {
+            throw new PersistenceException("Could not read audit log.", e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        finished = true;
+        if (current != null) {
+            current.close();
+            current = null;
+        }
+    }
+
+    private AuditRecord readRangeEntry() throws IOException {
+        while (!finished) {
+            if (current == null) {
+                if (next >= rangeStarts.size()) {
+                    break;
+                }
+                AuditSegmentStore.SegmentPosition start = rangeStarts.get(next++);
+                current = openAt(start.getSegment(), start.getOffset(), RANGE_BUFFER_SIZE);
+                if (current == null) {
+                    continue;
+                }
+            }
+
+            String line = current.readLine();
+            if (line == null) {
+                current.close();
+                current = null;
+                continue;
+            }
+
+            long timestamp = parseTimestamp(line);
+            if (timestamp < 0 || timestamp < from) {
+                continue;
+            }
+            if (timestamp > to) {
+                // The log is in time order, so nothing later can match
+                close();
+                break;
+            }
+            return toRecord(line);
+        }
+        return null;
+    }
+
+    private AuditRecord readOrderEntry() throws IOException {
+        while (!finished && next < entryPositions.length) {
+            long position = entryPositions[next++];
+            File segment = store.resolveSegment(AuditOrderIndex.segmentOf(position));
+            if (segment == null) {
+                continue;
+            }
+
+            String line;
+            try (BufferedReader in = openAt(segment, AuditOrderIndex.offsetOf(position), ENTRY_BUFFER_SIZE)) {
+                line = in == null ? null : in.readLine();
+            }
+            if (line != null && AuditOrderIndex.orderNumberOf(AuditOrderIndex.entryText(line)) == orderNumber) {
+                return toRecord(line);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return a reader positioned at offset, or null if the segment was removed
+     */
+    private static BufferedReader openAt(File segment, long offset, int bufferSize) throws IOException {
+        FileInputStream in;
+        try {
+            in = new FileInputStream(segment);
+        } catch (FileNotFoundException e) {
+            return null;
+        }
+
+        try {
+            in.getChannel().position(offset);
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), bufferSize);
+    }
+
+    private AuditRecord toRecord(String line) {
+        return new AuditRecord(parseTimestamp(line) < 0 ? null : lastTimestamp, AuditOrderIndex.entryText(line));
+    }
+
+    /**
+     * @return epoch millis of the line's timestamp, or -1 if it has none
+     */
+    private long parseTimestamp(String line) {
+        if (line.length() < TIMESTAMP_LENGTH) {
+            return -1;
+        }
+        if (lastTimestampText != null && line.startsWith(lastTimestampText)) {
+            return lastTimestampMillis;
+        }
+
+        lastTimestampText = line.substring(0, TIMESTAMP_LENGTH);
+        lastTimestampMillis = store.parseTimestamp(line);
+        lastTimestamp = lastTimestampMillis < 0 ? null
+                : LocalDateTime.parse(lastTimestampText, TIMESTAMP_FORMAT);
+        return lastTimestampMillis;
+    }
+}
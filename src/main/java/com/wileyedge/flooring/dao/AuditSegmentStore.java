@@ -0,0 +1,473 @@
+package com.wileyedge.flooring.dao;
+
+import com.wileyedge.flooring.exceptions.PersistenceException;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The audit log on disk: an active file (audit.txt) plus numbered segments it
+ * has been rotated into (audit.000001.txt, ...). Every segment has a sparse index
+ * (audit.idx, audit.000001.idx) with one "Timestamp,Offset" line per
+ * {@link #INDEX_INTERVAL} bytes, so a time range can be found by seeking
+ * rather than reading whole segments.
+ * Timestamps only ever increase within the log, which keeps the index sorted.
+ */
+class AuditSegmentStore implements Closeable {
+
+    static final int INDEX_INTERVAL = 16 * 1024;
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+    private static final String DELIMITER = ",";
+    private static final String INDEX_HEADER = "Timestamp,Offset";
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final int TIMESTAMP_LENGTH = 19;
+
+    private final File activeFile;
+    private final File activeIndexFile;
+    private final String baseName;
+    private final long maxSegmentBytes;
+    private final boolean rotateDaily;
+    private final ZoneId zone = ZoneId.systemDefault();
+    private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+    private final StringBuilder pendingIndex = new StringBuilder();
+
+    private FileChannel channel;
+    private FileChannel indexChannel;
+    private long size;
+    private long lastIndexedOffset;
+    private LocalDate segmentDay;
+    private volatile int activeSegment;
+
+    /**
+     * @param activeFile file currently being appended to
+     * @param maxSegmentBytes rotate before a segment grows past this, 0 for no limit
+     * @param rotateDaily rotate when the first entry of a new day arrives
+     */
+    AuditSegmentStore(File activeFile, long maxSegmentBytes, boolean rotateDaily) {
+        this.activeFile = activeFile;
+        String path = activeFile.getPath();
+        this.baseName = path.endsWith(".txt") ? path.substring(0, path.length() - 4) : path;
+        this.activeIndexFile = new File(baseName + ".idx");
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.rotateDaily = rotateDaily;
+    }
+
+    /**
+     * Opens the active file for appending, rebuilding its index if it is missing
+     * or does not match the file (an older log, or a crash between the two writes)
+     */
+    void open() throws IOException {
+        channel = FileChannel.open(activeFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        size = channel.size();
+
+        List<long[]> index = readIndex(activeIndexFile);
+        if (index == null || (size > 0 && index.isEmpty())
+                || (!index.isEmpty() && index.get(index.size() - 1)[1] >= size)) {
+            index = buildIndex(activeFile, zone);
+            writeIndex(activeIndexFile, index);
+        }
+
+        indexChannel = FileChannel.open(activeIndexFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        if (indexChannel.size() == 0) {
+            writeFully(indexChannel, ByteBuffer.wrap(line(INDEX_HEADER)));
+        }
+
+        lastIndexedOffset = index.isEmpty() ? -1 : index.get(index.size() - 1)[1];
+        segmentDay = index.isEmpty() ? null : toDay(index.get(0)[0]);
+
+        TreeMap<Integer, File> segments = getSegmentNumbers();
+        activeSegment = segments.isEmpty() ? 1 : segments.lastKey() + 1;
+    }
+
+    /**
+     * Appends one entry, rotating first if it belongs in a new segment
+     * @param timestamp entry time, never earlier than the previous entry's
+     * @return offset of the entry within the active segment
+     */
+    long append(long timestamp, byte[] prefix, byte[] text, byte[] lineSeparator) throws IOException {
+        int length = prefix.length + text.length + lineSeparator.length;
+
+        if (size > 0 && ((maxSegmentBytes > 0 && size + length > maxSegmentBytes)
+                || (rotateDaily && segmentDay != null && !toDay(timestamp).equals(segmentDay)))) {
+            rotate();
+        }
+
+        if (lastIndexedOffset < 0 || size - lastIndexedOffset >= INDEX_INTERVAL) {
+            pendingIndex.append(timestamp).append(DELIMITER).append(size).append(System.lineSeparator());
+            lastIndexedOffset = size;
+            if (segmentDay == null) {
+                segmentDay = toDay(timestamp);
+            }
+        }
+
+        if (length > writeBuffer.remaining()) {
+            drainWriteBuffer();
+        }
+        if (length > writeBuffer.capacity()) {
+            // Larger than the whole buffer, so write it on its own
+            writeFully(channel, ByteBuffer.wrap(prefix));
+            writeFully(channel, ByteBuffer.wrap(text));
+            writeFully(channel, ByteBuffer.wrap(lineSeparator));
+        } else {
+            writeBuffer.put(prefix).put(text).put(lineSeparator);
+        }
+        long offset = size;
+        size += length;
+        return offset;
+    }
+
+    /**
+     * Writes buffered entries, then their index lines, so the index never
+     * points past the data
+     */
+    void flush(boolean sync) throws IOException {
+        drainWriteBuffer();
+
+        if (pendingIndex.length() > 0) {
+            writeFully(indexChannel, ByteBuffer.wrap(pendingIndex.toString().getBytes(StandardCharsets.US_ASCII)));
+            pendingIndex.setLength(0);
+        }
+
+        if (sync) {
+            channel.force(false);
+            indexChannel.force(false);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (channel != null && channel.isOpen()) {
+                flush(false);
+            }
+        } finally {
+            if (channel != null) {
+                channel.close();
+            }
+            if (indexChannel != null) {
+                indexChannel.close();
+            }
+        }
+    }
+
+    /**
+     * Closes the active file, renames it and its index to the next segment number
+     * and starts a new active file
+     */
+    private void rotate() throws IOException {
+        close();
+
+        int segment = activeSegment;
+        try {
+            OrderManifest.moveIntoPlace(activeFile.toPath(), segmentFile(segment).toPath());
+            OrderManifest.moveIntoPlace(activeIndexFile.toPath(), segmentIndexFile(segment).toPath());
+        } catch (PersistenceException e) {
+            throw new IOException("Could not rotate audit log.", e);
+        }
+
+        open();
+    }
+
+    /**
+     * @return every segment in time order, the active file last
+     */
+    List<File> getSegments() {
+        List<File> segments = new ArrayList<>(getSegmentNumbers().values());
+        if (activeFile.exists()) {
+            segments.add(activeFile);
+        }
+        return segments;
+    }
+
+    /**
+     * @return every segment by number, the active file under the number it will
+     * be given when it is rotated
+     */
+    TreeMap<Integer, File> getNumberedSegments() {
+        TreeMap<Integer, File> segments = getSegmentNumbers();
+        if (activeFile.exists()) {
+            segments.put(activeSegment, activeFile);
+        }
+        return segments;
+    }
+
+    /**
+     * Number the active file will be given when it is rotated, so positions
+     * recorded against it stay valid afterwards
+     */
+    int getActiveSegment() {
+        return activeSegment;
+    }
+
+    /**
+     * @return the file holding a segment, or null if it no longer exists
+     */
+    File resolveSegment(int segment) {
+        File file = segmentFile(segment);
+        if (file.exists()) {
+            return file;
+        }
+        return segment == activeSegment && activeFile.exists() ? activeFile : null;
+    }
+
+    /**
+     * Finds where to start reading each segment that may hold entries at or after
+     * from and at or before to
+     * @return segment file paired with the byte offset to start scanning at
+     */
+    List<SegmentPosition> locate(long from, long to) throws IOException {
+        List<File> segments = getSegments();
+        List<SegmentPosition> positions = new ArrayList<>();
+
+        for (int i = 0; i < segments.size(); i++) {
+            List<long[]> index = readIndex(indexFileFor(segments.get(i)));
+            if (index == null) {
+                index = buildIndex(segments.get(i), zone);
+            }
+            if (index.isEmpty() || index.get(0)[0] > to) {
+                continue;
+            }
+
+            // Skip segments that end before the range: the next one starts before from
+            if (i + 1 < segments.size()) {
+                List<long[]> nextIndex = readIndex(indexFileFor(segments.get(i + 1)));
+                if (nextIndex != null && !nextIndex.isEmpty() && nextIndex.get(0)[0] < from) {
+                    continue;
+                }
+            }
+
+            positions.add(new SegmentPosition(segments.get(i), floorOffset(index, from)));
+        }
+        return positions;
+    }
+
+    /**
+     * Parses the timestamp at the start of an audit line
+     * @return epoch millis, or -1 if the line does not start with a timestamp
+     */
+    long parseTimestamp(String line) {
+        return parseTimestamp(line, zone);
+    }
+
+    private static long parseTimestamp(String line, ZoneId zone) {
+        if (line.length() < TIMESTAMP_LENGTH) {
+            return -1;
+        }
+        try {
+            return LocalDateTime.parse(line.substring(0, TIMESTAMP_LENGTH), TIMESTAMP_FORMAT)
+                    .atZone(zone).toInstant().toEpochMilli();
+        } catch (RuntimeException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * @return offset of the last index point at or before from, or 0
+     */
+    private static long floorOffset(List<long[]> index, long from) {
+        int low = 0;
+        int high = index.size() - 1;
+        long offset = 0;
+
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (index.get(middle)[0] <= from) {
+                offset = index.get(middle)[1];
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return offset;
+    }
+
+    private TreeMap<Integer, File> getSegmentNumbers() {
+        TreeMap<Integer, File> segments = new TreeMap<>();
+        File folder = activeFile.getAbsoluteFile().getParentFile();
+        File[] listOfFiles = folder == null ? null : folder.listFiles();
+        if (listOfFiles == null) {
+            return segments;
+        }
+
+        Pattern segmentName = Pattern.compile(Pattern.quote(new File(baseName).getName()) + "\\.(\\d{6})\\.txt");
+        for (File file : listOfFiles) {
+            Matcher matcher = segmentName.matcher(file.getName());
+            if (matcher.matches()) {
+                segments.put(Integer.parseInt(matcher.group(1)), new File(activeFile.getParentFile(), file.getName()));
+            }
+        }
+        return segments;
+    }
+
+    private File segmentFile(int segment) {
+        return new File(String.format("%s.%06d.txt", baseName, segment));
+    }
+
+    private File segmentIndexFile(int segment) {
+        return new File(String.format("%s.%06d.idx", baseName, segment));
+    }
+
+    private static File indexFileFor(File segment) {
+        String path = segment.getPath();
+        return new File((path.endsWith(".txt") ? path.substring(0, path.length() - 4) : path) + ".idx");
+    }
+
+    /**
+     * @return index points as {timestamp, offset}, or null if there is no index file
+     */
+    private static List<long[]> readIndex(File indexFile) throws IOException {
+        if (!indexFile.exists()) {
+            return null;
+        }
+
+        List<long[]> index = new ArrayList<>();
+        try (BufferedReader in = new BufferedReader(new FileReader(indexFile))) {
+            String currentLine = in.readLine(); // Skip header line
+            while ((currentLine = in.readLine()) != null) {
+                String[] tokens = currentLine.split(DELIMITER);
+                if (tokens.length == 2) {
+                    index.add(new long[]{Long.parseLong(tokens[0]), Long.parseLong(tokens[1])});
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Scans a segment written without an index and indexes it from its line timestamps
+     */
+    private static List<long[]> buildIndex(File segment, ZoneId zone) throws IOException {
+        List<long[]> index = new ArrayList<>();
+        if (!segment.exists()) {
+            return index;
+        }
+
+        // {last indexed offset, last timestamp}
+        long[] last = {-1, Long.MIN_VALUE};
+        scanLines(segment, 0, (lineStart, line) -> {
+            if (last[0] < 0 || lineStart - last[0] >= INDEX_INTERVAL) {
+                long timestamp = parseTimestamp(line, zone);
+                if (timestamp >= 0) {
+                    last[1] = Math.max(last[1], timestamp);
+                    index.add(new long[]{last[1], lineStart});
+                    last[0] = lineStart;
+                }
+            }
+        });
+        return index;
+    }
+
+    /**
+     * Reads every complete line of a segment from start on, with the offset it begins at.
+     * A partly written last line is left out.
+     */
+    static void scanLines(File segment, long start, LineVisitor visitor) throws IOException {
+        try (FileInputStream file = new FileInputStream(segment)) {
+            file.getChannel().position(start);
+            InputStream in = new BufferedInputStream(file, WRITE_BUFFER_SIZE);
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            long offset = start;
+            long lineStart = start;
+            int b;
+
+            while ((b = in.read()) != -1) {
+                offset++;
+                if (b != '\n') {
+                    line.write(b);
+                    continue;
+                }
+
+                int length = line.size();
+                byte[] bytes = line.toByteArray();
+                if (length > 0 && bytes[length - 1] == '\r') {
+                    length--;
+                }
+                visitor.visit(lineStart, new String(bytes, 0, length, StandardCharsets.UTF_8));
+                line.reset();
+                lineStart = offset;
+            }
+        }
+    }
+
+    private static void writeIndex(File indexFile, List<long[]> index) throws IOException {
+        File tempFile = new File(indexFile.getPath() + ".tmp");
+        try (PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(tempFile)))) {
+            out.println(INDEX_HEADER);
+            for (long[] point : index) {
+                out.println(point[0] + DELIMITER + point[1]);
+            }
+            if (out.checkError()) {
+                throw new IOException("Write failed for " + tempFile);
+            }
+        }
+
+        try {
+            OrderManifest.moveIntoPlace(tempFile.toPath(), indexFile.toPath());
+        } catch (PersistenceException e) {
+            throw new IOException("Could not write " + indexFile, e);
+        }
+    }
+
+    private LocalDate toDay(long timestamp) {
+        return Instant.ofEpochMilli(timestamp).atZone(zone).toLocalDate();
+    }
+
+    private static byte[] line(String text) {
+        return (text + System.lineSeparator()).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private void drainWriteBuffer() throws IOException {
+        writeBuffer.flip();
+        writeFully(channel, writeBuffer);
+        writeBuffer.clear();
+    }
+
+    private static void writeFully(FileChannel target, ByteBuffer data) throws IOException {
+        while (data.hasRemaining()) {
+            target.write(data);
+        }
+    }
+
+    /**
+     * Called for each line found by {@link #scanLines}
+     */
+    interface LineVisitor {
+        void visit(long offset, String line) throws IOException;
+    }
+
+    /**
+     * Where to start scanning one segment
+     */
+    static class SegmentPosition {
+        private final File segment;
+        private final long offset;
+
+        SegmentPosition(File segment, long offset) {
+            this.segment = segment;
+            this.offset = offset;
+        }
+
+        File getSegment() {
+            return segment;
+        }
+
+        long getOffset() {
+            return offset;
+        }
+    }
+}
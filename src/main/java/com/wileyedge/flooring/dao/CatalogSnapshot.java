@@ -0,0 +1,92 @@
+package com.wileyedge.flooring.dao;
+
+import com.wileyedge.flooring.exceptions.PersistenceException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * An immutable copy of a small catalog file (products, taxes or pricing
+ * tiers), compiled into the form lookups use, such as a {@link RateSchedule}.
+ * The current copy is published through an
+ * {@link AtomicReference}, so readers never lock; each read only compares the
+ * file's modification time and size with the ones the copy was parsed from,
+ * and the file is parsed again only when they differ.
+ */
+class CatalogSnapshot<C> {
+
+    private final C compiled;
+    private final FileTime modified;
+    private final long size;
+
+    private CatalogSnapshot(C compiled, FileTime modified, long size) {
+        this.compiled = compiled;
+        this.modified = modified;
+        this.size = size;
+    }
+
+    C getCompiled() {
+        return compiled;
+    }
+
+    /**
+     * Returns the current snapshot of a catalog file, parsing it again first
+     * if it changed since the published snapshot was read
+     * @param current reference holding the published snapshot
+     * @param file catalog file, with a header line
+     * @param parser turns a line into an entry
+     * @param compiler turns the file's entries into their lookup form
+     * @param description what the file holds, for error messages
+     * @return a snapshot matching the file
+     * @throws PersistenceException if the file cannot be read
+     */
+    static <T, C> CatalogSnapshot<C> load(AtomicReference<CatalogSnapshot<C>> current, String file,
+                                          Function<String, T> parser, Function<List<T>, C> compiler,
+                                          String description) throws PersistenceException {
+        Path path = Paths.get(file);
+        CatalogSnapshot<C> snapshot = current.get();
+
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            if (snapshot != null && snapshot.size == attributes.size()
+                    && snapshot.modified.equals(attributes.lastModifiedTime())) {
+                return snapshot;
+            }
+
+            CatalogSnapshot<C> loaded = new CatalogSnapshot<>(compiler.apply(parse(path, parser)),
+                    attributes.lastModifiedTime(), attributes.size());
+            // Racing reloads parse the same file, so whichever lands last is as good as any
+            current.set(loaded);
+            return loaded;
+        } catch (NoSuchFileException e) {
+            throw new PersistenceException("Could not load " + description + " data.", e);
+        } catch (IOException | RuntimeException e) {
+            throw new PersistenceException("Could not read " + description + " data.", e);
+        }
+    }
+
+    private static <T> List<T> parse(Path path, Function<String, T> parser) throws IOException {
+        List<T> entries = new ArrayList<>();
+
+        try (BufferedReader in = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String currentLine = in.readLine(); // Skip header line
+            while ((currentLine = in.readLine()) != null) {
+                if (!currentLine.trim().isEmpty()) {
+                    entries.add(parser.apply(currentLine));
+                }
+            }
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,143 @@
+package com.wileyedge.flooring.dao;
+
+import com.wileyedge.flooring.exceptions.PersistenceException;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * A file of rows followed by a journal of the changes made since it was
+ * written. A change appends its lines to the journal rather than rewriting the
+ * file, so saving costs the size of the change instead of the whole history.
+ * Journal lines take the same form as the rows and are added onto them when
+ * read; once the journal reaches compactAfter lines, the owner writes its rows
+ * out afresh and the journal starts again.
+ *
+ * The journal's first line holds the CRC32 of the file it was started
+ * against. A journal left behind by a compaction that stopped after the new
+ * file was in place no longer matches, and is skipped instead of being
+ * counted twice.
+ */
+class DeltaJournal {
+
+    private static final String BASE_MARKER = "#";
+
+    private final File file;
+    private final File journalFile;
+    private final String header;
+    private final int compactAfter;
+
+    private long baseChecksum = 0;
+    private boolean journalStarted = false;
+    private int journalLines = 0;
+
+    DeltaJournal(String path, String header, int compactAfter) {
+        this.file = new File(path);
+        this.journalFile = new File(path + ".journal");
+        this.header = header;
+        this.compactAfter = compactAfter;
+    }
+
+    /**
+     * Passes on the file's rows and then the journal's lines, in the order written
+     */
+    void read(Consumer<String> row) throws IOException {
+        journalStarted = false;
+        journalLines = 0;
+        baseChecksum = readRows(row);
+
+        if (!journalFile.exists()) {
+            return;
+        }
+        try (BufferedReader in = new BufferedReader(new FileReader(journalFile))) {
+            String currentLine = in.readLine();
+            if (!(BASE_MARKER + baseChecksum).equals(currentLine)) {
+                // Already compacted into the file, so overwritten by the next change
+                return;
+            }
+            journalStarted = true;
+
+            while ((currentLine = in.readLine()) != null) {
+                if (!currentLine.isEmpty()) {
+                    row.accept(currentLine);
+                    journalLines++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Appends the lines of one change to the journal
+     * @return true once the journal is long enough to compact
+     */
+    boolean append(List<String> lines) throws IOException {
+        try (PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(journalFile, journalStarted)))) {
+            if (!journalStarted) {
+                out.println(BASE_MARKER + baseChecksum);
+            }
+            for (String line : lines) {
+                out.println(line);
+            }
+            if (out.checkError()) {
+                throw new IOException("Write failed for " + journalFile);
+            }
+        }
+
+        journalStarted = true;
+        journalLines += lines.size();
+        return journalLines >= compactAfter;
+    }
+
+    /**
+     * Writes rows to a temporary file, moves it into place and then empties
+     * the journal, so a failed write leaves the previous file and journal untouched
+     */
+    void compact(List<String> rows) throws IOException, PersistenceException {
+        File tempFile = new File(file.getPath() + ".tmp");
+        CRC32 crc = new CRC32();
+
+        try (PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(
+                new CheckedOutputStream(new FileOutputStream(tempFile), crc))))) {
+            out.println(header);
+            for (String row : rows) {
+                out.println(row);
+            }
+            if (out.checkError()) {
+                throw new IOException("Write failed for " + tempFile);
+            }
+        }
+
+        OrderManifest.moveIntoPlace(tempFile.toPath(), file.toPath());
+        baseChecksum = crc.getValue();
+        journalStarted = false;
+        journalLines = 0;
+        Files.deleteIfExists(journalFile.toPath());
+    }
+
+    /**
+     * @return the CRC32 of the file, or 0 if there is none
+     */
+    private long readRows(Consumer<String> row) throws IOException {
+        if (!file.exists()) {
+            return 0;
+        }
+
+        CRC32 crc = new CRC32();
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                new CheckedInputStream(new FileInputStream(file), crc)))) {
+            String currentLine = in.readLine(); // Skip header line
+
+            while ((currentLine = in.readLine()) != null) {
+                if (!currentLine.isEmpty()) {
+                    row.accept(currentLine);
+                }
+            }
+        }
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,50 @@
+package com.wileyedge.flooring.dao;
+
+import com.wileyedge.flooring.dto.Order;
+import com.wileyedge.flooring.dto.OrderDistribution;
+import com.wileyedge.flooring.dto.PartitionSummary;
+import com.wileyedge.flooring.exceptions.PersistenceException;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface DistributionDao {
+
+    /**
+     * Moves the histograms from one version of an order to the next
+     * @param before the order as it was saved, or null if it was just added
+     * @param after the order as it is now saved, or null if it was removed
+     * @throws PersistenceException if unable to persist the histograms
+     */
+    void recordChange(Order before, Order after) throws PersistenceException;
+
+    /**
+     * Same as {@link #recordChange(Order, Order)} for many edits, persisting once
+     * @param before the orders as they were saved
+     * @param after the same orders as they are now saved, in the same order
+     * @throws PersistenceException if unable to persist the histograms
+     */
+    void recordChanges(List<Order> before, List<Order> after) throws PersistenceException;
+
+    /**
+     * Builds every histogram again from the orders themselves
+     * @param orders all order partitions
+     * @throws PersistenceException if unable to read the orders or persist the histograms
+     */
+    void rebuild(OrderPartitionSource orders) throws PersistenceException;
+
+    /**
+     * Checks the histograms against the order manifest
+     * @param partitions one summary per order date
+     * @return false if the histograms cannot be read, or any date's order count differs
+     */
+    boolean isConsistentWith(List<PartitionSummary> partitions);
+
+    /**
+     * @param from first date, included
+     * @param to last date, included
+     * @return percentiles of order total and area over the orders placed in the range
+     * @throws PersistenceException if unable to read the histograms
+     */
+    OrderDistribution getDistribution(LocalDate from, LocalDate to) throws PersistenceException;
+}
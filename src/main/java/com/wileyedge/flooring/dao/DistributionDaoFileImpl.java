@@ -0,0 +1,246 @@
+package com.wileyedge.flooring.dao;
+
+import com.wileyedge.flooring.dto.Order;
+import com.wileyedge.flooring.dto.OrderDistribution;
+import com.wileyedge.flooring.dto.PartitionSummary;
+import com.wileyedge.flooring.exceptions.PersistenceException;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Histograms of order total and area for each date, kept up to date as orders
+ * change. A range is answered by adding up its dates' histograms, which holds
+ * the same for a week as for years, and never reads an order.
+ *
+ * Each change is saved as the buckets it moved, appended to a journal beside
+ * the file, and the file itself is only rewritten once the journal has grown long.
+ */
+@Component
+public class DistributionDaoFileImpl implements DistributionDao {
+
+    private static final String DELIMITER = ",";
+    private static final String HEADER = "OrderDate,Totals,Areas";
+
+    // Histograms held for each date
+    private static final int TOTAL = 0;
+    private static final int AREA = 1;
+    private static final int COMPACT_AFTER = 1_000;
+
+    private final DeltaJournal journal;
+    private boolean loaded = false;
+
+    private final TreeMap<LocalDate, OrderHistogram[]> byDate = new TreeMap<>();
+
+    public DistributionDaoFileImpl() {
+        this("Orders/Distributions.txt");
+    }
+
+    public DistributionDaoFileImpl(String distributionFile) {
+        this(distributionFile, COMPACT_AFTER);
+    }
+
+    /**
+     * @param compactAfter journal lines after which the file is rewritten
+     */
+    public DistributionDaoFileImpl(String distributionFile, int compactAfter) {
+        this.journal = new DeltaJournal(distributionFile, HEADER, compactAfter);
+    }
+
+    @Override
+    public synchronized void recordChange(Order before, Order after) throws PersistenceException {
+        load();
+        List<String> changes = new ArrayList<>();
+        if (before != null) {
+            changes.add(add(before, -1));
+        }
+        if (after != null) {
+            changes.add(add(after, 1));
+        }
+        save(changes);
+    }
+
+    @Override
+    public synchronized void recordChanges(List<Order> before, List<Order> after) throws PersistenceException {
+        load();
+        List<String> changes = new ArrayList<>();
+        for (int i = 0; i < before.size(); i++) {
+            changes.add(add(before.get(i), -1));
+            changes.add(add(after.get(i), 1));
+        }
+        save(changes);
+    }
+
+    @Override
+    public synchronized void rebuild(OrderPartitionSource orders) throws PersistenceException {
+        byDate.clear();
+        for (PartitionSummary partition : orders.getPartitions()) {
+            for (Order order : orders.getOrdersForDate(partition.getOrderDate())) {
+                add(order, 1);
+            }
+        }
+        loaded = true;
+        compact();
+    }
+
+    @Override
+    public synchronized boolean isConsistentWith(List<PartitionSummary> partitions) {
+        try {
+            load();
+        } catch (PersistenceException e) {
+            // An unreadable file is rebuilt like a stale one
+            return false;
+        }
+
+        int datesWithOrders = 0;
+        for (PartitionSummary partition : partitions) {
+            if (partition.getOrderCount() == 0) {
+                continue;
+            }
+            datesWithOrders++;
+
+            OrderHistogram[] histograms = byDate.get(partition.getOrderDate());
+            if (histograms == null || histograms[TOTAL].getCount() != partition.getOrderCount()) {
+                return false;
+            }
+        }
+        return datesWithOrders == byDate.size();
+    }
+
+    @Override
+    public synchronized OrderDistribution getDistribution(LocalDate from, LocalDate to)
+            throws PersistenceException {
+        load();
+
+        OrderHistogram totals = new OrderHistogram();
+        OrderHistogram areas = new OrderHistogram();
+        if (!from.isAfter(to)) {
+            for (OrderHistogram[] histograms : byDate.subMap(from, true, to, true).values()) {
+                totals.merge(histograms[TOTAL]);
+                areas.merge(histograms[AREA]);
+            }
+        }
+
+        return new OrderDistribution(totals.getCount(),
+                hundredths(totals.valueAtPercentile(50)), hundredths(totals.valueAtPercentile(95)),
+                hundredths(totals.valueAtPercentile(99)), hundredths(areas.valueAtPercentile(50)),
+                hundredths(areas.valueAtPercentile(95)), hundredths(areas.valueAtPercentile(99)));
+    }
+
+    /**
+     * Adds an order to, or with sign -1 takes it from, its date's histograms
+     * @return the change as a journal line
+     */
+    private String add(Order order, int sign) {
+        long total = hundredths(order.getTotal());
+        long area = hundredths(order.getArea());
+        OrderHistogram[] histograms = histogramsFor(order.getOrderDate());
+
+        histograms[TOTAL].record(total, sign);
+        histograms[AREA].record(area, sign);
+        if (histograms[TOTAL].getCount() == 0) {
+            byDate.remove(order.getOrderDate());
+        }
+        return order.getOrderDate() + DELIMITER +
+                OrderHistogram.marshallChange(total, sign) + DELIMITER +
+                OrderHistogram.marshallChange(area, sign);
+    }
+
+    private OrderHistogram[] histogramsFor(LocalDate date) {
+        OrderHistogram[] histograms = byDate.get(date);
+        if (histograms == null) {
+            histograms = new OrderHistogram[]{new OrderHistogram(), new OrderHistogram()};
+            byDate.put(date, histograms);
+        }
+        return histograms;
+    }
+
+    private static long hundredths(BigDecimal value) {
+        if (value == null) {
+            return 0;
+        }
+        return value.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValue();
+    }
+
+    private static BigDecimal hundredths(long value) {
+        return BigDecimal.valueOf(value, 2);
+    }
+
+    private void load() throws PersistenceException {
+        if (loaded) {
+            return;
+        }
+
+        byDate.clear();
+        try {
+            journal.read(this::unmarshallDate);
+        } catch (IOException | RuntimeException e) {
+            byDate.clear();
+            throw new PersistenceException("Could not load order distributions.", e);
+        }
+        loaded = true;
+    }
+
+    /**
+     * Appends the changed buckets to the journal, compacting it once it has grown long
+     */
+    private void save(List<String> changes) throws PersistenceException {
+        boolean compactNow;
+        try {
+            compactNow = journal.append(changes);
+        } catch (IOException e) {
+            // Reload from disk next time, as the histograms in memory are now ahead of the file
+            loaded = false;
+            throw new PersistenceException("Could not save order distributions.", e);
+        }
+
+        if (compactNow) {
+            compact();
+        }
+    }
+
+    private void compact() throws PersistenceException {
+        List<String> rows = new ArrayList<>(byDate.size());
+        for (Map.Entry<LocalDate, OrderHistogram[]> date : byDate.entrySet()) {
+            rows.add(marshallDate(date.getKey(), date.getValue()));
+        }
+
+        try {
+            journal.compact(rows);
+        } catch (IOException e) {
+            loaded = false;
+            throw new PersistenceException("Could not save order distributions.", e);
+        } catch (PersistenceException e) {
+            loaded = false;
+            throw e;
+        }
+    }
+
+    /**
+     * Adds a row, or a journaled change, onto its date's histograms
+     */
+    private void unmarshallDate(String dateAsText) {
+        String[] tokens = dateAsText.split(DELIMITER, -1);
+
+        LocalDate date = LocalDate.parse(tokens[0]);
+        OrderHistogram[] histograms = histogramsFor(date);
+        histograms[TOTAL].merge(OrderHistogram.unmarshall(tokens[1]));
+        histograms[AREA].merge(OrderHistogram.unmarshall(tokens[2]));
+        if (histograms[TOTAL].getCount() == 0) {
+            byDate.remove(date);
+        }
+    }
+
+    private String marshallDate(LocalDate date, OrderHistogram[] histograms) {
+        return date + DELIMITER +
+                histograms[TOTAL].marshall() + DELIMITER +
+                histograms[AREA].marshall();
+    }
+}
@@ -0,0 +1,35 @@
+package com.wileyedge.flooring.dao;
+
+/**
+ * Output formats for the data export
+ */
+public enum ExportCompression {
+    NONE(""),
+    GZIP(".gz"),
+    DEFLATE(".deflate");
+
+    private final String extension;
+
+    ExportCompression(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * @return suffix appended to export file names, empty for plain text
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Works out the format of an export file from its name
+     */
+    public static ExportCompression forFileName(String fileName) {
+        for (ExportCompression compression : values()) {
+            if (compression != NONE && fileName.endsWith(compression.extension)) {
+                return compression;
+            }
+        }
+        return NONE;
+    }
+}
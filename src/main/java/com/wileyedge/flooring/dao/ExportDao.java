@@ -1,6 +1,8 @@
 package com.wileyedge.flooring.dao;
 
+import com.wileyedge.flooring.dto.ExportProgress;
 import com.wileyedge.flooring.dto.Order;
+import com.wileyedge.flooring.exceptions.ExportCancelledException;
 import com.wileyedge.flooring.exceptions.PersistenceException;
 
 import java.time.LocalDate;
@@ -14,4 +16,53 @@ public interface ExportDao {
      * @throws PersistenceException if unable to export data
      */
     void exportAllData(Map<LocalDate, Map<Integer, Order>> allOrders) throws PersistenceException;
+
+    /**
+     * Exports all order data to a backup file, reading one date partition at a time
+     * @param source supplies the orders partition by partition
+     * @throws PersistenceException if unable to read orders or write the export
+     */
+    void exportAllData(OrderPartitionSource source) throws PersistenceException;
+
+    /**
+     * Exports all order data, reporting each partition written and stopping if cancelled
+     * @param source supplies the orders partition by partition
+     * @param progress updated as partitions are written; checked for cancellation
+     * @throws ExportCancelledException if cancelled, leaving the previous export in place
+     * @throws PersistenceException if unable to read orders or write the export
+     */
+    void exportAllData(OrderPartitionSource source, ExportProgress progress) throws PersistenceException;
+
+    /**
+     * Writes only the partitions that changed since the last export to a new delta
+     * file and records them in the delta index. Falls back to a full export when
+     * there is no previous export to build on.
+     * @param source supplies the orders partition by partition
+     * @return number of partitions written or removed
+     * @throws PersistenceException if unable to read orders or write the delta
+     */
+    int exportChangedData(OrderPartitionSource source) throws PersistenceException;
+
+    /**
+     * Exports changed partitions, reporting each partition written and stopping if cancelled
+     * @param source supplies the orders partition by partition
+     * @param progress updated as partitions are written; checked for cancellation
+     * @return number of partitions written or removed
+     * @throws ExportCancelledException if cancelled, leaving the previous export in place
+     * @throws PersistenceException if unable to read orders or write the delta
+     */
+    int exportChangedData(OrderPartitionSource source, ExportProgress progress) throws PersistenceException;
+
+    /**
+     * Merges all outstanding deltas into the full export file and deletes them
+     * @throws PersistenceException if unable to read or write the export files
+     */
+    void consolidateExports() throws PersistenceException;
+
+    /**
+     * Opens the current full export for reading, whatever compression or chunking it was written with
+     * @return a reader over the exported order rows
+     * @throws PersistenceException if unable to open the export
+     */
+    ExportReader openExport() throws PersistenceException;
 }
\ No newline at end of file
@@ -1,71 +1,572 @@
 package com.wileyedge.flooring.dao;
 
+import com.wileyedge.flooring.dto.ExportProgress;
 import com.wileyedge.flooring.dto.Order;
+import com.wileyedge.flooring.dto.PartitionSummary;
+import com.wileyedge.flooring.exceptions.ExportCancelledException;
 import com.wileyedge.flooring.exceptions.PersistenceException;
 import org.springframework.stereotype.Component;
 
-import java.io.FileWriter;
-import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.Deflater;
 
 @Component
 public class ExportDaoFileImpl implements ExportDao {
 
     private final String EXPORT_FILE;
+    private final ExportCompression compression;
+    private final int compressionLevel;
+    private final long chunkSize;
     private static final String DELIMITER = ",";
+    private static final int BUFFER_SIZE = 4 * 1024 * 1024;
+    private static final int ESTIMATED_ROW_SIZE = 128;
     private static final String HEADER = "OrderNumber,CustomerName,State,TaxRate,ProductType,Area," +
             "CostPerSquareFoot,LaborCostPerSquareFoot,MaterialCost,LaborCost,Tax,Total,OrderDate";
+    private static final byte[] HEADER_BYTES = (HEADER + System.lineSeparator()).getBytes(StandardCharsets.US_ASCII);
+    private static final String STATE_HEADER = "OrderDate,Checksum";
+    private static final String DELTA_INDEX_HEADER = "Sequence,OrderDate,Action,Offset,Length";
+    private static final String REPLACE = "REPLACE";
+    private static final String REMOVE = "REMOVE";
+    private static final DateTimeFormatter ROW_DATE_FORMAT = DateTimeFormatter.ofPattern("MM-dd-yyyy");
+
+    private final OrderRecordEncoder encoder = new OrderRecordEncoder();
 
     public ExportDaoFileImpl() {
-        this.EXPORT_FILE = "Backup/DataExport.txt";
+        this("Backup/DataExport.txt");
     }
 
     public ExportDaoFileImpl(String exportFile) {
+        this(exportFile, ExportCompression.NONE, Deflater.DEFAULT_COMPRESSION, 0);
+    }
+
+    /**
+     * @param exportFile base export file name
+     * @param compression output format of the full export
+     * @param compressionLevel deflate level, 0-9 or -1 for the default
+     * @param chunkSize uncompressed bytes per export chunk file, 0 to write a single file
+     */
+    public ExportDaoFileImpl(String exportFile, ExportCompression compression, int compressionLevel,
+                             long chunkSize) {
+        if (compressionLevel < Deflater.DEFAULT_COMPRESSION || compressionLevel > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Compression level must be between -1 and 9.");
+        }
         this.EXPORT_FILE = exportFile;
+        this.compression = compression;
+        this.compressionLevel = compressionLevel;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public synchronized void exportAllData(Map<LocalDate, Map<Integer, Order>> allOrders) throws PersistenceException {
+        exportAllData(new OrderPartitionSource() {
+            @Override
+            public List<PartitionSummary> getPartitions() {
+                // No checksums are known here, so the next incremental export rewrites everything
+                List<PartitionSummary> partitions = new ArrayList<>();
+                for (Map.Entry<LocalDate, Map<Integer, Order>> dateEntry : allOrders.entrySet()) {
+                    partitions.add(new PartitionSummary(dateEntry.getKey(), dateEntry.getValue().size(),
+                            0, 0, BigDecimal.ZERO, 0, 0));
+                }
+                return partitions;
+            }
+
+            @Override
+            public List<Order> getOrdersForDate(LocalDate date) {
+                return new ArrayList<>(allOrders.get(date).values());
+            }
+        });
+    }
+
+    /**
+     * Writes a complete export, then discards any deltas (they describe an older
+     * base) and records the exported partition checksums for the next incremental run.
+     */
+    @Override
+    public synchronized void exportAllData(OrderPartitionSource source) throws PersistenceException {
+        exportAllData(source, new ExportProgress());
+    }
+
+    @Override
+    public synchronized void exportAllData(OrderPartitionSource source, ExportProgress progress)
+            throws PersistenceException {
+        Map<LocalDate, Long> checksums = nonEmptyPartitions(source);
+        File exportFile = new File(EXPORT_FILE);
+        ExportSink sink = openExportSink();
+
+        try {
+            writePartitions(sink, source, new ArrayList<>(checksums.keySet()), progress);
+            sink.commit();
+        } catch (IOException | PersistenceException e) {
+            sink.abort();
+            throw e instanceof PersistenceException ? (PersistenceException) e
+                    : new PersistenceException("Could not write to export file.", e);
+        }
+
+        // Only one form of the export is kept: drop other formats and leftover chunks
+        ExportReader.deleteOtherParts(exportFile, sink.getFiles());
+        clearDeltas(loadDeltaIndex());
+        saveExportState(checksums);
+    }
+
+    @Override
+    public synchronized int exportChangedData(OrderPartitionSource source) throws PersistenceException {
+        return exportChangedData(source, new ExportProgress());
+    }
+
+    @Override
+    public synchronized int exportChangedData(OrderPartitionSource source, ExportProgress progress)
+            throws PersistenceException {
+        Map<LocalDate, Long> exported = loadExportState();
+        Map<LocalDate, Long> current = nonEmptyPartitions(source);
+
+        if (exported == null || ExportReader.findParts(new File(EXPORT_FILE)).isEmpty()) {
+            // Nothing to build a delta on, so start from a full export
+            exportAllData(source, progress);
+            return current.size();
+        }
+
+        List<LocalDate> changedDates = new ArrayList<>();
+        for (Map.Entry<LocalDate, Long> partition : current.entrySet()) {
+            Long exportedChecksum = exported.get(partition.getKey());
+            if (partition.getValue() == 0 || !partition.getValue().equals(exportedChecksum)) {
+                changedDates.add(partition.getKey());
+            }
+        }
+
+        List<LocalDate> removedDates = new ArrayList<>(exported.keySet());
+        removedDates.removeAll(current.keySet());
+
+        if (changedDates.isEmpty() && removedDates.isEmpty()) {
+            progress.start(0);
+            return 0;
+        }
+
+        List<DeltaEntry> index = loadDeltaIndex();
+        int sequence = index.isEmpty() ? 1 : index.get(index.size() - 1).sequence + 1;
+
+        List<DeltaEntry> entries;
+        ExportSink deltaSink = openDeltaSink(sequence);
+
+        try {
+            entries = writePartitions(deltaSink, source, changedDates, progress);
+            deltaSink.commit();
+        } catch (IOException | PersistenceException e) {
+            deltaSink.abort();
+            throw e instanceof PersistenceException ? (PersistenceException) e
+                    : new PersistenceException("Could not write export delta.", e);
+        }
+        for (DeltaEntry entry : entries) {
+            entry.sequence = sequence;
+        }
+        for (LocalDate date : removedDates) {
+            entries.add(new DeltaEntry(sequence, date, REMOVE, 0, 0));
+        }
+
+        // Delta first, then index, then state: an interrupted run leaves at worst an unreferenced delta file
+        index.addAll(entries);
+        saveDeltaIndex(index);
+        saveExportState(current);
+
+        return changedDates.size() + removedDates.size();
     }
 
+    /**
+     * Rewrites the base export with every delta applied. Base rows are streamed
+     * and replaced partitions are spliced in by date, so if the base is in date
+     * order the result is too.
+     */
     @Override
-    public void exportAllData(Map<LocalDate, Map<Integer, Order>> allOrders) throws PersistenceException {
-        PrintWriter out;
+    public synchronized void consolidateExports() throws PersistenceException {
+        List<DeltaEntry> index = loadDeltaIndex();
+        if (index.isEmpty()) {
+            return;
+        }
+
+        // Later deltas win
+        TreeMap<LocalDate, DeltaEntry> latest = new TreeMap<>();
+        for (DeltaEntry entry : index) {
+            latest.put(entry.date, entry);
+        }
+        Set<LocalDate> replacedDates = new HashSet<>(latest.keySet());
+
+        Map<Integer, FileChannel> deltaChannels = new HashMap<>();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        byte[] lineSeparator = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+        ExportSink sink = null;
+
+        try (ExportReader base = ExportReader.open(EXPORT_FILE)) {
+            sink = openExportSink();
+            buffer.put(HEADER_BYTES);
+
+            String currentLine;
+            while ((currentLine = base.readRow()) != null) {
+                LocalDate date = getRowDate(currentLine);
+
+                // Splice in replaced partitions that sort before or at this row
+                while (!latest.isEmpty() && !latest.firstKey().isAfter(date)) {
+                    copyDelta(sink, buffer, latest.pollFirstEntry().getValue(), deltaChannels);
+                }
+
+                if (!replacedDates.contains(date)) {
+                    byte[] row = currentLine.getBytes(StandardCharsets.UTF_8);
+                    if (row.length + lineSeparator.length > buffer.remaining()) {
+                        drain(sink, buffer);
+                    }
+                    buffer.put(row).put(lineSeparator);
+                }
+            }
+
+            while (!latest.isEmpty()) {
+                copyDelta(sink, buffer, latest.pollFirstEntry().getValue(), deltaChannels);
+            }
+
+            drain(sink, buffer);
+            sink.commit();
+        } catch (IOException | RuntimeException | PersistenceException e) {
+            if (sink != null) {
+                sink.abort();
+            }
+            throw new PersistenceException("Could not consolidate export deltas.", e);
+        } finally {
+            for (FileChannel channel : deltaChannels.values()) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    // Read only, nothing to lose
+                }
+            }
+        }
+
+        ExportReader.deleteOtherParts(new File(EXPORT_FILE), sink.getFiles());
+        clearDeltas(index);
+    }
+
+    @Override
+    public ExportReader openExport() {
+        return ExportReader.open(EXPORT_FILE);
+    }
+
+    private Map<LocalDate, Long> nonEmptyPartitions(OrderPartitionSource source) throws PersistenceException {
+        Map<LocalDate, Long> checksums = new TreeMap<>();
+        for (PartitionSummary partition : source.getPartitions()) {
+            if (partition.getOrderCount() > 0) {
+                checksums.put(partition.getOrderDate(), partition.getChecksum());
+            }
+        }
+        return checksums;
+    }
+
+    /**
+     * Partitions are read in date order on the calling thread, encoded into chunk
+     * buffers on a worker pool and written back in date order as each chunk completes.
+     * Rows within a partition are sorted by order number, so the output is
+     * deterministic. At most two chunks per worker are held in memory at once.
+     * Cancellation is checked before each partition is read.
+     * @return where each partition landed in the file
+     */
+    private List<DeltaEntry> writePartitions(ExportSink sink, OrderPartitionSource source, List<LocalDate> dates,
+                                             ExportProgress progress) throws IOException, PersistenceException {
+        List<LocalDate> sortedDates = new ArrayList<>(dates);
+        Collections.sort(sortedDates);
+
+        int workers = Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "export-encoder");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Deque<Future<ByteBuffer>> pending = new ArrayDeque<>();
+        Deque<LocalDate> pendingDates = new ArrayDeque<>();
+        Deque<Integer> pendingRows = new ArrayDeque<>();
+        List<DeltaEntry> extents = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        try {
+            progress.start(sortedDates.size());
+
+            // Write header
+            buffer.put(HEADER_BYTES);
+
+            for (LocalDate date : sortedDates) {
+                if (progress.isCancelRequested()) {
+                    throw new ExportCancelledException("Export was cancelled.");
+                }
+
+                List<Order> orders = source.getOrdersForDate(date);
+                pending.add(executor.submit(() -> encodePartition(orders)));
+                pendingDates.add(date);
+                pendingRows.add(orders.size());
+
+                if (pending.size() >= workers * 2) {
+                    extents.add(writeChunk(sink, buffer, pendingDates.poll(), pending.poll().get()));
+                    progress.partitionDone(pendingRows.poll(), extents.get(extents.size() - 1).length);
+                }
+            }
+
+            while (!pending.isEmpty()) {
+                extents.add(writeChunk(sink, buffer, pendingDates.poll(), pending.poll().get()));
+                progress.partitionDone(pendingRows.poll(), extents.get(extents.size() - 1).length);
+            }
 
+            drain(sink, buffer);
+        } catch (ExecutionException e) {
+            throw new PersistenceException("Could not encode export data.", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PersistenceException("Export was interrupted.", e);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return extents;
+    }
+
+    /**
+     * Encodes one partition, sorted by order number, into a heap buffer sized to fit
+     */
+    private ByteBuffer encodePartition(List<Order> orders) {
+        List<Order> sorted = new ArrayList<>(orders);
+        sorted.sort(Comparator.comparingInt(Order::getOrderNumber));
+
+        ByteBuffer chunk = ByteBuffer.allocate(Math.max(sorted.size(), 1) * ESTIMATED_ROW_SIZE);
+
+        for (Order order : sorted) {
+            int rowStart = chunk.position();
+            while (true) {
+                try {
+                    encoder.encode(order, chunk);
+                    break;
+                } catch (BufferOverflowException e) {
+                    // Row did not fit: grow the chunk and encode the row again
+                    chunk.position(rowStart);
+                    chunk.flip();
+                    chunk = ByteBuffer.allocate(chunk.capacity() * 2).put(chunk);
+                }
+            }
+        }
+
+        chunk.flip();
+        return chunk;
+    }
+
+    private DeltaEntry writeChunk(ExportSink sink, ByteBuffer buffer, LocalDate date, ByteBuffer chunk)
+            throws IOException {
+        if (chunk.remaining() > buffer.remaining()) {
+            drain(sink, buffer);
+        }
+
+        DeltaEntry extent = new DeltaEntry(0, date, REPLACE, sink.position() + buffer.position(),
+                chunk.remaining());
+
+        if (chunk.remaining() > buffer.remaining()) {
+            // Larger than the whole write buffer, so hand it to the sink as is
+            sink.write(chunk);
+        } else {
+            buffer.put(chunk);
+        }
+
+        return extent;
+    }
+
+    private void drain(ExportSink sink, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        sink.write(buffer);
+        buffer.clear();
+    }
+
+    private ExportSink openExportSink() throws PersistenceException {
         try {
-            out = new PrintWriter(new FileWriter(EXPORT_FILE));
+            return ExportSink.open(new File(EXPORT_FILE), compression, compressionLevel, chunkSize, HEADER_BYTES);
         } catch (IOException e) {
             throw new PersistenceException("Could not write to export file.", e);
         }
+    }
+
+    private ExportSink openDeltaSink(int sequence) throws PersistenceException {
+        try {
+            return ExportSink.openFile(deltaFile(sequence), ExportCompression.NONE, compressionLevel);
+        } catch (IOException e) {
+            throw new PersistenceException("Could not write export delta.", e);
+        }
+    }
+
+    /**
+     * Copies one replaced partition out of its delta file, whole rows at a time
+     */
+    private void copyDelta(ExportSink sink, ByteBuffer buffer, DeltaEntry entry,
+                           Map<Integer, FileChannel> deltaChannels) throws IOException {
+        if (!REPLACE.equals(entry.action)) {
+            return;
+        }
+
+        FileChannel channel = deltaChannels.get(entry.sequence);
+        if (channel == null) {
+            channel = FileChannel.open(deltaFile(entry.sequence).toPath(), StandardOpenOption.READ);
+            deltaChannels.put(entry.sequence, channel);
+        }
+
+        if (entry.length > buffer.remaining()) {
+            drain(sink, buffer);
+        }
+
+        // Read straight into the write buffer unless the partition is bigger than it
+        boolean fitsInBuffer = entry.length <= buffer.remaining();
+        ByteBuffer target = fitsInBuffer
+                ? buffer.slice().limit((int) entry.length)
+                : ByteBuffer.allocate((int) entry.length);
+        long position = entry.offset;
+
+        while (target.hasRemaining()) {
+            int read = channel.read(target, position);
+            if (read < 0) {
+                throw new EOFException("Delta " + entry.sequence + " is shorter than its index says.");
+            }
+            position += read;
+        }
+
+        if (fitsInBuffer) {
+            buffer.position(buffer.position() + (int) entry.length);
+        } else {
+            target.flip();
+            sink.write(target);
+        }
+    }
+
+    private LocalDate getRowDate(String row) {
+        return LocalDate.parse(row.substring(row.lastIndexOf(DELIMITER) + 1), ROW_DATE_FORMAT);
+    }
+
+    private File deltaFile(int sequence) {
+        return new File(String.format("%s.delta-%06d.txt", getExportBaseName(), sequence));
+    }
+
+    private File getDeltaIndexFile() {
+        return new File(getExportBaseName() + ".deltas.txt");
+    }
+
+    private File getExportStateFile() {
+        return new File(getExportBaseName() + ".state.txt");
+    }
+
+    private String getExportBaseName() {
+        return EXPORT_FILE.endsWith(".txt") ? EXPORT_FILE.substring(0, EXPORT_FILE.length() - 4) : EXPORT_FILE;
+    }
+
+    private void clearDeltas(List<DeltaEntry> index) {
+        for (DeltaEntry entry : index) {
+            deltaFile(entry.sequence).delete();
+        }
+        getDeltaIndexFile().delete();
+    }
+
+    /**
+     * @return checksum of every partition in the last export, or null if none was recorded
+     */
+    private Map<LocalDate, Long> loadExportState() throws PersistenceException {
+        File stateFile = getExportStateFile();
+        if (!stateFile.exists()) {
+            return null;
+        }
 
-        // Write header
-        out.println(HEADER);
+        Map<LocalDate, Long> checksums = new TreeMap<>();
+        for (String[] tokens : readTable(stateFile)) {
+            checksums.put(LocalDate.parse(tokens[0]), Long.parseLong(tokens[1]));
+        }
+        return checksums;
+    }
+
+    private void saveExportState(Map<LocalDate, Long> checksums) throws PersistenceException {
+        List<String> lines = new ArrayList<>();
+        lines.add(STATE_HEADER);
+        for (Map.Entry<LocalDate, Long> partition : checksums.entrySet()) {
+            lines.add(partition.getKey() + DELIMITER + partition.getValue());
+        }
+        writeTable(getExportStateFile(), lines);
+    }
 
-        // Write all orders
-        for (Map.Entry<LocalDate, Map<Integer, Order>> dateEntry : allOrders.entrySet()) {
-            for (Order order : dateEntry.getValue().values()) {
-                out.println(marshallOrder(order));
+    private List<DeltaEntry> loadDeltaIndex() throws PersistenceException {
+        List<DeltaEntry> index = new ArrayList<>();
+        File indexFile = getDeltaIndexFile();
+
+        if (indexFile.exists()) {
+            for (String[] tokens : readTable(indexFile)) {
+                index.add(new DeltaEntry(Integer.parseInt(tokens[0]), LocalDate.parse(tokens[1]), tokens[2],
+                        Long.parseLong(tokens[3]), Long.parseLong(tokens[4])));
+            }
+        }
+        return index;
+    }
+
+    private void saveDeltaIndex(List<DeltaEntry> index) throws PersistenceException {
+        List<String> lines = new ArrayList<>();
+        lines.add(DELTA_INDEX_HEADER);
+        for (DeltaEntry entry : index) {
+            lines.add(entry.sequence + DELIMITER + entry.date + DELIMITER + entry.action + DELIMITER +
+                    entry.offset + DELIMITER + entry.length);
+        }
+        writeTable(getDeltaIndexFile(), lines);
+    }
+
+    private List<String[]> readTable(File file) throws PersistenceException {
+        List<String[]> rows = new ArrayList<>();
+
+        try (BufferedReader in = new BufferedReader(new FileReader(file))) {
+            String currentLine = in.readLine(); // Skip header line
+            while ((currentLine = in.readLine()) != null) {
+                if (!currentLine.isEmpty()) {
+                    rows.add(currentLine.split(DELIMITER));
+                }
             }
+        } catch (IOException e) {
+            throw new PersistenceException("Could not read " + file, e);
         }
 
-        out.flush();
-        out.close();
+        return rows;
     }
 
-    private String marshallOrder(Order order) {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MM-dd-yyyy");
+    private void writeTable(File file, List<String> lines) throws PersistenceException {
+        File tempFile = new File(file.getPath() + ".tmp");
 
-        return order.getOrderNumber() + DELIMITER +
-                order.getCustomerName() + DELIMITER +
-                order.getState() + DELIMITER +
-                order.getTaxRate() + DELIMITER +
-                order.getProductType() + DELIMITER +
-                order.getArea() + DELIMITER +
-                order.getCostPerSquareFoot() + DELIMITER +
-                order.getLaborCostPerSquareFoot() + DELIMITER +
-                order.getMaterialCost() + DELIMITER +
-                order.getLaborCost() + DELIMITER +
-                order.getTax() + DELIMITER +
-                order.getTotal() + DELIMITER +
-                order.getOrderDate().format(formatter);
+        try (PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(tempFile)))) {
+            for (String line : lines) {
+                out.println(line);
+            }
+            if (out.checkError()) {
+                throw new IOException("Write failed for " + tempFile);
+            }
+        } catch (IOException e) {
+            throw new PersistenceException("Could not write " + file, e);
+        }
+
+        OrderManifest.moveIntoPlace(tempFile.toPath(), file.toPath());
+    }
+
+    /**
+     * One partition inside a delta file, or a partition removed since the previous export
+     */
+    private static class DeltaEntry {
+        private int sequence;
+        private final LocalDate date;
+        private final String action;
+        private final long offset;
+        private final long length;
+
+        DeltaEntry(int sequence, LocalDate date, String action, long offset, long length) {
+            this.sequence = sequence;
+            this.date = date;
+            this.action = action;
+            this.offset = offset;
+            this.length = length;
+        }
     }
-}
\ No newline at end of file
+}
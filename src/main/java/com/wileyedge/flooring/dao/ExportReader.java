@@ -0,0 +1,205 @@
+package com.wileyedge.flooring.dao;
+
+import com.wileyedge.flooring.exceptions.PersistenceException;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Reads back a data export in whichever form it was written: plain, GZIP or
+ * Deflate, as one file or as numbered chunks. Header lines are skipped, so
+ * callers only ever see order rows.
+ */
+public class ExportReader implements Closeable {
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private final List<File> parts;
+    private int nextPart = 0;
+    private BufferedReader current;
+
+    private ExportReader(List<File> parts) {
+        this.parts = parts;
+    }
+
+    /**
+     * Opens the export that was written for the given base file name
+     * @param exportFile base export file, e.g. Backup/DataExport.txt
+     * @return a reader over the export, with no parts if nothing was exported yet
+     */
+    public static ExportReader open(String exportFile) {
+        return new ExportReader(findParts(new File(exportFile)));
+    }
+
+    /**
+     * Finds the files making up the current export, in read order
+     */
+    static List<File> findParts(File exportFile) {
+        List<File> parts = new ArrayList<>();
+
+        for (ExportCompression compression : ExportCompression.values()) {
+            for (int chunk = 1; ; chunk++) {
+                File part = ExportSink.chunkFile(exportFile, chunk, compression);
+                if (!part.exists()) {
+                    break;
+                }
+                parts.add(part);
+            }
+            if (!parts.isEmpty()) {
+                return parts;
+            }
+
+            File single = new File(exportFile.getPath() + compression.getExtension());
+            if (single.exists()) {
+                parts.add(single);
+                return parts;
+            }
+        }
+
+        return parts;
+    }
+
+    /**
+     * Deletes every form of the export except the given files
+     */
+    static void deleteOtherParts(File exportFile, List<File> keep) {
+        Set<File> keepFiles = new HashSet<>();
+        for (File file : keep) {
+            keepFiles.add(file.getAbsoluteFile());
+        }
+
+        String name = exportFile.getName();
+        String base = name.endsWith(".txt") ? name.substring(0, name.length() - 4) : name;
+        Pattern exportName = Pattern.compile(Pattern.quote(base) + "(\\.part-\\d{4})?\\.txt(\\.gz|\\.deflate)?");
+
+        File folder = exportFile.getAbsoluteFile().getParentFile();
+        File[] listOfFiles = folder == null ? null : folder.listFiles();
+        if (listOfFiles == null) {
+            return;
+        }
+
+        for (File file : listOfFiles) {
+            if (exportName.matcher(file.getName()).matches() && !keepFiles.contains(file.getAbsoluteFile())) {
+                file.delete();
+            }
+        }
+    }
+
+    public List<File> getParts() {
+        return new ArrayList<>(parts);
+    }
+
+    /**
+     * Reads the next order row across all parts
+     * @return the row, or null once every part is exhausted
+     * @throws PersistenceException if a part cannot be read
+     */
+    public String readRow() throws PersistenceException {
+        try {
+            while (true) {
+                if (current == null) {
+                    if (nextPart >= parts.size()) {
+                        return null;
+                    }
+                    current = openPart(parts.get(nextPart++));
+                }
+
+                String row = current.readLine();
+                if (row == null) {
+                    current.close();
+                    current = null;
+                } else if (!row.isEmpty()) {
+                    return row;
+                }
+            }
+        } catch (IOException e) {
+            throw new PersistenceException("Could not read export data.", e);
+        }
+    }
+
+    /**
+     * Reads every part on its own thread
+     * @param partReader called once per part with a reader positioned after the header
+     * @return the result for each part, in part order
+     * @throws PersistenceException if any part fails
+     */
+    public <T> List<T> readPartsInParallel(PartReader<T> partReader) throws PersistenceException {
+        int workers = Math.max(1, Math.min(parts.size(), Runtime.getRuntime().availableProcessors()));
+        ExecutorService executor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "export-reader");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            List<Future<T>> futures = new ArrayList<>();
+            for (File part : parts) {
+                futures.add(executor.submit(() -> {
+                    try (BufferedReader rows = openPart(part)) {
+                        return partReader.read(rows);
+                    }
+                }));
+            }
+
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (ExecutionException e) {
+            throw new PersistenceException("Could not read export data.", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PersistenceException("Export read was interrupted.", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (current != null) {
+            current.close();
+            current = null;
+        }
+        nextPart = parts.size();
+    }
+
+    /**
+     * Opens one part, decompressing as needed, and skips its header line
+     */
+    static BufferedReader openPart(File part) throws IOException {
+        InputStream in = new BufferedInputStream(new FileInputStream(part), READ_BUFFER_SIZE);
+
+        switch (ExportCompression.forFileName(part.getName())) {
+            case GZIP:
+                in = new GZIPInputStream(in, READ_BUFFER_SIZE);
+                break;
+            case DEFLATE:
+                in = new InflaterInputStream(in);
+                break;
+            default:
+                break;
+        }
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8),
+                READ_BUFFER_SIZE);
+        reader.readLine(); // Skip header line
+        return reader;
+    }
+
+    /**
+     * Consumes the rows of one export part
+     */
+    public interface PartReader<T> {
+        T read(BufferedReader rows) throws IOException;
+    }
+}
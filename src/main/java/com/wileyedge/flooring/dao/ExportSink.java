@@ -0,0 +1,299 @@
+package com.wileyedge.flooring.dao;
+
+import com.wileyedge.flooring.exceptions.PersistenceException;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Destination for encoded export bytes. Every file is written under a temporary
+ * name and only renamed into place by {@link #commit()}, so a failed export never
+ * replaces a good one.
+ * Callers hand over whole rows per {@link #write(ByteBuffer)} call, so the
+ * chunked sink can always find a row boundary to split files on.
+ */
+public abstract class ExportSink implements Closeable {
+
+    private static final int OUTPUT_BUFFER_SIZE = 256 * 1024;
+
+    private final List<File> files = new ArrayList<>();
+    private long position = 0;
+
+    /**
+     * Opens a sink for one export
+     * @param file final file name, without compression extension or chunk number
+     * @param compression output format
+     * @param level deflate level, 0-9 or -1 for the default
+     * @param chunkSize uncompressed bytes per chunk file, 0 for a single file
+     * @param chunkHeader bytes written at the start of every chunk after the first
+     */
+    public static ExportSink open(File file, ExportCompression compression, int level, long chunkSize,
+                                  byte[] chunkHeader) throws IOException {
+        if (chunkSize > 0) {
+            return new ChunkedSink(file, compression, level, chunkSize, chunkHeader);
+        }
+        return openFile(new File(file.getPath() + compression.getExtension()), compression, level);
+    }
+
+    static ExportSink openFile(File file, ExportCompression compression, int level) throws IOException {
+        File tempFile = new File(file.getPath() + ".tmp");
+        FileChannel channel = FileChannel.open(tempFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+
+        ExportSink sink = compression == ExportCompression.NONE
+                ? new ChannelSink(channel)
+                : new DeflateSink(channel, compression == ExportCompression.GZIP, level);
+        sink.files.add(file);
+        return sink;
+    }
+
+    /**
+     * Writes all remaining bytes of data
+     */
+    public final void write(ByteBuffer data) throws IOException {
+        position += data.remaining();
+        writeBytes(data);
+    }
+
+    /**
+     * @return uncompressed bytes written so far
+     */
+    public long position() {
+        return position;
+    }
+
+    /**
+     * @return the files this sink produces, under their final names
+     */
+    public List<File> getFiles() {
+        return new ArrayList<>(files);
+    }
+
+    /**
+     * Closes the sink and moves its files into place
+     */
+    public void commit() throws IOException, PersistenceException {
+        close();
+        for (File file : files) {
+            OrderManifest.moveIntoPlace(new File(file.getPath() + ".tmp").toPath(), file.toPath());
+        }
+    }
+
+    /**
+     * Closes the sink and deletes whatever it wrote
+     */
+    public void abort() {
+        try {
+            close();
+        } catch (IOException e) {
+            // Being thrown away anyway
+        }
+        for (File file : files) {
+            new File(file.getPath() + ".tmp").delete();
+        }
+    }
+
+    protected abstract void writeBytes(ByteBuffer data) throws IOException;
+
+    private static void writeFully(FileChannel channel, ByteBuffer data) throws IOException {
+        while (data.hasRemaining()) {
+            channel.write(data);
+        }
+    }
+
+    private static class ChannelSink extends ExportSink {
+        private final FileChannel channel;
+
+        ChannelSink(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        protected void writeBytes(ByteBuffer data) throws IOException {
+            writeFully(channel, data);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * Streams through a {@link Deflater} straight from the caller's buffer.
+     * GZIP framing (header, CRC32 and length trailer) is written here around a raw
+     * deflate stream; DEFLATE output is the zlib format.
+     */
+    private static class DeflateSink extends ExportSink {
+        private static final byte[] GZIP_HEADER = {
+                0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff
+        };
+
+        private final FileChannel channel;
+        private final boolean gzip;
+        private final Deflater deflater;
+        private final CRC32 crc = new CRC32();
+        private final ByteBuffer output = ByteBuffer.allocateDirect(OUTPUT_BUFFER_SIZE);
+        private boolean closed = false;
+
+        DeflateSink(FileChannel channel, boolean gzip, int level) throws IOException {
+            this.channel = channel;
+            this.gzip = gzip;
+            this.deflater = new Deflater(level, gzip);
+
+            if (gzip) {
+                writeFully(channel, ByteBuffer.wrap(GZIP_HEADER));
+            }
+        }
+
+        @Override
+        protected void writeBytes(ByteBuffer data) throws IOException {
+            if (gzip) {
+                crc.update(data.duplicate());
+            }
+
+            deflater.setInput(data);
+            while (!deflater.needsInput()) {
+                deflater.deflate(output);
+                drainOutput();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+
+            try {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    deflater.deflate(output);
+                    drainOutput();
+                }
+
+                if (gzip) {
+                    ByteBuffer trailer = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+                    trailer.putInt((int) crc.getValue());
+                    trailer.putInt((int) deflater.getBytesRead());
+                    trailer.flip();
+                    writeFully(channel, trailer);
+                }
+            } finally {
+                deflater.end();
+                channel.close();
+            }
+        }
+
+        private void drainOutput() throws IOException {
+            output.flip();
+            writeFully(channel, output);
+            output.clear();
+        }
+    }
+
+    /**
+     * Rolls over to a new numbered file once a chunk holds chunkSize uncompressed bytes.
+     * Each chunk is a complete file on its own, so chunks can be read back in parallel.
+     */
+    private static class ChunkedSink extends ExportSink {
+        private final File file;
+        private final ExportCompression compression;
+        private final int level;
+        private final long chunkSize;
+        private final byte[] chunkHeader;
+        private ExportSink current;
+        private long currentBytes;
+        private int chunkCount = 0;
+
+        ChunkedSink(File file, ExportCompression compression, int level, long chunkSize, byte[] chunkHeader) {
+            this.file = file;
+            this.compression = compression;
+            this.level = level;
+            this.chunkSize = chunkSize;
+            this.chunkHeader = chunkHeader;
+        }
+
+        @Override
+        protected void writeBytes(ByteBuffer data) throws IOException {
+            while (data.hasRemaining()) {
+                if (current == null) {
+                    openChunk();
+                }
+
+                int length = data.remaining();
+                if (currentBytes + length > chunkSize) {
+                    length = rowBoundary(data, (int) (chunkSize - currentBytes));
+                }
+
+                ByteBuffer slice = data.duplicate();
+                slice.limit(data.position() + length);
+                current.write(slice);
+                data.position(data.position() + length);
+                currentBytes += length;
+
+                if (currentBytes >= chunkSize || data.hasRemaining()) {
+                    current.close();
+                    current = null;
+                }
+            }
+        }
+
+        /**
+         * Finds how many bytes to take so the chunk ends on a row: the last row end
+         * within room bytes, or the end of the first row if even that does not fit
+         */
+        private int rowBoundary(ByteBuffer data, int room) {
+            int start = data.position();
+            for (int i = start + room - 1; i >= start; i--) {
+                if (data.get(i) == '\n') {
+                    return i - start + 1;
+                }
+            }
+            for (int i = start + room; i < data.limit(); i++) {
+                if (data.get(i) == '\n') {
+                    return i - start + 1;
+                }
+            }
+            return data.remaining();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (current != null) {
+                current.close();
+                current = null;
+            }
+        }
+
+        private void openChunk() throws IOException {
+            chunkCount++;
+            current = openFile(chunkFile(file, chunkCount, compression), compression, level);
+            super.files.addAll(current.files);
+            currentBytes = 0;
+
+            if (chunkCount > 1) {
+                current.write(ByteBuffer.wrap(chunkHeader));
+            }
+        }
+    }
+
+    /**
+     * Name of one chunk, e.g. Backup/DataExport.part-0001.txt.gz
+     */
+    static File chunkFile(File file, int chunk, ExportCompression compression) {
+        String path = file.getPath();
+        String base = path.endsWith(".txt") ? path.substring(0, path.length() - 4) : path;
+        return new File(String.format("%s.part-%04d.txt%s", base, chunk, compression.getExtension()));
+    }
+}
@@ -0,0 +1,259 @@
+package com.wileyedge.flooring.dao;
+
+import com.wileyedge.flooring.dto.Order;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Encodes an order change as a one line JSON audit record holding only the
+ * fields that changed, each as [before, after]:
+ * <pre>{"order":4,"event":"EDITED","date":"06-01-2025","changes":{"area":[100.00,150.00]}}</pre>
+ * A removal lists every field the order had, with null after, and an add every
+ * field it has, with null before. With full payloads an edit lists every field
+ * too, so each record holds the whole order.
+ * Fields are compared and appended one by one into a single builder, and
+ * numbers are written digit by digit, so a record costs one string.
+ */
+public class OrderChangeEncoder {
+
+    /** Every audit record starts with this, so the order index can find it */
+    static final String RECORD_PREFIX = "{\"order\":";
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private final boolean fullPayloads;
+
+    public OrderChangeEncoder() {
+        this(false);
+    }
+
+    /**
+     * @param fullPayloads write unchanged fields of an edit as well
+     */
+    public OrderChangeEncoder(boolean fullPayloads) {
+        this.fullPayloads = fullPayloads;
+    }
+
+    /**
+     * @param added the order as it was saved
+     * @return the audit record
+     */
+    public String encodeAdd(Order added) {
+        StringBuilder out = start(added, "ADDED");
+        boolean first = true;
+
+        first = putChange(out, first, "customerName", null, added.getCustomerName());
+        first = putChange(out, first, "state", null, added.getState());
+        first = putChange(out, first, "taxRate", null, added.getTaxRate());
+        first = putChange(out, first, "productType", null, added.getProductType());
+        first = putChange(out, first, "area", null, added.getArea());
+        first = putChange(out, first, "costPerSquareFoot", null, added.getCostPerSquareFoot());
+        first = putChange(out, first, "laborCostPerSquareFoot", null, added.getLaborCostPerSquareFoot());
+        first = putChange(out, first, "materialCost", null, added.getMaterialCost());
+        first = putChange(out, first, "laborCost", null, added.getLaborCost());
+        first = putChange(out, first, "tax", null, added.getTax());
+        putChange(out, first, "total", null, added.getTotal());
+
+        return out.append("}}").toString();
+    }
+
+    /**
+     * @param before the order as it was saved
+     * @param after the order as it is now saved
+     * @return the audit record; without full payloads its changes are empty if nothing changed
+     */
+    public String encodeEdit(Order before, Order after) {
+        StringBuilder out = start(after, "EDITED");
+        boolean first = true;
+
+        first = putChange(out, first, "customerName", before.getCustomerName(), after.getCustomerName());
+        first = putChange(out, first, "state", before.getState(), after.getState());
+        first = putChange(out, first, "taxRate", before.getTaxRate(), after.getTaxRate());
+        first = putChange(out, first, "productType", before.getProductType(), after.getProductType());
+        first = putChange(out, first, "area", before.getArea(), after.getArea());
+        first = putChange(out, first, "costPerSquareFoot", before.getCostPerSquareFoot(),
+                after.getCostPerSquareFoot());
+        first = putChange(out, first, "laborCostPerSquareFoot", before.getLaborCostPerSquareFoot(),
+                after.getLaborCostPerSquareFoot());
+        first = putChange(out, first, "materialCost", before.getMaterialCost(), after.getMaterialCost());
+        first = putChange(out, first, "laborCost", before.getLaborCost(), after.getLaborCost());
+        first = putChange(out, first, "tax", before.getTax(), after.getTax());
+        putChange(out, first, "total", before.getTotal(), after.getTotal());
+
+        return out.append("}}").toString();
+    }
+
+    /**
+     * @param removed the order as it was before it was removed
+     * @return the audit record
+     */
+    public String encodeRemove(Order removed) {
+        StringBuilder out = start(removed, "REMOVED");
+        boolean first = true;
+
+        first = putChange(out, first, "customerName", removed.getCustomerName(), null);
+        first = putChange(out, first, "state", removed.getState(), null);
+        first = putChange(out, first, "taxRate", removed.getTaxRate(), null);
+        first = putChange(out, first, "productType", removed.getProductType(), null);
+        first = putChange(out, first, "area", removed.getArea(), null);
+        first = putChange(out, first, "costPerSquareFoot", removed.getCostPerSquareFoot(), null);
+        first = putChange(out, first, "laborCostPerSquareFoot", removed.getLaborCostPerSquareFoot(), null);
+        first = putChange(out, first, "materialCost", removed.getMaterialCost(), null);
+        first = putChange(out, first, "laborCost", removed.getLaborCost(), null);
+        first = putChange(out, first, "tax", removed.getTax(), null);
+        putChange(out, first, "total", removed.getTotal(), null);
+
+        return out.append("}}").toString();
+    }
+
+    private StringBuilder start(Order order, String event) {
+        StringBuilder out = new StringBuilder(INITIAL_CAPACITY);
+        out.append(RECORD_PREFIX).append(order.getOrderNumber());
+        out.append(",\"event\":\"").append(event).append('"');
+        out.append(",\"date\":");
+        putDate(out, order.getOrderDate());
+        return out.append(",\"changes\":{");
+    }
+
+    private boolean putChange(StringBuilder out, boolean first, String field, String before, String after) {
+        if (Objects.equals(before, after) && (!fullPayloads || after == null)) {
+            return first;
+        }
+        putField(out, first, field);
+        putText(out, before);
+        out.append(',');
+        putText(out, after);
+        out.append(']');
+        return false;
+    }
+
+    /**
+     * Decimals are compared by value, so 100 and 100.00 are not a change
+     */
+    private boolean putChange(StringBuilder out, boolean first, String field, BigDecimal before, BigDecimal after) {
+        boolean unchanged = before == null ? after == null : after != null && before.compareTo(after) == 0;
+        if (unchanged && (!fullPayloads || after == null)) {
+            return first;
+        }
+        putField(out, first, field);
+        putDecimal(out, before);
+        out.append(',');
+        putDecimal(out, after);
+        out.append(']');
+        return false;
+    }
+
+    private void putField(StringBuilder out, boolean first, String field) {
+        if (!first) {
+            out.append(',');
+        }
+        out.append('"').append(field).append("\":[");
+    }
+
+    private void putText(StringBuilder out, String text) {
+        if (text == null) {
+            out.append("null");
+            return;
+        }
+
+        out.append('"');
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.append("\\u00");
+                        out.append(Character.forDigit(c >> 4, 16)).append(Character.forDigit(c & 0xF, 16));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+
+    private void putDate(StringBuilder out, LocalDate date) {
+        if (date == null) {
+            out.append("null");
+            return;
+        }
+
+        int year = date.getYear();
+        if (year < 1000 || year > 9999) {
+            putText(out, date.toString());
+            return;
+        }
+
+        out.append('"');
+        putTwoDigits(out, date.getMonthValue());
+        out.append('-');
+        putTwoDigits(out, date.getDayOfMonth());
+        out.append('-').append(year);
+        out.append('"');
+    }
+
+    /**
+     * Writes the same characters as {@link BigDecimal#toPlainString()}.
+     * Values that do not fit in a long fall back to it.
+     */
+    private void putDecimal(StringBuilder out, BigDecimal value) {
+        if (value == null) {
+            out.append("null");
+            return;
+        }
+
+        int scale = value.scale();
+        if (scale < 0 || scale > 18 || value.unscaledValue().bitLength() > 62) {
+            out.append(value.toPlainString());
+            return;
+        }
+
+        long unscaled = value.unscaledValue().longValue();
+        if (unscaled < 0) {
+            out.append('-');
+            unscaled = -unscaled;
+        }
+
+        if (scale == 0) {
+            out.append(unscaled);
+            return;
+        }
+
+        long divisor = pow10(scale);
+        out.append(unscaled / divisor).append('.');
+        long fraction = unscaled % divisor;
+        for (long digit = divisor / 10; digit > 0; digit /= 10) {
+            out.append((char) ('0' + (fraction / digit) % 10));
+        }
+    }
+
+    private void putTwoDigits(StringBuilder out, int value) {
+        out.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+    }
+
+    private static long pow10(int exponent) {
+        long result = 1;
+        for (int i = 0; i < exponent; i++) {
+            result *= 10;
+        }
+        return result;
+    }
+}
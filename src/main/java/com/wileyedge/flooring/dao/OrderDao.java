@@ -1,6 +1,11 @@
 package com.wileyedge.flooring.dao;
 
 import com.wileyedge.flooring.dto.Order;
+import com.wileyedge.flooring.dto.OrderFilter;
+import com.wileyedge.flooring.dto.PartitionSummary;
+import com.wileyedge.flooring.dto.PivotRow;
+import com.wileyedge.flooring.dto.ReplayResult;
+import com.wileyedge.flooring.dto.RevenueTotals;
 import com.wileyedge.flooring.exceptions.NoSuchOrderException;
 import com.wileyedge.flooring.exceptions.PersistenceException;
 
@@ -37,12 +42,23 @@ public interface OrderDao {
     /**
      * Edits an existing order
      * @param order the updated order
-     * @return the edited order
+     * @return the saved order it replaced, read under the same lock as the write
      * @throws NoSuchOrderException if the order doesn't exist
      * @throws PersistenceException if unable to persist changes
      */
     Order editOrder(Order order) throws NoSuchOrderException, PersistenceException;
 
+    /**
+     * Edits several orders on the same date, writing the date's file once, but
+     * only if every one of them is still saved as it was read
+     * @param date the date the orders are on
+     * @param previous the orders as they were read, in the same order as edited
+     * @param edited the updated orders
+     * @return false, with nothing changed, if any order was edited or removed since it was read
+     * @throws PersistenceException if unable to persist changes
+     */
+    boolean editOrders(LocalDate date, List<Order> previous, List<Order> edited) throws PersistenceException;
+
     /**
      * Gets all orders for a specific date
      * @param date the date to retrieve orders for
@@ -58,6 +74,39 @@ public interface OrderDao {
      */
     Map<LocalDate, Map<Integer, Order>> getAllOrders() throws PersistenceException;
 
+    /**
+     * Gets the manifest summary of every order partition without opening the partitions
+     * @return one summary per order date, in date order
+     * @throws PersistenceException if unable to read from persistence
+     */
+    List<PartitionSummary> getPartitionSummaries() throws PersistenceException;
+
+    /**
+     * Gets each day's order count and summed costs without parsing the orders
+     * @param from first date, included
+     * @param to last date, included
+     * @return totals per date with orders, in date order
+     * @throws PersistenceException if unable to read from persistence
+     */
+    Map<LocalDate, RevenueTotals> getDailyTotals(LocalDate from, LocalDate to) throws PersistenceException;
+
+    /**
+     * Sums the saved orders a filter matches, grouped by the given dimensions
+     * @param filter orders to include; null fields match everything
+     * @param dimensions what to group by; none gives a single grand total row
+     * @return one row per group, ordered by their keys
+     * @throws PersistenceException if unable to read from persistence
+     */
+    List<PivotRow> pivotOrders(OrderFilter filter, List<PivotDimension> dimensions) throws PersistenceException;
+
+    /**
+     * Takes a consistent view of all orders as they are now. Writes made after this
+     * call are not visible through the snapshot, and do not wait for it to be read.
+     * @return the snapshot, to be closed once read
+     * @throws PersistenceException if unable to read from persistence
+     */
+    OrderSnapshot getSnapshot() throws PersistenceException;
+
     /**
      * Removes an order from the system
      * @param date the order date
@@ -67,4 +116,24 @@ public interface OrderDao {
      * @throws PersistenceException if unable to persist changes
      */
     Order removeOrder(LocalDate date, int orderNumber) throws NoSuchOrderException, PersistenceException;
+
+    /**
+     * Rebuilds order partitions from an export. Every date in the export replaces
+     * the partition for that date; dates not in the export are left alone.
+     * @param export the export rows to restore
+     * @return number of orders restored
+     * @throws PersistenceException if the export cannot be read or the orders cannot be written
+     */
+    int restoreOrders(ExportReader export) throws PersistenceException;
+
+    /**
+     * Rebuilds order partitions by replaying order events from the audit log.
+     * Each order the log mentions is brought to its last logged state, or taken
+     * out if the log removed it; orders the log never mentions are kept. Dates
+     * whose history the log does not go back far enough for are left alone.
+     * @param events audit entries, oldest first
+     * @return how many events were replayed and orders rebuilt, and how fast
+     * @throws PersistenceException if the log cannot be read or the orders cannot be written
+     */
+    ReplayResult rebuildOrders(AuditReader events) throws PersistenceException;
 }
\ No newline at end of file
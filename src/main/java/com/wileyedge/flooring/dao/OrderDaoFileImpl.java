@@ -1,28 +1,51 @@
 package com.wileyedge.flooring.dao;
 
+import com.wileyedge.flooring.dto.AuditRecord;
 import com.wileyedge.flooring.dto.Order;
+import com.wileyedge.flooring.dto.OrderFilter;
+import com.wileyedge.flooring.dto.PartitionSummary;
+import com.wileyedge.flooring.dto.PivotRow;
+import com.wileyedge.flooring.dto.ReplayResult;
+import com.wileyedge.flooring.dto.RevenueTotals;
 import com.wileyedge.flooring.exceptions.NoSuchOrderException;
 import com.wileyedge.flooring.exceptions.PersistenceException;
 import org.springframework.stereotype.Component;
 
 import java.io.*;
 import java.math.BigDecimal;
+import java.nio.file.Files;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
 
 @Component
 public class OrderDaoFileImpl implements OrderDao {
 
     private static final String DELIMITER = ",";
-    private static final String ORDER_FOLDER = "Orders";
+    private static final String MANIFEST_FILE = "Manifest.txt";
     private static final String HEADER = "OrderNumber,CustomerName,State,TaxRate,ProductType,Area," +
             "CostPerSquareFoot,LaborCostPerSquareFoot,MaterialCost,LaborCost,Tax,Total";
 
+    private final String ORDER_FOLDER;
+    private final OrderManifest manifest;
+    private boolean manifestLoaded = false;
+
     private Map<LocalDate, Map<Integer, Order>> orders = new HashMap<>();
     private int largestOrderNumber = 0;
 
+    private final Set<OrderSnapshot> openSnapshots = new HashSet<>();
+    private long snapshotVersion = 0;
+
     public OrderDaoFileImpl() {
+        this("Orders");
+    }
+
+    public OrderDaoFileImpl(String orderFolder) {
+        this.ORDER_FOLDER = orderFolder;
+        this.manifest = new OrderManifest(new File(orderFolder, MANIFEST_FILE));
+
         // Ensure Orders directory exists
         File folder = new File(ORDER_FOLDER);
         if (!folder.exists()) {
@@ -31,18 +54,20 @@ public class OrderDaoFileImpl implements OrderDao {
     }
 
     @Override
-    public int getNextOrderNumber() {
+    public synchronized int getNextOrderNumber() {
         try {
-            loadAllOrders();
+            loadManifest();
         } catch (PersistenceException e) {
-            // If can't load, start from 1
+            // If can't load, fall back to what has been seen so far
         }
-        return largestOrderNumber + 1;
+        return Math.max(largestOrderNumber, manifest.getLargestOrderNumber()) + 1;
     }
 
     @Override
-    public Order addOrder(Order order) throws PersistenceException {
+    public synchronized Order addOrder(Order order) throws PersistenceException {
+        loadManifest();
         loadOrdersForDate(order.getOrderDate());
+        pinForSnapshots(order.getOrderDate());
 
         Map<Integer, Order> ordersForDate = orders.computeIfAbsent(
                 order.getOrderDate(),
@@ -67,7 +92,7 @@ public class OrderDaoFileImpl implements OrderDao {
     }
 
     @Override
-    public Order getOrder(LocalDate date, int orderNumber) throws NoSuchOrderException, PersistenceException {
+    public synchronized Order getOrder(LocalDate date, int orderNumber) throws NoSuchOrderException, PersistenceException {
         loadOrdersForDate(date);
 
         Map<Integer, Order> ordersForDate = orders.get(date);
@@ -80,7 +105,8 @@ public class OrderDaoFileImpl implements OrderDao {
     }
 
     @Override
-    public Order editOrder(Order order) throws NoSuchOrderException, PersistenceException {
+    public synchronized Order editOrder(Order order) throws NoSuchOrderException, PersistenceException {
+        loadManifest();
         loadOrdersForDate(order.getOrderDate());
 
         Map<Integer, Order> ordersForDate = orders.get(order.getOrderDate());
@@ -89,14 +115,44 @@ public class OrderDaoFileImpl implements OrderDao {
             throw new NoSuchOrderException("No order found with number " + order.getOrderNumber());
         }
 
-        ordersForDate.put(order.getOrderNumber(), order);
+        pinForSnapshots(order.getOrderDate());
+        Order replacedOrder = ordersForDate.put(order.getOrderNumber(), order);
         writeOrdersForDate(order.getOrderDate());
 
-        return order;
+        return replacedOrder;
+    }
+
+    @Override
+    public synchronized boolean editOrders(LocalDate date, List<Order> previous, List<Order> edited)
+            throws PersistenceException {
+        if (edited.isEmpty()) {
+            return true;
+        }
+
+        loadManifest();
+        loadOrdersForDate(date);
+
+        Map<Integer, Order> ordersForDate = orders.get(date);
+
+        // Check them all first so a changed order leaves the date untouched
+        for (int i = 0; i < edited.size(); i++) {
+            Order order = edited.get(i);
+            if (!date.equals(order.getOrderDate()) || ordersForDate == null
+                    || !previous.get(i).equals(ordersForDate.get(order.getOrderNumber()))) {
+                return false;
+            }
+        }
+
+        pinForSnapshots(date);
+        for (Order order : edited) {
+            ordersForDate.put(order.getOrderNumber(), order);
+        }
+        writeOrdersForDate(date);
+        return true;
     }
 
     @Override
-    public List<Order> getOrdersForDate(LocalDate date) throws PersistenceException {
+    public synchronized List<Order> getOrdersForDate(LocalDate date) throws PersistenceException {
         loadOrdersForDate(date);
 
         Map<Integer, Order> ordersForDate = orders.get(date);
@@ -109,13 +165,79 @@ public class OrderDaoFileImpl implements OrderDao {
     }
 
     @Override
-    public Map<LocalDate, Map<Integer, Order>> getAllOrders() throws PersistenceException {
+    public synchronized Map<LocalDate, Map<Integer, Order>> getAllOrders() throws PersistenceException {
         loadAllOrders();
         return new HashMap<>(orders);
     }
 
     @Override
-    public Order removeOrder(LocalDate date, int orderNumber) throws NoSuchOrderException, PersistenceException {
+    public synchronized List<PartitionSummary> getPartitionSummaries() throws PersistenceException {
+        loadManifest();
+        return manifest.getSummaries();
+    }
+
+    /**
+     * Reads each partition's summary sidecar rather than the partition,
+     * summing the partition again only when its sidecar is missing or stale
+     */
+    @Override
+    public synchronized Map<LocalDate, RevenueTotals> getDailyTotals(LocalDate from, LocalDate to)
+            throws PersistenceException {
+        loadManifest();
+
+        Map<LocalDate, RevenueTotals> totals = new TreeMap<>();
+        for (PartitionSummary summary : manifest.getSummaries()) {
+            LocalDate date = summary.getOrderDate();
+            if (date.isBefore(from) || date.isAfter(to) || summary.getOrderCount() == 0) {
+                continue;
+            }
+
+            File sidecarFile = new File(getSidecarFileNameForDate(date));
+            PartitionSidecar sidecar = PartitionSidecar.read(sidecarFile, summary.getChecksum());
+            if (sidecar == null) {
+                Map<Integer, Order> ordersForDate = readOrdersForDate(date);
+                sidecar = PartitionSidecar.of(ordersForDate == null ? Collections.emptyList()
+                        : ordersForDate.values(), summary.getChecksum());
+                sidecar.save(sidecarFile);
+            }
+            totals.put(date, sidecar.getTotals());
+        }
+        return totals;
+    }
+
+    /**
+     * Reads the partition files directly and without the lock; every write
+     * replaces a whole file at once, so a partition is read either before or
+     * after a write, never half way through one.
+     */
+    @Override
+    public List<PivotRow> pivotOrders(OrderFilter filter, List<PivotDimension> dimensions)
+            throws PersistenceException {
+        Map<LocalDate, File> partitions = new HashMap<>();
+        synchronized (this) {
+            loadManifest();
+            for (PartitionSummary summary : manifest.getSummaries()) {
+                if (summary.getOrderCount() > 0) {
+                    partitions.put(summary.getOrderDate(), new File(getFileNameForDate(summary.getOrderDate())));
+                }
+            }
+        }
+        return new OrderPivotScanner(filter, dimensions).scan(partitions);
+    }
+
+    @Override
+    public synchronized OrderSnapshot getSnapshot() throws PersistenceException {
+        loadManifest();
+
+        OrderSnapshot snapshot = new OrderSnapshot(++snapshotVersion, manifest.getSummaries(),
+                this::readSnapshotPartition, this::releaseSnapshot);
+        openSnapshots.add(snapshot);
+        return snapshot;
+    }
+
+    @Override
+    public synchronized Order removeOrder(LocalDate date, int orderNumber) throws NoSuchOrderException, PersistenceException {
+        loadManifest();
         loadOrdersForDate(date);
 
         Map<Integer, Order> ordersForDate = orders.get(date);
@@ -124,19 +246,205 @@ public class OrderDaoFileImpl implements OrderDao {
             throw new NoSuchOrderException("No order found with number " + orderNumber);
         }
 
+        pinForSnapshots(date);
         Order removedOrder = ordersForDate.remove(orderNumber);
         writeOrdersForDate(date);
 
         return removedOrder;
     }
 
+    /**
+     * Partitions are staged in a private folder while the export is streamed, so
+     * saves carry on meanwhile; only moving them into place takes the lock.
+     */
+    @Override
+    public int restoreOrders(ExportReader export) throws PersistenceException {
+        OrderRestorer restorer = new OrderRestorer(createStagingFolder("restore"), HEADER);
+        try {
+            String row;
+            while ((row = export.readRow()) != null) {
+                restorer.add(row);
+            }
+            return commitRestore(restorer, restorer.finish(), Collections.emptyList());
+        } finally {
+            restorer.abort();
+        }
+    }
+
+    /**
+     * Events are replayed without the lock; only merging the rebuilt orders
+     * into their partitions takes it.
+     */
+    @Override
+    public ReplayResult rebuildOrders(AuditReader events) throws PersistenceException {
+        long startTime = System.nanoTime();
+
+        OrderEventReplayer replayer = new OrderEventReplayer();
+        Map<LocalDate, Map<Integer, Order>> rebuilt;
+        try {
+            AuditRecord record;
+            while ((record = events.readEntry()) != null) {
+                replayer.accept(record.getEntry());
+            }
+            rebuilt = replayer.finish();
+        } finally {
+            replayer.abort();
+        }
+
+        int rebuiltOrders = commitRebuild(rebuilt);
+
+        long elapsedMillis = (System.nanoTime() - startTime) / 1_000_000;
+        return new ReplayResult(replayer.getApplied(), replayer.getSkipped(), rebuiltOrders, rebuilt.size(),
+                replayer.getIncompleteDates().size(), elapsedMillis);
+    }
+
+    /**
+     * Merges replayed orders into their partitions. An order the log mentions
+     * takes its replayed state, or is taken out if the log removed it; orders
+     * the log never mentions, such as ones saved before it was kept, stay as
+     * they are.
+     * @param rebuilt orders by date and number, null where the log removed them
+     * @return number of orders now in the rebuilt partitions
+     */
+    private synchronized int commitRebuild(Map<LocalDate, Map<Integer, Order>> rebuilt)
+            throws PersistenceException {
+        loadManifest();
+
+        int rebuiltOrders = 0;
+        for (Map.Entry<LocalDate, Map<Integer, Order>> partition : rebuilt.entrySet()) {
+            LocalDate date = partition.getKey();
+            loadOrdersForDate(date);
+            Map<Integer, Order> ordersForDate = orders.get(date);
+            Map<Integer, Order> merged = ordersForDate == null ? new HashMap<>() : new HashMap<>(ordersForDate);
+            for (Map.Entry<Integer, Order> order : partition.getValue().entrySet()) {
+                if (order.getValue() == null) {
+                    merged.remove(order.getKey());
+                } else {
+                    merged.put(order.getKey(), order.getValue());
+                    largestOrderNumber = Math.max(largestOrderNumber, order.getKey());
+                }
+            }
+            if (merged.isEmpty() && ordersForDate == null) {
+                continue; // Added and removed again; there is no partition to empty
+            }
+
+            pinForSnapshots(date);
+            orders.put(date, merged);
+            writeOrdersForDate(date);
+            rebuiltOrders += merged.size();
+        }
+        return rebuiltOrders;
+    }
+
+    private File createStagingFolder(String prefix) throws PersistenceException {
+        try {
+            return Files.createTempDirectory(new File(ORDER_FOLDER).toPath(), prefix).toFile();
+        } catch (IOException e) {
+            throw new PersistenceException("Could not create " + prefix + " folder in " + ORDER_FOLDER, e);
+        }
+    }
+
+    /**
+     * Moves staged partitions into place and empties the partitions for emptiedDates
+     * @return number of orders now in the staged partitions
+     */
+    private synchronized int commitRestore(OrderRestorer restorer, List<PartitionSummary> restored,
+                                           Collection<LocalDate> emptiedDates) throws PersistenceException {
+        loadManifest();
+
+        for (LocalDate date : emptiedDates) {
+            loadOrdersForDate(date);
+            if (!orders.containsKey(date)) {
+                continue; // Added and removed again; there is no partition to empty
+            }
+            pinForSnapshots(date);
+            orders.put(date, new HashMap<>());
+            writeOrdersForDate(date);
+        }
+
+        int restoredOrders = 0;
+        for (PartitionSummary summary : restored) {
+            LocalDate date = summary.getOrderDate();
+            if (!openSnapshots.isEmpty()) {
+                loadOrdersForDate(date);
+                pinForSnapshots(date);
+            }
+
+            File stagedFile = restorer.getStagedFile(date);
+            summary.setLastModified(stagedFile.lastModified());
+            OrderManifest.moveIntoPlace(stagedFile.toPath(), new File(getFileNameForDate(date)).toPath());
+
+            manifest.put(summary);
+            orders.remove(date);
+            largestOrderNumber = Math.max(largestOrderNumber, summary.getMaxOrderNumber());
+            restoredOrders += summary.getOrderCount();
+        }
+
+        // A crash before this save is repaired by the next manifest reconcile
+        manifest.save();
+        return restoredOrders;
+    }
+
+    /**
+     * Hands the current contents of a partition to every open snapshot before a
+     * write changes it. Must be called after the partition is loaded.
+     */
+    private void pinForSnapshots(LocalDate date) {
+        if (openSnapshots.isEmpty()) {
+            return;
+        }
+
+        Map<Integer, Order> ordersForDate = orders.get(date);
+        Collection<Order> current = ordersForDate == null ? Collections.emptyList() : ordersForDate.values();
+        for (OrderSnapshot snapshot : openSnapshots) {
+            snapshot.pin(date, current);
+        }
+    }
+
+    /**
+     * Reads a partition for a snapshot. Holding the lock means no writer can be
+     * half way through the partition, and any write since the snapshot was taken
+     * will already have pinned the old contents.
+     */
+    private synchronized List<Order> readSnapshotPartition(OrderSnapshot snapshot, LocalDate date)
+            throws PersistenceException {
+        List<Order> pinnedOrders = snapshot.getPinned(date);
+        if (pinnedOrders != null) {
+            return new ArrayList<>(pinnedOrders);
+        }
+
+        Map<Integer, Order> ordersForDate = readOrdersForDate(date);
+        return ordersForDate == null ? new ArrayList<>() : new ArrayList<>(ordersForDate.values());
+    }
+
+    private synchronized void releaseSnapshot(OrderSnapshot snapshot) {
+        openSnapshots.remove(snapshot);
+    }
+
     private void loadOrdersForDate(LocalDate date) throws PersistenceException {
+        Map<Integer, Order> ordersForDate = readOrdersForDate(date);
+
+        // If file doesn't exist, there are no orders for this date
+        if (ordersForDate == null) {
+            return;
+        }
+
+        for (Integer orderNumber : ordersForDate.keySet()) {
+            // Track largest order number
+            if (orderNumber > largestOrderNumber) {
+                largestOrderNumber = orderNumber;
+            }
+        }
+
+        orders.put(date, ordersForDate);
+    }
+
+    private Map<Integer, Order> readOrdersForDate(LocalDate date) throws PersistenceException {
         String fileName = getFileNameForDate(date);
         File file = new File(fileName);
 
-        // If file doesn't exist, there are no orders for this date
         if (!file.exists()) {
-            return;
+            return null;
         }
 
         Scanner scanner;
@@ -160,15 +468,60 @@ public class OrderDaoFileImpl implements OrderDao {
             currentLine = scanner.nextLine();
             currentOrder = unmarshallOrder(currentLine, date);
             ordersForDate.put(currentOrder.getOrderNumber(), currentOrder);
+        }
 
-            // Track largest order number
-            if (currentOrder.getOrderNumber() > largestOrderNumber) {
-                largestOrderNumber = currentOrder.getOrderNumber();
+        scanner.close();
+        return ordersForDate;
+    }
+
+    /**
+     * Loads the manifest once and brings it in line with the partition files on disk.
+     * Only partitions whose last-modified time disagrees with the manifest are opened,
+     * which covers files edited by hand and writes interrupted between the partition
+     * and manifest commits.
+     */
+    private void loadManifest() throws PersistenceException {
+        if (manifestLoaded) {
+            return;
+        }
+
+        boolean changed = !manifest.load();
+        Set<LocalDate> staleDates = manifest.getDates();
+        File[] listOfFiles = new File(ORDER_FOLDER).listFiles();
+
+        if (listOfFiles != null) {
+            for (File file : listOfFiles) {
+                LocalDate date = isPartitionFile(file) ? getDateFromFileName(file.getName()) : null;
+                if (date == null) {
+                    continue;
+                }
+                staleDates.remove(date);
+
+                PartitionSummary summary = manifest.getSummary(date);
+                if (summary == null || summary.getLastModified() != file.lastModified()
+                        || summary.getChecksum() == 0) {
+                    Map<Integer, Order> ordersForDate = readOrdersForDate(date);
+                    if (ordersForDate == null) {
+                        continue;
+                    }
+                    manifest.update(date, ordersForDate.values(), file.lastModified(),
+                            OrderManifest.checksumOf(file));
+                    changed = true;
+                }
             }
         }
 
-        scanner.close();
-        orders.put(date, ordersForDate);
+        for (LocalDate date : staleDates) {
+            manifest.remove(date);
+            changed = true;
+        }
+
+        if (changed) {
+            manifest.save();
+        }
+
+        largestOrderNumber = Math.max(largestOrderNumber, manifest.getLargestOrderNumber());
+        manifestLoaded = true;
     }
 
     private void loadAllOrders() throws PersistenceException {
@@ -183,7 +536,7 @@ public class OrderDaoFileImpl implements OrderDao {
         largestOrderNumber = 0;
 
         for (File file : listOfFiles) {
-            if (file.isFile() && file.getName().startsWith("Orders_")) {
+            if (isPartitionFile(file)) {
                 LocalDate date = getDateFromFileName(file.getName());
                 if (date != null) {
                     loadOrdersForDate(date);
@@ -192,12 +545,22 @@ public class OrderDaoFileImpl implements OrderDao {
         }
     }
 
+    /**
+     * Writes the partition and its manifest entry as one unit: both are written to
+     * temporary files first and only then moved into place, so a failed write leaves
+     * the previous partition and manifest untouched. The partition's summary
+     * sidecar goes last; if that move is lost, the sidecar's checksum no longer
+     * matches the manifest and it is summed again when next read.
+     */
     private void writeOrdersForDate(LocalDate date) throws PersistenceException {
-        String fileName = getFileNameForDate(date);
+        File partitionFile = new File(getFileNameForDate(date));
+        File tempFile = new File(partitionFile.getPath() + ".tmp");
+        CRC32 checksum = new CRC32();
         PrintWriter out;
 
         try {
-            out = new PrintWriter(new FileWriter(fileName));
+            out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(
+                    new CheckedOutputStream(new FileOutputStream(tempFile), checksum))));
         } catch (IOException e) {
             throw new PersistenceException("Could not save order data for date " + date, e);
         }
@@ -214,7 +577,27 @@ public class OrderDaoFileImpl implements OrderDao {
         }
 
         out.flush();
+        boolean failed = out.checkError();
         out.close();
+
+        if (failed) {
+            tempFile.delete();
+            throw new PersistenceException("Could not save order data for date " + date);
+        }
+
+        Collection<Order> written = ordersForDate == null ? Collections.emptyList() : ordersForDate.values();
+        manifest.update(date, written, tempFile.lastModified(), checksum.getValue());
+        File manifestTempFile = manifest.prepare();
+        File sidecarFile = new File(getSidecarFileNameForDate(date));
+        File sidecarTempFile = PartitionSidecar.of(written, checksum.getValue()).prepare(sidecarFile);
+
+        OrderManifest.moveIntoPlace(tempFile.toPath(), partitionFile.toPath());
+        manifest.commit(manifestTempFile);
+        OrderManifest.moveIntoPlace(sidecarTempFile.toPath(), sidecarFile.toPath());
+    }
+
+    private boolean isPartitionFile(File file) {
+        return file.isFile() && file.getName().startsWith("Orders_") && file.getName().endsWith(".txt");
     }
 
     private String getFileNameForDate(LocalDate date) {
@@ -222,6 +605,14 @@ public class OrderDaoFileImpl implements OrderDao {
         return ORDER_FOLDER + "/Orders_" + date.format(formatter) + ".txt";
     }
 
+    /**
+     * Sidecars do not end in .txt, so they are never taken for partitions
+     */
+    private String getSidecarFileNameForDate(LocalDate date) {
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMddyyyy");
+        return ORDER_FOLDER + "/Orders_" + date.format(formatter) + ".summary";
+    }
+
     private LocalDate getDateFromFileName(String fileName) {
         try {
             // Extract date from "Orders_MMddyyyy.txt"
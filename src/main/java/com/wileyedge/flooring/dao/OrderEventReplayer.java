@@ -0,0 +1,442 @@
+package com.wileyedge.flooring.dao;
+
+import com.wileyedge.flooring.dto.Order;
+import com.wileyedge.flooring.exceptions.PersistenceException;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rebuilds orders from {@link OrderChangeEncoder} audit records. Each date is
+ * owned by one worker thread, so its events are applied in log order without
+ * locking while different dates are replayed in parallel. The calling thread
+ * only finds the date in each record and hands the record to that date's worker,
+ * in batches so the threads rarely have to wake one another.
+ * A date is left out if an order on it is removed, or edited without every
+ * field, before the log has seen it added. Otherwise each order the log
+ * mentions is rebuilt; orders it never mentions are not known here at all, so
+ * the caller merges the result into the date's partition rather than
+ * replacing it.
+ */
+class OrderEventReplayer {
+
+    private static final int BATCH_SIZE = 512;
+    private static final int QUEUED_BATCHES = 8;
+    private static final String DATE_KEY = "\"date\":";
+    private static final List<String> END_OF_RECORDS = new ArrayList<>();
+    private static final DateTimeFormatter RECORD_DATE_FORMAT = DateTimeFormatter.ofPattern("MM-dd-yyyy");
+    private static final int FIELD_COUNT = 11;
+
+    private final List<BlockingQueue<List<String>>> queues = new ArrayList<>();
+    private final List<List<String>> batches = new ArrayList<>();
+    private final List<Future<Map<LocalDate, Map<Integer, Order>>>> workers = new ArrayList<>();
+    private final ExecutorService executor;
+    private final AtomicLong applied = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final Set<LocalDate> incompleteDates = ConcurrentHashMap.newKeySet();
+
+    OrderEventReplayer() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    OrderEventReplayer(int workerCount) {
+        this.executor = Executors.newFixedThreadPool(workerCount, runnable -> {
+            Thread thread = new Thread(runnable, "order-replay");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        for (int i = 0; i < workerCount; i++) {
+            BlockingQueue<List<String>> queue = new ArrayBlockingQueue<>(QUEUED_BATCHES);
+            queues.add(queue);
+            batches.add(new ArrayList<>(BATCH_SIZE));
+            workers.add(executor.submit(() -> replay(queue)));
+        }
+    }
+
+    /**
+     * Queues one audit entry; entries that are not order records are counted as skipped
+     * @throws PersistenceException if interrupted while waiting for a worker
+     */
+    void accept(String entry) throws PersistenceException {
+        int dateStart = entry.startsWith(OrderChangeEncoder.RECORD_PREFIX) ? entry.indexOf(DATE_KEY) : -1;
+        int dateEnd = dateStart < 0 ? -1 : entry.indexOf(',', dateStart);
+        if (dateEnd < 0) {
+            skipped.incrementAndGet();
+            return;
+        }
+
+        // Route on the date text itself; parsing it is left to the worker
+        int hash = 0;
+        for (int i = dateStart + DATE_KEY.length(); i < dateEnd; i++) {
+            hash = 31 * hash + entry.charAt(i);
+        }
+
+        int worker = Math.floorMod(hash, queues.size());
+        List<String> batch = batches.get(worker);
+        batch.add(entry);
+        if (batch.size() >= BATCH_SIZE) {
+            handOver(worker);
+        }
+    }
+
+    /**
+     * Waits for every queued record to be applied
+     * @return the orders the log mentions on each date it could rebuild, by
+     * order number; an order the log removed maps to null
+     * @throws PersistenceException if a worker failed
+     */
+    Map<LocalDate, Map<Integer, Order>> finish() throws PersistenceException {
+        Map<LocalDate, Map<Integer, Order>> result = new TreeMap<>();
+        try {
+            for (int worker = 0; worker < queues.size(); worker++) {
+                handOver(worker);
+                queues.get(worker).put(END_OF_RECORDS);
+            }
+            for (Future<Map<LocalDate, Map<Integer, Order>>> worker : workers) {
+                result.putAll(worker.get());
+            }
+            result.keySet().removeAll(incompleteDates);
+        } catch (ExecutionException e) {
+            throw new PersistenceException("Could not replay audit log.", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PersistenceException("Replay was interrupted.", e);
+        } finally {
+            executor.shutdownNow();
+        }
+        return result;
+    }
+
+    void abort() {
+        executor.shutdownNow();
+    }
+
+    long getApplied() {
+        return applied.get();
+    }
+
+    long getSkipped() {
+        return skipped.get();
+    }
+
+    /**
+     * @return dates left out because the log does not go back far enough
+     */
+    Set<LocalDate> getIncompleteDates() {
+        return new TreeSet<>(incompleteDates);
+    }
+
+    private void handOver(int worker) throws PersistenceException {
+        List<String> batch = batches.get(worker);
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            queues.get(worker).put(batch);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abort();
+            throw new PersistenceException("Replay was interrupted.", e);
+        }
+        batches.set(worker, new ArrayList<>(BATCH_SIZE));
+    }
+
+    private Map<LocalDate, Map<Integer, Order>> replay(BlockingQueue<List<String>> queue)
+            throws InterruptedException {
+        Map<LocalDate, Map<Integer, Order>> partitions = new HashMap<>();
+
+        while (true) {
+            List<String> batch = queue.take();
+            if (batch == END_OF_RECORDS) {
+                return partitions;
+            }
+
+            int batchApplied = 0;
+            for (String record : batch) {
+                try {
+                    if (apply(new RecordParser(record), partitions, incompleteDates)) {
+                        batchApplied++;
+                    }
+                } catch (RuntimeException e) {
+                    // A damaged record is skipped rather than failing the whole rebuild
+                }
+            }
+            applied.addAndGet(batchApplied);
+            skipped.addAndGet(batch.size() - batchApplied);
+        }
+    }
+
+    /**
+     * @return false if the record could not be applied
+     */
+    private static boolean apply(RecordParser parser, Map<LocalDate, Map<Integer, Order>> partitions,
+                                 Set<LocalDate> incompleteDates) {
+        parser.expect(OrderChangeEncoder.RECORD_PREFIX);
+        int orderNumber = ((BigDecimal) parser.readValue()).intValueExact();
+        parser.expect(",\"event\":");
+        String event = (String) parser.readValue();
+        parser.expect(",\"date\":");
+        LocalDate date = parseDate((String) parser.readValue());
+        parser.expect(",\"changes\":{");
+
+        Map<Integer, Order> orders = partitions.computeIfAbsent(date, d -> new HashMap<>());
+        Order order = orders.get(orderNumber);
+
+        switch (event) {
+            case "REMOVED":
+                if (order == null) {
+                    incompleteDates.add(date);
+                    return false;
+                }
+                // Kept as null, so the caller takes it out of the partition too
+                orders.put(orderNumber, null);
+                return true;
+            case "ADDED":
+                order = new Order();
+                order.setOrderNumber(orderNumber);
+                order.setOrderDate(date);
+                break;
+            case "EDITED":
+                if (order == null) {
+                    order = new Order();
+                    order.setOrderNumber(orderNumber);
+                    order.setOrderDate(date);
+                    // Without the add, only a record holding every field can stand in for it
+                    if (applyChanges(parser, order) < FIELD_COUNT) {
+                        incompleteDates.add(date);
+                        return false;
+                    }
+                    orders.put(orderNumber, order);
+                    return true;
+                }
+                // Edit a copy, so a record that fails half way leaves the order alone
+                order = new Order(order);
+                break;
+            default:
+                return false;
+        }
+
+        applyChanges(parser, order);
+        orders.put(orderNumber, order);
+        return true;
+    }
+
+    /**
+     * Sets every field in the record's changes to its after value
+     * @return number of fields set
+     */
+    private static int applyChanges(RecordParser parser, Order order) {
+        int fields = 0;
+        boolean first = true;
+
+        while (!parser.skip('}')) {
+            if (!first) {
+                parser.expect(",");
+            }
+            first = false;
+            String field = (String) parser.readValue();
+            parser.expect(":[");
+            parser.skipValue(); // Before value
+            parser.expect(",");
+            Object after = parser.readValue();
+            parser.expect("]");
+
+            switch (field) {
+                case "customerName":
+                    order.setCustomerName((String) after);
+                    break;
+                case "state":
+                    order.setState((String) after);
+                    break;
+                case "taxRate":
+                    order.setTaxRate((BigDecimal) after);
+                    break;
+                case "productType":
+                    order.setProductType((String) after);
+                    break;
+                case "area":
+                    order.setArea((BigDecimal) after);
+                    break;
+                case "costPerSquareFoot":
+                    order.setCostPerSquareFoot((BigDecimal) after);
+                    break;
+                case "laborCostPerSquareFoot":
+                    order.setLaborCostPerSquareFoot((BigDecimal) after);
+                    break;
+                case "materialCost":
+                    order.setMaterialCost((BigDecimal) after);
+                    break;
+                case "laborCost":
+                    order.setLaborCost((BigDecimal) after);
+                    break;
+                case "tax":
+                    order.setTax((BigDecimal) after);
+                    break;
+                case "total":
+                    order.setTotal((BigDecimal) after);
+                    break;
+                default:
+                    continue;
+            }
+            fields++;
+        }
+        return fields;
+    }
+
+    private static LocalDate parseDate(String text) {
+        return text.length() == 10 && text.charAt(2) == '-'
+                ? LocalDate.parse(text, RECORD_DATE_FORMAT) : LocalDate.parse(text);
+    }
+
+    /**
+     * Walks the fixed layout {@link OrderChangeEncoder} writes; anything else
+     * fails with an IllegalArgumentException
+     */
+    private static class RecordParser {
+        private final String text;
+        private int position = 0;
+
+        RecordParser(String text) {
+            this.text = text;
+        }
+
+        void expect(String literal) {
+            if (!text.startsWith(literal, position)) {
+                throw new IllegalArgumentException("Expected " + literal + " at " + position);
+            }
+            position += literal.length();
+        }
+
+        boolean skip(char c) {
+            if (position < text.length() && text.charAt(position) == c) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * @return a string, a number as a BigDecimal, or null
+         */
+        Object readValue() {
+            if (text.startsWith("null", position)) {
+                position += 4;
+                return null;
+            }
+            if (skip('"')) {
+                return readString();
+            }
+            return readNumber();
+        }
+
+        /**
+         * Steps over a value without building it
+         */
+        void skipValue() {
+            if (text.startsWith("null", position)) {
+                position += 4;
+            } else if (skip('"')) {
+                while (text.charAt(position) != '"') {
+                    position += text.charAt(position) == '\\' ? 2 : 1;
+                }
+                position++;
+            } else {
+                while (position < text.length() && isNumberChar(text.charAt(position))) {
+                    position++;
+                }
+            }
+        }
+
+        /**
+         * Builds the BigDecimal straight from its digits; only values too long for
+         * a long go through the string constructor
+         */
+        private BigDecimal readNumber() {
+            int start = position;
+            boolean negative = skip('-');
+            long unscaled = 0;
+            int digits = 0;
+            int scale = -1;
+
+            while (position < text.length()) {
+                char c = text.charAt(position);
+                if (c >= '0' && c <= '9') {
+                    unscaled = unscaled * 10 + (c - '0');
+                    digits++;
+                    if (scale >= 0) {
+                        scale++;
+                    }
+                } else if (c == '.' && scale < 0) {
+                    scale = 0;
+                } else {
+                    break;
+                }
+                position++;
+            }
+
+            if (digits == 0) {
+                throw new IllegalArgumentException("Expected a value at " + start);
+            }
+            if (digits > 18) {
+                return new BigDecimal(text.substring(start, position));
+            }
+            return BigDecimal.valueOf(negative ? -unscaled : unscaled, Math.max(scale, 0));
+        }
+
+        private static boolean isNumberChar(char c) {
+            return (c >= '0' && c <= '9') || c == '-' || c == '.';
+        }
+
+        private String readString() {
+            StringBuilder out = null;
+            int start = position;
+
+            while (position < text.length()) {
+                char c = text.charAt(position);
+                if (c == '"') {
+                    String value = out == null ? text.substring(start, position) : out.toString();
+                    position++;
+                    return value;
+                }
+                if (c != '\\') {
+                    if (out != null) {
+                        out.append(c);
+                    }
+                    position++;
+                    continue;
+                }
+
+                // Escapes are rare, so only then is the value copied
+                if (out == null) {
+                    out = new StringBuilder(text.substring(start, position));
+                }
+                char escaped = text.charAt(position + 1);
+                switch (escaped) {
+                    case 'n':
+                        out.append('\n');
+                        break;
+                    case 'r':
+                        out.append('\r');
+                        break;
+                    case 't':
+                        out.append('\t');
+                        break;
+                    case 'u':
+                        out.append((char) Integer.parseInt(text.substring(position + 2, position + 6), 16));
+                        position += 4;
+                        break;
+                    default:
+                        out.append(escaped);
+                }
+                position += 2;
+            }
+            throw new IllegalArgumentException("Unterminated string");
+        }
+    }
+}
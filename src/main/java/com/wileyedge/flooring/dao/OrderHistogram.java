@@ -0,0 +1,197 @@
+package com.wileyedge.flooring.dao;
+
+import java.util.Arrays;
+
+/**
+ * Counts of values in log-scaled buckets, in the style of an HDR histogram.
+ * Values below SUB_BUCKETS each have their own bucket; above that, every
+ * power of two is split into HALF_BUCKETS equal buckets, so a value is only
+ * ever placed within 1/128 of itself. Only the buckets holding values are
+ * kept, as sorted parallel arrays of index and count, so a day with a handful
+ * of orders costs a handful of ints rather than all BUCKETS. Values can be
+ * taken out again as well as added, and histograms of different days add up
+ * to the histogram of both.
+ */
+class OrderHistogram {
+
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int HALF_BUCKETS = SUB_BUCKETS / 2;
+    // Values from 2^36 hundredths, about 687 million, share the last bucket
+    private static final int MAX_EXPONENT = 36;
+    static final int BUCKETS = SUB_BUCKETS + (MAX_EXPONENT - SUB_BUCKET_BITS) * HALF_BUCKETS;
+
+    private static final String BUCKET_DELIMITER = ";";
+    private static final String COUNT_DELIMITER = ":";
+
+    // The first used entries hold each non-empty bucket's index, in order, and its count
+    private int[] buckets = new int[0];
+    private int[] counts = new int[0];
+    private int used = 0;
+    private int count;
+
+    /**
+     * Adds a value, or with change -1 takes one back out
+     * @param value a non-negative value, in hundredths
+     */
+    void record(long value, int change) {
+        add(bucketFor(value), change);
+    }
+
+    /**
+     * Adds other's counts, walking both sets of buckets in step
+     */
+    void merge(OrderHistogram other) {
+        int[] mergedBuckets = new int[Math.min(used + other.used, BUCKETS)];
+        int[] mergedCounts = new int[mergedBuckets.length];
+        int merged = 0;
+        int i = 0;
+        int j = 0;
+        while (i < used || j < other.used) {
+            int bucket;
+            int bucketCount;
+            if (j == other.used || (i < used && buckets[i] < other.buckets[j])) {
+                bucket = buckets[i];
+                bucketCount = counts[i++];
+            } else if (i == used || other.buckets[j] < buckets[i]) {
+                bucket = other.buckets[j];
+                bucketCount = other.counts[j++];
+            } else {
+                bucket = buckets[i];
+                bucketCount = counts[i++] + other.counts[j++];
+            }
+
+            if (bucketCount != 0) {
+                mergedBuckets[merged] = bucket;
+                mergedCounts[merged++] = bucketCount;
+            }
+        }
+
+        buckets = mergedBuckets;
+        counts = mergedCounts;
+        used = merged;
+        count += other.count;
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    /**
+     * @param percentile from 0 to 100
+     * @return the middle of the bucket holding the value at percentile, or 0
+     * if there are no values
+     */
+    long valueAtPercentile(double percentile) {
+        if (count <= 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < used; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return lowestValueOf(buckets[i]) + (widthOf(buckets[i]) >> 1);
+            }
+        }
+        return lowestValueOf(BUCKETS - 1);
+    }
+
+    /**
+     * @return the buckets holding values, as index:count pairs
+     */
+    String marshall() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < used; i++) {
+            if (i > 0) {
+                text.append(BUCKET_DELIMITER);
+            }
+            text.append(buckets[i]).append(COUNT_DELIMITER).append(counts[i]);
+        }
+        return text.toString();
+    }
+
+    /**
+     * @return a single value added, or with change -1 taken out, as
+     * {@link #marshall()} would write it
+     */
+    static String marshallChange(long value, int change) {
+        return bucketFor(value) + COUNT_DELIMITER + change;
+    }
+
+    static OrderHistogram unmarshall(String text) {
+        OrderHistogram histogram = new OrderHistogram();
+        if (text.isEmpty()) {
+            return histogram;
+        }
+
+        for (String bucket : text.split(BUCKET_DELIMITER)) {
+            String[] tokens = bucket.split(COUNT_DELIMITER);
+            int bucketIndex = Integer.parseInt(tokens[0]);
+            if (bucketIndex < 0 || bucketIndex >= BUCKETS) {
+                throw new IllegalArgumentException("No bucket " + bucketIndex);
+            }
+            histogram.add(bucketIndex, Integer.parseInt(tokens[1]));
+        }
+        return histogram;
+    }
+
+    private void add(int bucket, int change) {
+        count += change;
+        int i = Arrays.binarySearch(buckets, 0, used, bucket);
+        if (i >= 0) {
+            counts[i] += change;
+            if (counts[i] == 0) {
+                // Close the gap so only non-empty buckets are kept
+                System.arraycopy(buckets, i + 1, buckets, i, used - i - 1);
+                System.arraycopy(counts, i + 1, counts, i, used - i - 1);
+                used--;
+            }
+            return;
+        }
+        if (change == 0) {
+            return;
+        }
+
+        i = -i - 1;
+        if (used == buckets.length) {
+            int capacity = Math.min(Math.max(2 * used, 4), BUCKETS);
+            buckets = Arrays.copyOf(buckets, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+        }
+        System.arraycopy(buckets, i, buckets, i + 1, used - i);
+        System.arraycopy(counts, i, counts, i + 1, used - i);
+        buckets[i] = bucket;
+        counts[i] = change;
+        used++;
+    }
+
+    static int bucketFor(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) Math.max(value, 0);
+        }
+        if (value >= 1L << MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS + 1;
+        return SUB_BUCKETS + (exponent - SUB_BUCKET_BITS) * HALF_BUCKETS
+                + (int) (value >>> shift) - HALF_BUCKETS;
+    }
+
+    static long lowestValueOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+
+        int offset = bucket - SUB_BUCKETS;
+        int shift = offset / HALF_BUCKETS + 1;
+        return (long) (HALF_BUCKETS + offset % HALF_BUCKETS) << shift;
+    }
+
+    private static long widthOf(int bucket) {
+        return bucket < SUB_BUCKETS ? 1 : 1L << ((bucket - SUB_BUCKETS) / HALF_BUCKETS + 1);
+    }
+}
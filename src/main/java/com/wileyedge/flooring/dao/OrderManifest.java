@@ -0,0 +1,219 @@
+package com.wileyedge.flooring.dao;
+
+import com.wileyedge.flooring.dto.Order;
+import com.wileyedge.flooring.dto.PartitionSummary;
+import com.wileyedge.flooring.exceptions.PersistenceException;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps one summary line per order partition so that directory level questions
+ * (which dates have orders, how many per day, largest order number) can be
+ * answered without opening the partition files themselves.
+ */
+public class OrderManifest {
+
+    private static final String DELIMITER = ",";
+    private static final String HEADER = "OrderDate,OrderCount,MinOrderNumber,MaxOrderNumber,TotalRevenue," +
+            "LastModified,Checksum";
+
+    private final File manifestFile;
+    private final TreeMap<LocalDate, PartitionSummary> summaries = new TreeMap<>();
+
+    public OrderManifest(File manifestFile) {
+        this.manifestFile = manifestFile;
+    }
+
+    /**
+     * Loads the manifest from disk
+     * @return false if there is no manifest file yet
+     * @throws PersistenceException if the manifest exists but cannot be read
+     */
+    public boolean load() throws PersistenceException {
+        summaries.clear();
+
+        if (!manifestFile.exists()) {
+            return false;
+        }
+
+        try (BufferedReader in = new BufferedReader(new FileReader(manifestFile))) {
+            String currentLine = in.readLine(); // Skip header line
+
+            while ((currentLine = in.readLine()) != null) {
+                if (!currentLine.isEmpty()) {
+                    PartitionSummary summary = unmarshallSummary(currentLine);
+                    summaries.put(summary.getOrderDate(), summary);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            throw new PersistenceException("Could not load order manifest.", e);
+        }
+
+        return true;
+    }
+
+    /**
+     * Recomputes the summary for one partition from its orders
+     * @param date the partition date
+     * @param orders the orders now stored in the partition
+     * @param lastModified last-modified time of the partition file
+     * @param checksum CRC32 of the partition file contents
+     * @return the new summary
+     */
+    public PartitionSummary update(LocalDate date, Collection<Order> orders, long lastModified, long checksum) {
+        int min = 0;
+        int max = 0;
+        BigDecimal revenue = BigDecimal.ZERO;
+
+        for (Order order : orders) {
+            int orderNumber = order.getOrderNumber();
+            if (min == 0 || orderNumber < min) {
+                min = orderNumber;
+            }
+            if (orderNumber > max) {
+                max = orderNumber;
+            }
+            if (order.getTotal() != null) {
+                revenue = revenue.add(order.getTotal());
+            }
+        }
+
+        PartitionSummary summary = new PartitionSummary(date, orders.size(), min, max, revenue, lastModified, checksum);
+        summaries.put(date, summary);
+        return summary;
+    }
+
+    /**
+     * Records a summary computed elsewhere, such as while restoring a partition
+     */
+    public void put(PartitionSummary summary) {
+        summaries.put(summary.getOrderDate(), summary);
+    }
+
+    public void remove(LocalDate date) {
+        summaries.remove(date);
+    }
+
+    public PartitionSummary getSummary(LocalDate date) {
+        return summaries.get(date);
+    }
+
+    /**
+     * @return all partition summaries in date order
+     */
+    public List<PartitionSummary> getSummaries() {
+        return new ArrayList<>(summaries.values());
+    }
+
+    public Set<LocalDate> getDates() {
+        return new TreeSet<>(summaries.keySet());
+    }
+
+    public int getLargestOrderNumber() {
+        int largest = 0;
+        for (PartitionSummary summary : summaries.values()) {
+            largest = Math.max(largest, summary.getMaxOrderNumber());
+        }
+        return largest;
+    }
+
+    /**
+     * Writes the manifest to a temporary file next to the real one.
+     * The caller commits it with {@link #commit(File)} once the partition
+     * it describes is in place.
+     * @return the temporary file
+     * @throws PersistenceException if unable to write the file
+     */
+    public File prepare() throws PersistenceException {
+        File tempFile = new File(manifestFile.getPath() + ".tmp");
+
+        try (PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(tempFile)))) {
+            out.println(HEADER);
+            for (PartitionSummary summary : summaries.values()) {
+                out.println(marshallSummary(summary));
+            }
+            if (out.checkError()) {
+                throw new IOException("Write failed for " + tempFile);
+            }
+        } catch (IOException e) {
+            throw new PersistenceException("Could not save order manifest.", e);
+        }
+
+        return tempFile;
+    }
+
+    public void commit(File preparedFile) throws PersistenceException {
+        moveIntoPlace(preparedFile.toPath(), manifestFile.toPath());
+    }
+
+    public void save() throws PersistenceException {
+        commit(prepare());
+    }
+
+    /**
+     * Replaces target with source, atomically where the file system allows it
+     */
+    static void moveIntoPlace(Path source, Path target) throws PersistenceException {
+        try {
+            try {
+                Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (UnsupportedOperationException | IOException e) {
+                Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            throw new PersistenceException("Could not replace " + target, e);
+        }
+    }
+
+    /**
+     * Computes the CRC32 of a file, used for partitions that changed outside this program
+     */
+    static long checksumOf(File file) throws PersistenceException {
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[64 * 1024];
+
+        try (InputStream in = new FileInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                crc.update(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            throw new PersistenceException("Could not read " + file, e);
+        }
+
+        return crc.getValue();
+    }
+
+    private PartitionSummary unmarshallSummary(String summaryAsText) {
+        String[] tokens = summaryAsText.split(DELIMITER);
+
+        PartitionSummary summary = new PartitionSummary();
+        summary.setOrderDate(LocalDate.parse(tokens[0]));
+        summary.setOrderCount(Integer.parseInt(tokens[1]));
+        summary.setMinOrderNumber(Integer.parseInt(tokens[2]));
+        summary.setMaxOrderNumber(Integer.parseInt(tokens[3]));
+        summary.setTotalRevenue(new BigDecimal(tokens[4]));
+        summary.setLastModified(Long.parseLong(tokens[5]));
+        // Manifests written before checksums were tracked have no last column
+        summary.setChecksum(tokens.length > 6 ? Long.parseLong(tokens[6]) : 0);
+
+        return summary;
+    }
+
+    private String marshallSummary(PartitionSummary summary) {
+        return summary.getOrderDate() + DELIMITER +
+                summary.getOrderCount() + DELIMITER +
+                summary.getMinOrderNumber() + DELIMITER +
+                summary.getMaxOrderNumber() + DELIMITER +
+                summary.getTotalRevenue().toPlainString() + DELIMITER +
+                summary.getLastModified() + DELIMITER +
+                summary.getChecksum();
+    }
+}
@@ -0,0 +1,31 @@
+package com.wileyedge.flooring.dao;
+
+import com.wileyedge.flooring.dto.Order;
+import com.wileyedge.flooring.dto.PartitionSummary;
+import com.wileyedge.flooring.exceptions.PersistenceException;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Supplies orders one date partition at a time, so that bulk readers such as
+ * the export never need the whole order history in memory at once.
+ */
+public interface OrderPartitionSource {
+
+    /**
+     * Gets the partitions to read; the checksum is used to detect changed partitions
+     * and may be 0 when unknown
+     * @return one summary per partition date
+     * @throws PersistenceException if unable to read from persistence
+     */
+    List<PartitionSummary> getPartitions() throws PersistenceException;
+
+    /**
+     * Gets the orders stored in one partition
+     * @param date the partition date
+     * @return orders for that date, empty if there are none
+     * @throws PersistenceException if unable to read from persistence
+     */
+    List<Order> getOrdersForDate(LocalDate date) throws PersistenceException;
+}
@@ -0,0 +1,275 @@
+package com.wileyedge.flooring.dao;
+
+import com.wileyedge.flooring.dto.OrderFilter;
+import com.wileyedge.flooring.dto.PivotRow;
+import com.wileyedge.flooring.dto.RevenueTotals;
+import com.wileyedge.flooring.exceptions.PersistenceException;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Sums order partition files into pivot rows. Partitions outside the filter's
+ * dates are never opened. Each row is only cut far enough to compare its state
+ * and product with the filter, and the money columns of rows that match are
+ * read straight into cents, without building orders or BigDecimals.
+ *
+ * Partitions are shared out over the common fork-join pool; each task sums
+ * into its own table of long arrays, and the tables are merged as the tasks
+ * join, so no two threads ever touch the same sums.
+ */
+class OrderPivotScanner {
+
+    // Partitions one task reads before it stops splitting
+    private static final int PARTITIONS_PER_TASK = 4;
+    // Columns after the customer name, which may itself hold commas
+    private static final int TRAILING_FIELDS = 10;
+    private static final int FAST_DIGITS = 16;
+    private static final char KEY_SEPARATOR = '\u0001';
+
+    // Slots of each group's sums
+    private static final int COUNT = 0;
+    private static final int MATERIAL_COST = 1;
+    private static final int LABOR_COST = 2;
+    private static final int TAX = 3;
+    private static final int TOTAL = 4;
+    private static final int MEASURES = 5;
+
+    private final OrderFilter filter;
+    private final PivotDimension[] dimensions;
+
+    /**
+     * @param filter orders to include
+     * @param dimensions what to group by, in the order the keys are wanted
+     */
+    OrderPivotScanner(OrderFilter filter, List<PivotDimension> dimensions) {
+        this.filter = filter == null ? new OrderFilter() : filter;
+        this.dimensions = dimensions.toArray(new PivotDimension[0]);
+    }
+
+    /**
+     * @param partitions partition files by date
+     * @return one row per group, ordered by their keys
+     * @throws PersistenceException if a partition cannot be read
+     */
+    List<PivotRow> scan(Map<LocalDate, File> partitions) throws PersistenceException {
+        List<Map.Entry<LocalDate, File>> selected = new ArrayList<>();
+        for (Map.Entry<LocalDate, File> partition : partitions.entrySet()) {
+            if (filter.includesDate(partition.getKey())) {
+                selected.add(partition);
+            }
+        }
+
+        Map<String, long[]> sums;
+        try {
+            sums = ForkJoinPool.commonPool().invoke(new ScanTask(selected, 0, selected.size()));
+        } catch (UncheckedIOException e) {
+            throw new PersistenceException("Could not read order data.", e.getCause());
+        } catch (RuntimeException e) {
+            throw new PersistenceException("Could not read order data.", e);
+        }
+
+        List<PivotRow> rows = new ArrayList<>(sums.size());
+        for (String key : new TreeMap<>(sums).keySet()) {
+            long[] groupSums = sums.get(key);
+            rows.add(new PivotRow(splitKey(key), new RevenueTotals((int) groupSums[COUNT],
+                    money(groupSums[MATERIAL_COST]), money(groupSums[LABOR_COST]), money(groupSums[TAX]),
+                    money(groupSums[TOTAL]))));
+        }
+        return rows;
+    }
+
+    private void scanPartition(LocalDate date, File file, Map<String, long[]> sums) throws IOException {
+        String[] dateKeys = new String[dimensions.length];
+        for (int i = 0; i < dimensions.length; i++) {
+            dateKeys[i] = dimensions[i].valueFor(date);
+        }
+
+        int[] commas = new int[TRAILING_FIELDS];
+        StringBuilder key = new StringBuilder();
+        try (BufferedReader in = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line = in.readLine(); // Skip header line
+            while ((line = in.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    scanRow(line, date, dateKeys, commas, key, sums);
+                }
+            }
+        } catch (NoSuchFileException | FileNotFoundException e) {
+            // Emptied and removed since the partitions were listed
+        }
+    }
+
+    private void scanRow(String line, LocalDate date, String[] dateKeys, int[] commas, StringBuilder key,
+                         Map<String, long[]> sums) throws IOException {
+        // Find the fields from the right: ...,State,TaxRate,ProductType,Area,CostPerSquareFoot,
+        // LaborCostPerSquareFoot,MaterialCost,LaborCost,Tax,Total
+        int end = line.length();
+        for (int i = 0; i < TRAILING_FIELDS; i++) {
+            end = line.lastIndexOf(',', end - 1);
+            if (end < 0) {
+                throw new IOException("Malformed order on " + date + ": " + line);
+            }
+            commas[i] = end;
+        }
+
+        int stateStart = commas[9] + 1;
+        int stateEnd = commas[8];
+        int productStart = commas[7] + 1;
+        int productEnd = commas[6];
+        if (!matches(filter.getState(), line, stateStart, stateEnd)
+                || !matches(filter.getProductType(), line, productStart, productEnd)) {
+            return;
+        }
+
+        key.setLength(0);
+        for (int i = 0; i < dimensions.length; i++) {
+            if (i > 0) {
+                key.append(KEY_SEPARATOR);
+            }
+            if (dateKeys[i] != null) {
+                key.append(dateKeys[i]);
+            } else if (dimensions[i] == PivotDimension.STATE) {
+                key.append(line, stateStart, stateEnd);
+            } else {
+                key.append(line, productStart, productEnd);
+            }
+        }
+
+        long[] groupSums = sums.computeIfAbsent(key.toString(), k -> new long[MEASURES]);
+        groupSums[COUNT]++;
+        groupSums[MATERIAL_COST] += cents(line, commas[3] + 1, commas[2]);
+        groupSums[LABOR_COST] += cents(line, commas[2] + 1, commas[1]);
+        groupSums[TAX] += cents(line, commas[1] + 1, commas[0]);
+        groupSums[TOTAL] += cents(line, commas[0] + 1, line.length());
+    }
+
+    private static boolean matches(String wanted, String line, int start, int end) {
+        return wanted == null || (wanted.length() == end - start && line.startsWith(wanted, start));
+    }
+
+    /**
+     * Reads a money column as cents. Plain decimals with up to two places are
+     * read digit by digit; anything else goes through BigDecimal, rounding
+     * HALF_UP to cents.
+     */
+    static long cents(String text, int start, int end) {
+        int i = start;
+        boolean negative = i < end && text.charAt(i) == '-';
+        if (negative) {
+            i++;
+        }
+
+        long value = 0;
+        int digits = 0;
+        int places = -1;
+        for (; i < end; i++) {
+            char c = text.charAt(i);
+            if (c == '.' && places < 0) {
+                places = 0;
+            } else if (c >= '0' && c <= '9' && places < 2 && digits < FAST_DIGITS) {
+                value = value * 10 + (c - '0');
+                digits++;
+                if (places >= 0) {
+                    places++;
+                }
+            } else {
+                return slowCents(text, start, end);
+            }
+        }
+        if (digits == 0) {
+            return slowCents(text, start, end);
+        }
+
+        for (int place = Math.max(places, 0); place < 2; place++) {
+            value *= 10;
+        }
+        return negative ? -value : value;
+    }
+
+    private static long slowCents(String text, int start, int end) {
+        return new BigDecimal(text.substring(start, end)).setScale(2, RoundingMode.HALF_UP)
+                .unscaledValue().longValueExact();
+    }
+
+    private static BigDecimal money(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    private static List<String> splitKey(String key) {
+        List<String> keys = new ArrayList<>();
+        int start = 0;
+        int separator;
+        while ((separator = key.indexOf(KEY_SEPARATOR, start)) >= 0) {
+            keys.add(key.substring(start, separator));
+            start = separator + 1;
+        }
+        keys.add(key.substring(start));
+        return keys;
+    }
+
+    private static void merge(Map<String, long[]> into, Map<String, long[]> from) {
+        for (Map.Entry<String, long[]> group : from.entrySet()) {
+            long[] groupSums = into.get(group.getKey());
+            if (groupSums == null) {
+                into.put(group.getKey(), group.getValue());
+                continue;
+            }
+            long[] other = group.getValue();
+            for (int i = 0; i < MEASURES; i++) {
+                groupSums[i] += other[i];
+            }
+        }
+    }
+
+    /**
+     * Halves its partitions until few are left, sums those, and merges the
+     * halves' sums as they join
+     */
+    private class ScanTask extends RecursiveTask<Map<String, long[]>> {
+        private final List<Map.Entry<LocalDate, File>> partitions;
+        private final int from;
+        private final int to;
+
+        ScanTask(List<Map.Entry<LocalDate, File>> partitions, int from, int to) {
+            this.partitions = partitions;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Map<String, long[]> compute() {
+            if (to - from > PARTITIONS_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                ScanTask right = new ScanTask(partitions, middle, to);
+                right.fork();
+                Map<String, long[]> sums = new ScanTask(partitions, from, middle).compute();
+                Map<String, long[]> rightSums = right.join();
+                // Merge the smaller table into the larger
+                if (rightSums.size() > sums.size()) {
+                    merge(rightSums, sums);
+                    return rightSums;
+                }
+                merge(sums, rightSums);
+                return sums;
+            }
+
+            Map<String, long[]> sums = new HashMap<>();
+            try {
+                for (int i = from; i < to; i++) {
+                    scanPartition(partitions.get(i).getKey(), partitions.get(i).getValue(), sums);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return sums;
+        }
+    }
+}
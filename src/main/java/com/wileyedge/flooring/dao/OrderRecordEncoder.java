@@ -0,0 +1,179 @@
+package com.wileyedge.flooring.dao;
+
+import com.wileyedge.flooring.dto.Order;
+
+import java.math.BigDecimal;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Encodes export rows straight into a byte buffer.
+ * The output is byte for byte what the old string based marshalling produced,
+ * but numbers, dates and ASCII text are written digit by digit instead of going
+ * through intermediate strings.
+ */
+public class OrderRecordEncoder {
+
+    private static final byte DELIMITER = ',';
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("MM-dd-yyyy");
+
+    /**
+     * Appends one export row, including the line separator
+     * @param order the order to encode
+     * @param buffer destination buffer
+     * @throws BufferOverflowException if the row does not fit; the buffer position is then undefined
+     */
+    public void encode(Order order, ByteBuffer buffer) {
+        putInt(buffer, order.getOrderNumber());
+        buffer.put(DELIMITER);
+        putText(buffer, order.getCustomerName());
+        buffer.put(DELIMITER);
+        putText(buffer, order.getState());
+        buffer.put(DELIMITER);
+        putDecimal(buffer, order.getTaxRate());
+        buffer.put(DELIMITER);
+        putText(buffer, order.getProductType());
+        buffer.put(DELIMITER);
+        putDecimal(buffer, order.getArea());
+        buffer.put(DELIMITER);
+        putDecimal(buffer, order.getCostPerSquareFoot());
+        buffer.put(DELIMITER);
+        putDecimal(buffer, order.getLaborCostPerSquareFoot());
+        buffer.put(DELIMITER);
+        putDecimal(buffer, order.getMaterialCost());
+        buffer.put(DELIMITER);
+        putDecimal(buffer, order.getLaborCost());
+        buffer.put(DELIMITER);
+        putDecimal(buffer, order.getTax());
+        buffer.put(DELIMITER);
+        putDecimal(buffer, order.getTotal());
+        buffer.put(DELIMITER);
+        putDate(buffer, order.getOrderDate());
+        buffer.put(LINE_SEPARATOR);
+    }
+
+    private void putText(ByteBuffer buffer, String text) {
+        if (text == null) {
+            buffer.put(NULL);
+            return;
+        }
+
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            if (text.charAt(i) >= 0x80) {
+                // Rare non-ASCII names take the slow path
+                buffer.put(text.substring(i).getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            buffer.put((byte) text.charAt(i));
+        }
+    }
+
+    private void putDate(ByteBuffer buffer, LocalDate date) {
+        if (date == null) {
+            buffer.put(NULL);
+            return;
+        }
+
+        int year = date.getYear();
+        if (year < 1000 || year > 9999) {
+            putText(buffer, date.format(DATE_FORMAT));
+            return;
+        }
+
+        putTwoDigits(buffer, date.getMonthValue());
+        buffer.put((byte) '-');
+        putTwoDigits(buffer, date.getDayOfMonth());
+        buffer.put((byte) '-');
+        putTwoDigits(buffer, year / 100);
+        putTwoDigits(buffer, year % 100);
+    }
+
+    /**
+     * Writes the same characters as {@link BigDecimal#toString()}.
+     * Values that would print in scientific notation or do not fit in a long
+     * fall back to it.
+     */
+    private void putDecimal(ByteBuffer buffer, BigDecimal value) {
+        if (value == null) {
+            buffer.put(NULL);
+            return;
+        }
+
+        int scale = value.scale();
+        if (scale < 0 || scale > 18 || value.precision() - 1 - scale < -6 || value.unscaledValue().bitLength() > 62) {
+            putText(buffer, value.toString());
+            return;
+        }
+
+        long unscaled = value.unscaledValue().longValue();
+        if (unscaled < 0) {
+            buffer.put((byte) '-');
+            unscaled = -unscaled;
+        }
+
+        if (scale == 0) {
+            putLong(buffer, unscaled);
+            return;
+        }
+
+        long divisor = pow10(scale);
+        putLong(buffer, unscaled / divisor);
+        buffer.put((byte) '.');
+        putPadded(buffer, unscaled % divisor, scale);
+    }
+
+    private void putInt(ByteBuffer buffer, int value) {
+        if (value < 0) {
+            buffer.put((byte) '-');
+            putLong(buffer, -(long) value);
+        } else {
+            putLong(buffer, value);
+        }
+    }
+
+    private void putLong(ByteBuffer buffer, long value) {
+        putPadded(buffer, value, digitCount(value));
+    }
+
+    // Writes value as exactly width digits, left padded with zeros
+    private void putPadded(ByteBuffer buffer, long value, int width) {
+        int end = buffer.position() + width;
+        if (end > buffer.limit()) {
+            throw new BufferOverflowException();
+        }
+
+        for (int i = end - 1; i >= end - width; i--) {
+            buffer.put(i, (byte) ('0' + (value % 10)));
+            value /= 10;
+        }
+        buffer.position(end);
+    }
+
+    private void putTwoDigits(ByteBuffer buffer, int value) {
+        buffer.put((byte) ('0' + value / 10));
+        buffer.put((byte) ('0' + value % 10));
+    }
+
+    private static int digitCount(long value) {
+        int digits = 1;
+        while (value >= 10) {
+            value /= 10;
+            digits++;
+        }
+        return digits;
+    }
+
+    private static long pow10(int exponent) {
+        long result = 1;
+        for (int i = 0; i < exponent; i++) {
+            result *= 10;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,261 @@
+package com.wileyedge.flooring.dao;
+
+import com.wileyedge.flooring.dto.PartitionSummary;
+import com.wileyedge.flooring.exceptions.PersistenceException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.CRC32;
+
+/**
+ * Turns a stream of export rows back into order partition files in a staging
+ * folder. Rows are grouped by their OrderDate column in memory and written out
+ * on a worker pool. When the export is in date order (as this program writes it)
+ * each partition is written once, as soon as the next date starts; otherwise
+ * buffers are appended to their partitions whenever they pass the memory limit.
+ */
+class OrderRestorer {
+
+    private static final int DEFAULT_BUFFER_LIMIT = 32 * 1024 * 1024;
+    private static final DateTimeFormatter ROW_DATE_FORMAT = DateTimeFormatter.ofPattern("MM-dd-yyyy");
+    private static final DateTimeFormatter FILE_DATE_FORMAT = DateTimeFormatter.ofPattern("MMddyyyy");
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+
+    private final File stagingFolder;
+    private final byte[] header;
+    private final long bufferLimit;
+    private final ExecutorService executor;
+    private final Semaphore inFlight;
+    private final List<Future<?>> flushes = new ArrayList<>();
+    private final Map<LocalDate, StagedPartition> partitions = new TreeMap<>();
+
+    private long bufferedBytes = 0;
+    private boolean sorted = true;
+    private String lastDateText;
+    private StagedPartition current;
+
+    OrderRestorer(File stagingFolder, String header) {
+        this(stagingFolder, header, DEFAULT_BUFFER_LIMIT);
+    }
+
+    OrderRestorer(File stagingFolder, String header, long bufferLimit) {
+        this.stagingFolder = stagingFolder;
+        this.header = (header + System.lineSeparator()).getBytes(StandardCharsets.UTF_8);
+        this.bufferLimit = bufferLimit;
+
+        int workers = Runtime.getRuntime().availableProcessors();
+        this.inFlight = new Semaphore(workers * 2);
+        this.executor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "order-restore");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Adds one export row to its date's partition
+     * @param row order columns followed by the OrderDate column
+     * @throws PersistenceException if the row is malformed or a partition write failed
+     */
+    void add(String row) throws PersistenceException {
+        int dateStart = row.lastIndexOf(',');
+        int totalStart = dateStart > 0 ? row.lastIndexOf(',', dateStart - 1) : -1;
+        int numberEnd = row.indexOf(',');
+        if (totalStart < 0 || numberEnd >= totalStart) {
+            throw new PersistenceException("Malformed export row: " + row);
+        }
+
+        if (lastDateText == null || !row.regionMatches(dateStart + 1, lastDateText, 0, lastDateText.length())
+                || row.length() - dateStart - 1 != lastDateText.length()) {
+            switchPartition(row.substring(dateStart + 1));
+        }
+
+        try {
+            current.addStats(Integer.parseInt(row, 0, numberEnd, 10),
+                    new BigDecimal(row.substring(totalStart + 1, dateStart)));
+        } catch (NumberFormatException e) {
+            throw new PersistenceException("Malformed export row: " + row, e);
+        }
+
+        byte[] bytes = row.substring(0, dateStart).getBytes(StandardCharsets.UTF_8);
+        current.buffer.write(bytes, 0, bytes.length);
+        current.buffer.write(LINE_SEPARATOR, 0, LINE_SEPARATOR.length);
+        bufferedBytes += bytes.length + LINE_SEPARATOR.length;
+
+        if (bufferedBytes > bufferLimit) {
+            for (StagedPartition partition : partitions.values()) {
+                flush(partition);
+            }
+        }
+    }
+
+    /**
+     * Writes whatever is still buffered and waits for every partition write
+     * @return a summary of each staged partition; last-modified times are left at 0
+     * @throws PersistenceException if any partition could not be written
+     */
+    List<PartitionSummary> finish() throws PersistenceException {
+        try {
+            for (StagedPartition partition : partitions.values()) {
+                flush(partition);
+            }
+            for (Future<?> flush : flushes) {
+                flush.get();
+            }
+        } catch (ExecutionException e) {
+            throw new PersistenceException("Could not write restored orders.", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PersistenceException("Restore was interrupted.", e);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        List<PartitionSummary> summaries = new ArrayList<>();
+        for (StagedPartition partition : partitions.values()) {
+            summaries.add(partition.toSummary());
+        }
+        return summaries;
+    }
+
+    File getStagedFile(LocalDate date) {
+        return new File(stagingFolder, "Orders_" + date.format(FILE_DATE_FORMAT) + ".txt");
+    }
+
+    /**
+     * Stops all writes and deletes the staging folder and anything left in it
+     */
+    void abort() {
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        File[] stagedFiles = stagingFolder.listFiles();
+        if (stagedFiles != null) {
+            for (File file : stagedFiles) {
+                file.delete();
+            }
+        }
+        stagingFolder.delete();
+    }
+
+    private void switchPartition(String dateText) throws PersistenceException {
+        LocalDate date;
+        try {
+            date = LocalDate.parse(dateText, ROW_DATE_FORMAT);
+        } catch (DateTimeParseException e) {
+            throw new PersistenceException("Malformed order date in export: " + dateText, e);
+        }
+
+        StagedPartition next = partitions.get(date);
+        if (next == null) {
+            next = new StagedPartition(date, getStagedFile(date));
+            partitions.put(date, next);
+        } else {
+            // A date seen before means the export is not in date order
+            sorted = false;
+        }
+
+        // In a sorted export the previous date is complete, so write it out in one go
+        if (sorted && current != null) {
+            flush(current);
+        }
+
+        current = next;
+        lastDateText = dateText;
+    }
+
+    private void flush(StagedPartition partition) throws PersistenceException {
+        if (partition.buffer.size() == 0) {
+            return;
+        }
+
+        byte[] rows = partition.buffer.toByteArray();
+        partition.buffer = new ByteArrayOutputStream();
+        bufferedBytes -= rows.length;
+
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PersistenceException("Restore was interrupted.", e);
+        }
+
+        flushes.add(executor.submit(() -> {
+            try {
+                partition.append(rows);
+            } finally {
+                inFlight.release();
+            }
+            return null;
+        }));
+    }
+
+    /**
+     * Rows and running totals for one date. Appends to the same partition may run
+     * on different workers, so they are serialised on the partition; row order
+     * inside a partition does not matter.
+     */
+    private class StagedPartition {
+        private final LocalDate date;
+        private final File file;
+        private final CRC32 crc = new CRC32();
+        private ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private boolean created = false;
+        private int orderCount = 0;
+        private int minOrderNumber = 0;
+        private int maxOrderNumber = 0;
+        private BigDecimal totalRevenue = BigDecimal.ZERO;
+
+        StagedPartition(LocalDate date, File file) {
+            this.date = date;
+            this.file = file;
+        }
+
+        void addStats(int orderNumber, BigDecimal total) {
+            orderCount++;
+            if (minOrderNumber == 0 || orderNumber < minOrderNumber) {
+                minOrderNumber = orderNumber;
+            }
+            maxOrderNumber = Math.max(maxOrderNumber, orderNumber);
+            totalRevenue = totalRevenue.add(total);
+        }
+
+        synchronized void append(byte[] rows) throws IOException {
+            ByteBuffer[] data = created
+                    ? new ByteBuffer[]{ByteBuffer.wrap(rows)}
+                    : new ByteBuffer[]{ByteBuffer.wrap(header), ByteBuffer.wrap(rows)};
+
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, created ? StandardOpenOption.APPEND
+                            : StandardOpenOption.TRUNCATE_EXISTING)) {
+                for (ByteBuffer part : data) {
+                    crc.update(part.duplicate());
+                }
+                while (data[data.length - 1].hasRemaining()) {
+                    channel.write(data);
+                }
+            }
+            created = true;
+        }
+
+        synchronized PartitionSummary toSummary() {
+            return new PartitionSummary(date, orderCount, minOrderNumber, maxOrderNumber, totalRevenue,
+                    0, crc.getValue());
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.wileyedge.flooring.dao;
+
+import com.wileyedge.flooring.dto.Order;
+import com.wileyedge.flooring.dto.PartitionSummary;
+import com.wileyedge.flooring.exceptions.PersistenceException;
+
+import java.io.Closeable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * A point-in-time, read-only view of every order partition.
+ *
+ * Taking a snapshot only records which partitions existed; partitions are read
+ * lazily when asked for. Writers keep the view consistent by calling
+ * {@link #pin(LocalDate, Collection)} with a partition's contents before they
+ * change it, so a snapshot never sees a write made after it was taken and
+ * nobody has to wait for a long reader to finish.
+ */
+public class OrderSnapshot implements OrderPartitionSource, Closeable {
+
+    private final long version;
+    private final List<PartitionSummary> partitions;
+    private final Set<LocalDate> dates = new HashSet<>();
+    private final Map<LocalDate, List<Order>> pinned = new ConcurrentHashMap<>();
+    private final PartitionLoader loader;
+    private final Consumer<OrderSnapshot> onClose;
+    private volatile boolean open = true;
+
+    OrderSnapshot(long version, List<PartitionSummary> partitions, PartitionLoader loader,
+                  Consumer<OrderSnapshot> onClose) {
+        this.version = version;
+        this.partitions = Collections.unmodifiableList(new ArrayList<>(partitions));
+        this.loader = loader;
+        this.onClose = onClose;
+
+        for (PartitionSummary partition : partitions) {
+            dates.add(partition.getOrderDate());
+        }
+    }
+
+    /**
+     * Builds a fully materialised snapshot from orders already in memory
+     * @param orders orders by date
+     * @return a snapshot holding copies of the orders
+     */
+    public static OrderSnapshot of(Map<LocalDate, Map<Integer, Order>> orders) {
+        List<PartitionSummary> partitions = new ArrayList<>();
+        for (Map.Entry<LocalDate, Map<Integer, Order>> dateEntry : orders.entrySet()) {
+            partitions.add(new PartitionSummary(dateEntry.getKey(), dateEntry.getValue().size(),
+                    0, 0, BigDecimal.ZERO, 0, 0));
+        }
+
+        OrderSnapshot snapshot = new OrderSnapshot(0, partitions, (source, date) -> new ArrayList<>(),
+                source -> { });
+        for (Map.Entry<LocalDate, Map<Integer, Order>> dateEntry : orders.entrySet()) {
+            snapshot.pin(dateEntry.getKey(), dateEntry.getValue().values());
+        }
+        return snapshot;
+    }
+
+    /**
+     * @return increasing number identifying when the snapshot was taken
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public List<PartitionSummary> getPartitions() {
+        return partitions;
+    }
+
+    @Override
+    public List<Order> getOrdersForDate(LocalDate date) throws PersistenceException {
+        if (!open) {
+            throw new IllegalStateException("Snapshot " + version + " is closed.");
+        }
+        if (!dates.contains(date)) {
+            return new ArrayList<>();
+        }
+
+        List<Order> pinnedOrders = pinned.get(date);
+        if (pinnedOrders != null) {
+            return new ArrayList<>(pinnedOrders);
+        }
+
+        return loader.load(this, date);
+    }
+
+    /**
+     * Keeps a copy of a partition as it was when the snapshot was taken.
+     * Called by writers just before they change the partition; does nothing if
+     * the partition is already pinned or did not exist at snapshot time.
+     */
+    void pin(LocalDate date, Collection<Order> orders) {
+        if (open && dates.contains(date) && !pinned.containsKey(date)) {
+            List<Order> copies = new ArrayList<>(orders.size());
+            for (Order order : orders) {
+                copies.add(new Order(order));
+            }
+            pinned.put(date, Collections.unmodifiableList(copies));
+        }
+    }
+
+    List<Order> getPinned(LocalDate date) {
+        return pinned.get(date);
+    }
+
+    public boolean isOpen() {
+        return open;
+    }
+
+    /**
+     * Releases pinned partitions and stops writers from pinning any more
+     */
+    @Override
+    public void close() {
+        if (open) {
+            open = false;
+            pinned.clear();
+            onClose.accept(this);
+        }
+    }
+
+    /**
+     * Reads a partition that no writer has touched since the snapshot was taken
+     */
+    interface PartitionLoader {
+        List<Order> load(OrderSnapshot snapshot, LocalDate date) throws PersistenceException;
+    }
+}
@@ -0,0 +1,149 @@
+package com.wileyedge.flooring.dao;
+
+import com.wileyedge.flooring.dto.Order;
+import com.wileyedge.flooring.dto.RevenueTotals;
+import com.wileyedge.flooring.exceptions.PersistenceException;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.util.Collection;
+
+/**
+ * The totals of one order partition, kept in a small file beside it so range
+ * reports never parse the partition itself. A sidecar records the checksum
+ * of the partition it was summed from; one whose checksum differs from the
+ * manifest's, such as after a restore or a write interrupted between the two
+ * files, is treated as missing and summed again.
+ */
+class PartitionSidecar {
+
+    private static final String DELIMITER = ",";
+    private static final String HEADER = "OrderCount,MinOrderNumber,MaxOrderNumber,MaterialCost,LaborCost,Tax,Total," +
+            "PartitionChecksum";
+    private static final BigDecimal NO_MONEY = new BigDecimal("0.00");
+
+    private final int orderCount;
+    private final int minOrderNumber;
+    private final int maxOrderNumber;
+    private final BigDecimal materialCost;
+    private final BigDecimal laborCost;
+    private final BigDecimal tax;
+    private final BigDecimal total;
+    private final long partitionChecksum;
+
+    private PartitionSidecar(int orderCount, int minOrderNumber, int maxOrderNumber, BigDecimal materialCost,
+                             BigDecimal laborCost, BigDecimal tax, BigDecimal total, long partitionChecksum) {
+        this.orderCount = orderCount;
+        this.minOrderNumber = minOrderNumber;
+        this.maxOrderNumber = maxOrderNumber;
+        this.materialCost = materialCost;
+        this.laborCost = laborCost;
+        this.tax = tax;
+        this.total = total;
+        this.partitionChecksum = partitionChecksum;
+    }
+
+    /**
+     * Sums a partition's orders
+     * @param partitionChecksum CRC32 of the partition file the orders are stored in
+     */
+    static PartitionSidecar of(Collection<Order> orders, long partitionChecksum) {
+        int min = 0;
+        int max = 0;
+        BigDecimal materialCost = NO_MONEY;
+        BigDecimal laborCost = NO_MONEY;
+        BigDecimal tax = NO_MONEY;
+        BigDecimal total = NO_MONEY;
+
+        for (Order order : orders) {
+            int orderNumber = order.getOrderNumber();
+            if (min == 0 || orderNumber < min) {
+                min = orderNumber;
+            }
+            max = Math.max(max, orderNumber);
+            materialCost = add(materialCost, order.getMaterialCost());
+            laborCost = add(laborCost, order.getLaborCost());
+            tax = add(tax, order.getTax());
+            total = add(total, order.getTotal());
+        }
+
+        return new PartitionSidecar(orders.size(), min, max, materialCost, laborCost, tax, total, partitionChecksum);
+    }
+
+    /**
+     * @param partitionChecksum the manifest's checksum for the partition
+     * @return the sidecar, or null if it is missing, unreadable or was summed
+     * from other contents of the partition
+     */
+    static PartitionSidecar read(File sidecarFile, long partitionChecksum) {
+        if (partitionChecksum == 0 || !sidecarFile.exists()) {
+            return null;
+        }
+
+        try (BufferedReader in = new BufferedReader(new FileReader(sidecarFile))) {
+            in.readLine(); // Skip header line
+            String[] tokens = in.readLine().split(DELIMITER);
+
+            PartitionSidecar sidecar = new PartitionSidecar(Integer.parseInt(tokens[0]), Integer.parseInt(tokens[1]),
+                    Integer.parseInt(tokens[2]), new BigDecimal(tokens[3]), new BigDecimal(tokens[4]),
+                    new BigDecimal(tokens[5]), new BigDecimal(tokens[6]), Long.parseLong(tokens[7]));
+            return sidecar.partitionChecksum == partitionChecksum ? sidecar : null;
+        } catch (IOException | RuntimeException e) {
+            // Summed again from the partition
+            return null;
+        }
+    }
+
+    /**
+     * Writes the sidecar to a temporary file next to the real one. The caller
+     * moves it into place once the partition it describes is.
+     * @return the temporary file
+     * @throws PersistenceException if unable to write the file
+     */
+    File prepare(File sidecarFile) throws PersistenceException {
+        File tempFile = new File(sidecarFile.getPath() + ".tmp");
+
+        try (PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(tempFile)))) {
+            out.println(HEADER);
+            out.println(orderCount + DELIMITER +
+                    minOrderNumber + DELIMITER +
+                    maxOrderNumber + DELIMITER +
+                    materialCost.toPlainString() + DELIMITER +
+                    laborCost.toPlainString() + DELIMITER +
+                    tax.toPlainString() + DELIMITER +
+                    total.toPlainString() + DELIMITER +
+                    partitionChecksum);
+            if (out.checkError()) {
+                throw new IOException("Write failed for " + tempFile);
+            }
+        } catch (IOException e) {
+            throw new PersistenceException("Could not save order summary.", e);
+        }
+
+        return tempFile;
+    }
+
+    void save(File sidecarFile) throws PersistenceException {
+        OrderManifest.moveIntoPlace(prepare(sidecarFile).toPath(), sidecarFile.toPath());
+    }
+
+    int getOrderCount() {
+        return orderCount;
+    }
+
+    int getMinOrderNumber() {
+        return minOrderNumber;
+    }
+
+    int getMaxOrderNumber() {
+        return maxOrderNumber;
+    }
+
+    RevenueTotals getTotals() {
+        return new RevenueTotals(orderCount, materialCost, laborCost, tax, total);
+    }
+
+    private static BigDecimal add(BigDecimal sum, BigDecimal value) {
+        return value == null ? sum : sum.add(value);
+    }
+}
@@ -0,0 +1,32 @@
+package com.wileyedge.flooring.dao;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+
+/**
+ * What a revenue pivot groups orders by
+ */
+public enum PivotDimension {
+    STATE,
+    PRODUCT_TYPE,
+    DATE,
+    MONTH,
+    YEAR;
+
+    /**
+     * @return the value of a date dimension for a partition date, or null for
+     * a dimension taken from the order itself
+     */
+    String valueFor(LocalDate date) {
+        switch (this) {
+            case DATE:
+                return date.toString();
+            case MONTH:
+                return YearMonth.from(date).toString();
+            case YEAR:
+                return String.valueOf(date.getYear());
+            default:
+                return null;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.wileyedge.flooring.dao;
+
+import com.wileyedge.flooring.dto.PricingTier;
+import com.wileyedge.flooring.dto.Product;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Area tiers (volume discounts) for every product, compiled into flat arrays.
+ * Each product owns a run of tiers in the arrays, ordered by minimum area,
+ * with the minimum areas rounded up to whole hundredths of a square foot and
+ * held as longs. A discount takes the same percentage off the material and the
+ * labor cost per square foot.
+ *
+ * Pricing goes through {@link #compile(RateSchedule)}, which takes every
+ * tier's discount off every product's costs once, so an order with a tier
+ * costs no more to price than one without. Immutable, apart from remembering
+ * the product rates it was last compiled against.
+ */
+public class PricingTiers {
+
+    // Before NONE, which takes a version when it is built
+    private static final AtomicLong VERSIONS = new AtomicLong();
+
+    /** No product has tiers */
+    public static final PricingTiers NONE = new PricingTiers(Collections.emptyList());
+
+    private static final BigDecimal ONE_HUNDRED = new BigDecimal("100");
+    private static final long[] NO_TIERS = new long[0];
+
+    private final long version = VERSIONS.incrementAndGet();
+    private final Map<String, Integer> products = new HashMap<>();
+    private final int[] firstTier;
+    private final long[] minimumAreas;
+    private final BigDecimal[] factors;
+    // Product rates change far less often than orders are priced
+    private volatile Compiled compiled;
+
+    /**
+     * @param tiers tiers in any order; a second tier for the same product and
+     *              minimum area replaces the first
+     * @throws IllegalArgumentException if a discount is not between 0 and 100 percent
+     * @throws ArithmeticException if a minimum area is too large to hold in hundredths
+     */
+    public PricingTiers(Collection<PricingTier> tiers) {
+        Map<String, TreeMap<Long, BigDecimal>> byProduct = new LinkedHashMap<>();
+        for (PricingTier tier : tiers) {
+            BigDecimal discount = tier.getDiscountPercent();
+            if (discount.signum() < 0 || discount.compareTo(ONE_HUNDRED) > 0) {
+                throw new IllegalArgumentException("Discount for " + tier.getProductType()
+                        + " must be between 0 and 100 percent: " + discount);
+            }
+            long minimumArea = tier.getMinimumArea().setScale(2, RoundingMode.CEILING)
+                    .unscaledValue().longValueExact();
+            byProduct.computeIfAbsent(tier.getProductType(), k -> new TreeMap<>())
+                    .put(minimumArea, ONE_HUNDRED.subtract(discount).movePointLeft(2));
+        }
+
+        int tierCount = 0;
+        for (TreeMap<Long, BigDecimal> productTiers : byProduct.values()) {
+            tierCount += productTiers.size();
+        }
+
+        firstTier = new int[byProduct.size() + 1];
+        minimumAreas = new long[tierCount];
+        factors = new BigDecimal[tierCount];
+
+        int slot = 0;
+        int next = 0;
+        for (Map.Entry<String, TreeMap<Long, BigDecimal>> product : byProduct.entrySet()) {
+            products.put(product.getKey(), slot);
+            firstTier[slot++] = next;
+            for (Map.Entry<Long, BigDecimal> tier : product.getValue().entrySet()) {
+                minimumAreas[next] = tier.getKey();
+                factors[next++] = tier.getValue();
+            }
+        }
+        firstTier[slot] = next;
+    }
+
+    /**
+     * @return a number no other set of tiers has, so a reloaded file reads as new tiers
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Takes each tier's discount off the costs of its product, for every
+     * product and effective date in the schedule
+     * @param productRates the product costs in force
+     * @return the same schedule holding each product's undiscounted and
+     * discounted costs; the last one built is handed out again while the
+     * product rates are unchanged
+     */
+    public RateSchedule<TieredProduct> compile(RateSchedule<Product> productRates) {
+        Compiled last = compiled;
+        if (last != null && last.productRatesVersion == productRates.getVersion()) {
+            return last.tieredRates;
+        }
+
+        RateSchedule<TieredProduct> tieredRates = productRates.compile(this::tiered);
+        compiled = new Compiled(productRates.getVersion(), tieredRates);
+        return tieredRates;
+    }
+
+    private TieredProduct tiered(String productType, Product product) {
+        Integer slot = products.get(productType);
+        if (slot == null) {
+            return new TieredProduct(NO_TIERS, new Product[]{product});
+        }
+
+        int start = firstTier[slot];
+        int end = firstTier[slot + 1];
+        Product[] discounted = new Product[end - start + 1];
+        discounted[0] = product;
+        for (int tier = start; tier < end; tier++) {
+            discounted[tier - start + 1] = new Product(product.getProductType(),
+                    discount(tier, product.getCostPerSquareFoot()),
+                    discount(tier, product.getLaborCostPerSquareFoot()), product.getEffectiveDate());
+        }
+        return new TieredProduct(Arrays.copyOfRange(minimumAreas, start, end), discounted);
+    }
+
+    /**
+     * @return the rate with the tier's discount taken off, at two decimals or more
+     */
+    private BigDecimal discount(int tier, BigDecimal rate) {
+        if (rate == null) {
+            return null;
+        }
+
+        BigDecimal result = rate.multiply(factors[tier]).stripTrailingZeros();
+        return result.scale() < 2 ? result.setScale(2) : result;
+    }
+
+    private static class Compiled {
+        private final long productRatesVersion;
+        private final RateSchedule<TieredProduct> tieredRates;
+
+        Compiled(long productRatesVersion, RateSchedule<TieredProduct> tieredRates) {
+            this.productRatesVersion = productRatesVersion;
+            this.tieredRates = tieredRates;
+        }
+    }
+}
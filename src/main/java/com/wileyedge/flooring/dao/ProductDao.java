@@ -3,22 +3,46 @@ package com.wileyedge.flooring.dao;
 import com.wileyedge.flooring.dto.Product;
 import com.wileyedge.flooring.exceptions.PersistenceException;
 
+import java.time.LocalDate;
 import java.util.List;
 
 public interface ProductDao {
 
     /**
-     * Gets all available products
+     * Gets all products at the costs in force today
      * @return list of all products
      * @throws PersistenceException if unable to read from persistence
      */
     List<Product> getAllProducts() throws PersistenceException;
 
     /**
-     * Gets a product by its type
+     * Gets a product by its type, at the costs in force today
      * @param productType the product type to find
      * @return the product if found, null otherwise
      * @throws PersistenceException if unable to read from persistence
      */
     Product getProduct(String productType) throws PersistenceException;
+
+    /**
+     * Gets the product costs in force on a date
+     * @param productType the product type to find
+     * @param date the day the rate is needed for, usually an order date
+     * @return the product record if found, null otherwise
+     * @throws PersistenceException if unable to read from persistence
+     */
+    Product getProduct(String productType, LocalDate date) throws PersistenceException;
+
+    /**
+     * Gets all product costs with their effective dates, for looking up many orders at once
+     * @return an immutable schedule of the current file
+     * @throws PersistenceException if unable to read from persistence
+     */
+    RateSchedule<Product> getProductRates() throws PersistenceException;
+
+    /**
+     * Gets the area tiers that discount larger orders
+     * @return compiled tiers, empty if there are none
+     * @throws PersistenceException if unable to read from persistence
+     */
+    PricingTiers getPricingTiers() throws PersistenceException;
 }
\ No newline at end of file
@@ -1,67 +1,81 @@
 package com.wileyedge.flooring.dao;
 
+import com.wileyedge.flooring.dto.PricingTier;
 import com.wileyedge.flooring.dto.Product;
 import com.wileyedge.flooring.exceptions.PersistenceException;
 import org.springframework.stereotype.Component;
 
-import java.io.BufferedReader;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
+import java.io.File;
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Component
 public class ProductDaoFileImpl implements ProductDao {
 
     private final String PRODUCT_FILE;
+    private final String TIER_FILE;
     private static final String DELIMITER = ",";
-    private Map<String, Product> products = new HashMap<>();
+    private static final DateTimeFormatter EFFECTIVE_DATE_FORMAT = DateTimeFormatter.ofPattern("MM-dd-yyyy");
+    private final AtomicReference<CatalogSnapshot<RateSchedule<Product>>> products = new AtomicReference<>();
+    private final AtomicReference<CatalogSnapshot<PricingTiers>> tiers = new AtomicReference<>();
 
     public ProductDaoFileImpl() {
-        this.PRODUCT_FILE = "Data/Products.txt";
+        this("Data/Products.txt", "Data/ProductTiers.txt");
     }
 
+    /**
+     * @param productFile product file; tiers are read from ProductTiers.txt beside it
+     */
     public ProductDaoFileImpl(String productFile) {
+        this(productFile, new File(new File(productFile).getAbsoluteFile().getParentFile(), "ProductTiers.txt")
+                .getPath());
+    }
+
+    public ProductDaoFileImpl(String productFile, String tierFile) {
         this.PRODUCT_FILE = productFile;
+        this.TIER_FILE = tierFile;
     }
 
     @Override
     public List<Product> getAllProducts() throws PersistenceException {
-        loadProducts();
-        return new ArrayList<>(products.values());
+        return getProductRates().getAll(LocalDate.now());
     }
 
     @Override
     public Product getProduct(String productType) throws PersistenceException {
-        loadProducts();
-        return products.get(productType);
+        return getProduct(productType, LocalDate.now());
     }
 
-    private void loadProducts() throws PersistenceException {
-        Scanner scanner;
-
-        try {
-            scanner = new Scanner(new BufferedReader(new FileReader(PRODUCT_FILE)));
-        } catch (FileNotFoundException e) {
-            throw new PersistenceException("Could not load product data.", e);
-        }
-
-        products.clear();
-        String currentLine;
-        Product currentProduct;
+    @Override
+    public Product getProduct(String productType, LocalDate date) throws PersistenceException {
+        return getProductRates().get(productType, date);
+    }
 
-        // Skip header line
-        if (scanner.hasNextLine()) {
-            scanner.nextLine();
-        }
+    /**
+     * Parses the file only when it has changed since it was last read
+     */
+    @Override
+    public RateSchedule<Product> getProductRates() throws PersistenceException {
+        return CatalogSnapshot.load(products, PRODUCT_FILE, this::unmarshallProduct,
+                entries -> new RateSchedule<>(entries, Product::getProductType, Product::getEffectiveDate,
+                        this::copy),
+                "product").getCompiled();
+    }
 
-        while (scanner.hasNextLine()) {
-            currentLine = scanner.nextLine();
-            currentProduct = unmarshallProduct(currentLine);
-            products.put(currentProduct.getProductType(), currentProduct);
+    /**
+     * The tier file is optional; without one no order is discounted
+     */
+    @Override
+    public PricingTiers getPricingTiers() throws PersistenceException {
+        if (!new File(TIER_FILE).exists()) {
+            tiers.set(null);
+            return PricingTiers.NONE;
         }
-
-        scanner.close();
+        return CatalogSnapshot.load(tiers, TIER_FILE, this::unmarshallTier, PricingTiers::new, "pricing tier")
+                .getCompiled();
     }
 
     private Product unmarshallProduct(String productAsText) {
@@ -71,8 +85,34 @@ public class ProductDaoFileImpl implements ProductDao {
         BigDecimal costPerSquareFoot = new BigDecimal(productTokens[1]);
         BigDecimal laborCostPerSquareFoot = new BigDecimal(productTokens[2]);
 
-        Product product = new Product(productType, costPerSquareFoot, laborCostPerSquareFoot);
+        // Costs without an effective date have always applied
+        LocalDate effectiveDate = null;
+        if (productTokens.length > 3 && !productTokens[3].trim().isEmpty()) {
+            effectiveDate = LocalDate.parse(productTokens[3].trim(), EFFECTIVE_DATE_FORMAT);
+        }
+
+        Product product = new Product(productType, costPerSquareFoot, laborCostPerSquareFoot, effectiveDate);
 
         return product;
     }
-}
\ No newline at end of file
+
+    private PricingTier unmarshallTier(String tierAsText) {
+        String[] tierTokens = tierAsText.split(DELIMITER);
+
+        String productType = tierTokens[0];
+        BigDecimal minimumArea = new BigDecimal(tierTokens[1]);
+        BigDecimal discountPercent = new BigDecimal(tierTokens[2]);
+
+        PricingTier tier = new PricingTier(productType, minimumArea, discountPercent);
+
+        return tier;
+    }
+
+    /**
+     * Callers get their own copy, so the shared snapshot cannot be changed
+     */
+    private Product copy(Product product) {
+        return new Product(product.getProductType(), product.getCostPerSquareFoot(),
+                product.getLaborCostPerSquareFoot(), product.getEffectiveDate());
+    }
+}
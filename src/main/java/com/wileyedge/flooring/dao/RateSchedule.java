@@ -0,0 +1,145 @@
+package com.wileyedge.flooring.dao;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * Immutable, effective-dated rates by key (a state or a product type). Each
+ * key's rates are held as a sorted array of the days they start on beside an
+ * array of the rates, so finding the rate in force on a day is a binary search
+ * with no locking and no file access. A rate with no effective date applies
+ * from the beginning of time; two rates for the same key and day keep the later
+ * one. Callers get copies, so the schedule itself never changes.
+ */
+public class RateSchedule<T> {
+
+    private static final long ALWAYS = Long.MIN_VALUE;
+    private static final AtomicLong VERSIONS = new AtomicLong();
+
+    private final Map<String, Rates> rates = new LinkedHashMap<>();
+    private final long version = VERSIONS.incrementAndGet();
+    private final UnaryOperator<T> copy;
+
+    /**
+     * @param entries rates in any order
+     * @param key the key a rate belongs to
+     * @param effectiveDate the first day a rate applies, or null for always
+     * @param copy copies a rate for a caller
+     */
+    public RateSchedule(Collection<T> entries, Function<T, String> key, Function<T, LocalDate> effectiveDate,
+                        UnaryOperator<T> copy) {
+        this.copy = copy;
+
+        Map<String, TreeMap<Long, T>> byKey = new LinkedHashMap<>();
+        for (T entry : entries) {
+            LocalDate date = effectiveDate.apply(entry);
+            byKey.computeIfAbsent(key.apply(entry), k -> new TreeMap<>())
+                    .put(date == null ? ALWAYS : date.toEpochDay(), entry);
+        }
+        for (Map.Entry<String, TreeMap<Long, T>> keyEntry : byKey.entrySet()) {
+            rates.put(keyEntry.getKey(), new Rates(keyEntry.getValue()));
+        }
+    }
+
+    private RateSchedule(UnaryOperator<T> copy) {
+        this.copy = copy;
+    }
+
+    /**
+     * @return a number no other schedule has, so a reloaded file reads as new rates
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @param key state or product type
+     * @param date day the rate is needed for
+     * @return a copy of the rate in force on date, or null if there is none
+     */
+    public T get(String key, LocalDate date) {
+        T rate = find(key, date);
+        return rate == null ? null : copy.apply(rate);
+    }
+
+    /**
+     * Same as {@link #get(String, LocalDate)} but returns the shared rate
+     * itself, for bulk callers that only read it. It must not be changed.
+     */
+    public T find(String key, LocalDate date) {
+        Rates keyRates = key == null ? null : rates.get(key);
+        return keyRates == null ? null : keyRates.at(date.toEpochDay());
+    }
+
+    /**
+     * @return a copy of each key's rate in force on date, in file order
+     */
+    public List<T> getAll(LocalDate date) {
+        long day = date.toEpochDay();
+        List<T> found = new ArrayList<>();
+        for (Rates keyRates : rates.values()) {
+            T rate = keyRates.at(day);
+            if (rate != null) {
+                found.add(copy.apply(rate));
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @param compiler turns a key's rate into the form lookups use
+     * @return a schedule with the same keys and start days, holding each rate
+     * compiled; compiled rates are shared with callers rather than copied, so
+     * they must be immutable
+     */
+    public <U> RateSchedule<U> compile(BiFunction<String, T, U> compiler) {
+        RateSchedule<U> compiled = new RateSchedule<>(rate -> rate);
+        for (Map.Entry<String, Rates> keyEntry : rates.entrySet()) {
+            Rates keyRates = keyEntry.getValue();
+            Object[] values = new Object[keyRates.values.length];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = compiler.apply(keyEntry.getKey(), keyRates.valueAt(i));
+            }
+            compiled.rates.put(keyEntry.getKey(), compiled.new Rates(keyRates.startDays, values));
+        }
+        return compiled;
+    }
+
+    private class Rates {
+        private final long[] startDays;
+        private final Object[] values;
+
+        Rates(TreeMap<Long, T> byStartDay) {
+            startDays = new long[byStartDay.size()];
+            values = new Object[byStartDay.size()];
+            int i = 0;
+            for (Map.Entry<Long, T> entry : byStartDay.entrySet()) {
+                startDays[i] = entry.getKey();
+                values[i++] = entry.getValue();
+            }
+        }
+
+        Rates(long[] startDays, Object[] values) {
+            this.startDays = startDays;
+            this.values = values;
+        }
+
+        @SuppressWarnings("unchecked")
+        T valueAt(int index) {
+            return (T) values[index];
+        }
+
+        T at(long day) {
+            int index = Arrays.binarySearch(startDays, day);
+            if (index < 0) {
+                // Not a start day, so use the rate that started most recently before it
+                index = -index - 2;
+            }
+            return index < 0 ? null : valueAt(index);
+        }
+    }
+}
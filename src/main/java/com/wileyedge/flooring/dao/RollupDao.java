@@ -0,0 +1,77 @@
+package com.wileyedge.flooring.dao;
+
+import com.wileyedge.flooring.dto.Order;
+import com.wileyedge.flooring.dto.PartitionSummary;
+import com.wileyedge.flooring.dto.RevenueTotals;
+import com.wileyedge.flooring.dto.TaxLiability;
+import com.wileyedge.flooring.exceptions.PersistenceException;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+
+public interface RollupDao {
+
+    /**
+     * Moves the running totals from one version of an order to the next
+     * @param before the order as it was saved, or null if it was just added
+     * @param after the order as it is now saved, or null if it was removed
+     * @throws PersistenceException if unable to persist the totals
+     */
+    void recordChange(Order before, Order after) throws PersistenceException;
+
+    /**
+     * Same as {@link #recordChange(Order, Order)} for many edits, persisting once
+     * @param before the orders as they were saved
+     * @param after the same orders as they are now saved, in the same order
+     * @throws PersistenceException if unable to persist the totals
+     */
+    void recordChanges(List<Order> before, List<Order> after) throws PersistenceException;
+
+    /**
+     * Recomputes every total from the orders themselves
+     * @param orders all order partitions
+     * @throws PersistenceException if unable to read the orders or persist the totals
+     */
+    void rebuild(OrderPartitionSource orders) throws PersistenceException;
+
+    /**
+     * Checks the totals against the order manifest, which is kept in line with
+     * the partition files
+     * @param partitions one summary per order date
+     * @return false if the totals cannot be read, or any date's order count or revenue differs
+     */
+    boolean isConsistentWith(List<PartitionSummary> partitions);
+
+    /**
+     * @return totals of orders placed on date
+     * @throws PersistenceException if unable to read the totals
+     */
+    RevenueTotals getTotalsForDate(LocalDate date) throws PersistenceException;
+
+    /**
+     * @return totals of orders placed in month
+     * @throws PersistenceException if unable to read the totals
+     */
+    RevenueTotals getTotalsForMonth(YearMonth month) throws PersistenceException;
+
+    /**
+     * @return totals of orders placed in state, over all dates
+     * @throws PersistenceException if unable to read the totals
+     */
+    RevenueTotals getTotalsForState(String state) throws PersistenceException;
+
+    /**
+     * @return totals of orders for productType, over all dates
+     * @throws PersistenceException if unable to read the totals
+     */
+    RevenueTotals getTotalsForProduct(String productType) throws PersistenceException;
+
+    /**
+     * @param from first date, included
+     * @param to last date, included
+     * @return order count, taxable sales and tax of each state with orders in the range, in state order
+     * @throws PersistenceException if unable to read the totals
+     */
+    List<TaxLiability> getTaxLiability(LocalDate from, LocalDate to) throws PersistenceException;
+}
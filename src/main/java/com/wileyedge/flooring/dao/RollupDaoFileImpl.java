@@ -0,0 +1,318 @@
+package com.wileyedge.flooring.dao;
+
+import com.wileyedge.flooring.dto.Order;
+import com.wileyedge.flooring.dto.PartitionSummary;
+import com.wileyedge.flooring.dto.RevenueTotals;
+import com.wileyedge.flooring.dto.TaxLiability;
+import com.wileyedge.flooring.exceptions.PersistenceException;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+
+/**
+ * Running revenue totals by date, month, state and product. Only the totals
+ * per date, state and product are saved; the coarser ones are summed from them
+ * when the file is loaded and then kept up to date alongside them, so every
+ * query is a single map lookup. Tax by state and day is kept the same way, in
+ * a matrix that sums any range of dates without visiting each one.
+ *
+ * Each change is saved as the cells it moved, appended to a journal beside the
+ * file, and the file itself is only rewritten once the journal has grown long.
+ */
+@Component
+public class RollupDaoFileImpl implements RollupDao {
+
+    private static final String DELIMITER = ",";
+    private static final String HEADER = "OrderDate,State,ProductType,OrderCount,MaterialCost,LaborCost,Tax,Total";
+    private static final BigDecimal NO_MONEY = new BigDecimal("0.00");
+    private static final int COMPACT_AFTER = 1_000;
+
+    private final DeltaJournal journal;
+    private boolean loaded = false;
+
+    private final Map<Cell, RevenueTotals> cells = new HashMap<>();
+    private final Map<LocalDate, RevenueTotals> byDate = new HashMap<>();
+    private final Map<YearMonth, RevenueTotals> byMonth = new HashMap<>();
+    private final Map<String, RevenueTotals> byState = new HashMap<>();
+    private final Map<String, RevenueTotals> byProduct = new HashMap<>();
+    private final TaxLiabilityMatrix taxByStateAndDay = new TaxLiabilityMatrix();
+
+    public RollupDaoFileImpl() {
+        this("Orders/Rollups.txt");
+    }
+
+    public RollupDaoFileImpl(String rollupFile) {
+        this(rollupFile, COMPACT_AFTER);
+    }
+
+    /**
+     * @param compactAfter journal lines after which the file is rewritten
+     */
+    public RollupDaoFileImpl(String rollupFile, int compactAfter) {
+        this.journal = new DeltaJournal(rollupFile, HEADER, compactAfter);
+    }
+
+    @Override
+    public synchronized void recordChange(Order before, Order after) throws PersistenceException {
+        load();
+        List<String> changes = new ArrayList<>();
+        if (before != null) {
+            changes.add(add(before, -1));
+        }
+        if (after != null) {
+            changes.add(add(after, 1));
+        }
+        save(changes);
+    }
+
+    @Override
+    public synchronized void recordChanges(List<Order> before, List<Order> after) throws PersistenceException {
+        load();
+        List<String> changes = new ArrayList<>();
+        for (int i = 0; i < before.size(); i++) {
+            changes.add(add(before.get(i), -1));
+            changes.add(add(after.get(i), 1));
+        }
+        save(changes);
+    }
+
+    @Override
+    public synchronized void rebuild(OrderPartitionSource orders) throws PersistenceException {
+        clear();
+        for (PartitionSummary partition : orders.getPartitions()) {
+            for (Order order : orders.getOrdersForDate(partition.getOrderDate())) {
+                add(order, 1);
+            }
+        }
+        loaded = true;
+        compact();
+    }
+
+    @Override
+    public synchronized boolean isConsistentWith(List<PartitionSummary> partitions) {
+        try {
+            load();
+        } catch (PersistenceException e) {
+            // An unreadable file is rebuilt like a stale one
+            return false;
+        }
+
+        int datesWithOrders = 0;
+        for (PartitionSummary partition : partitions) {
+            if (partition.getOrderCount() == 0) {
+                continue;
+            }
+            datesWithOrders++;
+
+            RevenueTotals totals = byDate.get(partition.getOrderDate());
+            if (totals == null || totals.getOrderCount() != partition.getOrderCount()
+                    || totals.getTotal().compareTo(partition.getTotalRevenue()) != 0) {
+                return false;
+            }
+        }
+        return datesWithOrders == byDate.size();
+    }
+
+    @Override
+    public synchronized RevenueTotals getTotalsForDate(LocalDate date) throws PersistenceException {
+        load();
+        return copyOf(byDate.get(date));
+    }
+
+    @Override
+    public synchronized RevenueTotals getTotalsForMonth(YearMonth month) throws PersistenceException {
+        load();
+        return copyOf(byMonth.get(month));
+    }
+
+    @Override
+    public synchronized RevenueTotals getTotalsForState(String state) throws PersistenceException {
+        load();
+        return copyOf(byState.get(state));
+    }
+
+    @Override
+    public synchronized RevenueTotals getTotalsForProduct(String productType) throws PersistenceException {
+        load();
+        return copyOf(byProduct.get(productType));
+    }
+
+    @Override
+    public synchronized List<TaxLiability> getTaxLiability(LocalDate from, LocalDate to)
+            throws PersistenceException {
+        load();
+        return taxByStateAndDay.sum(from, to);
+    }
+
+    /**
+     * Adds an order to, or with sign -1 takes it from, every total it counts towards
+     * @return the change as a journal line
+     */
+    private String add(Order order, int sign) {
+        RevenueTotals change = new RevenueTotals(sign, signed(order.getMaterialCost(), sign),
+                signed(order.getLaborCost(), sign), signed(order.getTax(), sign), signed(order.getTotal(), sign));
+        Cell cell = new Cell(order.getOrderDate(), order.getState(), order.getProductType());
+        add(cell, change);
+        return marshallCell(cell, change);
+    }
+
+    private void add(Cell cell, RevenueTotals change) {
+        addTo(cells, cell, change);
+        addTo(byDate, cell.date, change);
+        addTo(byMonth, YearMonth.from(cell.date), change);
+        addTo(byState, cell.state, change);
+        addTo(byProduct, cell.productType, change);
+        taxByStateAndDay.add(cell.state, cell.date, change.getOrderCount(),
+                cents(change.getMaterialCost().add(change.getLaborCost())), cents(change.getTax()));
+    }
+
+    private static BigDecimal signed(BigDecimal value, int sign) {
+        if (value == null) {
+            return NO_MONEY;
+        }
+        return sign < 0 ? value.negate() : value;
+    }
+
+    private static long cents(BigDecimal value) {
+        return value.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Adds change to the totals under key, dropping them once they count no orders
+     */
+    private static <K> void addTo(Map<K, RevenueTotals> totals, K key, RevenueTotals change) {
+        RevenueTotals current = totals.get(key);
+        if (current == null) {
+            totals.put(key, new RevenueTotals(change));
+            return;
+        }
+
+        current.setOrderCount(current.getOrderCount() + change.getOrderCount());
+        if (current.getOrderCount() == 0) {
+            totals.remove(key);
+            return;
+        }
+        current.setMaterialCost(current.getMaterialCost().add(change.getMaterialCost()));
+        current.setLaborCost(current.getLaborCost().add(change.getLaborCost()));
+        current.setTax(current.getTax().add(change.getTax()));
+        current.setTotal(current.getTotal().add(change.getTotal()));
+    }
+
+    private static RevenueTotals copyOf(RevenueTotals totals) {
+        return totals == null ? new RevenueTotals(0, NO_MONEY, NO_MONEY, NO_MONEY, NO_MONEY)
+                : new RevenueTotals(totals);
+    }
+
+    private void clear() {
+        cells.clear();
+        byDate.clear();
+        byMonth.clear();
+        byState.clear();
+        byProduct.clear();
+        taxByStateAndDay.clear();
+    }
+
+    private void load() throws PersistenceException {
+        if (loaded) {
+            return;
+        }
+
+        clear();
+        try {
+            journal.read(this::unmarshallCell);
+        } catch (IOException | RuntimeException e) {
+            clear();
+            throw new PersistenceException("Could not load revenue rollups.", e);
+        }
+        loaded = true;
+    }
+
+    /**
+     * Appends the changed cells to the journal, compacting it once it has grown long
+     */
+    private void save(List<String> changes) throws PersistenceException {
+        boolean compactNow;
+        try {
+            compactNow = journal.append(changes);
+        } catch (IOException e) {
+            // Reload from disk next time, as the totals in memory are now ahead of the file
+            loaded = false;
+            throw new PersistenceException("Could not save revenue rollups.", e);
+        }
+
+        if (compactNow) {
+            compact();
+        }
+    }
+
+    private void compact() throws PersistenceException {
+        List<String> rows = new ArrayList<>(cells.size());
+        for (Map.Entry<Cell, RevenueTotals> cell : cells.entrySet()) {
+            rows.add(marshallCell(cell.getKey(), cell.getValue()));
+        }
+
+        try {
+            journal.compact(rows);
+        } catch (IOException e) {
+            loaded = false;
+            throw new PersistenceException("Could not save revenue rollups.", e);
+        } catch (PersistenceException e) {
+            loaded = false;
+            throw e;
+        }
+    }
+
+    private void unmarshallCell(String cellAsText) {
+        String[] tokens = cellAsText.split(DELIMITER);
+
+        add(new Cell(LocalDate.parse(tokens[0]), tokens[1], tokens[2]),
+                new RevenueTotals(Integer.parseInt(tokens[3]), new BigDecimal(tokens[4]),
+                        new BigDecimal(tokens[5]), new BigDecimal(tokens[6]), new BigDecimal(tokens[7])));
+    }
+
+    private String marshallCell(Cell cell, RevenueTotals totals) {
+        return cell.date + DELIMITER +
+                cell.state + DELIMITER +
+                cell.productType + DELIMITER +
+                totals.getOrderCount() + DELIMITER +
+                totals.getMaterialCost().toPlainString() + DELIMITER +
+                totals.getLaborCost().toPlainString() + DELIMITER +
+                totals.getTax().toPlainString() + DELIMITER +
+                totals.getTotal().toPlainString();
+    }
+
+    /**
+     * The finest grain of totals: one date, state and product
+     */
+    private static class Cell {
+        private final LocalDate date;
+        private final String state;
+        private final String productType;
+
+        Cell(LocalDate date, String state, String productType) {
+            this.date = date;
+            this.state = state;
+            this.productType = productType;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Cell cell = (Cell) o;
+            return Objects.equals(date, cell.date) &&
+                    Objects.equals(state, cell.state) &&
+                    Objects.equals(productType, cell.productType);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(date, state, productType);
+        }
+    }
+}
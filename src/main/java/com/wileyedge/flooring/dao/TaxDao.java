@@ -3,22 +3,39 @@ package com.wileyedge.flooring.dao;
 import com.wileyedge.flooring.dto.Tax;
 import com.wileyedge.flooring.exceptions.PersistenceException;
 
+import java.time.LocalDate;
 import java.util.List;
 
 public interface TaxDao {
 
     /**
-     * Gets all available tax information
+     * Gets all tax information at the rates in force today
      * @return list of all tax records
      * @throws PersistenceException if unable to read from persistence
      */
     List<Tax> getAllTaxes() throws PersistenceException;
 
     /**
-     * Gets tax information by state abbreviation
+     * Gets tax information by state abbreviation, at the rate in force today
      * @param stateAbr the state abbreviation
      * @return the tax record if found, null otherwise
      * @throws PersistenceException if unable to read from persistence
      */
     Tax getTax(String stateAbr) throws PersistenceException;
+
+    /**
+     * Gets the tax rate in force on a date
+     * @param stateAbr the state abbreviation
+     * @param date the day the rate is needed for, usually an order date
+     * @return the tax record if found, null otherwise
+     * @throws PersistenceException if unable to read from persistence
+     */
+    Tax getTax(String stateAbr, LocalDate date) throws PersistenceException;
+
+    /**
+     * Gets all tax rates with their effective dates, for looking up many orders at once
+     * @return an immutable schedule of the current file
+     * @throws PersistenceException if unable to read from persistence
+     */
+    RateSchedule<Tax> getTaxRates() throws PersistenceException;
 }
\ No newline at end of file
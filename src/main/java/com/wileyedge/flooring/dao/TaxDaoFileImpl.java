@@ -4,18 +4,19 @@ import com.wileyedge.flooring.dto.Tax;
 import com.wileyedge.flooring.exceptions.PersistenceException;
 import org.springframework.stereotype.Component;
 
-import java.io.BufferedReader;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Component
 public class TaxDaoFileImpl implements TaxDao {
 
     private final String TAX_FILE;
     private static final String DELIMITER = ",";
-    private Map<String, Tax> taxes = new HashMap<>();
+    private static final DateTimeFormatter EFFECTIVE_DATE_FORMAT = DateTimeFormatter.ofPattern("MM-dd-yyyy");
+    private final AtomicReference<CatalogSnapshot<RateSchedule<Tax>>> taxes = new AtomicReference<>();
 
     public TaxDaoFileImpl() {
         this.TAX_FILE = "Data/Taxes.txt";
@@ -27,41 +28,27 @@ public class TaxDaoFileImpl implements TaxDao {
 
     @Override
     public List<Tax> getAllTaxes() throws PersistenceException {
-        loadTaxes();
-        return new ArrayList<>(taxes.values());
+        return getTaxRates().getAll(LocalDate.now());
     }
 
     @Override
     public Tax getTax(String stateAbr) throws PersistenceException {
-        loadTaxes();
-        return taxes.get(stateAbr);
+        return getTax(stateAbr, LocalDate.now());
     }
 
-    private void loadTaxes() throws PersistenceException {
-        Scanner scanner;
-
-        try {
-            scanner = new Scanner(new BufferedReader(new FileReader(TAX_FILE)));
-        } catch (FileNotFoundException e) {
-            throw new PersistenceException("Could not load tax data.", e);
-        }
-
-        taxes.clear();
-        String currentLine;
-        Tax currentTax;
-
-        // Skip header line
-        if (scanner.hasNextLine()) {
-            scanner.nextLine();
-        }
-
-        while (scanner.hasNextLine()) {
-            currentLine = scanner.nextLine();
-            currentTax = unmarshallTax(currentLine);
-            taxes.put(currentTax.getStateAbr(), currentTax);
-        }
+    @Override
+    public Tax getTax(String stateAbr, LocalDate date) throws PersistenceException {
+        return getTaxRates().get(stateAbr, date);
+    }
 
-        scanner.close();
+    /**
+     * Parses the file only when it has changed since it was last read
+     */
+    @Override
+    public RateSchedule<Tax> getTaxRates() throws PersistenceException {
+        return CatalogSnapshot.load(taxes, TAX_FILE, this::unmarshallTax,
+                entries -> new RateSchedule<>(entries, Tax::getStateAbr, Tax::getEffectiveDate, this::copy),
+                "tax").getCompiled();
     }
 
     private Tax unmarshallTax(String taxAsText) {
@@ -71,8 +58,21 @@ public class TaxDaoFileImpl implements TaxDao {
         String stateName = taxTokens[1];
         BigDecimal taxRate = new BigDecimal(taxTokens[2]);
 
-        Tax tax = new Tax(stateAbr, stateName, taxRate);
+        // Rates without an effective date have always applied
+        LocalDate effectiveDate = null;
+        if (taxTokens.length > 3 && !taxTokens[3].trim().isEmpty()) {
+            effectiveDate = LocalDate.parse(taxTokens[3].trim(), EFFECTIVE_DATE_FORMAT);
+        }
+
+        Tax tax = new Tax(stateAbr, stateName, taxRate, effectiveDate);
 
         return tax;
     }
-}
\ No newline at end of file
+
+    /**
+     * Callers get their own copy, so the shared snapshot cannot be changed
+     */
+    private Tax copy(Tax tax) {
+        return new Tax(tax.getStateAbr(), tax.getState(), tax.getTaxRate(), tax.getEffectiveDate());
+    }
+}
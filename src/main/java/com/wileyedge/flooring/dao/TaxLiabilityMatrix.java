@@ -0,0 +1,178 @@
+package com.wileyedge.flooring.dao;
+
+import com.wileyedge.flooring.dto.TaxLiability;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Order count, taxable sales and tax in cents for every state and day, held
+ * in primitive arrays. Each state has a code, its row in the matrix, and each
+ * row holds one Fenwick tree per measure over the days, so both a change and
+ * the sums over any range of days take time in the log of the days held.
+ *
+ * The days held start as a small window around the first date recorded, and
+ * double whenever a date falls outside them.
+ */
+class TaxLiabilityMatrix {
+
+    private static final int INITIAL_DAYS = 64;
+
+    // Measures held for each state
+    private static final int ORDERS = 0;
+    private static final int TAXABLE_SALES = 1;
+    private static final int TAX = 2;
+    private static final int MEASURES = 3;
+
+    private final Map<String, Integer> stateCodes = new HashMap<>();
+    private final List<String> states = new ArrayList<>();
+    // [state code][measure] Fenwick tree over days, numbered from 1
+    private long[][][] trees = new long[0][][];
+    private long firstDay;
+    private int days = 0;
+
+    /**
+     * Adds a change to one state and date
+     * @param orders orders added, or negative if taken out
+     * @param taxableSales cents added to the sales the tax is charged on
+     * @param tax cents of tax added
+     */
+    void add(String state, LocalDate date, long orders, long taxableSales, long tax) {
+        long day = date.toEpochDay();
+        if (days == 0) {
+            firstDay = day - INITIAL_DAYS / 2;
+            days = INITIAL_DAYS;
+        }
+        if (day < firstDay || day >= firstDay + days) {
+            grow(day);
+        }
+
+        long[][] row = rowFor(state);
+        int index = (int) (day - firstDay) + 1;
+        update(row[ORDERS], index, orders);
+        update(row[TAXABLE_SALES], index, taxableSales);
+        update(row[TAX], index, tax);
+    }
+
+    /**
+     * @param from first date, included
+     * @param to last date, included
+     * @return each state with orders in the range, in state order
+     */
+    List<TaxLiability> sum(LocalDate from, LocalDate to) {
+        List<TaxLiability> liabilities = new ArrayList<>();
+        if (days == 0) {
+            return liabilities;
+        }
+
+        // Clamp the range to the days held
+        int fromIndex = (int) Math.max(from.toEpochDay() - firstDay, 0) + 1;
+        int toIndex = (int) Math.min(to.toEpochDay() - firstDay + 1, days);
+        if (fromIndex > toIndex) {
+            return liabilities;
+        }
+
+        for (String state : new TreeSet<>(states)) {
+            long[][] row = trees[stateCodes.get(state)];
+            long orders = rangeSum(row[ORDERS], fromIndex, toIndex);
+            if (orders > 0) {
+                liabilities.add(new TaxLiability(state, (int) orders,
+                        BigDecimal.valueOf(rangeSum(row[TAXABLE_SALES], fromIndex, toIndex), 2),
+                        BigDecimal.valueOf(rangeSum(row[TAX], fromIndex, toIndex), 2)));
+            }
+        }
+        return liabilities;
+    }
+
+    void clear() {
+        stateCodes.clear();
+        states.clear();
+        trees = new long[0][][];
+        days = 0;
+    }
+
+    private long[][] rowFor(String state) {
+        Integer code = stateCodes.get(state);
+        if (code != null) {
+            return trees[code];
+        }
+
+        code = states.size();
+        stateCodes.put(state, code);
+        states.add(state);
+        trees = Arrays.copyOf(trees, code + 1);
+        trees[code] = new long[MEASURES][days + 1];
+        return trees[code];
+    }
+
+    /**
+     * Widens the days held to cover day, at least doubling them, and moves
+     * every tree's values across
+     */
+    private void grow(long day) {
+        long newFirstDay = Math.min(firstDay, day);
+        long lastDay = Math.max(firstDay + days - 1, day);
+        int newDays = (int) Math.max(lastDay - newFirstDay + 1, 2L * days);
+        if (day < firstDay) {
+            // Grown towards the past, so leave the room there
+            newFirstDay = lastDay - newDays + 1;
+        }
+        int shift = (int) (firstDay - newFirstDay);
+
+        for (long[][] row : trees) {
+            for (int measure = 0; measure < MEASURES; measure++) {
+                long[] values = toValues(row[measure]);
+                long[] grown = new long[newDays + 1];
+                System.arraycopy(values, 1, grown, shift + 1, days);
+                row[measure] = toTree(grown);
+            }
+        }
+        firstDay = newFirstDay;
+        days = newDays;
+    }
+
+    private static void update(long[] tree, int index, long change) {
+        for (; index < tree.length; index += index & -index) {
+            tree[index] += change;
+        }
+    }
+
+    private static long prefixSum(long[] tree, int index) {
+        long sum = 0;
+        for (; index > 0; index -= index & -index) {
+            sum += tree[index];
+        }
+        return sum;
+    }
+
+    private static long rangeSum(long[] tree, int from, int to) {
+        return prefixSum(tree, to) - prefixSum(tree, from - 1);
+    }
+
+    /**
+     * Builds a tree over values in place, in linear time
+     */
+    private static long[] toTree(long[] values) {
+        for (int i = 1; i < values.length; i++) {
+            int parent = i + (i & -i);
+            if (parent < values.length) {
+                values[parent] += values[i];
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Undoes {@link #toTree(long[])} in place, leaving each day's own value
+     */
+    private static long[] toValues(long[] tree) {
+        for (int i = tree.length - 1; i > 0; i--) {
+            int parent = i + (i & -i);
+            if (parent < tree.length) {
+                tree[parent] -= tree[i];
+            }
+        }
+        return tree;
+    }
+}
@@ -0,0 +1,72 @@
+package com.wileyedge.flooring.dao;
+
+import com.wileyedge.flooring.dto.Product;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * One product's costs with each of its tiers' discounts already taken off,
+ * compiled by {@link PricingTiers#compile(RateSchedule)}. The tier thresholds
+ * are whole hundredths of a square foot in a long array, so finding an order's
+ * costs converts its area once and counts the thresholds it reaches, with no
+ * branches on the data and nothing allocated beyond that conversion.
+ * Immutable; the products it hands out are shared and must not be changed.
+ */
+public class TieredProduct {
+
+    // Areas below this are held by a double to well within half a hundredth
+    private static final double EXACT_LIMIT = 1e13;
+    // Whole digits an area may have before its hundredths could overflow a long
+    private static final int MAX_WHOLE_DIGITS = 16;
+
+    private final long[] minimumAreas;
+    private final Product[] products;
+
+    /**
+     * @param minimumAreas each tier's minimum area in hundredths, ascending
+     * @param products the undiscounted product, then one per tier in the same order
+     */
+    TieredProduct(long[] minimumAreas, Product[] products) {
+        this.minimumAreas = minimumAreas;
+        this.products = products;
+    }
+
+    /**
+     * @param area the area ordered
+     * @return the product with the discount of the tier the area falls in
+     * taken off, or the undiscounted product if it reaches none
+     */
+    public Product forArea(BigDecimal area) {
+        if (minimumAreas.length == 0 || area == null) {
+            return products[0];
+        }
+
+        long hundredths = hundredthsOf(area);
+        int tier = 0;
+        for (long minimumArea : minimumAreas) {
+            tier += hundredths >= minimumArea ? 1 : 0;
+        }
+        return products[tier];
+    }
+
+    /**
+     * Thresholds are whole hundredths, so comparing with the area floored to
+     * hundredths is the same as comparing with the area itself
+     */
+    private static long hundredthsOf(BigDecimal area) {
+        int scale = area.scale();
+        if (scale >= 0 && scale <= 2) {
+            double value = area.doubleValue();
+            if (Math.abs(value) < EXACT_LIMIT) {
+                // Already whole hundredths, and small enough that the double is far
+                // closer to the area than half a hundredth, so rounding recovers it
+                return Math.round(value * 100);
+            }
+        }
+        if (area.precision() - scale > MAX_WHOLE_DIGITS) {
+            return area.signum() > 0 ? Long.MAX_VALUE : Long.MIN_VALUE;
+        }
+        return area.movePointRight(2).setScale(0, RoundingMode.FLOOR).longValue();
+    }
+}
@@ -0,0 +1,57 @@
+package com.wileyedge.flooring.dto;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+public class AuditRecord {
+    private LocalDateTime timestamp;
+    private String entry;
+
+    // Constructors
+    public AuditRecord() {
+    }
+
+    public AuditRecord(LocalDateTime timestamp, String entry) {
+        this.timestamp = timestamp;
+        this.entry = entry;
+    }
+
+    // Getters and Setters
+    public LocalDateTime getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(LocalDateTime timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    public String getEntry() {
+        return entry;
+    }
+
+    public void setEntry(String entry) {
+        this.entry = entry;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        AuditRecord that = (AuditRecord) o;
+        return Objects.equals(timestamp, that.timestamp) &&
+                Objects.equals(entry, that.entry);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(timestamp, entry);
+    }
+
+    @Override
+    public String toString() {
+        return "AuditRecord{" +
+                "timestamp=" + timestamp +
+                ", entry='" + entry + '\'' +
+                '}';
+    }
+}
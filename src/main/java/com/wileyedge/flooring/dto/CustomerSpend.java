@@ -0,0 +1,74 @@
+package com.wileyedge.flooring.dto;
+
+import java.math.BigDecimal;
+import java.util.Objects;
+
+public class CustomerSpend {
+    private String customerName;
+    private BigDecimal totalSpend;
+    private BigDecimal maximumError;
+
+    // Constructors
+    public CustomerSpend() {
+    }
+
+    /**
+     * @param customerName the customer
+     * @param totalSpend the customer's summed order totals, never less than the true sum
+     * @param maximumError how far totalSpend may be above the true sum; zero when exact
+     */
+    public CustomerSpend(String customerName, BigDecimal totalSpend, BigDecimal maximumError) {
+        this.customerName = customerName;
+        this.totalSpend = totalSpend;
+        this.maximumError = maximumError;
+    }
+
+    // Getters and Setters
+    public String getCustomerName() {
+        return customerName;
+    }
+
+    public void setCustomerName(String customerName) {
+        this.customerName = customerName;
+    }
+
+    public BigDecimal getTotalSpend() {
+        return totalSpend;
+    }
+
+    public void setTotalSpend(BigDecimal totalSpend) {
+        this.totalSpend = totalSpend;
+    }
+
+    public BigDecimal getMaximumError() {
+        return maximumError;
+    }
+
+    public void setMaximumError(BigDecimal maximumError) {
+        this.maximumError = maximumError;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CustomerSpend that = (CustomerSpend) o;
+        return Objects.equals(customerName, that.customerName) &&
+                Objects.equals(totalSpend, that.totalSpend) &&
+                Objects.equals(maximumError, that.maximumError);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(customerName, totalSpend, maximumError);
+    }
+
+    @Override
+    public String toString() {
+        return "CustomerSpend{" +
+                "customerName='" + customerName + '\'' +
+                ", totalSpend=" + totalSpend +
+                ", maximumError=" + maximumError +
+                '}';
+    }
+}
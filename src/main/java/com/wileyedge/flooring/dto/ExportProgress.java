@@ -0,0 +1,147 @@
+package com.wileyedge.flooring.dto;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live progress of one export run. Updated by the exporting thread and safe to
+ * poll from any other thread; also carries the request to cancel the run.
+ */
+public class ExportProgress {
+
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED, CANCELLED
+    }
+
+    private volatile Status status = Status.QUEUED;
+    private volatile String errorMessage;
+    private volatile boolean cancelRequested = false;
+    private volatile int totalPartitions;
+    private final AtomicInteger partitionsDone = new AtomicInteger();
+    private final AtomicLong rowsDone = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private volatile long startTime;
+    private volatile long endTime;
+    private final CountDownLatch finished = new CountDownLatch(1);
+
+    public ExportProgress() {
+    }
+
+    /**
+     * Called by the exporter once it knows how many partitions it will write
+     */
+    public void start(int totalPartitions) {
+        this.totalPartitions = totalPartitions;
+        this.partitionsDone.set(0);
+        this.rowsDone.set(0);
+        this.bytesWritten.set(0);
+        this.startTime = System.nanoTime();
+        this.status = Status.RUNNING;
+    }
+
+    /**
+     * Called by the exporter after each partition has been written
+     */
+    public void partitionDone(int rows, long bytes) {
+        partitionsDone.incrementAndGet();
+        rowsDone.addAndGet(rows);
+        bytesWritten.addAndGet(bytes);
+    }
+
+    public void complete() {
+        finish(Status.COMPLETED, null);
+    }
+
+    public void fail(String errorMessage) {
+        finish(Status.FAILED, errorMessage);
+    }
+
+    public void cancelled() {
+        finish(Status.CANCELLED, null);
+    }
+
+    /**
+     * Asks the export to stop; it will do so before its next partition and leave
+     * the previous export in place
+     */
+    public void cancel() {
+        cancelRequested = true;
+    }
+
+    public boolean isCancelRequested() {
+        return cancelRequested;
+    }
+
+    public boolean isDone() {
+        return finished.getCount() == 0;
+    }
+
+    /**
+     * Waits for the export to finish
+     * @return true if it finished within the timeout
+     */
+    public boolean awaitCompletion(long timeout, TimeUnit unit) throws InterruptedException {
+        return finished.await(timeout, unit);
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public int getTotalPartitions() {
+        return totalPartitions;
+    }
+
+    public int getPartitionsDone() {
+        return partitionsDone.get();
+    }
+
+    public long getRowsDone() {
+        return rowsDone.get();
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten.get();
+    }
+
+    public long getElapsedMillis() {
+        if (startTime == 0) {
+            return 0;
+        }
+        long end = isDone() ? endTime : System.nanoTime();
+        return TimeUnit.NANOSECONDS.toMillis(end - startTime);
+    }
+
+    public double getRowsPerSecond() {
+        long elapsed = getElapsedMillis();
+        return elapsed == 0 ? 0 : getRowsDone() * 1000.0 / elapsed;
+    }
+
+    private void finish(Status finalStatus, String message) {
+        if (isDone()) {
+            return;
+        }
+        this.endTime = System.nanoTime();
+        this.errorMessage = message;
+        this.status = finalStatus;
+        finished.countDown();
+    }
+
+    @Override
+    public String toString() {
+        return "ExportProgress{" +
+                "status=" + status +
+                ", partitionsDone=" + getPartitionsDone() +
+                ", totalPartitions=" + totalPartitions +
+                ", rowsDone=" + getRowsDone() +
+                ", bytesWritten=" + getBytesWritten() +
+                ", elapsedMillis=" + getElapsedMillis() +
+                '}';
+    }
+}
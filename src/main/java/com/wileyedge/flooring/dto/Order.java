@@ -27,6 +27,22 @@ public class Order {
         this.orderNumber = orderNumber;
     }
 
+    public Order(Order other) {
+        this.orderNumber = other.orderNumber;
+        this.customerName = other.customerName;
+        this.state = other.state;
+        this.orderDate = other.orderDate;
+        this.taxRate = other.taxRate;
+        this.productType = other.productType;
+        this.area = other.area;
+        this.costPerSquareFoot = other.costPerSquareFoot;
+        this.laborCostPerSquareFoot = other.laborCostPerSquareFoot;
+        this.materialCost = other.materialCost;
+        this.laborCost = other.laborCost;
+        this.tax = other.tax;
+        this.total = other.total;
+    }
+
     // Getters and Setters
     public int getOrderNumber() {
         return orderNumber;
@@ -0,0 +1,118 @@
+package com.wileyedge.flooring.dto;
+
+import java.math.BigDecimal;
+import java.util.Objects;
+
+public class OrderDistribution {
+    private int orderCount;
+    private BigDecimal totalP50;
+    private BigDecimal totalP95;
+    private BigDecimal totalP99;
+    private BigDecimal areaP50;
+    private BigDecimal areaP95;
+    private BigDecimal areaP99;
+
+    // Constructors
+    public OrderDistribution() {
+    }
+
+    public OrderDistribution(int orderCount, BigDecimal totalP50, BigDecimal totalP95, BigDecimal totalP99,
+                             BigDecimal areaP50, BigDecimal areaP95, BigDecimal areaP99) {
+        this.orderCount = orderCount;
+        this.totalP50 = totalP50;
+        this.totalP95 = totalP95;
+        this.totalP99 = totalP99;
+        this.areaP50 = areaP50;
+        this.areaP95 = areaP95;
+        this.areaP99 = areaP99;
+    }
+
+    // Getters and Setters
+    public int getOrderCount() {
+        return orderCount;
+    }
+
+    public void setOrderCount(int orderCount) {
+        this.orderCount = orderCount;
+    }
+
+    public BigDecimal getTotalP50() {
+        return totalP50;
+    }
+
+    public void setTotalP50(BigDecimal totalP50) {
+        this.totalP50 = totalP50;
+    }
+
+    public BigDecimal getTotalP95() {
+        return totalP95;
+    }
+
+    public void setTotalP95(BigDecimal totalP95) {
+        this.totalP95 = totalP95;
+    }
+
+    public BigDecimal getTotalP99() {
+        return totalP99;
+    }
+
+    public void setTotalP99(BigDecimal totalP99) {
+        this.totalP99 = totalP99;
+    }
+
+    public BigDecimal getAreaP50() {
+        return areaP50;
+    }
+
+    public void setAreaP50(BigDecimal areaP50) {
+        this.areaP50 = areaP50;
+    }
+
+    public BigDecimal getAreaP95() {
+        return areaP95;
+    }
+
+    public void setAreaP95(BigDecimal areaP95) {
+        this.areaP95 = areaP95;
+    }
+
+    public BigDecimal getAreaP99() {
+        return areaP99;
+    }
+
+    public void setAreaP99(BigDecimal areaP99) {
+        this.areaP99 = areaP99;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        OrderDistribution that = (OrderDistribution) o;
+        return orderCount == that.orderCount &&
+                Objects.equals(totalP50, that.totalP50) &&
+                Objects.equals(totalP95, that.totalP95) &&
+                Objects.equals(totalP99, that.totalP99) &&
+                Objects.equals(areaP50, that.areaP50) &&
+                Objects.equals(areaP95, that.areaP95) &&
+                Objects.equals(areaP99, that.areaP99);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(orderCount, totalP50, totalP95, totalP99, areaP50, areaP95, areaP99);
+    }
+
+    @Override
+    public String toString() {
+        return "OrderDistribution{" +
+                "orderCount=" + orderCount +
+                ", totalP50=" + totalP50 +
+                ", totalP95=" + totalP95 +
+                ", totalP99=" + totalP99 +
+                ", areaP50=" + areaP50 +
+                ", areaP95=" + areaP95 +
+                ", areaP99=" + areaP99 +
+                '}';
+    }
+}
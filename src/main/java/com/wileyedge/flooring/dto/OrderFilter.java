@@ -0,0 +1,91 @@
+package com.wileyedge.flooring.dto;
+
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Which orders a report covers; a null field matches every order
+ */
+public class OrderFilter {
+    private LocalDate fromDate;
+    private LocalDate toDate;
+    private String state;
+    private String productType;
+
+    // Constructors
+    public OrderFilter() {
+    }
+
+    public OrderFilter(LocalDate fromDate, LocalDate toDate, String state, String productType) {
+        this.fromDate = fromDate;
+        this.toDate = toDate;
+        this.state = state;
+        this.productType = productType;
+    }
+
+    // Getters and Setters
+    public LocalDate getFromDate() {
+        return fromDate;
+    }
+
+    public void setFromDate(LocalDate fromDate) {
+        this.fromDate = fromDate;
+    }
+
+    public LocalDate getToDate() {
+        return toDate;
+    }
+
+    public void setToDate(LocalDate toDate) {
+        this.toDate = toDate;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public void setState(String state) {
+        this.state = state;
+    }
+
+    public String getProductType() {
+        return productType;
+    }
+
+    public void setProductType(String productType) {
+        this.productType = productType;
+    }
+
+    /**
+     * @return true if orders placed on date are within the date range, which includes both ends
+     */
+    public boolean includesDate(LocalDate date) {
+        return (fromDate == null || !date.isBefore(fromDate)) && (toDate == null || !date.isAfter(toDate));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        OrderFilter that = (OrderFilter) o;
+        return Objects.equals(fromDate, that.fromDate) &&
+                Objects.equals(toDate, that.toDate) &&
+                Objects.equals(state, that.state) &&
+                Objects.equals(productType, that.productType);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(fromDate, toDate, state, productType);
+    }
+
+    @Override
+    public String toString() {
+        return "OrderFilter{" +
+                "fromDate=" + fromDate +
+                ", toDate=" + toDate +
+                ", state='" + state + '\'' +
+                ", productType='" + productType + '\'' +
+                '}';
+    }
+}
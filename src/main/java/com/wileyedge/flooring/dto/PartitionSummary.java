@@ -0,0 +1,120 @@
+package com.wileyedge.flooring.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Objects;
+
+public class PartitionSummary {
+    private LocalDate orderDate;
+    private int orderCount;
+    private int minOrderNumber;
+    private int maxOrderNumber;
+    private BigDecimal totalRevenue;
+    private long lastModified;
+    private long checksum;
+
+    // Constructors
+    public PartitionSummary() {
+    }
+
+    public PartitionSummary(LocalDate orderDate, int orderCount, int minOrderNumber, int maxOrderNumber,
+                            BigDecimal totalRevenue, long lastModified, long checksum) {
+        this.orderDate = orderDate;
+        this.orderCount = orderCount;
+        this.minOrderNumber = minOrderNumber;
+        this.maxOrderNumber = maxOrderNumber;
+        this.totalRevenue = totalRevenue;
+        this.lastModified = lastModified;
+        this.checksum = checksum;
+    }
+
+    // Getters and Setters
+    public LocalDate getOrderDate() {
+        return orderDate;
+    }
+
+    public void setOrderDate(LocalDate orderDate) {
+        this.orderDate = orderDate;
+    }
+
+    public int getOrderCount() {
+        return orderCount;
+    }
+
+    public void setOrderCount(int orderCount) {
+        this.orderCount = orderCount;
+    }
+
+    public int getMinOrderNumber() {
+        return minOrderNumber;
+    }
+
+    public void setMinOrderNumber(int minOrderNumber) {
+        this.minOrderNumber = minOrderNumber;
+    }
+
+    public int getMaxOrderNumber() {
+        return maxOrderNumber;
+    }
+
+    public void setMaxOrderNumber(int maxOrderNumber) {
+        this.maxOrderNumber = maxOrderNumber;
+    }
+
+    public BigDecimal getTotalRevenue() {
+        return totalRevenue;
+    }
+
+    public void setTotalRevenue(BigDecimal totalRevenue) {
+        this.totalRevenue = totalRevenue;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    public void setLastModified(long lastModified) {
+        this.lastModified = lastModified;
+    }
+
+    public long getChecksum() {
+        return checksum;
+    }
+
+    public void setChecksum(long checksum) {
+        this.checksum = checksum;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        PartitionSummary that = (PartitionSummary) o;
+        return orderCount == that.orderCount &&
+                minOrderNumber == that.minOrderNumber &&
+                maxOrderNumber == that.maxOrderNumber &&
+                lastModified == that.lastModified &&
+                checksum == that.checksum &&
+                Objects.equals(orderDate, that.orderDate) &&
+                Objects.equals(totalRevenue, that.totalRevenue);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(orderDate, orderCount, minOrderNumber, maxOrderNumber, totalRevenue,
+                lastModified, checksum);
+    }
+
+    @Override
+    public String toString() {
+        return "PartitionSummary{" +
+                "orderDate=" + orderDate +
+                ", orderCount=" + orderCount +
+                ", minOrderNumber=" + minOrderNumber +
+                ", maxOrderNumber=" + maxOrderNumber +
+                ", totalRevenue=" + totalRevenue +
+                ", lastModified=" + lastModified +
+                ", checksum=" + checksum +
+                '}';
+    }
+}
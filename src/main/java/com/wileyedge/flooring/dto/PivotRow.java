@@ -0,0 +1,61 @@
+package com.wileyedge.flooring.dto;
+
+import java.util.List;
+import java.util.Objects;
+
+public class PivotRow {
+    private List<String> keys;
+    private RevenueTotals totals;
+
+    // Constructors
+    public PivotRow() {
+    }
+
+    /**
+     * @param keys the group's value for each pivot dimension, in the order asked for
+     * @param totals the group's totals
+     */
+    public PivotRow(List<String> keys, RevenueTotals totals) {
+        this.keys = keys;
+        this.totals = totals;
+    }
+
+    // Getters and Setters
+    public List<String> getKeys() {
+        return keys;
+    }
+
+    public void setKeys(List<String> keys) {
+        this.keys = keys;
+    }
+
+    public RevenueTotals getTotals() {
+        return totals;
+    }
+
+    public void setTotals(RevenueTotals totals) {
+        this.totals = totals;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        PivotRow pivotRow = (PivotRow) o;
+        return Objects.equals(keys, pivotRow.keys) &&
+                Objects.equals(totals, pivotRow.totals);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(keys, totals);
+    }
+
+    @Override
+    public String toString() {
+        return "PivotRow{" +
+                "keys=" + keys +
+                ", totals=" + totals +
+                '}';
+    }
+}
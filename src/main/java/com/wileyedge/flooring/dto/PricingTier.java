@@ -0,0 +1,69 @@
+package com.wileyedge.flooring.dto;
+
+import java.math.BigDecimal;
+import java.util.Objects;
+
+public class PricingTier {
+    private String productType;
+    private BigDecimal minimumArea;
+    private BigDecimal discountPercent;
+
+    // Constructors
+    public PricingTier() {
+    }
+
+    public PricingTier(String productType, BigDecimal minimumArea, BigDecimal discountPercent) {
+        this.productType = productType;
+        this.minimumArea = minimumArea;
+        this.discountPercent = discountPercent;
+    }
+
+    // Getters and Setters
+    public String getProductType() {
+        return productType;
+    }
+
+    public void setProductType(String productType) {
+        this.productType = productType;
+    }
+
+    public BigDecimal getMinimumArea() {
+        return minimumArea;
+    }
+
+    public void setMinimumArea(BigDecimal minimumArea) {
+        this.minimumArea = minimumArea;
+    }
+
+    public BigDecimal getDiscountPercent() {
+        return discountPercent;
+    }
+
+    public void setDiscountPercent(BigDecimal discountPercent) {
+        this.discountPercent = discountPercent;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        PricingTier that = (PricingTier) o;
+        return Objects.equals(productType, that.productType) &&
+                Objects.equals(minimumArea, that.minimumArea) &&
+                Objects.equals(discountPercent, that.discountPercent);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(productType, minimumArea, discountPercent);
+    }
+
+    @Override
+    public String toString() {
+        return "PricingTier{" +
+                "productType='" + productType + '\'' +
+                ", minimumArea=" + minimumArea +
+                ", discountPercent=" + discountPercent +
+                '}';
+    }
+}
@@ -1,12 +1,14 @@
 package com.wileyedge.flooring.dto;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.Objects;
 
 public class Product {
     private String productType;
     private BigDecimal costPerSquareFoot;
     private BigDecimal laborCostPerSquareFoot;
+    private LocalDate effectiveDate;
 
     // Constructors
     public Product() {
@@ -18,6 +20,14 @@ public class Product {
         this.laborCostPerSquareFoot = laborCostPerSquareFoot;
     }
 
+    public Product(String productType, BigDecimal costPerSquareFoot, BigDecimal laborCostPerSquareFoot,
+                   LocalDate effectiveDate) {
+        this.productType = productType;
+        this.costPerSquareFoot = costPerSquareFoot;
+        this.laborCostPerSquareFoot = laborCostPerSquareFoot;
+        this.effectiveDate = effectiveDate;
+    }
+
     // Getters
     public String getProductType() {
         return productType;
@@ -43,6 +53,17 @@ public class Product {
         this.laborCostPerSquareFoot = laborCostPerSquareFoot;
     }
 
+    /**
+     * @return first day the costs apply, or null if they have always applied
+     */
+    public LocalDate getEffectiveDate() {
+        return effectiveDate;
+    }
+
+    public void setEffectiveDate(LocalDate effectiveDate) {
+        this.effectiveDate = effectiveDate;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -50,12 +71,13 @@ public class Product {
         Product product = (Product) o;
         return Objects.equals(productType, product.productType) &&
                 Objects.equals(costPerSquareFoot, product.costPerSquareFoot) &&
-                Objects.equals(laborCostPerSquareFoot, product.laborCostPerSquareFoot);
+                Objects.equals(laborCostPerSquareFoot, product.laborCostPerSquareFoot) &&
+                Objects.equals(effectiveDate, product.effectiveDate);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(productType, costPerSquareFoot, laborCostPerSquareFoot);
+        return Objects.hash(productType, costPerSquareFoot, laborCostPerSquareFoot, effectiveDate);
     }
 
     @Override
@@ -64,6 +86,7 @@ public class Product {
                 "productType='" + productType + '\'' +
                 ", costPerSquareFoot=" + costPerSquareFoot +
                 ", laborCostPerSquareFoot=" + laborCostPerSquareFoot +
+                ", effectiveDate=" + effectiveDate +
                 '}';
     }
 }
\ No newline at end of file
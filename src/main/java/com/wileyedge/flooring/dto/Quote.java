@@ -0,0 +1,143 @@
+package com.wileyedge.flooring.dto;
+
+import java.math.BigDecimal;
+import java.util.Objects;
+
+public class Quote {
+    private BigDecimal taxRate;
+    private BigDecimal costPerSquareFoot;
+    private BigDecimal laborCostPerSquareFoot;
+    private BigDecimal materialCost;
+    private BigDecimal laborCost;
+    private BigDecimal tax;
+    private BigDecimal total;
+
+    // Constructors
+    public Quote() {
+    }
+
+    public Quote(Quote other) {
+        this.taxRate = other.taxRate;
+        this.costPerSquareFoot = other.costPerSquareFoot;
+        this.laborCostPerSquareFoot = other.laborCostPerSquareFoot;
+        this.materialCost = other.materialCost;
+        this.laborCost = other.laborCost;
+        this.tax = other.tax;
+        this.total = other.total;
+    }
+
+    /**
+     * Takes the rates and costs of a priced order
+     */
+    public Quote(Order order) {
+        this.taxRate = order.getTaxRate();
+        this.costPerSquareFoot = order.getCostPerSquareFoot();
+        this.laborCostPerSquareFoot = order.getLaborCostPerSquareFoot();
+        this.materialCost = order.getMaterialCost();
+        this.laborCost = order.getLaborCost();
+        this.tax = order.getTax();
+        this.total = order.getTotal();
+    }
+
+    /**
+     * Sets the quoted rates and costs on an order
+     */
+    public void applyTo(Order order) {
+        order.setTaxRate(taxRate);
+        order.setCostPerSquareFoot(costPerSquareFoot);
+        order.setLaborCostPerSquareFoot(laborCostPerSquareFoot);
+        order.setMaterialCost(materialCost);
+        order.setLaborCost(laborCost);
+        order.setTax(tax);
+        order.setTotal(total);
+    }
+
+    // Getters and Setters
+    public BigDecimal getTaxRate() {
+        return taxRate;
+    }
+
+    public void setTaxRate(BigDecimal taxRate) {
+        this.taxRate = taxRate;
+    }
+
+    public BigDecimal getCostPerSquareFoot() {
+        return costPerSquareFoot;
+    }
+
+    public void setCostPerSquareFoot(BigDecimal costPerSquareFoot) {
+        this.costPerSquareFoot = costPerSquareFoot;
+    }
+
+    public BigDecimal getLaborCostPerSquareFoot() {
+        return laborCostPerSquareFoot;
+    }
+
+    public void setLaborCostPerSquareFoot(BigDecimal laborCostPerSquareFoot) {
+        this.laborCostPerSquareFoot = laborCostPerSquareFoot;
+    }
+
+    public BigDecimal getMaterialCost() {
+        return materialCost;
+    }
+
+    public void setMaterialCost(BigDecimal materialCost) {
+        this.materialCost = materialCost;
+    }
+
+    public BigDecimal getLaborCost() {
+        return laborCost;
+    }
+
+    public void setLaborCost(BigDecimal laborCost) {
+        this.laborCost = laborCost;
+    }
+
+    public BigDecimal getTax() {
+        return tax;
+    }
+
+    public void setTax(BigDecimal tax) {
+        this.tax = tax;
+    }
+
+    public BigDecimal getTotal() {
+        return total;
+    }
+
+    public void setTotal(BigDecimal total) {
+        this.total = total;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Quote quote = (Quote) o;
+        return Objects.equals(taxRate, quote.taxRate) &&
+                Objects.equals(costPerSquareFoot, quote.costPerSquareFoot) &&
+                Objects.equals(laborCostPerSquareFoot, quote.laborCostPerSquareFoot) &&
+                Objects.equals(materialCost, quote.materialCost) &&
+                Objects.equals(laborCost, quote.laborCost) &&
+                Objects.equals(tax, quote.tax) &&
+                Objects.equals(total, quote.total);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(taxRate, costPerSquareFoot, laborCostPerSquareFoot, materialCost, laborCost, tax, total);
+    }
+
+    @Override
+    public String toString() {
+        return "Quote{" +
+                "taxRate=" + taxRate +
+                ", costPerSquareFoot=" + costPerSquareFoot +
+                ", laborCostPerSquareFoot=" + laborCostPerSquareFoot +
+                ", materialCost=" + materialCost +
+                ", laborCost=" + laborCost +
+                ", tax=" + tax +
+                ", total=" + total +
+                '}';
+    }
+}
@@ -0,0 +1,98 @@
+package com.wileyedge.flooring.dto;
+
+/**
+ * Outcome of rebuilding order partitions by replaying the audit log
+ */
+public class ReplayResult {
+    private long eventsApplied;
+    private long eventsSkipped;
+    private int ordersRebuilt;
+    private int datesRebuilt;
+    private int datesSkipped;
+    private long elapsedMillis;
+
+    // Constructors
+    public ReplayResult() {
+    }
+
+    public ReplayResult(long eventsApplied, long eventsSkipped, int ordersRebuilt, int datesRebuilt,
+                        int datesSkipped, long elapsedMillis) {
+        this.eventsApplied = eventsApplied;
+        this.eventsSkipped = eventsSkipped;
+        this.ordersRebuilt = ordersRebuilt;
+        this.datesRebuilt = datesRebuilt;
+        this.datesSkipped = datesSkipped;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    // Getters and Setters
+    public long getEventsApplied() {
+        return eventsApplied;
+    }
+
+    public void setEventsApplied(long eventsApplied) {
+        this.eventsApplied = eventsApplied;
+    }
+
+    /**
+     * @return audit entries that were not order events, or could not be applied
+     */
+    public long getEventsSkipped() {
+        return eventsSkipped;
+    }
+
+    public void setEventsSkipped(long eventsSkipped) {
+        this.eventsSkipped = eventsSkipped;
+    }
+
+    public int getOrdersRebuilt() {
+        return ordersRebuilt;
+    }
+
+    public void setOrdersRebuilt(int ordersRebuilt) {
+        this.ordersRebuilt = ordersRebuilt;
+    }
+
+    public int getDatesRebuilt() {
+        return datesRebuilt;
+    }
+
+    public void setDatesRebuilt(int datesRebuilt) {
+        this.datesRebuilt = datesRebuilt;
+    }
+
+    /**
+     * @return dates left alone because the audit log does not go back to their first order
+     */
+    public int getDatesSkipped() {
+        return datesSkipped;
+    }
+
+    public void setDatesSkipped(int datesSkipped) {
+        this.datesSkipped = datesSkipped;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public double getEventsPerSecond() {
+        return elapsedMillis == 0 ? 0 : (eventsApplied + eventsSkipped) * 1000.0 / elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "ReplayResult{" +
+                "eventsApplied=" + eventsApplied +
+                ", eventsSkipped=" + eventsSkipped +
+                ", ordersRebuilt=" + ordersRebuilt +
+                ", datesRebuilt=" + datesRebuilt +
+                ", datesSkipped=" + datesSkipped +
+                ", elapsedMillis=" + elapsedMillis +
+                '}';
+    }
+}
@@ -0,0 +1,102 @@
+package com.wileyedge.flooring.dto;
+
+import java.math.BigDecimal;
+import java.util.Objects;
+
+public class RevenueTotals {
+    private int orderCount;
+    private BigDecimal materialCost;
+    private BigDecimal laborCost;
+    private BigDecimal tax;
+    private BigDecimal total;
+
+    // Constructors
+    public RevenueTotals() {
+    }
+
+    public RevenueTotals(int orderCount, BigDecimal materialCost, BigDecimal laborCost, BigDecimal tax,
+                         BigDecimal total) {
+        this.orderCount = orderCount;
+        this.materialCost = materialCost;
+        this.laborCost = laborCost;
+        this.tax = tax;
+        this.total = total;
+    }
+
+    public RevenueTotals(RevenueTotals other) {
+        this.orderCount = other.orderCount;
+        this.materialCost = other.materialCost;
+        this.laborCost = other.laborCost;
+        this.tax = other.tax;
+        this.total = other.total;
+    }
+
+    // Getters and Setters
+    public int getOrderCount() {
+        return orderCount;
+    }
+
+    public void setOrderCount(int orderCount) {
+        this.orderCount = orderCount;
+    }
+
+    public BigDecimal getMaterialCost() {
+        return materialCost;
+    }
+
+    public void setMaterialCost(BigDecimal materialCost) {
+        this.materialCost = materialCost;
+    }
+
+    public BigDecimal getLaborCost() {
+        return laborCost;
+    }
+
+    public void setLaborCost(BigDecimal laborCost) {
+        this.laborCost = laborCost;
+    }
+
+    public BigDecimal getTax() {
+        return tax;
+    }
+
+    public void setTax(BigDecimal tax) {
+        this.tax = tax;
+    }
+
+    public BigDecimal getTotal() {
+        return total;
+    }
+
+    public void setTotal(BigDecimal total) {
+        this.total = total;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        RevenueTotals that = (RevenueTotals) o;
+        return orderCount == that.orderCount &&
+                Objects.equals(materialCost, that.materialCost) &&
+                Objects.equals(laborCost, that.laborCost) &&
+                Objects.equals(tax, that.tax) &&
+                Objects.equals(total, that.total);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(orderCount, materialCost, laborCost, tax, total);
+    }
+
+    @Override
+    public String toString() {
+        return "RevenueTotals{" +
+                "orderCount=" + orderCount +
+                ", materialCost=" + materialCost +
+                ", laborCost=" + laborCost +
+                ", tax=" + tax +
+                ", total=" + total +
+                '}';
+    }
+}
@@ -1,12 +1,14 @@
 package com.wileyedge.flooring.dto;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.Objects;
 
 public class Tax {
     private String stateAbr;
     private String state;
     private BigDecimal taxRate;
+    private LocalDate effectiveDate;
 
     // Constructors
     public Tax() {
@@ -18,6 +20,13 @@ public class Tax {
         this.taxRate = taxRate;
     }
 
+    public Tax(String stateAbr, String state, BigDecimal taxRate, LocalDate effectiveDate) {
+        this.stateAbr = stateAbr;
+        this.state = state;
+        this.taxRate = taxRate;
+        this.effectiveDate = effectiveDate;
+    }
+
     // Getters
     public String getStateAbr() {
         return stateAbr;
@@ -43,6 +52,17 @@ public class Tax {
         this.taxRate = taxRate;
     }
 
+    /**
+     * @return first day the rate applies, or null if it has always applied
+     */
+    public LocalDate getEffectiveDate() {
+        return effectiveDate;
+    }
+
+    public void setEffectiveDate(LocalDate effectiveDate) {
+        this.effectiveDate = effectiveDate;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -50,12 +70,13 @@ public class Tax {
         Tax tax = (Tax) o;
         return Objects.equals(stateAbr, tax.stateAbr) &&
                 Objects.equals(state, tax.state) &&
-                Objects.equals(taxRate, tax.taxRate);
+                Objects.equals(taxRate, tax.taxRate) &&
+                Objects.equals(effectiveDate, tax.effectiveDate);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(stateAbr, state, taxRate);
+        return Objects.hash(stateAbr, state, taxRate, effectiveDate);
     }
 
     @Override
@@ -64,6 +85,7 @@ public class Tax {
                 "stateAbr='" + stateAbr + '\'' +
                 ", state='" + state + '\'' +
                 ", taxRate=" + taxRate +
+                ", effectiveDate=" + effectiveDate +
                 '}';
     }
 }
\ No newline at end of file
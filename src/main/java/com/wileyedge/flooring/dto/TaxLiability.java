@@ -0,0 +1,81 @@
+package com.wileyedge.flooring.dto;
+
+import java.math.BigDecimal;
+import java.util.Objects;
+
+public class TaxLiability {
+    private String state;
+    private int orderCount;
+    private BigDecimal taxableSales;
+    private BigDecimal tax;
+
+    // Constructors
+    public TaxLiability() {
+    }
+
+    public TaxLiability(String state, int orderCount, BigDecimal taxableSales, BigDecimal tax) {
+        this.state = state;
+        this.orderCount = orderCount;
+        this.taxableSales = taxableSales;
+        this.tax = tax;
+    }
+
+    // Getters and Setters
+    public String getState() {
+        return state;
+    }
+
+    public void setState(String state) {
+        this.state = state;
+    }
+
+    public int getOrderCount() {
+        return orderCount;
+    }
+
+    public void setOrderCount(int orderCount) {
+        this.orderCount = orderCount;
+    }
+
+    public BigDecimal getTaxableSales() {
+        return taxableSales;
+    }
+
+    public void setTaxableSales(BigDecimal taxableSales) {
+        this.taxableSales = taxableSales;
+    }
+
+    public BigDecimal getTax() {
+        return tax;
+    }
+
+    public void setTax(BigDecimal tax) {
+        this.tax = tax;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        TaxLiability that = (TaxLiability) o;
+        return orderCount == that.orderCount &&
+                Objects.equals(state, that.state) &&
+                Objects.equals(taxableSales, that.taxableSales) &&
+                Objects.equals(tax, that.tax);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(state, orderCount, taxableSales, tax);
+    }
+
+    @Override
+    public String toString() {
+        return "TaxLiability{" +
+                "state='" + state + '\'' +
+                ", orderCount=" + orderCount +
+                ", taxableSales=" + taxableSales +
+                ", tax=" + tax +
+                '}';
+    }
+}
@@ -0,0 +1,8 @@
+package com.wileyedge.flooring.exceptions;
+
+public class ExportCancelledException extends PersistenceException {
+
+    public ExportCancelledException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,256 @@
+package com.wileyedge.flooring.service;
+
+import com.wileyedge.flooring.dao.OrderPartitionSource;
+import com.wileyedge.flooring.dto.CustomerSpend;
+import com.wileyedge.flooring.dto.Order;
+import com.wileyedge.flooring.dto.PartitionSummary;
+import com.wileyedge.flooring.exceptions.PersistenceException;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Spend per customer in bounded memory, using the Space-Saving algorithm.
+ * Every customer is counted exactly until the limit is reached. After that, a
+ * new customer takes the place of the customer with the least spend, and
+ * starts from that spend, remembered as its possible error. Customers who
+ * spend the most are kept, and no spend is ever understated. Summaries of
+ * separate orders can be merged, so partitions can be summed in parallel.
+ */
+class CustomerSpendSummary {
+
+    // Partitions one task reads before it stops splitting
+    private static final int PARTITIONS_PER_TASK = 16;
+    private static final Comparator<Entry> BY_SPEND = Comparator.<Entry>comparingLong(entry -> entry.cents)
+            .thenComparing(entry -> entry.name);
+
+    private final int limit;
+    private final Map<String, Entry> entries = new HashMap<>();
+    // Only needed to find the least spend once customers are being replaced
+    private TreeSet<Entry> bySpend;
+    private boolean replaced = false;
+
+    /**
+     * @param limit most customers to hold at once
+     */
+    CustomerSpendSummary(int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Customer limit must be at least 1: " + limit);
+        }
+        this.limit = limit;
+    }
+
+    /**
+     * Sums every order in a source in one pass over its partitions
+     * @param parallel sum ranges of partitions on the common fork-join pool and merge them
+     */
+    static CustomerSpendSummary of(OrderPartitionSource orders, int limit, boolean parallel)
+            throws PersistenceException {
+        List<LocalDate> dates = new ArrayList<>();
+        for (PartitionSummary partition : orders.getPartitions()) {
+            dates.add(partition.getOrderDate());
+        }
+
+        if (!parallel || dates.size() <= PARTITIONS_PER_TASK) {
+            return sum(orders, dates, 0, dates.size(), limit);
+        }
+        try {
+            return ForkJoinPool.commonPool().invoke(new SumTask(orders, dates, 0, dates.size(), limit));
+        } catch (PartitionReadException e) {
+            throw e.getCause();
+        }
+    }
+
+    void add(String customerName, long cents) {
+        Entry entry = entries.get(customerName);
+        if (entry != null) {
+            if (bySpend != null) {
+                bySpend.remove(entry);
+                entry.cents += cents;
+                bySpend.add(entry);
+            } else {
+                entry.cents += cents;
+            }
+            return;
+        }
+
+        if (entries.size() < limit) {
+            entries.put(customerName, new Entry(customerName, cents, 0));
+            return;
+        }
+
+        if (bySpend == null) {
+            bySpend = new TreeSet<>(BY_SPEND);
+            bySpend.addAll(entries.values());
+        }
+        Entry least = bySpend.pollFirst();
+        entries.remove(least.name);
+        Entry replacement = new Entry(customerName, least.cents + cents, least.cents);
+        entries.put(customerName, replacement);
+        bySpend.add(replacement);
+        replaced = true;
+    }
+
+    /**
+     * Adds another summary's customers to this one. A customer missing from
+     * one side may have been replaced there, so it is credited with that side's
+     * least spend, keeping spend an overestimate.
+     */
+    void merge(CustomerSpendSummary other) {
+        long floor = floor();
+        long otherFloor = other.floor();
+
+        List<Entry> merged = new ArrayList<>(entries.size() + other.entries.size());
+        for (Entry entry : entries.values()) {
+            Entry otherEntry = other.entries.get(entry.name);
+            merged.add(otherEntry == null
+                    ? new Entry(entry.name, entry.cents + otherFloor, entry.error + otherFloor)
+                    : new Entry(entry.name, entry.cents + otherEntry.cents, entry.error + otherEntry.error));
+        }
+        for (Entry otherEntry : other.entries.values()) {
+            if (!entries.containsKey(otherEntry.name)) {
+                merged.add(new Entry(otherEntry.name, otherEntry.cents + floor, otherEntry.error + floor));
+            }
+        }
+
+        replaced |= other.replaced;
+        if (merged.size() > limit) {
+            merged.sort(BY_SPEND.reversed());
+            merged = merged.subList(0, limit);
+            replaced = true;
+        }
+        entries.clear();
+        for (Entry entry : merged) {
+            entries.put(entry.name, entry);
+        }
+        bySpend = null;
+    }
+
+    /**
+     * @return the customers with the most spend, most first, chosen with a
+     * heap that never holds more than count of them
+     */
+    List<CustomerSpend> top(int count) {
+        if (count < 1) {
+            return new ArrayList<>();
+        }
+
+        PriorityQueue<Entry> heap = new PriorityQueue<>(count, BY_SPEND);
+        for (Entry entry : entries.values()) {
+            if (heap.size() < count) {
+                heap.add(entry);
+            } else if (BY_SPEND.compare(entry, heap.peek()) > 0) {
+                heap.poll();
+                heap.add(entry);
+            }
+        }
+
+        List<CustomerSpend> top = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) {
+            Entry entry = heap.poll();
+            top.add(new CustomerSpend(entry.name, BigDecimal.valueOf(entry.cents, 2),
+                    BigDecimal.valueOf(entry.error, 2)));
+        }
+        Collections.reverse(top);
+        return top;
+    }
+
+    /**
+     * @return the most spend a customer no longer held could have had
+     */
+    private long floor() {
+        if (!replaced || entries.isEmpty()) {
+            return 0;
+        }
+        if (bySpend != null) {
+            return bySpend.first().cents;
+        }
+        long least = Long.MAX_VALUE;
+        for (Entry entry : entries.values()) {
+            least = Math.min(least, entry.cents);
+        }
+        return least;
+    }
+
+    private static CustomerSpendSummary sum(OrderPartitionSource orders, List<LocalDate> dates, int from, int to,
+                                            int limit) throws PersistenceException {
+        CustomerSpendSummary summary = new CustomerSpendSummary(limit);
+        for (int i = from; i < to; i++) {
+            for (Order order : orders.getOrdersForDate(dates.get(i))) {
+                if (order.getTotal() != null) {
+                    summary.add(order.getCustomerName(), order.getTotal().setScale(2, RoundingMode.HALF_UP)
+                            .unscaledValue().longValueExact());
+                }
+            }
+        }
+        return summary;
+    }
+
+    private static class Entry {
+        private final String name;
+        private long cents;
+        private final long error;
+
+        Entry(String name, long cents, long error) {
+            this.name = name;
+            this.cents = cents;
+            this.error = error;
+        }
+    }
+
+    /**
+     * Halves its partitions until few are left, sums those, and merges the
+     * halves' summaries as they join
+     */
+    private static class SumTask extends RecursiveTask<CustomerSpendSummary> {
+        private final OrderPartitionSource orders;
+        private final List<LocalDate> dates;
+        private final int from;
+        private final int to;
+        private final int limit;
+
+        SumTask(OrderPartitionSource orders, List<LocalDate> dates, int from, int to, int limit) {
+            this.orders = orders;
+            this.dates = dates;
+            this.from = from;
+            this.to = to;
+            this.limit = limit;
+        }
+
+        @Override
+        protected CustomerSpendSummary compute() {
+            if (to - from > PARTITIONS_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                SumTask right = new SumTask(orders, dates, middle, to, limit);
+                right.fork();
+                CustomerSpendSummary summary = new SumTask(orders, dates, from, middle, limit).compute();
+                summary.merge(right.join());
+                return summary;
+            }
+
+            try {
+                return sum(orders, dates, from, to, limit);
+            } catch (PersistenceException e) {
+                throw new PartitionReadException(e);
+            }
+        }
+    }
+
+    /**
+     * Carries a failed read out of a fork-join task
+     */
+    private static class PartitionReadException extends RuntimeException {
+        PartitionReadException(PersistenceException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized PersistenceException getCause() {
+            return (PersistenceException) super.getCause();
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.wileyedge.flooring.service;
+
+import com.wileyedge.flooring.dto.ExportProgress;
+import com.wileyedge.flooring.exceptions.ExportCancelledException;
+import com.wileyedge.flooring.exceptions.PersistenceException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.concurrent.*;
+
+/**
+ * Runs full exports on a background thread so the console stays usable, and
+ * optionally repeats them once a day. Only one export runs at a time; asking
+ * for another while one is running returns the running one.
+ */
+@Component
+public class ExportScheduler {
+
+    private final ServiceLayer service;
+    private final ScheduledExecutorService executor;
+
+    private ExportProgress currentExport;
+    private ScheduledFuture<?> scheduledRun;
+    private LocalTime dailyTime;
+    private LocalDateTime nextRun;
+
+    @Autowired
+    public ExportScheduler(ServiceLayer service) {
+        this.service = service;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "export-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts a full export in the background
+     * @return progress of the new export, or of the one already running
+     */
+    public synchronized ExportProgress startExport() {
+        if (currentExport != null && !currentExport.isDone()) {
+            return currentExport;
+        }
+
+        ExportProgress progress = new ExportProgress();
+        currentExport = progress;
+        executor.execute(() -> runExport(progress));
+        return progress;
+    }
+
+    /**
+     * @return progress of the most recent export, or null if none has been started
+     */
+    public synchronized ExportProgress getCurrentExport() {
+        return currentExport;
+    }
+
+    /**
+     * Asks the running export, if any, to stop
+     * @return true if there was an export to cancel
+     */
+    public synchronized boolean cancelExport() {
+        if (currentExport == null || currentExport.isDone()) {
+            return false;
+        }
+        currentExport.cancel();
+        return true;
+    }
+
+    /**
+     * Runs an export every day at the given time, replacing any earlier schedule
+     * @param time local time of day to export at
+     */
+    public synchronized void scheduleDaily(LocalTime time) {
+        cancelSchedule();
+        dailyTime = time;
+        scheduleNextRun();
+    }
+
+    public synchronized void cancelSchedule() {
+        if (scheduledRun != null) {
+            scheduledRun.cancel(false);
+            scheduledRun = null;
+        }
+        dailyTime = null;
+        nextRun = null;
+    }
+
+    /**
+     * @return time of day exports are scheduled for, or null if not scheduled
+     */
+    public synchronized LocalTime getDailyTime() {
+        return dailyTime;
+    }
+
+    /**
+     * @return when the next scheduled export starts, or null if not scheduled
+     */
+    public synchronized LocalDateTime getNextRun() {
+        return nextRun;
+    }
+
+    /**
+     * Schedules one run at a time rather than a fixed 24 hour rate, so the
+     * export stays at the same wall clock time across daylight saving changes
+     */
+    private void scheduleNextRun() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime next = now.toLocalDate().atTime(dailyTime);
+        if (!next.isAfter(now)) {
+            next = next.plusDays(1);
+        }
+
+        nextRun = next;
+        scheduledRun = executor.schedule(this::runScheduled, Duration.between(now, next).toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void runScheduled() {
+        if (dailyTime == null) {
+            return;
+        }
+        startExport();
+        scheduleNextRun();
+    }
+
+    private void runExport(ExportProgress progress) {
+        try {
+            service.exportAllData(progress);
+            progress.complete();
+        } catch (ExportCancelledException e) {
+            progress.cancelled();
+            writeAudit("Export CANCELLED.");
+        } catch (PersistenceException | RuntimeException e) {
+            progress.fail(e.getMessage());
+            writeAudit("Export FAILED: " + e.getMessage());
+        }
+    }
+
+    private void writeAudit(String entry) {
+        try {
+            service.writeToAudit(entry);
+        } catch (PersistenceException e) {
+            // Nothing more to report to; the status already carries the outcome
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.wileyedge.flooring.service;
+
+import com.wileyedge.flooring.dto.Order;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Calculates an order's derived costs:
+ * MaterialCost = Area * CostPerSquareFoot
+ * LaborCost = Area * LaborCostPerSquareFoot
+ * Tax = (MaterialCost + LaborCost) * (TaxRate/100)
+ * Total = MaterialCost + LaborCost + Tax
+ * each rounded HALF_UP to cents, with TaxRate/100 rounded HALF_UP to four
+ * places first.
+ *
+ * The work is done on scaled longs, rounding at the same steps and in the same
+ * way as the BigDecimal calculation, so the results are equal including their
+ * scale. Inputs that do not fit in a long, or products that would overflow,
+ * are calculated with BigDecimal instead.
+ */
+public class FixedPointPricing {
+
+    /** Slots of {@link #calculateCents} */
+    static final int MATERIAL_COST = 0;
+    static final int LABOR_COST = 1;
+    static final int TAX = 2;
+    static final int TOTAL = 3;
+    static final int CENTS_PER_ORDER = 4;
+
+    private static final int MONEY_SCALE = 2;
+    private static final int RATE_SCALE = 4;
+    private static final int MAX_DIGITS = 18;
+    private static final long NOT_FIXED = Long.MIN_VALUE;
+    private static final BigDecimal ONE_HUNDRED = new BigDecimal("100");
+    private static final long[] POWERS_OF_TEN = new long[MAX_DIGITS + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    /**
+     * Sets the order's material cost, labor cost, tax and total
+     * @param order an order with area, costs per square foot and tax rate set
+     */
+    public void calculateTotals(Order order) {
+        if (!calculateFixedPoint(order)) {
+            calculateWithBigDecimal(order);
+        }
+    }
+
+    /**
+     * Calculates on scaled longs only
+     * @return false, leaving the order unchanged, if a value does not fit
+     */
+    public boolean calculateFixedPoint(Order order) {
+        long[] cents = new long[CENTS_PER_ORDER];
+        if (!calculateCents(order.getArea(), order.getCostPerSquareFoot(), order.getLaborCostPerSquareFoot(),
+                order.getTaxRate(), cents, 0)) {
+            return false;
+        }
+
+        order.setMaterialCost(BigDecimal.valueOf(cents[MATERIAL_COST], MONEY_SCALE));
+        order.setLaborCost(BigDecimal.valueOf(cents[LABOR_COST], MONEY_SCALE));
+        order.setTax(BigDecimal.valueOf(cents[TAX], MONEY_SCALE));
+        order.setTotal(BigDecimal.valueOf(cents[TOTAL], MONEY_SCALE));
+        return true;
+    }
+
+    /**
+     * Calculates on scaled longs, writing material cost, labor cost, tax and
+     * total in cents to four consecutive slots
+     * @return false, leaving the slots unchanged, if a value does not fit
+     */
+    boolean calculateCents(BigDecimal area, BigDecimal costPerSqFt, BigDecimal laborCostPerSqFt,
+                           BigDecimal taxRate, long[] cents, int offset) {
+        long areaUnscaled = unscaled(area);
+        long costUnscaled = unscaled(costPerSqFt);
+        long laborUnscaled = unscaled(laborCostPerSqFt);
+        long rateUnscaled = unscaled(taxRate);
+        if (areaUnscaled == NOT_FIXED || costUnscaled == NOT_FIXED || laborUnscaled == NOT_FIXED
+                || rateUnscaled == NOT_FIXED) {
+            return false;
+        }
+
+        try {
+            long materialCost = multiplyToScale(areaUnscaled, area.scale(), costUnscaled,
+                    costPerSqFt.scale(), MONEY_SCALE);
+            long laborCost = multiplyToScale(areaUnscaled, area.scale(), laborUnscaled,
+                    laborCostPerSqFt.scale(), MONEY_SCALE);
+            // TaxRate / 100 is the rate with two more places
+            long rateFraction = rescale(rateUnscaled, taxRate.scale() + 2, RATE_SCALE);
+            if (materialCost == NOT_FIXED || laborCost == NOT_FIXED || rateFraction == NOT_FIXED) {
+                return false;
+            }
+
+            long subtotal = Math.addExact(materialCost, laborCost);
+            long tax = multiplyToScale(subtotal, MONEY_SCALE, rateFraction, RATE_SCALE, MONEY_SCALE);
+            if (tax == NOT_FIXED) {
+                return false;
+            }
+            long total = Math.addExact(subtotal, tax);
+
+            cents[offset + MATERIAL_COST] = materialCost;
+            cents[offset + LABOR_COST] = laborCost;
+            cents[offset + TAX] = tax;
+            cents[offset + TOTAL] = total;
+            return true;
+        } catch (ArithmeticException e) {
+            // Overflowed a long
+            return false;
+        }
+    }
+
+    /**
+     * Calculates with BigDecimal; the reference the long calculation must match
+     */
+    public void calculateWithBigDecimal(Order order) {
+        BigDecimal area = order.getArea();
+        BigDecimal costPerSqFt = order.getCostPerSquareFoot();
+        BigDecimal laborCostPerSqFt = order.getLaborCostPerSquareFoot();
+        BigDecimal taxRate = order.getTaxRate();
+
+        // Calculate Material Cost
+        BigDecimal materialCost = area.multiply(costPerSqFt)
+                .setScale(MONEY_SCALE, RoundingMode.HALF_UP);
+        order.setMaterialCost(materialCost);
+
+        // Calculate Labor Cost
+        BigDecimal laborCost = area.multiply(laborCostPerSqFt)
+                .setScale(MONEY_SCALE, RoundingMode.HALF_UP);
+        order.setLaborCost(laborCost);
+
+        // Calculate Tax
+        BigDecimal tax = materialCost.add(laborCost)
+                .multiply(taxRate.divide(ONE_HUNDRED, RATE_SCALE, RoundingMode.HALF_UP))
+                .setScale(MONEY_SCALE, RoundingMode.HALF_UP);
+        order.setTax(tax);
+
+        // Calculate Total
+        BigDecimal total = materialCost.add(laborCost).add(tax)
+                .setScale(MONEY_SCALE, RoundingMode.HALF_UP);
+        order.setTotal(total);
+    }
+
+    /**
+     * @return the unscaled value, or NOT_FIXED if the value has a negative or
+     * large scale or too many digits
+     */
+    private static long unscaled(BigDecimal value) {
+        if (value == null || value.scale() < 0 || value.scale() > MAX_DIGITS || value.precision() > MAX_DIGITS) {
+            return NOT_FIXED;
+        }
+        return value.movePointRight(value.scale()).longValue();
+    }
+
+    /**
+     * @return the product at the target scale rounded HALF_UP, or NOT_FIXED
+     * @throws ArithmeticException if the product overflows
+     */
+    private static long multiplyToScale(long first, int firstScale, long second, int secondScale, int scale) {
+        return rescale(Math.multiplyExact(first, second), firstScale + secondScale, scale);
+    }
+
+    /**
+     * @return the value moved from one scale to another, rounded HALF_UP, or NOT_FIXED
+     * @throws ArithmeticException if scaling up overflows
+     */
+    private static long rescale(long value, int fromScale, int toScale) {
+        int shift = fromScale - toScale;
+        if (shift == 0) {
+            return value;
+        }
+        if (Math.abs(shift) > MAX_DIGITS) {
+            return NOT_FIXED;
+        }
+        if (shift < 0) {
+            return Math.multiplyExact(value, POWERS_OF_TEN[-shift]);
+        }
+
+        long divisor = POWERS_OF_TEN[shift];
+        long quotient = value / divisor;
+        long remainder = value % divisor;
+        // HALF_UP rounds ties away from zero; the remainder has the value's sign
+        if (Math.abs(remainder) >= divisor - Math.abs(remainder)) {
+            quotient += Long.signum(value);
+        }
+        return quotient;
+    }
+}
@@ -0,0 +1,151 @@
+package com.wileyedge.flooring.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Orders to price in bulk, held as columns: date, state, product and area in,
+ * material cost, labor cost, tax and total out, the outputs as cents in one
+ * long array. {@link #clear()} keeps the arrays, so a caller pricing batch
+ * after batch reuses the same buffers.
+ */
+public class PricingBatch {
+
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    private LocalDate[] dates;
+    private String[] states;
+    private String[] productTypes;
+    private BigDecimal[] areas;
+    private long[] cents;
+    private boolean[] priced;
+    private int size = 0;
+
+    public PricingBatch() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity rows to allocate room for up front
+     */
+    public PricingBatch(int capacity) {
+        allocate(Math.max(capacity, 1));
+    }
+
+    /**
+     * Adds a row to price
+     * @return the row's index
+     */
+    public int add(LocalDate date, String state, String productType, BigDecimal area) {
+        if (size == dates.length) {
+            allocate(size * 2);
+        }
+
+        int row = size++;
+        dates[row] = date;
+        states[row] = state;
+        productTypes[row] = productType;
+        areas[row] = area;
+        priced[row] = false;
+        return row;
+    }
+
+    /**
+     * Empties the batch, keeping its buffers
+     */
+    public void clear() {
+        // Drop references so rows from earlier batches can be collected
+        Arrays.fill(dates, 0, size, null);
+        Arrays.fill(states, 0, size, null);
+        Arrays.fill(productTypes, 0, size, null);
+        Arrays.fill(areas, 0, size, null);
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return false if the row's state or product had no rate on its date, or
+     * its values were too large to price
+     */
+    public boolean isPriced(int row) {
+        return priced[checkRow(row)];
+    }
+
+    public BigDecimal getMaterialCost(int row) {
+        return money(row, FixedPointPricing.MATERIAL_COST);
+    }
+
+    public BigDecimal getLaborCost(int row) {
+        return money(row, FixedPointPricing.LABOR_COST);
+    }
+
+    public BigDecimal getTax(int row) {
+        return money(row, FixedPointPricing.TAX);
+    }
+
+    public BigDecimal getTotal(int row) {
+        return money(row, FixedPointPricing.TOTAL);
+    }
+
+    /**
+     * @return the row's total in cents, for callers summing many rows
+     */
+    public long getTotalCents(int row) {
+        return priced[checkRow(row)] ? cents[row * FixedPointPricing.CENTS_PER_ORDER + FixedPointPricing.TOTAL] : 0;
+    }
+
+    LocalDate getDate(int row) {
+        return dates[row];
+    }
+
+    String getState(int row) {
+        return states[row];
+    }
+
+    String getProductType(int row) {
+        return productTypes[row];
+    }
+
+    BigDecimal getArea(int row) {
+        return areas[row];
+    }
+
+    long[] getCents() {
+        return cents;
+    }
+
+    void setPriced(int row, boolean rowPriced) {
+        priced[row] = rowPriced;
+    }
+
+    /**
+     * @return the cents slot as money, or null if the row was not priced
+     */
+    private BigDecimal money(int row, int slot) {
+        if (!priced[checkRow(row)]) {
+            return null;
+        }
+        return BigDecimal.valueOf(cents[row * FixedPointPricing.CENTS_PER_ORDER + slot], 2);
+    }
+
+    private int checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+        }
+        return row;
+    }
+
+    private void allocate(int capacity) {
+        dates = dates == null ? new LocalDate[capacity] : Arrays.copyOf(dates, capacity);
+        states = states == null ? new String[capacity] : Arrays.copyOf(states, capacity);
+        productTypes = productTypes == null ? new String[capacity] : Arrays.copyOf(productTypes, capacity);
+        areas = areas == null ? new BigDecimal[capacity] : Arrays.copyOf(areas, capacity);
+        priced = priced == null ? new boolean[capacity] : Arrays.copyOf(priced, capacity);
+        int slots = capacity * FixedPointPricing.CENTS_PER_ORDER;
+        cents = cents == null ? new long[slots] : Arrays.copyOf(cents, slots);
+    }
+}
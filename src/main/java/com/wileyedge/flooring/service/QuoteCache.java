@@ -0,0 +1,101 @@
+package com.wileyedge.flooring.service;
+
+import com.wileyedge.flooring.dto.Quote;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The last few quotes, keyed on order date, state, product and area and
+ * evicted least recently used first. Entries hold for one version of the tax
+ * rates, product rates and pricing tiers; a lookup under any other version
+ * empties the cache, so a changed rates file is never quoted from old rates.
+ */
+class QuoteCache {
+
+    private final int capacity;
+    private final Map<Key, Quote> quotes;
+    private long taxVersion;
+    private long productVersion;
+    private long tierVersion;
+
+    /**
+     * @param capacity quotes to keep
+     */
+    QuoteCache(int capacity) {
+        this.capacity = capacity;
+        this.quotes = new LinkedHashMap<Key, Quote>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Quote> eldest) {
+                return size() > QuoteCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * @return the quote cached for key under these versions, or null
+     */
+    synchronized Quote get(Key key, long taxVersion, long productVersion, long tierVersion) {
+        useVersions(taxVersion, productVersion, tierVersion);
+        return quotes.get(key);
+    }
+
+    /**
+     * Caches a quote calculated under these versions; the quote must not be changed afterwards
+     */
+    synchronized void put(Key key, Quote quote, long taxVersion, long productVersion, long tierVersion) {
+        useVersions(taxVersion, productVersion, tierVersion);
+        quotes.put(key, quote);
+    }
+
+    synchronized int size() {
+        return quotes.size();
+    }
+
+    private void useVersions(long taxVersion, long productVersion, long tierVersion) {
+        if (taxVersion != this.taxVersion || productVersion != this.productVersion
+                || tierVersion != this.tierVersion) {
+            quotes.clear();
+            this.taxVersion = taxVersion;
+            this.productVersion = productVersion;
+            this.tierVersion = tierVersion;
+        }
+    }
+
+    static class Key {
+        private final LocalDate date;
+        private final String state;
+        private final String productType;
+        private final BigDecimal area;
+
+        /**
+         * Areas equal in value share a key whatever their scale, since the
+         * costs are rounded to cents either way
+         */
+        Key(LocalDate date, String state, String productType, BigDecimal area) {
+            this.date = date;
+            this.state = state;
+            this.productType = productType;
+            this.area = area.stripTrailingZeros();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return Objects.equals(date, key.date) &&
+                    Objects.equals(state, key.state) &&
+                    Objects.equals(productType, key.productType) &&
+                    Objects.equals(area, key.area);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(date, state, productType, area);
+        }
+    }
+}
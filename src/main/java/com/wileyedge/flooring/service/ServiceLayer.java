@@ -1,13 +1,30 @@
 package com.wileyedge.flooring.service;
 
+import com.wileyedge.flooring.dao.AuditReader;
+import com.wileyedge.flooring.dao.PivotDimension;
+import com.wileyedge.flooring.dto.CustomerSpend;
+import com.wileyedge.flooring.dto.ExportProgress;
 import com.wileyedge.flooring.dto.Order;
+import com.wileyedge.flooring.dto.OrderDistribution;
+import com.wileyedge.flooring.dto.OrderFilter;
+import com.wileyedge.flooring.dto.PartitionSummary;
+import com.wileyedge.flooring.dto.PivotRow;
 import com.wileyedge.flooring.dto.Product;
+import com.wileyedge.flooring.dto.Quote;
+import com.wileyedge.flooring.dto.ReplayResult;
+import com.wileyedge.flooring.dto.RevenueTotals;
 import com.wileyedge.flooring.dto.Tax;
+import com.wileyedge.flooring.dto.TaxLiability;
 import com.wileyedge.flooring.exceptions.NoSuchOrderException;
 import com.wileyedge.flooring.exceptions.PersistenceException;
 
+import java.io.Writer;
+import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.util.List;
+import java.util.Map;
 
 public interface ServiceLayer {
 
@@ -25,6 +42,46 @@ public interface ServiceLayer {
      */
     Order addOrder(Order order) throws PersistenceException;
 
+    /**
+     * Quotes the rates and costs of an order at the rates in force on its date;
+     * recent quotes are reused until the rates change
+     * @param date the order date
+     * @param state the state ordered in
+     * @param productType the product ordered
+     * @param area the area ordered
+     * @return the quote, or null if the state or product has no rate on that date
+     * @throws PersistenceException if unable to read the rates
+     */
+    Quote quote(LocalDate date, String state, String productType, BigDecimal area) throws PersistenceException;
+
+    /**
+     * Applies the tax rate and product costs in force on the order's date and
+     * calculates its costs, without saving it; shares quotes with
+     * {@link #quote(LocalDate, String, String, BigDecimal)}, so pricing an
+     * order again to save it reuses the preview's calculation
+     * @param order the order to price
+     * @return the same order, priced
+     * @throws PersistenceException if unable to read the rates
+     */
+    Order priceOrder(Order order) throws PersistenceException;
+
+    /**
+     * Prices many orders as priceOrder would one at a time, reading the rates
+     * once; large lists are split across threads
+     * @param orders the orders to price
+     * @return the same orders, priced
+     * @throws PersistenceException if unable to read the rates
+     */
+    List<Order> priceOrders(List<Order> orders) throws PersistenceException;
+
+    /**
+     * Prices every row of a batch at the rates in force on its date; large
+     * batches are split across threads
+     * @param batch rows to price; their results are written back into it
+     * @throws PersistenceException if unable to read the rates
+     */
+    void priceOrders(PricingBatch batch) throws PersistenceException;
+
     /**
      * Gets an order by date and order number
      * @param date the order date
@@ -52,6 +109,13 @@ public interface ServiceLayer {
      */
     List<Order> getOrdersForDate(LocalDate date) throws PersistenceException;
 
+    /**
+     * Gets per-date order counts, order number ranges and revenue from the order manifest
+     * @return one summary per order date, in date order
+     * @throws PersistenceException if unable to read from persistence
+     */
+    List<PartitionSummary> getPartitionSummaries() throws PersistenceException;
+
     /**
      * Removes an order from the system
      * @param date the order date
@@ -68,6 +132,145 @@ public interface ServiceLayer {
      */
     void exportAllData() throws PersistenceException;
 
+    /**
+     * Exports all data to a backup file, reporting progress as it goes
+     * @param progress updated per partition; cancelling it stops the export
+     * @throws PersistenceException if unable to export data or the export was cancelled
+     */
+    void exportAllData(ExportProgress progress) throws PersistenceException;
+
+    /**
+     * Exports only the order partitions that changed since the last export
+     * @return number of partitions written or removed
+     * @throws PersistenceException if unable to export data
+     */
+    int exportChangedData() throws PersistenceException;
+
+    /**
+     * Merges incremental exports back into the full backup file
+     * @throws PersistenceException if unable to export data
+     */
+    void consolidateExports() throws PersistenceException;
+
+    /**
+     * Restores orders from the backup export, replacing each date found in it
+     * @return number of orders restored
+     * @throws PersistenceException if there is no export or the restore fails
+     */
+    int restoreFromExport() throws PersistenceException;
+
+    /**
+     * Rebuilds orders by replaying the order events in the audit log, replacing
+     * each date the log holds the whole history of
+     * @return events replayed, orders rebuilt and replay throughput
+     * @throws PersistenceException if the log cannot be read or the rebuild fails
+     */
+    ReplayResult rebuildFromAuditLog() throws PersistenceException;
+
+    /**
+     * Prices every saved order again at the rates in force on its own date,
+     * saving and auditing the orders whose rates changed
+     * @return number of orders repriced
+     * @throws PersistenceException if unable to read or persist orders
+     */
+    int repriceOrders() throws PersistenceException;
+
+    /**
+     * Gets the running revenue totals for one day, without reading any orders
+     * @param date the order date
+     * @return order count and summed costs, zero if there are no orders
+     * @throws PersistenceException if unable to read the totals
+     */
+    RevenueTotals getRevenueForDate(LocalDate date) throws PersistenceException;
+
+    /**
+     * Gets the running revenue totals for one month
+     * @param month the month orders were placed in
+     * @return order count and summed costs, zero if there are no orders
+     * @throws PersistenceException if unable to read the totals
+     */
+    RevenueTotals getRevenueForMonth(YearMonth month) throws PersistenceException;
+
+    /**
+     * Gets the running revenue totals for one state, over all dates
+     * @param state the state abbreviation
+     * @return order count and summed costs, zero if there are no orders
+     * @throws PersistenceException if unable to read the totals
+     */
+    RevenueTotals getRevenueForState(String state) throws PersistenceException;
+
+    /**
+     * Gets the running revenue totals for one product, over all dates
+     * @param productType the product type
+     * @return order count and summed costs, zero if there are no orders
+     * @throws PersistenceException if unable to read the totals
+     */
+    RevenueTotals getRevenueForProduct(String productType) throws PersistenceException;
+
+    /**
+     * Gets the tax owed to each state over a date range, from totals kept per
+     * state and day as orders change
+     * @param from first date, included
+     * @param to last date, included
+     * @return order count, taxable sales and tax of each state with orders in the range, in state order
+     * @throws PersistenceException if unable to read the totals
+     */
+    List<TaxLiability> getTaxLiability(LocalDate from, LocalDate to) throws PersistenceException;
+
+    /**
+     * Writes {@link #getTaxLiability(LocalDate, LocalDate)} as CSV, one line per
+     * state after a header line
+     * @param from first date, included
+     * @param to last date, included
+     * @param out where to write the report; flushed but not closed
+     * @throws PersistenceException if unable to read the totals or write the report
+     */
+    void writeTaxLiabilityReport(LocalDate from, LocalDate to, Writer out) throws PersistenceException;
+
+    /**
+     * Gets the 50th, 95th and 99th percentiles of order total and area over a
+     * date range, from histograms kept per day rather than the orders
+     * themselves. Each percentile is within 1% of the true value.
+     * @param from first date, included
+     * @param to last date, included
+     * @return the order count and percentiles, all zero if there are no orders
+     * @throws PersistenceException if unable to read the histograms
+     */
+    OrderDistribution getOrderDistribution(LocalDate from, LocalDate to) throws PersistenceException;
+
+    /**
+     * Gets each day's order count and summed costs over a date range, from the
+     * summary kept beside each day's orders rather than the orders themselves
+     * @param from first date, included
+     * @param to last date, included
+     * @return totals per date with orders, in date order
+     * @throws PersistenceException if unable to read the totals
+     */
+    Map<LocalDate, RevenueTotals> getDailyRevenue(LocalDate from, LocalDate to) throws PersistenceException;
+
+    /**
+     * Sums revenue over the order history, such as by state, product and month.
+     * Partitions are read in parallel, and only the orders the filter matches
+     * are fully read.
+     * @param filter date range, state and product to include; null fields match everything
+     * @param dimensions what to group by, in the order the row keys are wanted
+     * @return one row per group, ordered by their keys
+     * @throws PersistenceException if unable to read orders
+     */
+    List<PivotRow> pivotRevenue(OrderFilter filter, List<PivotDimension> dimensions) throws PersistenceException;
+
+    /**
+     * Ranks customers by the summed totals of their orders, in one pass over a
+     * snapshot of all orders and in bounded memory. Exact unless there are more
+     * customers than can be held, in which case each spend is an upper bound
+     * with its largest possible error.
+     * @param count how many customers to return
+     * @param parallel sum ranges of dates in parallel and merge them
+     * @return up to count customers, biggest spender first
+     * @throws PersistenceException if unable to read orders
+     */
+    List<CustomerSpend> getTopCustomers(int count, boolean parallel) throws PersistenceException;
+
     /**
      * Gets all available tax information
      * @return list of all tax records
@@ -88,4 +291,21 @@ public interface ServiceLayer {
      * @throws PersistenceException if unable to write to audit log
      */
     void writeToAudit(String entry) throws PersistenceException;
-}
\ No newline at end of file
+
+    /**
+     * Gets the audit history of an order, oldest entry first
+     * @param orderNumber the order number
+     * @return a reader over the order's audit entries; close it when done
+     * @throws PersistenceException if unable to read the audit log
+     */
+    AuditReader getAuditHistory(int orderNumber) throws PersistenceException;
+
+    /**
+     * Gets the audit entries written in a time window, oldest entry first
+     * @param from start of the window, inclusive
+     * @param to end of the window, inclusive
+     * @return a reader over the audit entries; close it when done
+     * @throws PersistenceException if unable to read the audit log
+     */
+    AuditReader getAuditHistory(LocalDateTime from, LocalDateTime to) throws PersistenceException;
+}
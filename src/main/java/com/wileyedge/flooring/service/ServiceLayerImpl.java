@@ -1,37 +1,74 @@
 package com.wileyedge.flooring.service;
 
 import com.wileyedge.flooring.dao.*;
+import com.wileyedge.flooring.dto.CustomerSpend;
+import com.wileyedge.flooring.dto.ExportProgress;
 import com.wileyedge.flooring.dto.Order;
+import com.wileyedge.flooring.dto.OrderDistribution;
+import com.wileyedge.flooring.dto.OrderFilter;
+import com.wileyedge.flooring.dto.PartitionSummary;
+import com.wileyedge.flooring.dto.PivotRow;
 import com.wileyedge.flooring.dto.Product;
+import com.wileyedge.flooring.dto.Quote;
+import com.wileyedge.flooring.dto.ReplayResult;
+import com.wileyedge.flooring.dto.RevenueTotals;
 import com.wileyedge.flooring.dto.Tax;
+import com.wileyedge.flooring.dto.TaxLiability;
 import com.wileyedge.flooring.exceptions.NoSuchOrderException;
 import com.wileyedge.flooring.exceptions.PersistenceException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 @Component
 public class ServiceLayerImpl implements ServiceLayer {
 
+    // Orders per fork-join task; smaller batches are priced on the caller's thread
+    private static final int PRICING_SLICE = 2048;
+    // Enough for the orders being previewed and saved at any one time
+    private static final int QUOTE_CACHE_SIZE = 256;
+    // Customers held while ranking spend; past this, spend becomes an upper bound
+    private static final int CUSTOMER_LIMIT = 100_000;
+    // Times a date is read again when its orders change while being repriced
+    private static final int REPRICE_ATTEMPTS = 5;
+    private static final String TAX_LIABILITY_HEADER = "State,OrderCount,TaxableSales,Tax";
+
     private final OrderDao orderDao;
     private final ProductDao productDao;
     private final TaxDao taxDao;
     private final ExportDao exportDao;
     private final AuditDao auditDao;
+    private final RollupDao rollupDao;
+    private final DistributionDao distributionDao;
+    private final OrderChangeEncoder changeEncoder = new OrderChangeEncoder();
+    private final OrderChangeEncoder eventEncoder = new OrderChangeEncoder(true);
+    private final FixedPointPricing pricing = new FixedPointPricing();
+    private final QuoteCache quotes = new QuoteCache(QUOTE_CACHE_SIZE);
+    private volatile boolean rollupsChecked = false;
 
     @Autowired
     public ServiceLayerImpl(OrderDao orderDao, ProductDao productDao, TaxDao taxDao,
-                            ExportDao exportDao, AuditDao auditDao) {
+                            ExportDao exportDao, AuditDao auditDao, RollupDao rollupDao,
+                            DistributionDao distributionDao) {
         this.orderDao = orderDao;
         this.productDao = productDao;
         this.taxDao = taxDao;
         this.exportDao = exportDao;
         this.auditDao = auditDao;
+        this.rollupDao = rollupDao;
+        this.distributionDao = distributionDao;
     }
 
     @Override
@@ -42,13 +79,20 @@ public class ServiceLayerImpl implements ServiceLayer {
     @Override
     public Order addOrder(Order order) throws PersistenceException {
         // Calculate order totals
-        calculateOrderTotals(order);
+        priceOrder(order);
+        checkRollups();
 
         // Add to persistence
         Order addedOrder = orderDao.addOrder(order);
+        rollupDao.recordChange(null, addedOrder);
+        distributionDao.recordChange(null, addedOrder);
 
         // Write audit entry
-        auditDao.writeAuditEntry("Order " + addedOrder.getOrderNumber() + " ADDED.");
+        if (auditDao.getMode() == AuditMode.EVENTS) {
+            auditDao.writeAuditEntry(eventEncoder.encodeAdd(addedOrder));
+        } else {
+            auditDao.writeAuditEntry("Order " + addedOrder.getOrderNumber() + " ADDED.");
+        }
 
         return addedOrder;
     }
@@ -58,18 +102,85 @@ public class ServiceLayerImpl implements ServiceLayer {
         return orderDao.getOrder(date, orderNumber);
     }
 
+    @Override
+    public Quote quote(LocalDate date, String state, String productType, BigDecimal area)
+            throws PersistenceException {
+        Quote quote = cachedQuote(date, state, productType, area);
+        return quote == null ? null : new Quote(quote);
+    }
+
+    @Override
+    public Order priceOrder(Order order) throws PersistenceException {
+        Quote quote = cachedQuote(order.getOrderDate(), order.getState(), order.getProductType(), order.getArea());
+        if (quote != null) {
+            quote.applyTo(order);
+            return order;
+        }
+
+        // No rate to quote from, so the order keeps whichever rates it has
+        applyRates(order, taxDao.getTaxRates(), tieredProductRates());
+        pricing.calculateTotals(order);
+        return order;
+    }
+
+    @Override
+    public List<Order> priceOrders(List<Order> orders) throws PersistenceException {
+        RateSchedule<Tax> taxRates = taxDao.getTaxRates();
+        RateSchedule<TieredProduct> productRates = tieredProductRates();
+        List<Order> rows = orders instanceof RandomAccess ? orders : new ArrayList<>(orders);
+
+        priceInParallel(rows.size(), (from, to) -> {
+            for (int i = from; i < to; i++) {
+                Order order = rows.get(i);
+                applyRates(order, taxRates, productRates);
+                pricing.calculateTotals(order);
+            }
+        });
+        return orders;
+    }
+
+    @Override
+    public void priceOrders(PricingBatch batch) throws PersistenceException {
+        RateSchedule<Tax> taxRates = taxDao.getTaxRates();
+        RateSchedule<TieredProduct> productRates = tieredProductRates();
+        long[] cents = batch.getCents();
+
+        priceInParallel(batch.size(), (from, to) -> {
+            for (int row = from; row < to; row++) {
+                LocalDate date = batch.getDate(row);
+                Tax tax = date == null ? null : taxRates.find(batch.getState(row), date);
+                TieredProduct tiered = date == null ? null : productRates.find(batch.getProductType(row), date);
+                if (tax == null || tiered == null) {
+                    batch.setPriced(row, false);
+                    continue;
+                }
+
+                BigDecimal area = batch.getArea(row);
+                Product product = tiered.forArea(area);
+                batch.setPriced(row, pricing.calculateCents(area, product.getCostPerSquareFoot(),
+                        product.getLaborCostPerSquareFoot(), tax.getTaxRate(), cents,
+                        row * FixedPointPricing.CENTS_PER_ORDER));
+            }
+        });
+    }
+
     @Override
     public Order editOrder(Order order) throws NoSuchOrderException, PersistenceException {
         // Recalculate order totals
-        calculateOrderTotals(order);
+        priceOrder(order);
+        checkRollups();
 
-        // Update in persistence
-        Order editedOrder = orderDao.editOrder(order);
+        // Update in persistence, keeping the order it replaced so the totals
+        // and the audit record take out what was really saved, even if another
+        // edit landed since this one was read
+        Order previousOrder = orderDao.editOrder(order);
+        rollupDao.recordChange(previousOrder, order);
+        distributionDao.recordChange(previousOrder, order);
 
         // Write audit entry
-        auditDao.writeAuditEntry("Order " + editedOrder.getOrderNumber() + " EDITED.");
+        auditDao.writeAuditEntry(encoderForAudit().encodeEdit(previousOrder, order));
 
-        return editedOrder;
+        return order;
     }
 
     @Override
@@ -77,25 +188,224 @@ public class ServiceLayerImpl implements ServiceLayer {
         return orderDao.getOrdersForDate(date);
     }
 
+    @Override
+    public List<PartitionSummary> getPartitionSummaries() throws PersistenceException {
+        return orderDao.getPartitionSummaries();
+    }
+
     @Override
     public Order removeOrder(LocalDate date, int orderNumber) throws NoSuchOrderException, PersistenceException {
+        checkRollups();
         Order removedOrder = orderDao.removeOrder(date, orderNumber);
+        rollupDao.recordChange(removedOrder, null);
+        distributionDao.recordChange(removedOrder, null);
 
         // Write audit entry
-        auditDao.writeAuditEntry("Order " + orderNumber + " REMOVED.");
+        auditDao.writeAuditEntry(encoderForAudit().encodeRemove(removedOrder));
 
         return removedOrder;
     }
 
     @Override
     public void exportAllData() throws PersistenceException {
-        Map<LocalDate, Map<Integer, Order>> allOrders = orderDao.getAllOrders();
-        exportDao.exportAllData(allOrders);
+        exportAllData(new ExportProgress());
+    }
+
+    @Override
+    public void exportAllData(ExportProgress progress) throws PersistenceException {
+        // Export from a snapshot so orders saved meanwhile neither wait nor leak in
+        try (OrderSnapshot snapshot = orderDao.getSnapshot()) {
+            exportDao.exportAllData(snapshot, progress);
+        }
 
         // Write audit entry
         auditDao.writeAuditEntry("All data EXPORTED.");
     }
 
+    @Override
+    public int exportChangedData() throws PersistenceException {
+        int changedPartitions;
+        try (OrderSnapshot snapshot = orderDao.getSnapshot()) {
+            changedPartitions = exportDao.exportChangedData(snapshot);
+        }
+
+        // Write audit entry
+        auditDao.writeAuditEntry(changedPartitions + " changed date(s) EXPORTED.");
+
+        return changedPartitions;
+    }
+
+    @Override
+    public void consolidateExports() throws PersistenceException {
+        exportDao.consolidateExports();
+
+        // Write audit entry
+        auditDao.writeAuditEntry("Export deltas CONSOLIDATED.");
+    }
+
+    @Override
+    public int restoreFromExport() throws PersistenceException {
+        int restoredOrders;
+
+        try (ExportReader export = exportDao.openExport()) {
+            if (export.getParts().isEmpty()) {
+                throw new PersistenceException("No export found to restore from.");
+            }
+            restoredOrders = orderDao.restoreOrders(export);
+        } catch (IOException e) {
+            throw new PersistenceException("Could not read export data.", e);
+        } finally {
+            // Restored dates are summed again on next use
+            rollupsChecked = false;
+        }
+
+        // Write audit entry
+        auditDao.writeAuditEntry(restoredOrders + " orders RESTORED from export.");
+
+        return restoredOrders;
+    }
+
+    @Override
+    public ReplayResult rebuildFromAuditLog() throws PersistenceException {
+        ReplayResult result;
+
+        try (AuditReader events = auditDao.readAllEntries()) {
+            result = orderDao.rebuildOrders(events);
+        } catch (IOException e) {
+            throw new PersistenceException("Could not read audit log.", e);
+        } finally {
+            // Rebuilt dates are summed again on next use
+            rollupsChecked = false;
+        }
+
+        // Write audit entry
+        auditDao.writeAuditEntry(result.getOrdersRebuilt() + " orders REBUILT from audit log.");
+
+        return result;
+    }
+
+    @Override
+    public int repriceOrders() throws PersistenceException {
+        // One schedule for the whole run, so every order sees the same rates
+        RateSchedule<Tax> taxRates = taxDao.getTaxRates();
+        RateSchedule<TieredProduct> productRates = tieredProductRates();
+        OrderChangeEncoder encoder = encoderForAudit();
+        int repriced = 0;
+        checkRollups();
+
+        for (PartitionSummary partition : orderDao.getPartitionSummaries()) {
+            LocalDate date = partition.getOrderDate();
+            List<Order> previousOrders = new ArrayList<>();
+            List<Order> repricedOrders = new ArrayList<>();
+
+            // Saved only if no order on the date changed since it was read; otherwise read it again
+            int attempts = 0;
+            do {
+                if (++attempts > REPRICE_ATTEMPTS) {
+                    throw new PersistenceException("Orders on " + date + " kept changing while repricing.");
+                }
+                previousOrders.clear();
+                repricedOrders.clear();
+
+                for (Order saved : orderDao.getOrdersForDate(date)) {
+                    Order order = new Order(saved);
+                    applyRates(order, taxRates, productRates);
+                    if (sameRates(saved, order)) {
+                        continue;
+                    }
+                    pricing.calculateTotals(order);
+                    previousOrders.add(saved);
+                    repricedOrders.add(order);
+                }
+            } while (!orderDao.editOrders(date, previousOrders, repricedOrders));
+            rollupDao.recordChanges(previousOrders, repricedOrders);
+            distributionDao.recordChanges(previousOrders, repricedOrders);
+
+            for (int i = 0; i < repricedOrders.size(); i++) {
+                auditDao.writeAuditEntry(encoder.encodeEdit(previousOrders.get(i), repricedOrders.get(i)));
+            }
+            repriced += repricedOrders.size();
+        }
+
+        // Write audit entry
+        auditDao.writeAuditEntry(repriced + " orders REPRICED.");
+
+        return repriced;
+    }
+
+    @Override
+    public RevenueTotals getRevenueForDate(LocalDate date) throws PersistenceException {
+        checkRollups();
+        return rollupDao.getTotalsForDate(date);
+    }
+
+    @Override
+    public RevenueTotals getRevenueForMonth(YearMonth month) throws PersistenceException {
+        checkRollups();
+        return rollupDao.getTotalsForMonth(month);
+    }
+
+    @Override
+    public RevenueTotals getRevenueForState(String state) throws PersistenceException {
+        checkRollups();
+        return rollupDao.getTotalsForState(state);
+    }
+
+    @Override
+    public RevenueTotals getRevenueForProduct(String productType) throws PersistenceException {
+        checkRollups();
+        return rollupDao.getTotalsForProduct(productType);
+    }
+
+    @Override
+    public List<TaxLiability> getTaxLiability(LocalDate from, LocalDate to) throws PersistenceException {
+        checkRollups();
+        return rollupDao.getTaxLiability(from, to);
+    }
+
+    @Override
+    public void writeTaxLiabilityReport(LocalDate from, LocalDate to, Writer out) throws PersistenceException {
+        List<TaxLiability> liabilities = getTaxLiability(from, to);
+
+        try {
+            out.write(TAX_LIABILITY_HEADER + System.lineSeparator());
+            for (TaxLiability liability : liabilities) {
+                out.write(liability.getState() + "," +
+                        liability.getOrderCount() + "," +
+                        liability.getTaxableSales().toPlainString() + "," +
+                        liability.getTax().toPlainString() + System.lineSeparator());
+            }
+            out.flush();
+        } catch (IOException e) {
+            throw new PersistenceException("Could not write tax liability report.", e);
+        }
+    }
+
+    @Override
+    public OrderDistribution getOrderDistribution(LocalDate from, LocalDate to) throws PersistenceException {
+        checkRollups();
+        return distributionDao.getDistribution(from, to);
+    }
+
+    @Override
+    public Map<LocalDate, RevenueTotals> getDailyRevenue(LocalDate from, LocalDate to) throws PersistenceException {
+        return orderDao.getDailyTotals(from, to);
+    }
+
+    @Override
+    public List<PivotRow> pivotRevenue(OrderFilter filter, List<PivotDimension> dimensions)
+            throws PersistenceException {
+        return orderDao.pivotOrders(filter, dimensions);
+    }
+
+    @Override
+    public List<CustomerSpend> getTopCustomers(int count, boolean parallel) throws PersistenceException {
+        // Rank from a snapshot so orders saved meanwhile neither wait nor leak in
+        try (OrderSnapshot snapshot = orderDao.getSnapshot()) {
+            return CustomerSpendSummary.of(snapshot, CUSTOMER_LIMIT, parallel).top(count);
+        }
+    }
+
     @Override
     public List<Tax> getAllTaxes() throws PersistenceException {
         return taxDao.getAllTaxes();
@@ -111,38 +421,162 @@ public class ServiceLayerImpl implements ServiceLayer {
         auditDao.writeAuditEntry(entry);
     }
 
+    @Override
+    public AuditReader getAuditHistory(int orderNumber) throws PersistenceException {
+        return auditDao.findEntriesForOrder(orderNumber);
+    }
+
+    @Override
+    public AuditReader getAuditHistory(LocalDateTime from, LocalDateTime to) throws PersistenceException {
+        return auditDao.findEntriesBetween(from, to);
+    }
+
+    /**
+     * @return the shared quote for an order, calculating and caching it on a
+     * miss, or null if the state or product has no rate on the date
+     */
+    private Quote cachedQuote(LocalDate date, String state, String productType, BigDecimal area)
+            throws PersistenceException {
+        if (date == null || area == null) {
+            return null;
+        }
+
+        RateSchedule<Tax> taxRates = taxDao.getTaxRates();
+        RateSchedule<Product> productRates = productDao.getProductRates();
+        PricingTiers tiers = productDao.getPricingTiers();
+        QuoteCache.Key key = new QuoteCache.Key(date, state, productType, area);
+        Quote quote = quotes.get(key, taxRates.getVersion(), productRates.getVersion(), tiers.getVersion());
+        if (quote != null) {
+            return quote;
+        }
+
+        RateSchedule<TieredProduct> tieredRates = tiers.compile(productRates);
+        if (taxRates.find(state, date) == null || tieredRates.find(productType, date) == null) {
+            return null;
+        }
+        Order priced = new Order();
+        priced.setOrderDate(date);
+        priced.setState(state);
+        priced.setProductType(productType);
+        priced.setArea(area);
+        applyRates(priced, taxRates, tieredRates);
+        pricing.calculateTotals(priced);
+
+        quote = new Quote(priced);
+        quotes.put(key, quote, taxRates.getVersion(), productRates.getVersion(), tiers.getVersion());
+        return quote;
+    }
+
     /**
-     * Calculates all derived fields for an order
-     * MaterialCost = Area * CostPerSquareFoot
-     * LaborCost = Area * LaborCostPerSquareFoot
-     * Tax = (MaterialCost + LaborCost) * (TaxRate/100)
-     * Total = MaterialCost + LaborCost + Tax
+     * Sets the tax rate and product costs in force on the order's date, less
+     * any discount for the tier the order's area falls in. An order whose
+     * state or product has no rate on that date keeps its own.
      */
-    private void calculateOrderTotals(Order order) {
-        BigDecimal area = order.getArea();
-        BigDecimal costPerSqFt = order.getCostPerSquareFoot();
-        BigDecimal laborCostPerSqFt = order.getLaborCostPerSquareFoot();
-        BigDecimal taxRate = order.getTaxRate();
-
-        // Calculate Material Cost
-        BigDecimal materialCost = area.multiply(costPerSqFt)
-                .setScale(2, RoundingMode.HALF_UP);
-        order.setMaterialCost(materialCost);
-
-        // Calculate Labor Cost
-        BigDecimal laborCost = area.multiply(laborCostPerSqFt)
-                .setScale(2, RoundingMode.HALF_UP);
-        order.setLaborCost(laborCost);
-
-        // Calculate Tax
-        BigDecimal tax = materialCost.add(laborCost)
-                .multiply(taxRate.divide(new BigDecimal("100"), 4, RoundingMode.HALF_UP))
-                .setScale(2, RoundingMode.HALF_UP);
-        order.setTax(tax);
-
-        // Calculate Total
-        BigDecimal total = materialCost.add(laborCost).add(tax)
-                .setScale(2, RoundingMode.HALF_UP);
-        order.setTotal(total);
-    }
-}
\ No newline at end of file
+    private void applyRates(Order order, RateSchedule<Tax> taxRates, RateSchedule<TieredProduct> productRates) {
+        LocalDate date = order.getOrderDate();
+        if (date == null) {
+            return;
+        }
+
+        Tax tax = taxRates.find(order.getState(), date);
+        if (tax != null) {
+            order.setTaxRate(tax.getTaxRate());
+        }
+
+        TieredProduct tiered = productRates.find(order.getProductType(), date);
+        if (tiered != null) {
+            Product product = tiered.forArea(order.getArea());
+            order.setCostPerSquareFoot(product.getCostPerSquareFoot());
+            order.setLaborCostPerSquareFoot(product.getLaborCostPerSquareFoot());
+        }
+    }
+
+    /**
+     * @return the product costs in force, with every tier's discount already taken off
+     */
+    private RateSchedule<TieredProduct> tieredProductRates() throws PersistenceException {
+        return productDao.getPricingTiers().compile(productDao.getProductRates());
+    }
+
+    /**
+     * Sums the rollups and histograms again from the orders if they disagree
+     * with the order manifest, such as when orders were changed outside this
+     * program or a save failed between the two. Checked once, then kept in step
+     * by every change.
+     */
+    private void checkRollups() throws PersistenceException {
+        if (rollupsChecked) {
+            return;
+        }
+
+        List<PartitionSummary> partitions = orderDao.getPartitionSummaries();
+        boolean rollupsStale = !rollupDao.isConsistentWith(partitions);
+        boolean distributionsStale = !distributionDao.isConsistentWith(partitions);
+        if (rollupsStale || distributionsStale) {
+            try (OrderSnapshot snapshot = orderDao.getSnapshot()) {
+                if (rollupsStale) {
+                    rollupDao.rebuild(snapshot);
+                }
+                if (distributionsStale) {
+                    distributionDao.rebuild(snapshot);
+                }
+            }
+        }
+        rollupsChecked = true;
+    }
+
+    private void priceInParallel(int rowCount, RowRange rows) {
+        if (rowCount <= PRICING_SLICE) {
+            rows.price(0, rowCount);
+        } else {
+            ForkJoinPool.commonPool().invoke(new PricingTask(rows, 0, rowCount));
+        }
+    }
+
+    private boolean sameRates(Order saved, Order order) {
+        return sameValue(saved.getTaxRate(), order.getTaxRate())
+                && sameValue(saved.getCostPerSquareFoot(), order.getCostPerSquareFoot())
+                && sameValue(saved.getLaborCostPerSquareFoot(), order.getLaborCostPerSquareFoot());
+    }
+
+    private boolean sameValue(BigDecimal first, BigDecimal second) {
+        return first == null ? second == null : second != null && first.compareTo(second) == 0;
+    }
+
+    /**
+     * In event mode every record carries the whole order, so orders can be rebuilt from the log
+     */
+    private OrderChangeEncoder encoderForAudit() {
+        return auditDao.getMode() == AuditMode.EVENTS ? eventEncoder : changeEncoder;
+    }
+
+    private interface RowRange {
+        void price(int from, int to);
+    }
+
+    /**
+     * Halves its range until it is one slice, then prices it
+     */
+    private static class PricingTask extends RecursiveAction {
+        private final RowRange rows;
+        private final int from;
+        private final int to;
+
+        PricingTask(RowRange rows, int from, int to) {
+            this.rows = rows;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= PRICING_SLICE) {
+                rows.price(from, to);
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            invokeAll(new PricingTask(rows, from, middle), new PricingTask(rows, middle, to));
+        }
+    }
+}
@@ -1,13 +1,18 @@
 package com.wileyedge.flooring.ui;
 
+import com.wileyedge.flooring.dto.AuditRecord;
+import com.wileyedge.flooring.dto.ExportProgress;
 import com.wileyedge.flooring.dto.Order;
 import com.wileyedge.flooring.dto.Product;
+import com.wileyedge.flooring.dto.ReplayResult;
 import com.wileyedge.flooring.dto.Tax;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.List;
@@ -30,11 +35,15 @@ public class View {
         io.print("* 3. Edit an Order");
         io.print("* 4. Remove an Order");
         io.print("* 5. Export All Data");
-        io.print("* 6. Quit");
+        io.print("* 6. Export Status");
+        io.print("* 7. Restore Orders");
+        io.print("* 8. Audit History");
+        io.print("* 9. Reprice Orders");
+        io.print("* 10. Quit");
         io.print("*");
         io.print("* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *");
 
-        return io.readInt("Please select from the above choices.", 1, 6);
+        return io.readInt("Please select from the above choices.", 1, 10);
     }
 
     public LocalDate getDateInput() {
@@ -319,8 +328,136 @@ public class View {
         io.print("\n*** Order successfully removed! ***");
     }
 
-    public void displayExportDataSuccess() {
-        io.print("\n*** All data successfully exported! ***");
+    public void displayExportStarted(ExportProgress progress, boolean alreadyRunning) {
+        if (alreadyRunning) {
+            io.print("\nAn export is already running (" + progress.getPartitionsDone() + "/"
+                    + progress.getTotalPartitions() + " dates written).");
+        } else {
+            io.print("\n*** Export started in the background. Choose Export Status to follow it. ***");
+        }
+    }
+
+    public void displayExportStatus(ExportProgress progress, LocalDateTime nextRun) {
+        io.print("\n=== Export Status ===");
+
+        if (progress == null) {
+            io.print("No export has been run yet.");
+        } else {
+            io.print("Status: " + progress.getStatus());
+            io.print(String.format("Dates written: %d of %d", progress.getPartitionsDone(),
+                    progress.getTotalPartitions()));
+            io.print(String.format("Orders written: %d (%.0f orders/sec, %.1f MB)", progress.getRowsDone(),
+                    progress.getRowsPerSecond(), progress.getBytesWritten() / (1024.0 * 1024.0)));
+            io.print(String.format("Elapsed: %.1f sec", progress.getElapsedMillis() / 1000.0));
+            if (progress.getErrorMessage() != null) {
+                io.print("Error: " + progress.getErrorMessage());
+            }
+        }
+
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MM-dd-yyyy HH:mm");
+        io.print(nextRun == null ? "Nightly export: not scheduled"
+                : "Nightly export: next run " + nextRun.format(formatter));
+    }
+
+    public int getExportStatusSelection() {
+        io.print("\n1. Refresh");
+        io.print("2. Cancel Running Export");
+        io.print("3. Schedule Nightly Export");
+        io.print("4. Clear Nightly Schedule");
+        io.print("5. Return to Main Menu");
+
+        return io.readInt("Please select from the above choices.", 1, 5);
+    }
+
+    public LocalTime getTimeInput() {
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm");
+
+        while (true) {
+            String timeStr = io.readString("Enter time of day (HH:mm, 24 hour):");
+            try {
+                return LocalTime.parse(timeStr, formatter);
+            } catch (DateTimeParseException e) {
+                io.print("Invalid time format. Please use HH:mm.");
+            }
+        }
+    }
+
+    public void displayExportCancelRequested() {
+        io.print("\n*** Cancel requested. The previous export will be kept. ***");
+    }
+
+    public void displayExportScheduleUpdated() {
+        io.print("\n*** Nightly export schedule updated. ***");
+    }
+
+    public void displayRestoreBanner() {
+        io.print("\n=== Restore Orders ===");
+        io.print("Orders for every date found in the chosen source will be replaced.");
+    }
+
+    public int getRestoreSourceSelection() {
+        io.print("\n1. Restore From Backup Export");
+        io.print("2. Rebuild From Audit Log");
+        io.print("3. Return to Main Menu");
+
+        return io.readInt("Please select from the above choices.", 1, 3);
+    }
+
+    public void displayRestoreSuccess(int restoredOrders) {
+        io.print("\n*** " + restoredOrders + " orders successfully restored! ***");
+    }
+
+    public void displayRebuildSuccess(ReplayResult result) {
+        io.print("\n*** " + result.getOrdersRebuilt() + " orders rebuilt on " + result.getDatesRebuilt()
+                + " dates! ***");
+        io.print(String.format("Events replayed: %d, skipped: %d (%.0f events/sec, %.1f sec)",
+                result.getEventsApplied(), result.getEventsSkipped(), result.getEventsPerSecond(),
+                result.getElapsedMillis() / 1000.0));
+        if (result.getDatesSkipped() > 0) {
+            io.print(result.getDatesSkipped() + " dates were left alone because the audit log does not "
+                    + "go back to their first order.");
+        }
+    }
+
+    public void displayRepriceBanner() {
+        io.print("\n=== Reprice Orders ===");
+        io.print("Every order will be priced at the tax rate and product costs in force on its date.");
+    }
+
+    public void displayRepriceSuccess(int repricedOrders) {
+        io.print("\n*** " + repricedOrders + " orders repriced! ***");
+    }
+
+    public int getAuditHistorySelection() {
+        io.print("\n=== Audit History ===");
+        io.print("1. Search by Order Number");
+        io.print("2. Search by Time Range");
+        io.print("3. Return to Main Menu");
+
+        return io.readInt("Please select from the above choices.", 1, 3);
+    }
+
+    public LocalDateTime getDateTimeInput(String prompt) {
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MM-dd-yyyy HH:mm");
+
+        while (true) {
+            String dateTimeStr = io.readString(prompt + " (MM-dd-yyyy HH:mm):");
+            try {
+                return LocalDateTime.parse(dateTimeStr, formatter);
+            } catch (DateTimeParseException e) {
+                io.print("Invalid date format. Please use MM-dd-yyyy HH:mm.");
+            }
+        }
+    }
+
+    public void displayAuditRecord(AuditRecord record) {
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MM-dd-yyyy HH:mm:ss");
+        String timestamp = record.getTimestamp() == null ? "-" : record.getTimestamp().format(formatter);
+        io.print(timestamp + "  " + record.getEntry());
+    }
+
+    public void displayAuditRecordCount(int count) {
+        io.print(count == 0 ? "\nNo audit entries found." : "\n" + count + " audit entries found.");
     }
 
     public void displayExitMessage() {
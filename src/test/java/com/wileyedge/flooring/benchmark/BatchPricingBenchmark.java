@@ -0,0 +1,110 @@
+package com.wileyedge.flooring.benchmark;
+
+import com.wileyedge.flooring.dao.ProductDaoFileImpl;
+import com.wileyedge.flooring.dao.TaxDaoFileImpl;
+import com.wileyedge.flooring.dto.Order;
+import com.wileyedge.flooring.service.PricingBatch;
+import com.wileyedge.flooring.service.ServiceLayer;
+import com.wileyedge.flooring.service.ServiceLayerImpl;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Compares pricing orders one call at a time against the batch API, both
+ * with orders and with a reused columnar batch, using the file catalogs from
+ * Data so each call pays what it would in the application. Reports medians.
+ * Not run by the test suite; run main with the test classpath.
+ * Arguments: [orders] [iterations]
+ */
+public class BatchPricingBenchmark {
+
+    private static final String[] STATES = {"TX", "WA", "KY", "CA"};
+    private static final String[] PRODUCTS = {"Carpet", "Laminate", "Tile", "Wood"};
+
+    public static void main(String[] args) throws Exception {
+        int orderCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 11;
+
+        File workFolder = Files.createTempDirectory("batch-pricing-benchmark").toFile();
+        File productFile = new File(workFolder, "Products.txt");
+        File taxFile = new File(workFolder, "Taxes.txt");
+        Files.copy(new File("Data/Products.txt").toPath(), productFile.toPath());
+        Files.copy(new File("Data/Taxes.txt").toPath(), taxFile.toPath());
+        ServiceLayer service = new ServiceLayerImpl(null, new ProductDaoFileImpl(productFile.getPath()),
+                new TaxDaoFileImpl(taxFile.getPath()), null, null, null, null);
+
+        List<Order> orders = syntheticOrders(orderCount);
+        PricingBatch batch = new PricingBatch(orderCount);
+        double[] singleRates = new double[iterations];
+        double[] listRates = new double[iterations];
+        double[] columnRates = new double[iterations];
+
+        for (int i = 0; i < iterations; i++) {
+            System.gc();
+            long start = System.nanoTime();
+            for (Order order : orders) {
+                service.priceOrder(order);
+            }
+            singleRates[i] = rate(orderCount, start);
+
+            System.gc();
+            start = System.nanoTime();
+            service.priceOrders(orders);
+            listRates[i] = rate(orderCount, start);
+
+            System.gc();
+            start = System.nanoTime();
+            batch.clear();
+            for (Order order : orders) {
+                batch.add(order.getOrderDate(), order.getState(), order.getProductType(), order.getArea());
+            }
+            service.priceOrders(batch);
+            columnRates[i] = rate(orderCount, start);
+
+            System.out.printf("Run %d: one at a time %,.0f orders/s, list %,.0f orders/s, columns %,.0f orders/s%n",
+                    i + 1, singleRates[i], listRates[i], columnRates[i]);
+        }
+
+        System.out.printf("Median on %d threads: one at a time %,.0f orders/s, list %,.0f orders/s, "
+                        + "columns %,.0f orders/s%n", Runtime.getRuntime().availableProcessors(),
+                median(singleRates), median(listRates), median(columnRates));
+
+        try (Stream<Path> files = Files.walk(workFolder.toPath())) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private static double rate(int orderCount, long start) {
+        return orderCount / ((System.nanoTime() - start) / 1_000_000_000.0);
+    }
+
+    private static double median(double[] rates) {
+        double[] sorted = rates.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    private static List<Order> syntheticOrders(int orderCount) {
+        Random random = new Random(43);
+        List<Order> orders = new ArrayList<>(orderCount);
+        for (int i = 0; i < orderCount; i++) {
+            Order order = new Order(i + 1);
+            order.setState(STATES[random.nextInt(STATES.length)]);
+            order.setProductType(PRODUCTS[random.nextInt(PRODUCTS.length)]);
+            order.setArea(BigDecimal.valueOf(10_000 + random.nextInt(300_000), 2));
+            order.setOrderDate(LocalDate.of(2025, 1, 1).plusDays(random.nextInt(365)));
+            orders.add(order);
+        }
+        return orders;
+    }
+}
@@ -0,0 +1,99 @@
+package com.wileyedge.flooring.benchmark;
+
+import com.wileyedge.flooring.dao.ExportDao;
+import com.wileyedge.flooring.dao.ExportDaoFileImpl;
+import com.wileyedge.flooring.dao.OrderPartitionSource;
+import com.wileyedge.flooring.dto.Order;
+import com.wileyedge.flooring.dto.PartitionSummary;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures export throughput on a synthetic order history.
+ * Not run by the test suite; run main with the test classpath.
+ * Arguments: [orders] [partitions] [iterations]
+ */
+public class ExportBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int orderCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int partitionCount = args.length > 1 ? Integer.parseInt(args[1]) : 1_000;
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+        OrderPartitionSource source = new SyntheticOrders(orderCount, partitionCount);
+        File exportFile = File.createTempFile("export-benchmark", ".txt");
+        exportFile.deleteOnExit();
+        ExportDao exportDao = new ExportDaoFileImpl(exportFile.getPath());
+
+        // Warm up
+        exportDao.exportAllData(source);
+
+        for (int i = 1; i <= iterations; i++) {
+            long start = System.nanoTime();
+            exportDao.exportAllData(source);
+            long elapsed = System.nanoTime() - start;
+
+            double megabytes = exportFile.length() / (1024.0 * 1024.0);
+            double seconds = elapsed / 1_000_000_000.0;
+            System.out.printf("Run %d: %,d orders, %.1f MB in %.3f s = %.1f MB/s%n",
+                    i, orderCount, megabytes, seconds, megabytes / seconds);
+        }
+    }
+
+    /**
+     * Builds every partition up front so the benchmark measures encoding and I/O only
+     */
+    static class SyntheticOrders implements OrderPartitionSource {
+        private final List<LocalDate> dates = new ArrayList<>();
+        private final List<PartitionSummary> summaries = new ArrayList<>();
+        private final List<List<Order>> partitions = new ArrayList<>();
+
+        SyntheticOrders(int orderCount, int partitionCount) {
+            LocalDate firstDate = LocalDate.of(2020, 1, 1);
+            String[] states = {"TX", "WA", "KY", "CA"};
+            String[] products = {"Carpet", "Laminate", "Tile", "Wood"};
+
+            for (int p = 0; p < partitionCount; p++) {
+                dates.add(firstDate.plusDays(p));
+                partitions.add(new ArrayList<>());
+            }
+
+            for (int n = 1; n <= orderCount; n++) {
+                int p = n % partitionCount;
+                Order order = new Order(n);
+                order.setCustomerName("Customer " + (n % 50_000));
+                order.setState(states[n % states.length]);
+                order.setTaxRate(new BigDecimal("6.25"));
+                order.setProductType(products[n % products.length]);
+                order.setArea(BigDecimal.valueOf(10_000 + n % 90_000, 2));
+                order.setCostPerSquareFoot(new BigDecimal("3.50"));
+                order.setLaborCostPerSquareFoot(new BigDecimal("4.15"));
+                order.setMaterialCost(BigDecimal.valueOf(35_000 + n % 300_000, 2));
+                order.setLaborCost(BigDecimal.valueOf(41_500 + n % 300_000, 2));
+                order.setTax(BigDecimal.valueOf(3_404 + n % 30_000, 2));
+                order.setTotal(BigDecimal.valueOf(79_904 + n % 630_000, 2));
+                order.setOrderDate(dates.get(p));
+                partitions.get(p).add(order);
+            }
+
+            for (int p = 0; p < partitionCount; p++) {
+                summaries.add(new PartitionSummary(dates.get(p), partitions.get(p).size(), 0, 0,
+                        BigDecimal.ZERO, 0, 0));
+            }
+        }
+
+        @Override
+        public List<PartitionSummary> getPartitions() {
+            return summaries;
+        }
+
+        @Override
+        public List<Order> getOrdersForDate(LocalDate date) {
+            return partitions.get(dates.indexOf(date));
+        }
+    }
+}
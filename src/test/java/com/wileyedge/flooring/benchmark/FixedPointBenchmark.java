@@ -0,0 +1,90 @@
+package com.wileyedge.flooring.benchmark;
+
+import com.wileyedge.flooring.dto.Order;
+import com.wileyedge.flooring.service.FixedPointPricing;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+
+/**
+ * Compares order total calculation on scaled longs against BigDecimal,
+ * alternating the two and reporting medians.
+ * Not run by the test suite; run main with the test classpath.
+ * Arguments: [orders] [iterations]
+ */
+public class FixedPointBenchmark {
+
+    public static void main(String[] args) {
+        int orderCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 11;
+
+        FixedPointPricing pricing = new FixedPointPricing();
+        Consumer<Order> fixedPoint = pricing::calculateFixedPoint;
+        Consumer<Order> bigDecimal = pricing::calculateWithBigDecimal;
+
+        List<Order> orders = syntheticOrders(orderCount);
+        double[] fixedRates = new double[iterations];
+        double[] bigDecimalRates = new double[iterations];
+        for (int i = 0; i < iterations; i++) {
+            // Swap which goes first so neither always inherits the other's garbage
+            if (i % 2 == 0) {
+                fixedRates[i] = run(fixedPoint, orders);
+                bigDecimalRates[i] = run(bigDecimal, orders);
+            } else {
+                bigDecimalRates[i] = run(bigDecimal, orders);
+                fixedRates[i] = run(fixedPoint, orders);
+            }
+            System.out.printf("Run %d: fixed point %,.0f orders/s, BigDecimal %,.0f orders/s%n",
+                    i + 1, fixedRates[i], bigDecimalRates[i]);
+        }
+
+        double fixedMedian = median(fixedRates);
+        double bigDecimalMedian = median(bigDecimalRates);
+        System.out.printf("Median: fixed point %,.0f orders/s, BigDecimal %,.0f orders/s (%.2fx)%n",
+                fixedMedian, bigDecimalMedian, fixedMedian / bigDecimalMedian);
+    }
+
+    private static double run(Consumer<Order> calculation, List<Order> orders) {
+        System.gc();
+        long checksum = 0;
+        long start = System.nanoTime();
+        for (Order order : orders) {
+            calculation.accept(order);
+            checksum += order.getTotal().unscaledValue().longValue();
+        }
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        if (checksum == 42) {
+            System.out.println("Unlikely checksum");
+        }
+        return orders.size() / seconds;
+    }
+
+    private static double median(double[] rates) {
+        double[] sorted = rates.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    private static List<Order> syntheticOrders(int orderCount) {
+        String[] costs = {"2.25", "1.75", "3.50", "5.15", "3.3425"};
+        String[] laborCosts = {"2.10", "2.10", "4.15", "4.75", "3.9425"};
+        String[] taxRates = {"4.45", "9.25", "6.00", "25.00"};
+
+        Random random = new Random(42);
+        List<Order> orders = new ArrayList<>(orderCount);
+        for (int i = 0; i < orderCount; i++) {
+            int product = random.nextInt(costs.length);
+            Order order = new Order(i + 1);
+            order.setArea(BigDecimal.valueOf(10_000 + random.nextInt(300_000), 2));
+            order.setCostPerSquareFoot(new BigDecimal(costs[product]));
+            order.setLaborCostPerSquareFoot(new BigDecimal(laborCosts[product]));
+            order.setTaxRate(new BigDecimal(taxRates[random.nextInt(taxRates.length)]));
+            orders.add(order);
+        }
+        return orders;
+    }
+}
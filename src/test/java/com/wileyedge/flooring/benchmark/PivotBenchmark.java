@@ -0,0 +1,133 @@
+package com.wileyedge.flooring.benchmark;
+
+import com.wileyedge.flooring.dao.OrderDao;
+import com.wileyedge.flooring.dao.OrderDaoFileImpl;
+import com.wileyedge.flooring.dao.PivotDimension;
+import com.wileyedge.flooring.dto.Order;
+import com.wileyedge.flooring.dto.OrderFilter;
+import com.wileyedge.flooring.dto.PivotRow;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Compares a revenue by state, product and month pivot built from
+ * getAllOrders with the same pivot from the partition scanner, over every
+ * order and with a filter on one state. Each run opens a fresh dao, so every
+ * partition is read from disk. Reports medians.
+ * Not run by the test suite; run main with the test classpath.
+ * Arguments: [days] [orders per day] [iterations]
+ */
+public class PivotBenchmark {
+
+    private static final String HEADER = "OrderNumber,CustomerName,State,TaxRate,ProductType,Area," +
+            "CostPerSquareFoot,LaborCostPerSquareFoot,MaterialCost,LaborCost,Tax,Total";
+    private static final String[] STATES = {"TX", "WA", "KY", "CA"};
+    private static final String[] PRODUCTS = {"Carpet", "Laminate", "Tile", "Wood"};
+    private static final List<PivotDimension> DIMENSIONS = Arrays.asList(PivotDimension.STATE,
+            PivotDimension.PRODUCT_TYPE, PivotDimension.MONTH);
+
+    public static void main(String[] args) throws Exception {
+        int days = args.length > 0 ? Integer.parseInt(args[0]) : 730;
+        int ordersPerDay = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 7;
+        int orderCount = days * ordersPerDay;
+
+        File orderFolder = Files.createTempDirectory("pivot-benchmark").toFile();
+        writePartitions(orderFolder, days, ordersPerDay);
+        OrderFilter oneState = new OrderFilter(null, null, "TX", null);
+
+        double[] loadedRates = new double[iterations];
+        double[] scannedRates = new double[iterations];
+        double[] filteredRates = new double[iterations];
+        for (int i = 0; i < iterations; i++) {
+            System.gc();
+            long start = System.nanoTime();
+            int loadedGroups = pivotLoadedOrders(new OrderDaoFileImpl(orderFolder.getPath()));
+            loadedRates[i] = rate(orderCount, start);
+
+            System.gc();
+            start = System.nanoTime();
+            List<PivotRow> rows = new OrderDaoFileImpl(orderFolder.getPath()).pivotOrders(null, DIMENSIONS);
+            scannedRates[i] = rate(orderCount, start);
+
+            System.gc();
+            start = System.nanoTime();
+            new OrderDaoFileImpl(orderFolder.getPath()).pivotOrders(oneState, DIMENSIONS);
+            filteredRates[i] = rate(orderCount, start);
+
+            if (rows.size() != loadedGroups) {
+                throw new IllegalStateException(rows.size() + " groups scanned, " + loadedGroups + " loaded");
+            }
+            System.out.printf("Run %d: getAllOrders %,.0f orders/s, scanner %,.0f orders/s, "
+                    + "scanner for one state %,.0f orders/s%n", i + 1, loadedRates[i], scannedRates[i],
+                    filteredRates[i]);
+        }
+
+        System.out.printf("Median over %,d orders on %d threads: getAllOrders %,.0f orders/s, "
+                        + "scanner %,.0f orders/s, scanner for one state %,.0f orders/s%n", orderCount,
+                Runtime.getRuntime().availableProcessors(), median(loadedRates), median(scannedRates),
+                median(filteredRates));
+
+        try (Stream<Path> files = Files.walk(orderFolder.toPath())) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    /**
+     * The pivot as a caller would build it without the scanner
+     * @return number of groups
+     */
+    private static int pivotLoadedOrders(OrderDao orderDao) throws Exception {
+        Map<String, BigDecimal> totals = new HashMap<>();
+        for (Map<Integer, Order> ordersForDate : orderDao.getAllOrders().values()) {
+            for (Order order : ordersForDate.values()) {
+                String key = order.getState() + "," + order.getProductType() + ","
+                        + YearMonth.from(order.getOrderDate());
+                totals.merge(key, order.getTotal(), BigDecimal::add);
+            }
+        }
+        return totals.size();
+    }
+
+    private static void writePartitions(File orderFolder, int days, int ordersPerDay) throws Exception {
+        Random random = new Random(46);
+        DateTimeFormatter fileDate = DateTimeFormatter.ofPattern("MMddyyyy");
+        int orderNumber = 0;
+        for (int day = 0; day < days; day++) {
+            LocalDate date = LocalDate.of(2024, 1, 1).plusDays(day);
+            try (PrintWriter out = new PrintWriter(new File(orderFolder,
+                    "Orders_" + date.format(fileDate) + ".txt"))) {
+                out.println(HEADER);
+                for (int i = 0; i < ordersPerDay; i++) {
+                    BigDecimal materialCost = BigDecimal.valueOf(10_000 + random.nextInt(1_000_000), 2);
+                    BigDecimal laborCost = BigDecimal.valueOf(10_000 + random.nextInt(1_000_000), 2);
+                    BigDecimal tax = BigDecimal.valueOf(random.nextInt(100_000), 2);
+                    out.println(++orderNumber + ",Customer " + orderNumber + ","
+                            + STATES[random.nextInt(STATES.length)] + ",4.45,"
+                            + PRODUCTS[random.nextInt(PRODUCTS.length)] + ",100.00,3.50,4.15,"
+                            + materialCost + "," + laborCost + "," + tax + ","
+                            + materialCost.add(laborCost).add(tax));
+                }
+            }
+        }
+    }
+
+    private static double rate(int orderCount, long start) {
+        return orderCount / ((System.nanoTime() - start) / 1_000_000_000.0);
+    }
+
+    private static double median(double[] rates) {
+        double[] sorted = rates.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
@@ -0,0 +1,175 @@
+package com.wileyedge.flooring.benchmark;
+
+import com.wileyedge.flooring.dao.PricingTiers;
+import com.wileyedge.flooring.dao.ProductDao;
+import com.wileyedge.flooring.dao.RateSchedule;
+import com.wileyedge.flooring.dao.TaxDao;
+import com.wileyedge.flooring.dto.Order;
+import com.wileyedge.flooring.dto.PricingTier;
+import com.wileyedge.flooring.dto.Product;
+import com.wileyedge.flooring.dto.Tax;
+import com.wileyedge.flooring.service.ServiceLayer;
+import com.wileyedge.flooring.service.ServiceLayerImpl;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares order pricing throughput with flat product costs against the same
+ * catalog with area tiers, alternating the two so both see the same JIT and GC
+ * conditions. Catalogs are held in memory so only pricing is measured, and
+ * nearly every order here reaches a tier. Each iteration's tiered rate is
+ * divided by the flat rate measured beside it, and the median of those ratios
+ * is reported, so drift in the machine's speed between iterations cancels out.
+ * Not run by the test suite; run main with the test classpath.
+ * Arguments: [orders] [iterations]
+ */
+public class PricingBenchmark {
+
+    private static final String[] STATES = {"TX", "WA", "KY", "CA"};
+    private static final String[] PRODUCTS = {"Carpet", "Laminate", "Tile", "Wood"};
+
+    public static void main(String[] args) throws Exception {
+        int orderCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 11;
+
+        List<PricingTier> tiers = new ArrayList<>();
+        for (String product : PRODUCTS) {
+            tiers.add(new PricingTier(product, new BigDecimal("250"), new BigDecimal("2.5")));
+            tiers.add(new PricingTier(product, new BigDecimal("500"), new BigDecimal("5")));
+            tiers.add(new PricingTier(product, new BigDecimal("1000"), new BigDecimal("7.5")));
+            tiers.add(new PricingTier(product, new BigDecimal("2000"), new BigDecimal("10")));
+        }
+        ServiceLayer flat = new ServiceLayerImpl(null, new FixedProductDao(PricingTiers.NONE),
+                new FixedTaxDao(), null, null, null, null);
+        ServiceLayer tiered = new ServiceLayerImpl(null, new FixedProductDao(new PricingTiers(tiers)),
+                new FixedTaxDao(), null, null, null, null);
+
+        List<Order> orders = syntheticOrders(orderCount);
+        double[] flatRates = new double[iterations];
+        double[] tieredRates = new double[iterations];
+        double[] ratios = new double[iterations];
+        for (int i = 0; i < iterations; i++) {
+            // Swap which goes first so neither always inherits the other's garbage
+            if (i % 2 == 0) {
+                flatRates[i] = run(flat, orders);
+                tieredRates[i] = run(tiered, orders);
+            } else {
+                tieredRates[i] = run(tiered, orders);
+                flatRates[i] = run(flat, orders);
+            }
+            ratios[i] = tieredRates[i] / flatRates[i];
+            System.out.printf("Run %d: flat %,.0f orders/s, tiered %,.0f orders/s (%.1f%% of flat)%n",
+                    i + 1, flatRates[i], tieredRates[i], 100.0 * ratios[i]);
+        }
+
+        System.out.printf("Median: flat %,.0f orders/s, tiered %,.0f orders/s, tiered %.1f%% of flat%n",
+                median(flatRates), median(tieredRates), 100.0 * median(ratios));
+    }
+
+    private static double median(double[] rates) {
+        double[] sorted = rates.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    private static double run(ServiceLayer service, List<Order> orders) throws Exception {
+        System.gc();
+        long checksum = 0;
+        long start = System.nanoTime();
+        for (Order order : orders) {
+            checksum += service.priceOrder(order).getTotal().unscaledValue().longValue();
+        }
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        if (checksum == 42) {
+            System.out.println("Unlikely checksum");
+        }
+        return orders.size() / seconds;
+    }
+
+    private static List<Order> syntheticOrders(int orderCount) {
+        Random random = new Random(41);
+        List<Order> orders = new ArrayList<>(orderCount);
+        for (int i = 0; i < orderCount; i++) {
+            Order order = new Order(i + 1);
+            order.setState(STATES[random.nextInt(STATES.length)]);
+            order.setProductType(PRODUCTS[random.nextInt(PRODUCTS.length)]);
+            order.setArea(BigDecimal.valueOf(10_000 + random.nextInt(300_000), 2));
+            order.setOrderDate(LocalDate.of(2025, 1, 1).plusDays(random.nextInt(365)));
+            orders.add(order);
+        }
+        return orders;
+    }
+
+    static class FixedTaxDao implements TaxDao {
+        private final RateSchedule<Tax> rates = new RateSchedule<>(Arrays.asList(
+                new Tax("TX", "Texas", new BigDecimal("4.45")),
+                new Tax("WA", "Washington", new BigDecimal("9.25")),
+                new Tax("KY", "Kentucky", new BigDecimal("6.00")),
+                new Tax("CA", "Calfornia", new BigDecimal("25.00"))),
+                Tax::getStateAbr, Tax::getEffectiveDate, tax -> tax);
+
+        @Override
+        public List<Tax> getAllTaxes() {
+            return rates.getAll(LocalDate.now());
+        }
+
+        @Override
+        public Tax getTax(String stateAbr) {
+            return rates.get(stateAbr, LocalDate.now());
+        }
+
+        @Override
+        public Tax getTax(String stateAbr, LocalDate date) {
+            return rates.get(stateAbr, date);
+        }
+
+        @Override
+        public RateSchedule<Tax> getTaxRates() {
+            return rates;
+        }
+    }
+
+    static class FixedProductDao implements ProductDao {
+        private final RateSchedule<Product> rates = new RateSchedule<>(Arrays.asList(
+                new Product("Carpet", new BigDecimal("2.25"), new BigDecimal("2.10")),
+                new Product("Laminate", new BigDecimal("1.75"), new BigDecimal("2.10")),
+                new Product("Tile", new BigDecimal("3.50"), new BigDecimal("4.15")),
+                new Product("Wood", new BigDecimal("5.15"), new BigDecimal("4.75"))),
+                Product::getProductType, Product::getEffectiveDate, product -> product);
+        private final PricingTiers tiers;
+
+        FixedProductDao(PricingTiers tiers) {
+            this.tiers = tiers;
+        }
+
+        @Override
+        public List<Product> getAllProducts() {
+            return rates.getAll(LocalDate.now());
+        }
+
+        @Override
+        public Product getProduct(String productType) {
+            return rates.get(productType, LocalDate.now());
+        }
+
+        @Override
+        public Product getProduct(String productType, LocalDate date) {
+            return rates.get(productType, date);
+        }
+
+        @Override
+        public RateSchedule<Product> getProductRates() {
+            return rates;
+        }
+
+        @Override
+        public PricingTiers getPricingTiers() {
+            return tiers;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.wileyedge.flooring.benchmark;
+
+import com.wileyedge.flooring.dao.AuditDaoFileImpl;
+import com.wileyedge.flooring.dao.AuditReader;
+import com.wileyedge.flooring.dao.OrderChangeEncoder;
+import com.wileyedge.flooring.dao.OrderDao;
+import com.wileyedge.flooring.dao.OrderDaoFileImpl;
+import com.wileyedge.flooring.dto.Order;
+import com.wileyedge.flooring.dto.ReplayResult;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Measures how fast orders are rebuilt from a synthetic audit event log:
+ * one add per order, an edit for every fourth and a removal for every tenth.
+ * Not run by the test suite; run main with the test classpath.
+ * Arguments: [orders] [partitions] [iterations]
+ */
+public class ReplayBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int orderCount = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        int partitionCount = args.length > 1 ? Integer.parseInt(args[1]) : 1_000;
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+
+        File workFolder = Files.createTempDirectory("replay-benchmark").toFile();
+        File auditFile = new File(workFolder, "audit.txt");
+        OrderChangeEncoder encoder = new OrderChangeEncoder(true);
+        LocalDate firstDate = LocalDate.of(2025, 1, 1);
+
+        try (AuditDaoFileImpl audit = new AuditDaoFileImpl(auditFile.getPath())) {
+            for (int i = 1; i <= orderCount; i++) {
+                Order order = createOrder(i, firstDate.plusDays(i % partitionCount));
+                audit.writeAuditEntry(encoder.encodeAdd(order));
+                if (i % 4 == 0) {
+                    Order edited = new Order(order);
+                    edited.setCustomerName("Edited Customer " + i);
+                    audit.writeAuditEntry(encoder.encodeEdit(order, edited));
+                }
+                if (i % 10 == 0) {
+                    audit.writeAuditEntry(encoder.encodeRemove(order));
+                }
+            }
+            audit.flush();
+
+            for (int i = 1; i <= iterations; i++) {
+                OrderDao orderDao = new OrderDaoFileImpl(new File(workFolder, "Orders" + i).getPath());
+
+                ReplayResult result;
+                try (AuditReader events = audit.readAllEntries()) {
+                    result = orderDao.rebuildOrders(events);
+                }
+
+                System.out.printf("Run %d: %,d events -> %,d orders on %,d dates in %.3f s = %,.0f events/s%n",
+                        i, result.getEventsApplied(), result.getOrdersRebuilt(), result.getDatesRebuilt(),
+                        result.getElapsedMillis() / 1000.0, result.getEventsPerSecond());
+            }
+        }
+
+        try (Stream<Path> files = Files.walk(workFolder.toPath())) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private static Order createOrder(int orderNumber, LocalDate date) {
+        Order order = new Order();
+        order.setOrderNumber(orderNumber);
+        order.setCustomerName("Customer " + orderNumber);
+        order.setState("TX");
+        order.setTaxRate(new BigDecimal("4.45"));
+        order.setProductType("Tile");
+        order.setArea(new BigDecimal("100.00"));
+        order.setCostPerSquareFoot(new BigDecimal("3.50"));
+        order.setLaborCostPerSquareFoot(new BigDecimal("4.15"));
+        order.setMaterialCost(new BigDecimal("350.00"));
+        order.setLaborCost(new BigDecimal("415.00"));
+        order.setTax(new BigDecimal("34.04"));
+        order.setTotal(new BigDecimal("799.04"));
+        order.setOrderDate(date);
+        return order;
+    }
+}
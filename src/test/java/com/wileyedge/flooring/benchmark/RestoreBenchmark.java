@@ -0,0 +1,52 @@
+package com.wileyedge.flooring.benchmark;
+
+import com.wileyedge.flooring.dao.ExportDao;
+import com.wileyedge.flooring.dao.ExportDaoFileImpl;
+import com.wileyedge.flooring.dao.ExportReader;
+import com.wileyedge.flooring.dao.OrderDao;
+import com.wileyedge.flooring.dao.OrderDaoFileImpl;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Measures restore throughput from a synthetic export.
+ * Not run by the test suite; run main with the test classpath.
+ * Arguments: [orders] [partitions] [iterations]
+ */
+public class RestoreBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int orderCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int partitionCount = args.length > 1 ? Integer.parseInt(args[1]) : 1_000;
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+
+        File workFolder = Files.createTempDirectory("restore-benchmark").toFile();
+        File exportFile = new File(workFolder, "DataExport.txt");
+        ExportDao exportDao = new ExportDaoFileImpl(exportFile.getPath());
+        exportDao.exportAllData(new ExportBenchmark.SyntheticOrders(orderCount, partitionCount));
+        double megabytes = exportFile.length() / (1024.0 * 1024.0);
+
+        for (int i = 1; i <= iterations; i++) {
+            File orderFolder = new File(workFolder, "Orders" + i);
+            OrderDao orderDao = new OrderDaoFileImpl(orderFolder.getPath());
+
+            long start = System.nanoTime();
+            int restored;
+            try (ExportReader export = exportDao.openExport()) {
+                restored = orderDao.restoreOrders(export);
+            }
+            double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+            System.out.printf("Run %d: %,d orders, %.1f MB in %.3f s = %.1f MB/s, next order %d%n",
+                    i, restored, megabytes, seconds, megabytes / seconds, orderDao.getNextOrderNumber());
+        }
+
+        try (Stream<Path> files = Files.walk(workFolder.toPath())) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
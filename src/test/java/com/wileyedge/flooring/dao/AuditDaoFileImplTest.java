@@ -0,0 +1,190 @@
+package com.wileyedge.flooring.dao;
+
+import com.wileyedge.flooring.dto.AuditRecord;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class AuditDaoFileImplTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private File auditFile;
+    private AuditDaoFileImpl dao;
+
+    @Before
+    public void setUp() {
+        auditFile = new File(tempFolder.getRoot(), "audit.txt");
+        dao = new AuditDaoFileImpl(auditFile.getPath(), 64, 16, 1000, AuditBackpressure.BLOCK, false);
+    }
+
+    @After
+    public void tearDown() {
+        dao.close();
+    }
+
+    @Test
+    public void testFlushWritesPendingEntries() throws Exception {
+        // Act - the flush interval is long, so only flush gets the entry out quickly
+        dao.writeAuditEntry("Order 1 ADDED.");
+        dao.flush();
+        List<String> lines = Files.readAllLines(auditFile.toPath());
+
+        // Assert
+        assertEquals(1, lines.size());
+        assertTrue(lines.get(0).matches("\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}:\\d{2} : Order 1 ADDED\\."));
+    }
+
+    @Test
+    public void testEventModeIsOptIn() {
+        // Assert - changed fields only, unless configured otherwise
+        assertEquals(AuditMode.CHANGES, dao.getMode());
+
+        System.setProperty("flooring.auditMode", "events");
+        try (AuditDaoFileImpl eventDao = new AuditDaoFileImpl(new File(tempFolder.getRoot(), "events.txt")
+                .getPath())) {
+            assertEquals(AuditMode.EVENTS, eventDao.getMode());
+        } finally {
+            System.clearProperty("flooring.auditMode");
+        }
+    }
+
+    @Test
+    public void testRotatesIntoIndexedSegments() throws Exception {
+        // Arrange - segments of at most 200 bytes
+        dao.close();
+        dao = new AuditDaoFileImpl(auditFile.getPath(), 64, 16, 1000, AuditBackpressure.BLOCK, false, 200, true);
+
+        // Act
+        for (int i = 0; i < 20; i++) {
+            dao.writeAuditEntry("Order " + i + " ADDED.");
+        }
+        dao.close();
+
+        // Assert - every entry kept in order, across numbered segments with their own index
+        AuditSegmentStore store = new AuditSegmentStore(auditFile, 200, true);
+        List<File> segments = store.getSegments();
+        List<String> lines = new ArrayList<>();
+        for (File segment : segments) {
+            assertTrue(segment.length() <= 200);
+            lines.addAll(Files.readAllLines(segment.toPath()));
+        }
+
+        assertTrue(segments.size() > 1);
+        assertEquals(new File(tempFolder.getRoot(), "audit.000001.txt"), segments.get(0));
+        assertTrue(new File(tempFolder.getRoot(), "audit.000001.idx").exists());
+        assertEquals(20, lines.size());
+        for (int i = 0; i < 20; i++) {
+            assertTrue(lines.get(i).endsWith(" : Order " + i + " ADDED."));
+        }
+
+        long now = System.currentTimeMillis();
+        assertTrue(store.locate(0, 1).isEmpty());
+        assertEquals(segments.size(), store.locate(now - 60_000, now + 60_000).size());
+    }
+
+    @Test
+    public void testFindsEntriesByOrderNumberAndTime() throws Exception {
+        // Arrange - small segments, so one order's entries span several of them
+        dao.close();
+        dao = new AuditDaoFileImpl(auditFile.getPath(), 64, 16, 1000, AuditBackpressure.BLOCK, false, 200, true);
+        for (int i = 0; i < 30; i++) {
+            dao.writeAuditEntry("Order " + (i % 3 + 1) + " EDITED " + i + ".");
+        }
+        dao.writeAuditEntry("Order 12 ADDED.");
+        dao.writeAuditEntry("All data EXPORTED.");
+
+        // Act
+        List<String> orderTwo = readAll(dao.findEntriesForOrder(2));
+        List<String> orderOne = readAll(dao.findEntriesForOrder(1));
+
+        // Assert - only that order's entries, in the order they were written
+        assertEquals(10, orderTwo.size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals("Order 2 EDITED " + (i * 3 + 1) + ".", orderTwo.get(i));
+        }
+        assertEquals(10, orderOne.size());
+        assertEquals("Order 1 EDITED 0.", orderOne.get(0));
+        assertEquals(1, readAll(dao.findEntriesForOrder(12)).size());
+        assertTrue(readAll(dao.findEntriesForOrder(99)).isEmpty());
+
+        // Act - reopen without the order index, so it is rebuilt from the log
+        dao.close();
+        assertTrue(new File(tempFolder.getRoot(), "audit.orders.idx").delete());
+        dao = new AuditDaoFileImpl(auditFile.getPath(), 64, 16, 1000, AuditBackpressure.BLOCK, false, 200, true);
+        dao.writeAuditEntry("Order 2 REMOVED.");
+
+        // Assert
+        orderTwo = readAll(dao.findEntriesForOrder(2));
+        assertEquals(11, orderTwo.size());
+        assertEquals("Order 2 REMOVED.", orderTwo.get(10));
+
+        LocalDateTime now = LocalDateTime.now();
+        assertEquals(33, readAll(dao.findEntriesBetween(now.minusMinutes(1), now.plusMinutes(1))).size());
+        assertTrue(readAll(dao.findEntriesBetween(now.minusDays(2), now.minusDays(1))).isEmpty());
+    }
+
+    @Test
+    public void testConcurrentWritersLoseNothingOnClose() throws Exception {
+        // Arrange - far more entries than the buffer holds
+        int threadCount = 4;
+        int entriesPerThread = 2000;
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < threadCount; t++) {
+            int writer = t;
+            writers.add(new Thread(() -> {
+                try {
+                    for (int i = 0; i < entriesPerThread; i++) {
+                        dao.writeAuditEntry("Writer " + writer + " entry " + i);
+                    }
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }));
+        }
+
+        // Act
+        for (Thread writer : writers) {
+            writer.start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        dao.close();
+
+        // Assert
+        List<String> lines = Files.readAllLines(auditFile.toPath());
+        Set<String> entries = new HashSet<>();
+        for (String line : lines) {
+            entries.add(line.substring(line.indexOf(" : ") + 3));
+        }
+        assertEquals(threadCount * entriesPerThread, lines.size());
+        assertEquals(threadCount * entriesPerThread, entries.size());
+        assertEquals(0, dao.getDroppedEntries());
+    }
+
+    private List<String> readAll(AuditReader reader) throws Exception {
+        List<String> entries = new ArrayList<>();
+        try (AuditReader entriesRead = reader) {
+            AuditRecord record;
+            while ((record = entriesRead.readEntry()) != null) {
+                assertNotNull(record.getTimestamp());
+                entries.add(record.getEntry());
+            }
+        }
+        return entries;
+    }
+}
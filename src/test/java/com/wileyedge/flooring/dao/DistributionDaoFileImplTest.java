@@ -0,0 +1,176 @@
+package com.wileyedge.flooring.dao;
+
+import com.wileyedge.flooring.dto.Order;
+import com.wileyedge.flooring.dto.OrderDistribution;
+import com.wileyedge.flooring.dto.PartitionSummary;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class DistributionDaoFileImplTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private File distributionFile;
+    private DistributionDao dao;
+
+    @Before
+    public void setUp() {
+        distributionFile = new File(tempFolder.getRoot(), "Distributions.txt");
+        dao = new DistributionDaoFileImpl(distributionFile.getPath());
+    }
+
+    @Test
+    public void testBucketsPlaceEveryValueWithinOnePercent() {
+        // Up to $100 million in cents
+        Random random = new Random(49);
+        for (int i = 0; i < 100_000; i++) {
+            long value = i < 1_000 ? i : (long) Math.pow(10, 10 * random.nextDouble());
+            int bucket = OrderHistogram.bucketFor(value);
+            long lowest = OrderHistogram.lowestValueOf(bucket);
+
+            assertTrue(value + " below its bucket", lowest <= value);
+            assertTrue(value + " above its bucket", value < OrderHistogram.lowestValueOf(bucket + 1));
+            assertTrue(value + " too far from its bucket", value - lowest <= value / 64);
+        }
+        assertEquals(OrderHistogram.BUCKETS - 1, OrderHistogram.bucketFor(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testSparseBucketsAddUpLikeCounts() {
+        // Arrange - values added and taken out again across two histograms
+        OrderHistogram first = new OrderHistogram();
+        OrderHistogram second = new OrderHistogram();
+        Map<Integer, Integer> expected = new TreeMap<>();
+        List<Long> recorded = new ArrayList<>();
+        Random random = new Random(49);
+
+        // Act
+        for (int i = 0; i < 5_000; i++) {
+            OrderHistogram histogram = i % 2 == 0 ? first : second;
+            long value;
+            int change = 1;
+            if (!recorded.isEmpty() && random.nextInt(3) == 0) {
+                value = recorded.remove(random.nextInt(recorded.size()));
+                change = -1;
+            } else {
+                value = (long) Math.pow(10, 6 * random.nextDouble());
+                recorded.add(value);
+            }
+            histogram.record(value, change);
+            expected.merge(OrderHistogram.bucketFor(value), change, Integer::sum);
+        }
+        first.merge(second);
+
+        // Assert
+        StringJoiner marshalled = new StringJoiner(";");
+        expected.forEach((bucket, count) -> {
+            if (count != 0) {
+                marshalled.add(bucket + ":" + count);
+            }
+        });
+        assertEquals(recorded.size(), first.getCount());
+        assertEquals(marshalled.toString(), first.marshall());
+        assertEquals(first.marshall(), OrderHistogram.unmarshall(first.marshall()).marshall());
+    }
+
+    @Test
+    public void testChangesAreJournaledUntilCompacted() throws Exception {
+        // Arrange - a file rewritten after every four journal lines
+        LocalDate date = LocalDate.of(2025, 12, 1);
+        File journalFile = new File(distributionFile.getPath() + ".journal");
+        DistributionDao journaled = new DistributionDaoFileImpl(distributionFile.getPath(), 4);
+        journaled.rebuild(OrderSnapshot.of(Collections.singletonMap(date,
+                Collections.singletonMap(1, order(1, date, "100.00", "10.00")))));
+        byte[] compacted = Files.readAllBytes(distributionFile.toPath());
+
+        // Act
+        journaled.recordChange(null, order(2, date, "200.00", "20.00"));
+        journaled.recordChange(null, order(3, date, "300.00", "30.00"));
+        byte[] beforeCompacting = Files.readAllBytes(distributionFile.toPath());
+        int reopenedCount = new DistributionDaoFileImpl(distributionFile.getPath())
+                .getDistribution(date, date).getOrderCount();
+        journaled.recordChange(order(2, date, "200.00", "20.00"), null);
+        journaled.recordChange(order(3, date, "300.00", "30.00"), order(3, date, "3000.00", "30.00"));
+
+        // Assert
+        assertArrayEquals(compacted, beforeCompacting);
+        assertEquals(3, reopenedCount);
+        assertFalse(journalFile.exists());
+        OrderDistribution afterCompacting = new DistributionDaoFileImpl(distributionFile.getPath())
+                .getDistribution(date, date);
+        assertEquals(2, afterCompacting.getOrderCount());
+        assertWithinOnePercent(new BigDecimal("3000.00"), afterCompacting.getTotalP99());
+    }
+
+    @Test
+    public void testPercentilesSurviveChangesAndReopening() throws Exception {
+        // Arrange - totals of 1 to 1000 dollars spread over ten dates
+        LocalDate firstDate = LocalDate.of(2025, 12, 1);
+        for (int i = 1; i <= 1000; i++) {
+            dao.recordChange(null, order(i, firstDate.plusDays(i % 10), i + ".00", "100.00"));
+        }
+        Order large = order(1001, firstDate, "1000000.00", "9000.00");
+        Order corrected = new Order(large);
+        corrected.setTotal(new BigDecimal("500.00"));
+
+        // Act
+        dao.recordChange(null, large);
+        dao.recordChanges(Collections.singletonList(large), Collections.singletonList(corrected));
+        dao.recordChange(corrected, null);
+        DistributionDao reopened = new DistributionDaoFileImpl(distributionFile.getPath());
+        OrderDistribution distribution = reopened.getDistribution(firstDate, firstDate.plusDays(9));
+
+        // Assert
+        assertEquals(1000, distribution.getOrderCount());
+        assertWithinOnePercent(new BigDecimal("500.00"), distribution.getTotalP50());
+        assertWithinOnePercent(new BigDecimal("950.00"), distribution.getTotalP95());
+        assertWithinOnePercent(new BigDecimal("990.00"), distribution.getTotalP99());
+        assertWithinOnePercent(new BigDecimal("100.00"), distribution.getAreaP99());
+        assertEquals(100, reopened.getDistribution(firstDate, firstDate).getOrderCount());
+    }
+
+    @Test
+    public void testRebuildsWhenOrdersDisagree() throws Exception {
+        // Arrange - histograms saved before a second order was written by hand
+        LocalDate date = LocalDate.of(2025, 12, 1);
+        Map<Integer, Order> orders = new HashMap<>();
+        orders.put(1, order(1, date, "100.00", "10.00"));
+        dao.recordChange(null, orders.get(1));
+        orders.put(2, order(2, date, "300.00", "30.00"));
+        List<PartitionSummary> partitions = Collections.singletonList(
+                new PartitionSummary(date, 2, 1, 2, new BigDecimal("400.00"), 0, 0));
+
+        // Act
+        boolean before = dao.isConsistentWith(partitions);
+        dao.rebuild(OrderSnapshot.of(Collections.singletonMap(date, orders)));
+
+        // Assert
+        assertFalse(before);
+        assertTrue(dao.isConsistentWith(partitions));
+        assertWithinOnePercent(new BigDecimal("300.00"), dao.getDistribution(date, date).getTotalP99());
+    }
+
+    private static void assertWithinOnePercent(BigDecimal expected, BigDecimal actual) {
+        BigDecimal error = actual.subtract(expected).abs();
+        assertTrue(expected + " but was " + actual, error.compareTo(expected.movePointLeft(2)) <= 0);
+    }
+
+    private Order order(int orderNumber, LocalDate date, String total, String area) {
+        Order order = new Order(orderNumber);
+        order.setOrderDate(date);
+        order.setArea(new BigDecimal(area));
+        order.setTotal(new BigDecimal(total));
+        return order;
+    }
+}
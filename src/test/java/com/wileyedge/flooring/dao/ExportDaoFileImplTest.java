@@ -0,0 +1,267 @@
+package com.wileyedge.flooring.dao;
+
+import com.wileyedge.flooring.dto.ExportProgress;
+import com.wileyedge.flooring.dto.Order;
+import com.wileyedge.flooring.dto.PartitionSummary;
+import com.wileyedge.flooring.exceptions.ExportCancelledException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class ExportDaoFileImplTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private File exportFile;
+    private ExportDao dao;
+
+    @Before
+    public void setUp() throws Exception {
+        exportFile = new File(tempFolder.getRoot(), "DataExport.txt");
+        dao = new ExportDaoFileImpl(exportFile.getPath());
+    }
+
+    @Test
+    public void testExportMatchesTextFormat() throws Exception {
+        // Arrange
+        Order order = new Order(12);
+        order.setCustomerName("Ada Lovelace");
+        order.setState("CA");
+        order.setTaxRate(new BigDecimal("25.00"));
+        order.setProductType("Tile");
+        order.setArea(new BigDecimal("411.0"));
+        order.setCostPerSquareFoot(new BigDecimal("3.50"));
+        order.setLaborCostPerSquareFoot(new BigDecimal("4.15"));
+        order.setMaterialCost(new BigDecimal("1438.50"));
+        order.setLaborCost(new BigDecimal("0.05"));
+        order.setTax(new BigDecimal("1E+3"));
+        order.setTotal(new BigDecimal("-3930.19"));
+        order.setOrderDate(LocalDate.of(2026, 1, 1));
+
+        Map<Integer, Order> partition = new HashMap<>();
+        partition.put(order.getOrderNumber(), order);
+        Map<LocalDate, Map<Integer, Order>> allOrders = new HashMap<>();
+        allOrders.put(order.getOrderDate(), partition);
+
+        // Act
+        dao.exportAllData(allOrders);
+        List<String> lines = Files.readAllLines(exportFile.toPath());
+
+        // Assert
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(0).startsWith("OrderNumber,CustomerName,"));
+        assertEquals("12,Ada Lovelace,CA,25.00,Tile,411.0,3.50,4.15,1438.50,0.05,1E+3,-3930.19,01-01-2026",
+                lines.get(1));
+    }
+
+    @Test
+    public void testExportIsSortedAndRepeatable() throws Exception {
+        // Arrange - partitions and orders inserted out of order
+        Map<LocalDate, Map<Integer, Order>> allOrders = new HashMap<>();
+        int[][] layout = {{20, 3, 1}, {5, 9, 2}, {11, 4, 8}};
+        for (int day = 0; day < layout.length; day++) {
+            LocalDate date = LocalDate.of(2025, 12, 3 - day);
+            Map<Integer, Order> partition = new HashMap<>();
+            for (int orderNumber : layout[day]) {
+                partition.put(orderNumber, createTestOrder(orderNumber, date));
+            }
+            allOrders.put(date, partition);
+        }
+
+        // Act
+        dao.exportAllData(allOrders);
+        byte[] firstRun = Files.readAllBytes(exportFile.toPath());
+        dao.exportAllData(allOrders);
+        byte[] secondRun = Files.readAllBytes(exportFile.toPath());
+        List<String> lines = Files.readAllLines(exportFile.toPath());
+
+        // Assert
+        assertArrayEquals(firstRun, secondRun);
+        assertEquals(10, lines.size());
+        String[] expectedOrder = {"4", "8", "11", "2", "5", "9", "1", "3", "20"};
+        for (int i = 0; i < expectedOrder.length; i++) {
+            assertEquals(expectedOrder[i], lines.get(i + 1).split(",")[0]);
+        }
+        assertTrue(lines.get(1).endsWith("12-01-2025"));
+        assertTrue(lines.get(9).endsWith("12-03-2025"));
+    }
+
+    @Test
+    public void testIncrementalExportConsolidatesToFullExport() throws Exception {
+        // Arrange - three partitions exported in full
+        LocalDate first = LocalDate.of(2025, 12, 1);
+        LocalDate second = LocalDate.of(2025, 12, 2);
+        LocalDate third = LocalDate.of(2025, 12, 3);
+        TestSource source = new TestSource();
+        source.put(first, 1L, createTestOrder(1, first));
+        source.put(second, 2L, createTestOrder(2, second));
+        dao.exportAllData(source);
+
+        // Act - nothing changed, then one edit, one new date and one removal
+        int unchanged = dao.exportChangedData(source);
+        source.put(second, 3L, createTestOrder(2, second), createTestOrder(4, second));
+        source.put(third, 4L, createTestOrder(3, third));
+        source.remove(first);
+        int changed = dao.exportChangedData(source);
+        dao.consolidateExports();
+        byte[] consolidated = Files.readAllBytes(exportFile.toPath());
+
+        dao.exportAllData(source);
+        byte[] fullExport = Files.readAllBytes(exportFile.toPath());
+
+        // Assert
+        assertEquals(0, unchanged);
+        assertEquals(3, changed);
+        assertArrayEquals(fullExport, consolidated);
+        assertFalse(new File(tempFolder.getRoot(), "DataExport.deltas.txt").exists());
+        assertFalse(new File(tempFolder.getRoot(), "DataExport.delta-000001.txt").exists());
+    }
+
+    @Test
+    public void testCancelledExportKeepsPreviousExport() throws Exception {
+        // Arrange - a completed export, then a second run that is cancelled part way
+        LocalDate first = LocalDate.of(2025, 12, 1);
+        LocalDate second = LocalDate.of(2025, 12, 2);
+        TestSource source = new TestSource();
+        source.put(first, 1L, createTestOrder(1, first), createTestOrder(2, first));
+        ExportProgress progress = new ExportProgress();
+        dao.exportAllData(source, progress);
+        byte[] previousExport = Files.readAllBytes(exportFile.toPath());
+
+        ExportProgress cancelled = new ExportProgress();
+        TestSource cancellingSource = new TestSource() {
+            @Override
+            public List<Order> getOrdersForDate(LocalDate date) {
+                cancelled.cancel();
+                return super.getOrdersForDate(date);
+            }
+        };
+        cancellingSource.put(first, 1L, createTestOrder(1, first));
+        cancellingSource.put(second, 2L, createTestOrder(3, second));
+
+        // Act
+        try {
+            dao.exportAllData(cancellingSource, cancelled);
+            fail("Expected the export to be cancelled");
+        } catch (ExportCancelledException e) {
+            // Expected
+        }
+
+        // Assert
+        assertEquals(1, progress.getTotalPartitions());
+        assertEquals(1, progress.getPartitionsDone());
+        assertEquals(2, progress.getRowsDone());
+        assertArrayEquals(previousExport, Files.readAllBytes(exportFile.toPath()));
+        assertFalse(new File(exportFile.getPath() + ".tmp").exists());
+    }
+
+    @Test
+    public void testCompressedChunkedExportReadsBack() throws Exception {
+        // Arrange - a plain export to compare against
+        TestSource source = new TestSource();
+        for (int day = 1; day <= 20; day++) {
+            LocalDate date = LocalDate.of(2025, 11, day);
+            source.put(date, day, createTestOrder(day * 2, date), createTestOrder(day * 2 + 1, date));
+        }
+        dao.exportAllData(source);
+        List<String> expected = Files.readAllLines(exportFile.toPath());
+        expected.remove(0);
+
+        // Act - gzip in chunks of roughly 1 KB, then deflate as one file
+        ExportDao gzipDao = new ExportDaoFileImpl(exportFile.getPath(), ExportCompression.GZIP, 9, 1024);
+        gzipDao.exportAllData(source);
+        List<String> sequential = new ArrayList<>();
+        ExportReader reader = gzipDao.openExport();
+        String row;
+        while ((row = reader.readRow()) != null) {
+            sequential.add(row);
+        }
+        reader.close();
+        List<List<String>> parallel = gzipDao.openExport().readPartsInParallel(rows -> {
+            List<String> partRows = new ArrayList<>();
+            String partRow;
+            while ((partRow = rows.readLine()) != null) {
+                partRows.add(partRow);
+            }
+            return partRows;
+        });
+        int chunkCount = reader.getParts().size();
+
+        ExportDao deflateDao = new ExportDaoFileImpl(exportFile.getPath(), ExportCompression.DEFLATE, 1, 0);
+        deflateDao.exportAllData(source);
+        ExportReader deflateReader = deflateDao.openExport();
+        String firstDeflatedRow = deflateReader.readRow();
+        deflateReader.close();
+
+        // Assert
+        assertTrue(chunkCount > 1);
+        assertEquals(expected, sequential);
+        List<String> joined = new ArrayList<>();
+        for (List<String> partRows : parallel) {
+            joined.addAll(partRows);
+        }
+        assertEquals(expected, joined);
+        assertEquals(expected.get(0), firstDeflatedRow);
+        assertEquals(1, deflateReader.getParts().size());
+        assertFalse(exportFile.exists());
+        assertFalse(new File(tempFolder.getRoot(), "DataExport.part-0001.txt.gz").exists());
+    }
+
+    private Order createTestOrder(int orderNumber, LocalDate date) {
+        Order order = new Order(orderNumber);
+        order.setCustomerName("Test Customer " + orderNumber);
+        order.setState("TX");
+        order.setTaxRate(new BigDecimal("4.45"));
+        order.setProductType("Tile");
+        order.setArea(new BigDecimal("100.00"));
+        order.setCostPerSquareFoot(new BigDecimal("3.50"));
+        order.setLaborCostPerSquareFoot(new BigDecimal("4.15"));
+        order.setMaterialCost(new BigDecimal("350.00"));
+        order.setLaborCost(new BigDecimal("415.00"));
+        order.setTax(new BigDecimal("34.04"));
+        order.setTotal(new BigDecimal("799.04"));
+        order.setOrderDate(date);
+        return order;
+    }
+
+    // Partition source with explicit checksums standing in for the order manifest
+    private static class TestSource implements OrderPartitionSource {
+        private final Map<LocalDate, List<Order>> partitions = new HashMap<>();
+        private final Map<LocalDate, Long> checksums = new HashMap<>();
+
+        void put(LocalDate date, long checksum, Order... orders) {
+            partitions.put(date, Arrays.asList(orders));
+            checksums.put(date, checksum);
+        }
+
+        void remove(LocalDate date) {
+            partitions.remove(date);
+            checksums.remove(date);
+        }
+
+        @Override
+        public List<PartitionSummary> getPartitions() {
+            List<PartitionSummary> summaries = new ArrayList<>();
+            for (LocalDate date : partitions.keySet()) {
+                summaries.add(new PartitionSummary(date, partitions.get(date).size(), 0, 0,
+                        BigDecimal.ZERO, 0, checksums.get(date)));
+            }
+            return summaries;
+        }
+
+        @Override
+        public List<Order> getOrdersForDate(LocalDate date) {
+            return partitions.get(date);
+        }
+    }
+}
@@ -1,18 +1,33 @@
 package com.wileyedge.flooring.dao;
 
 import com.wileyedge.flooring.dto.Order;
+import com.wileyedge.flooring.dto.OrderFilter;
+import com.wileyedge.flooring.dto.PartitionSummary;
+import com.wileyedge.flooring.dto.PivotRow;
+import com.wileyedge.flooring.dto.ReplayResult;
+import com.wileyedge.flooring.dto.RevenueTotals;
 import com.wileyedge.flooring.exceptions.NoSuchOrderException;
 import com.wileyedge.flooring.exceptions.PersistenceException;
 import org.junit.After;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import java.io.File;
 import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
 
 import static org.junit.Assert.*;
 
@@ -20,6 +35,9 @@ public class OrderDaoFileImplTest {
 
     private OrderDao dao;
 
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
     @Before
     public void setUp() throws Exception {
         // Use a stub implementation for testing
@@ -130,6 +148,317 @@ public class OrderDaoFileImplTest {
         assertTrue(firstOrderNumber >= 1);
     }
 
+    @Test
+    public void testManifestTracksPartitions() throws Exception {
+        // Arrange - a file backed dao writing into a scratch folder
+        File folder = tempFolder.newFolder("Orders");
+        OrderDao fileDao = new OrderDaoFileImpl(folder.getPath());
+        LocalDate firstDate = LocalDate.of(2025, 12, 1);
+        LocalDate secondDate = LocalDate.of(2025, 12, 2);
+
+        // Act
+        fileDao.addOrder(createTestOrder(1, firstDate));
+        fileDao.addOrder(createTestOrder(2, firstDate));
+        fileDao.addOrder(createTestOrder(7, secondDate));
+        fileDao.removeOrder(firstDate, 1);
+
+        // Assert - a fresh dao answers from the manifest alone
+        OrderDao reopened = new OrderDaoFileImpl(folder.getPath());
+        List<PartitionSummary> summaries = reopened.getPartitionSummaries();
+
+        assertTrue(new File(folder, "Manifest.txt").exists());
+        assertEquals(2, summaries.size());
+        assertEquals(firstDate, summaries.get(0).getOrderDate());
+        assertEquals(1, summaries.get(0).getOrderCount());
+        assertEquals(2, summaries.get(0).getMinOrderNumber());
+        assertEquals(new BigDecimal("799.04"), summaries.get(0).getTotalRevenue());
+        assertEquals(7, summaries.get(1).getMaxOrderNumber());
+        assertEquals(8, reopened.getNextOrderNumber());
+    }
+
+    @Test
+    public void testSnapshotIgnoresLaterWrites() throws Exception {
+        // Arrange
+        File folder = tempFolder.newFolder("Orders");
+        OrderDao fileDao = new OrderDaoFileImpl(folder.getPath());
+        LocalDate firstDate = LocalDate.of(2025, 12, 1);
+        LocalDate secondDate = LocalDate.of(2025, 12, 2);
+        fileDao.addOrder(createTestOrder(1, firstDate));
+        fileDao.addOrder(createTestOrder(2, firstDate));
+
+        // Act - change the data after the snapshot is taken
+        try (OrderSnapshot snapshot = fileDao.getSnapshot()) {
+            Order edited = createTestOrder(1, firstDate);
+            edited.setCustomerName("Edited Customer");
+            fileDao.editOrder(edited);
+            fileDao.removeOrder(firstDate, 2);
+            fileDao.addOrder(createTestOrder(3, firstDate));
+            fileDao.addOrder(createTestOrder(4, secondDate));
+
+            // Assert - the snapshot still shows the data as it was
+            assertEquals(1, snapshot.getPartitions().size());
+            List<Order> snapshotOrders = snapshot.getOrdersForDate(firstDate);
+            snapshotOrders.sort(Comparator.comparingInt(Order::getOrderNumber));
+            assertEquals(2, snapshotOrders.size());
+            assertEquals("Test Customer 1", snapshotOrders.get(0).getCustomerName());
+            assertEquals(2, snapshotOrders.get(1).getOrderNumber());
+            assertTrue(snapshot.getOrdersForDate(secondDate).isEmpty());
+        }
+
+        // The live view has every write
+        assertEquals(2, fileDao.getOrdersForDate(firstDate).size());
+        assertEquals("Edited Customer", fileDao.getOrder(firstDate, 1).getCustomerName());
+        assertEquals(1, fileDao.getOrdersForDate(secondDate).size());
+    }
+
+    @Test
+    public void testRestoreFromExport() throws Exception {
+        // Arrange - an existing order, and an export whose dates are out of order
+        File folder = tempFolder.newFolder("Orders");
+        OrderDao fileDao = new OrderDaoFileImpl(folder.getPath());
+        LocalDate firstDate = LocalDate.of(2025, 12, 1);
+        LocalDate secondDate = LocalDate.of(2025, 12, 2);
+        LocalDate untouchedDate = LocalDate.of(2025, 12, 3);
+        fileDao.addOrder(createTestOrder(1, firstDate));
+        fileDao.addOrder(createTestOrder(2, untouchedDate));
+
+        File exportFile = new File(tempFolder.getRoot(), "DataExport.txt");
+        Files.write(exportFile.toPath(), Arrays.asList(
+                "OrderNumber,CustomerName,State,TaxRate,ProductType,Area,CostPerSquareFoot," +
+                        "LaborCostPerSquareFoot,MaterialCost,LaborCost,Tax,Total,OrderDate",
+                "10,Restored Ten,TX,4.45,Tile,100.00,3.50,4.15,350.00,415.00,34.04,799.04,12-01-2025",
+                "30,Restored Thirty,TX,4.45,Tile,100.00,3.50,4.15,350.00,415.00,34.04,799.04,12-02-2025",
+                "20,Restored Twenty,TX,4.45,Tile,100.00,3.50,4.15,350.00,415.00,34.04,799.04,12-01-2025"));
+
+        // Act
+        int restored;
+        try (ExportReader export = ExportReader.open(exportFile.getPath())) {
+            restored = fileDao.restoreOrders(export);
+        }
+
+        // Assert - restored dates are replaced, others kept, and a fresh dao agrees
+        OrderDao reopened = new OrderDaoFileImpl(folder.getPath());
+        assertEquals(3, restored);
+        assertEquals(2, fileDao.getOrdersForDate(firstDate).size());
+        assertEquals("Restored Twenty", fileDao.getOrder(firstDate, 20).getCustomerName());
+        assertEquals(1, reopened.getOrdersForDate(secondDate).size());
+        assertEquals(1, reopened.getOrdersForDate(untouchedDate).size());
+        assertEquals(new BigDecimal("1598.08"), reopened.getPartitionSummaries().get(0).getTotalRevenue());
+        assertEquals(31, reopened.getNextOrderNumber());
+        assertEquals(4, folder.listFiles((dir, name) -> !name.endsWith(".summary")).length);
+    }
+
+    @Test
+    public void testRebuildFromAuditEvents() throws Exception {
+        // Arrange - orders saved alongside their audit events
+        File folder = tempFolder.newFolder("Orders");
+        OrderDao fileDao = new OrderDaoFileImpl(folder.getPath());
+        AuditDaoFileImpl audit = new AuditDaoFileImpl(new File(tempFolder.getRoot(), "audit.txt").getPath());
+        OrderChangeEncoder encoder = new OrderChangeEncoder(true);
+        LocalDate firstDate = LocalDate.of(2025, 12, 1);
+        LocalDate emptiedDate = LocalDate.of(2025, 12, 2);
+        LocalDate untouchedDate = LocalDate.of(2025, 12, 3);
+        LocalDate incompleteDate = LocalDate.of(2025, 12, 4);
+
+        try {
+            for (Order order : Arrays.asList(createTestOrder(1, firstDate), createTestOrder(2, firstDate),
+                    createTestOrder(3, emptiedDate))) {
+                fileDao.addOrder(order);
+                audit.writeAuditEntry(encoder.encodeAdd(order));
+            }
+            Order edited = new Order(fileDao.getOrder(firstDate, 2));
+            edited.setCustomerName("Edited \"Two\"");
+            audit.writeAuditEntry(encoder.encodeEdit(fileDao.getOrder(firstDate, 2), edited));
+            fileDao.editOrder(edited);
+            audit.writeAuditEntry(encoder.encodeRemove(fileDao.removeOrder(emptiedDate, 3)));
+            audit.writeAuditEntry("All data EXPORTED.");
+
+            // Orders the log never saw added
+            fileDao.addOrder(createTestOrder(4, untouchedDate));
+            fileDao.addOrder(createTestOrder(5, incompleteDate));
+            audit.writeAuditEntry(encoder.encodeRemove(createTestOrder(6, incompleteDate)));
+
+            // Lose a partition
+            assertTrue(new File(folder, "Orders_12012025.txt").delete());
+
+            // Act
+            OrderDao rebuiltDao = new OrderDaoFileImpl(folder.getPath());
+            ReplayResult result;
+            try (AuditReader events = audit.readAllEntries()) {
+                result = rebuiltDao.rebuildOrders(events);
+            }
+
+            // Assert - logged dates rebuilt, others left alone
+            assertEquals(5, result.getEventsApplied());
+            assertEquals(2, result.getEventsSkipped());
+            assertEquals(2, result.getDatesRebuilt());
+            assertEquals(1, result.getDatesSkipped());
+            assertEquals(2, result.getOrdersRebuilt());
+
+            OrderDao reopened = new OrderDaoFileImpl(folder.getPath());
+            assertEquals(2, reopened.getOrdersForDate(firstDate).size());
+            assertEquals(createTestOrder(1, firstDate), reopened.getOrder(firstDate, 1));
+            assertEquals(edited, reopened.getOrder(firstDate, 2));
+            assertTrue(reopened.getOrdersForDate(emptiedDate).isEmpty());
+            assertEquals(1, reopened.getOrdersForDate(untouchedDate).size());
+            assertEquals(1, reopened.getOrdersForDate(incompleteDate).size());
+        } finally {
+            audit.close();
+        }
+    }
+
+    @Test
+    public void testEditOrdersOnlyIfUnchangedSinceRead() throws Exception {
+        // Arrange - both orders read, then one edited by someone else
+        File folder = tempFolder.newFolder("Orders");
+        OrderDao fileDao = new OrderDaoFileImpl(folder.getPath());
+        LocalDate date = LocalDate.of(2025, 12, 1);
+        fileDao.addOrder(createTestOrder(1, date));
+        fileDao.addOrder(createTestOrder(2, date));
+        List<Order> previous = Arrays.asList(fileDao.getOrder(date, 1), fileDao.getOrder(date, 2));
+        List<Order> edited = new java.util.ArrayList<>();
+        for (Order order : previous) {
+            Order copy = new Order(order);
+            copy.setCustomerName("Repriced");
+            edited.add(copy);
+        }
+        Order meanwhile = new Order(previous.get(1));
+        meanwhile.setCustomerName("Meanwhile");
+        fileDao.editOrder(meanwhile);
+
+        // Act
+        boolean staleSaved = fileDao.editOrders(date, previous, edited);
+        boolean freshSaved = fileDao.editOrders(date, Collections.singletonList(previous.get(0)),
+                Collections.singletonList(edited.get(0)));
+
+        // Assert - nothing written from the stale read, then the fresh one goes through
+        assertFalse(staleSaved);
+        assertTrue(freshSaved);
+        OrderDao reopened = new OrderDaoFileImpl(folder.getPath());
+        assertEquals("Repriced", reopened.getOrder(date, 1).getCustomerName());
+        assertEquals("Meanwhile", reopened.getOrder(date, 2).getCustomerName());
+    }
+
+    @Test
+    public void testRebuildKeepsOrdersTheLogNeverAdded() throws Exception {
+        // Arrange - two orders saved before events were logged, then one of them edited
+        File folder = tempFolder.newFolder("Orders");
+        OrderDao fileDao = new OrderDaoFileImpl(folder.getPath());
+        AuditDaoFileImpl audit = new AuditDaoFileImpl(new File(tempFolder.getRoot(), "audit.txt").getPath());
+        OrderChangeEncoder encoder = new OrderChangeEncoder(true);
+        LocalDate date = LocalDate.of(2013, 6, 2);
+        fileDao.addOrder(createTestOrder(2, date));
+        fileDao.addOrder(createTestOrder(3, date));
+
+        try {
+            Order edited = new Order(fileDao.getOrder(date, 2));
+            edited.setCustomerName("Edited Two");
+            audit.writeAuditEntry(encoder.encodeEdit(fileDao.getOrder(date, 2), edited));
+            fileDao.editOrder(edited);
+
+            // Act
+            ReplayResult result;
+            try (AuditReader events = audit.readAllEntries()) {
+                result = new OrderDaoFileImpl(folder.getPath()).rebuildOrders(events);
+            }
+
+            // Assert - the edited order is replayed and the other one kept
+            OrderDao reopened = new OrderDaoFileImpl(folder.getPath());
+            assertEquals(1, result.getDatesRebuilt());
+            assertEquals(2, reopened.getOrdersForDate(date).size());
+            assertEquals(edited, reopened.getOrder(date, 2));
+            assertEquals(createTestOrder(3, date), reopened.getOrder(date, 3));
+        } finally {
+            audit.close();
+        }
+    }
+
+    @Test
+    public void testDailyTotalsComeFromSidecars() throws Exception {
+        // Arrange
+        File folder = tempFolder.newFolder("Orders");
+        OrderDao fileDao = new OrderDaoFileImpl(folder.getPath());
+        LocalDate firstDate = LocalDate.of(2025, 12, 1);
+        LocalDate secondDate = LocalDate.of(2025, 12, 2);
+        LocalDate laterDate = LocalDate.of(2025, 12, 5);
+        fileDao.addOrder(createTestOrder(1, firstDate));
+        fileDao.addOrder(createTestOrder(2, firstDate));
+        fileDao.addOrder(createTestOrder(3, secondDate));
+        fileDao.addOrder(createTestOrder(4, laterDate));
+        File firstSidecar = new File(folder, "Orders_12012025.summary");
+        File laterSidecar = new File(folder, "Orders_12052025.summary");
+        assertTrue(firstSidecar.exists());
+
+        // Act - one sidecar left from other contents of its partition, one lost
+        Files.copy(new File(folder, "Orders_12022025.summary").toPath(), firstSidecar.toPath(),
+                StandardCopyOption.REPLACE_EXISTING);
+        Files.delete(laterSidecar.toPath());
+        OrderDao reopened = new OrderDaoFileImpl(folder.getPath());
+        Map<LocalDate, RevenueTotals> totals = reopened.getDailyTotals(firstDate, secondDate);
+
+        // Assert
+        assertEquals(Arrays.asList(firstDate, secondDate), new java.util.ArrayList<>(totals.keySet()));
+        assertEquals(2, totals.get(firstDate).getOrderCount());
+        assertEquals(new BigDecimal("1598.08"), totals.get(firstDate).getTotal());
+        assertEquals(new BigDecimal("350.00"), totals.get(secondDate).getMaterialCost());
+        assertEquals(3, reopened.getPartitionSummaries().size());
+        // Sidecars are only summed again when a report needs them
+        assertFalse(laterSidecar.exists());
+        assertEquals(1, reopened.getDailyTotals(laterDate, laterDate).get(laterDate).getOrderCount());
+        assertTrue(laterSidecar.exists());
+    }
+
+    @Test
+    public void testPivotMatchesOrders() throws Exception {
+        // Arrange - orders over enough dates to be read by several tasks
+        File folder = tempFolder.newFolder("Orders");
+        OrderDao fileDao = new OrderDaoFileImpl(folder.getPath());
+        Random random = new Random(11);
+        String[] states = {"TX", "CA", "WA"};
+        String[] products = {"Tile", "Wood"};
+        LocalDate from = LocalDate.of(2025, 12, 10);
+        LocalDate to = LocalDate.of(2026, 1, 20);
+        Map<List<String>, BigDecimal> expectedTotals = new TreeMap<>(Comparator.comparing(Object::toString));
+        Map<List<String>, Integer> expectedCounts = new HashMap<>();
+        BigDecimal grandTotal = BigDecimal.ZERO;
+        for (int i = 1; i <= 300; i++) {
+            Order order = createTestOrder(i, LocalDate.of(2025, 11, 20).plusDays(random.nextInt(80)));
+            order.setState(states[random.nextInt(states.length)]);
+            order.setProductType(products[random.nextInt(products.length)]);
+            order.setTotal(BigDecimal.valueOf(random.nextInt(1_000_000), 2));
+            fileDao.addOrder(order);
+
+            grandTotal = grandTotal.add(order.getTotal());
+            if (order.getState().equals("CA") && order.getOrderDate().compareTo(from) >= 0
+                    && order.getOrderDate().compareTo(to) <= 0) {
+                List<String> keys = Arrays.asList(order.getProductType(),
+                        YearMonth.from(order.getOrderDate()).toString());
+                expectedTotals.merge(keys, order.getTotal(), BigDecimal::add);
+                expectedCounts.merge(keys, 1, Integer::sum);
+            }
+        }
+
+        // Act
+        List<PivotRow> rows = fileDao.pivotOrders(new OrderFilter(from, to, "CA", null),
+                Arrays.asList(PivotDimension.PRODUCT_TYPE, PivotDimension.MONTH));
+        List<PivotRow> total = fileDao.pivotOrders(null, Collections.emptyList());
+
+        // Assert
+        assertEquals(expectedTotals.size(), rows.size());
+        int row = 0;
+        for (Map.Entry<List<String>, BigDecimal> expected : expectedTotals.entrySet()) {
+            PivotRow actual = rows.get(row++);
+            assertEquals(expected.getKey(), actual.getKeys());
+            assertEquals(expected.getValue(), actual.getTotals().getTotal());
+            assertEquals((int) expectedCounts.get(expected.getKey()), actual.getTotals().getOrderCount());
+            assertEquals(new BigDecimal("350.00").multiply(BigDecimal.valueOf(actual.getTotals().getOrderCount())),
+                    actual.getTotals().getMaterialCost());
+        }
+        assertEquals(1, total.size());
+        assertEquals(300, total.get(0).getTotals().getOrderCount());
+        assertEquals(grandTotal, total.get(0).getTotals().getTotal());
+    }
+
     private Order createTestOrder(int orderNumber, LocalDate date) {
         Order order = new Order();
         order.setOrderNumber(orderNumber);
@@ -182,8 +511,21 @@ public class OrderDaoFileImplTest {
             if (dateOrders == null || !dateOrders.containsKey(order.getOrderNumber())) {
                 throw new NoSuchOrderException("Order not found");
             }
-            dateOrders.put(order.getOrderNumber(), order);
-            return order;
+            return dateOrders.put(order.getOrderNumber(), order);
+        }
+
+        @Override
+        public boolean editOrders(LocalDate date, List<Order> previous, List<Order> edited) {
+            Map<Integer, Order> dateOrders = orders.get(date);
+            for (int i = 0; i < edited.size(); i++) {
+                if (dateOrders == null || !previous.get(i).equals(dateOrders.get(edited.get(i).getOrderNumber()))) {
+                    return false;
+                }
+            }
+            for (Order order : edited) {
+                dateOrders.put(order.getOrderNumber(), order);
+            }
+            return true;
         }
 
         @Override
@@ -197,6 +539,36 @@ public class OrderDaoFileImplTest {
             return new HashMap<>(orders);
         }
 
+        @Override
+        public List<PartitionSummary> getPartitionSummaries() {
+            return new java.util.ArrayList<>();
+        }
+
+        @Override
+        public Map<LocalDate, RevenueTotals> getDailyTotals(LocalDate from, LocalDate to) {
+            return new TreeMap<>();
+        }
+
+        @Override
+        public List<PivotRow> pivotOrders(OrderFilter filter, List<PivotDimension> dimensions) {
+            return new java.util.ArrayList<>();
+        }
+
+        @Override
+        public int restoreOrders(ExportReader export) {
+            return 0;
+        }
+
+        @Override
+        public ReplayResult rebuildOrders(AuditReader events) {
+            return new ReplayResult();
+        }
+
+        @Override
+        public OrderSnapshot getSnapshot() {
+            return OrderSnapshot.of(orders);
+        }
+
         @Override
         public Order removeOrder(LocalDate date, int orderNumber) throws NoSuchOrderException {
             Map<Integer, Order> dateOrders = orders.get(date);
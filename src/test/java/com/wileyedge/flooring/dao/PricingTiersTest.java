@@ -0,0 +1,68 @@
+package com.wileyedge.flooring.dao;
+
+import com.wileyedge.flooring.dto.PricingTier;
+import com.wileyedge.flooring.dto.Product;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class PricingTiersTest {
+
+    @Test
+    public void testAreasCompareExactlyWithThresholds() {
+        // Arrange - a threshold between hundredths is rounded up to the next one
+        PricingTiers tiers = new PricingTiers(Arrays.asList(
+                new PricingTier("Tile", new BigDecimal("500"), new BigDecimal("10")),
+                new PricingTier("Tile", new BigDecimal("1000.005"), new BigDecimal("20"))));
+        RateSchedule<Product> products = schedule(new Product("Tile", new BigDecimal("3.50"), new BigDecimal("4.15")));
+
+        // Act
+        RateSchedule<TieredProduct> tiered = tiers.compile(products);
+        TieredProduct tile = tiered.find("Tile", LocalDate.of(2025, 12, 1));
+
+        // Assert
+        assertEquals(new BigDecimal("3.50"), tile.forArea(new BigDecimal("499.999")).getCostPerSquareFoot());
+        assertEquals(new BigDecimal("3.15"), tile.forArea(new BigDecimal("500")).getCostPerSquareFoot());
+        assertEquals(new BigDecimal("3.15"), tile.forArea(new BigDecimal("500.0001")).getCostPerSquareFoot());
+        assertEquals(new BigDecimal("3.15"), tile.forArea(new BigDecimal("1000.009")).getCostPerSquareFoot());
+        assertEquals(new BigDecimal("2.80"), tile.forArea(new BigDecimal("1000.01")).getCostPerSquareFoot());
+        assertEquals(new BigDecimal("2.80"), tile.forArea(new BigDecimal("1E+20")).getCostPerSquareFoot());
+        assertEquals(new BigDecimal("3.50"), tile.forArea(null).getCostPerSquareFoot());
+        assertSame(tiered, tiers.compile(products));
+    }
+
+    @Test
+    public void testEveryEffectiveDateIsDiscounted() {
+        // Arrange - Tile's costs change in 2026; Carpet has no tiers
+        PricingTiers tiers = new PricingTiers(Arrays.asList(
+                new PricingTier("Tile", new BigDecimal("100"), new BigDecimal("50"))));
+        RateSchedule<Product> products = schedule(
+                new Product("Tile", new BigDecimal("3.50"), new BigDecimal("4.15")),
+                new Product("Tile", new BigDecimal("4.00"), new BigDecimal("5.00"), LocalDate.of(2026, 1, 1)),
+                new Product("Carpet", new BigDecimal("2.25"), new BigDecimal("2.10")));
+        BigDecimal area = new BigDecimal("100.00");
+
+        // Act
+        RateSchedule<TieredProduct> tiered = tiers.compile(products);
+
+        // Assert
+        Product before = tiered.find("Tile", LocalDate.of(2025, 12, 31)).forArea(area);
+        assertEquals(new BigDecimal("1.75"), before.getCostPerSquareFoot());
+        assertEquals(new BigDecimal("2.075"), before.getLaborCostPerSquareFoot());
+        Product after = tiered.find("Tile", LocalDate.of(2026, 1, 1)).forArea(area);
+        assertEquals(new BigDecimal("2.00"), after.getCostPerSquareFoot());
+        assertEquals(new BigDecimal("2.50"), after.getLaborCostPerSquareFoot());
+        assertEquals(new BigDecimal("2.25"),
+                tiered.find("Carpet", LocalDate.of(2026, 1, 1)).forArea(area).getCostPerSquareFoot());
+        assertNull(tiered.find("Wood", LocalDate.of(2026, 1, 1)));
+    }
+
+    private static RateSchedule<Product> schedule(Product... products) {
+        return new RateSchedule<>(Arrays.asList(products), Product::getProductType, Product::getEffectiveDate,
+                product -> product);
+    }
+}
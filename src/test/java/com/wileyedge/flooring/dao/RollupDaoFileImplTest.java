@@ -0,0 +1,157 @@
+package com.wileyedge.flooring.dao;
+
+import com.wileyedge.flooring.dto.Order;
+import com.wileyedge.flooring.dto.PartitionSummary;
+import com.wileyedge.flooring.dto.RevenueTotals;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class RollupDaoFileImplTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private File rollupFile;
+    private RollupDao dao;
+
+    @Before
+    public void setUp() {
+        rollupFile = new File(tempFolder.getRoot(), "Rollups.txt");
+        dao = new RollupDaoFileImpl(rollupFile.getPath());
+    }
+
+    @Test
+    public void testTotalsSurviveReopening() throws Exception {
+        // Arrange
+        Order first = order(1, LocalDate.of(2025, 12, 1), "TX", "Tile", "100.00");
+        Order second = order(2, LocalDate.of(2025, 12, 31), "TX", "Wood", "50.25");
+        Order third = order(3, LocalDate.of(2026, 1, 1), "CA", "Tile", "10.10");
+        Order repriced = new Order(first);
+        repriced.setTotal(new BigDecimal("90.00"));
+
+        // Act
+        dao.recordChange(null, first);
+        dao.recordChange(null, second);
+        dao.recordChange(null, third);
+        dao.recordChanges(Collections.singletonList(first), Collections.singletonList(repriced));
+        dao.recordChange(third, null);
+        RollupDao reopened = new RollupDaoFileImpl(rollupFile.getPath());
+
+        // Assert
+        RevenueTotals december = reopened.getTotalsForMonth(YearMonth.of(2025, 12));
+        assertEquals(2, december.getOrderCount());
+        assertEquals(new BigDecimal("140.25"), december.getTotal());
+        assertEquals(december, reopened.getTotalsForState("TX"));
+        assertEquals(new BigDecimal("90.00"), reopened.getTotalsForProduct("Tile").getTotal());
+        assertEquals(new BigDecimal("50.25"), reopened.getTotalsForDate(LocalDate.of(2025, 12, 31)).getTotal());
+        assertEquals(0, reopened.getTotalsForState("CA").getOrderCount());
+        assertEquals(new BigDecimal("0.00"), reopened.getTotalsForMonth(YearMonth.of(2026, 1)).getTotal());
+    }
+
+    @Test
+    public void testRebuildsWhenOrdersDisagree() throws Exception {
+        // Arrange - totals saved before a third order was written by hand
+        LocalDate date = LocalDate.of(2025, 12, 1);
+        Map<Integer, Order> orders = new HashMap<>();
+        orders.put(1, order(1, date, "TX", "Tile", "100.00"));
+        orders.put(2, order(2, date, "CA", "Tile", "20.00"));
+        dao.recordChange(null, orders.get(1));
+        dao.recordChange(null, orders.get(2));
+        orders.put(3, order(3, date, "CA", "Wood", "5.00"));
+        List<PartitionSummary> partitions = Collections.singletonList(
+                new PartitionSummary(date, 3, 1, 3, new BigDecimal("125.00"), 0, 0));
+
+        // Act
+        boolean before = dao.isConsistentWith(partitions);
+        dao.rebuild(OrderSnapshot.of(Collections.singletonMap(date, orders)));
+
+        // Assert
+        assertFalse(before);
+        assertTrue(dao.isConsistentWith(partitions));
+        assertEquals(new BigDecimal("25.00"), dao.getTotalsForState("CA").getTotal());
+
+        // An unreadable file is inconsistent rather than an error
+        Files.write(rollupFile.toPath(), Arrays.asList("OrderDate,State", "not a date"));
+        assertFalse(new RollupDaoFileImpl(rollupFile.getPath()).isConsistentWith(partitions));
+    }
+
+    @Test
+    public void testChangesAreJournaledUntilCompacted() throws Exception {
+        // Arrange - a file rewritten after every four journal lines
+        LocalDate date = LocalDate.of(2025, 12, 1);
+        File journalFile = new File(rollupFile.getPath() + ".journal");
+        RollupDao journaled = new RollupDaoFileImpl(rollupFile.getPath(), 4);
+        journaled.rebuild(OrderSnapshot.of(Collections.singletonMap(date,
+                Collections.singletonMap(1, order(1, date, "TX", "Tile", "100.00")))));
+        byte[] compacted = Files.readAllBytes(rollupFile.toPath());
+
+        // Act
+        journaled.recordChange(null, order(2, date, "TX", "Wood", "20.00"));
+        journaled.recordChange(null, order(3, date, "CA", "Tile", "3.00"));
+        byte[] beforeCompacting = Files.readAllBytes(rollupFile.toPath());
+        boolean journaledBeforeCompacting = journalFile.exists();
+        RollupDao reopened = new RollupDaoFileImpl(rollupFile.getPath(), 4);
+        RevenueTotals reopenedTotals = reopened.getTotalsForDate(date);
+        journaled.recordChange(order(2, date, "TX", "Wood", "20.00"), null);
+        journaled.recordChange(order(3, date, "CA", "Tile", "3.00"), order(3, date, "CA", "Wood", "4.00"));
+
+        // Assert
+        assertArrayEquals(compacted, beforeCompacting);
+        assertTrue(journaledBeforeCompacting);
+        assertEquals(3, reopenedTotals.getOrderCount());
+        assertEquals(new BigDecimal("123.00"), reopenedTotals.getTotal());
+        assertFalse(journalFile.exists());
+        RevenueTotals afterCompacting = new RollupDaoFileImpl(rollupFile.getPath()).getTotalsForDate(date);
+        assertEquals(2, afterCompacting.getOrderCount());
+        assertEquals(new BigDecimal("104.00"), afterCompacting.getTotal());
+    }
+
+    @Test
+    public void testSkipsJournalAlreadyCompacted() throws Exception {
+        // Arrange - a journal as it stood before a compaction that stopped short of removing it
+        LocalDate date = LocalDate.of(2025, 12, 1);
+        File journalFile = new File(rollupFile.getPath() + ".journal");
+        dao.recordChange(null, order(1, date, "TX", "Tile", "100.00"));
+        dao.recordChange(null, order(2, date, "TX", "Wood", "20.00"));
+        byte[] leftOver = Files.readAllBytes(journalFile.toPath());
+        Map<Integer, Order> orders = new HashMap<>();
+        orders.put(1, order(1, date, "TX", "Tile", "100.00"));
+        orders.put(2, order(2, date, "TX", "Wood", "20.00"));
+        dao.rebuild(OrderSnapshot.of(Collections.singletonMap(date, orders)));
+
+        // Act
+        Files.write(journalFile.toPath(), leftOver);
+        RollupDao reopened = new RollupDaoFileImpl(rollupFile.getPath());
+        RevenueTotals totals = reopened.getTotalsForDate(date);
+        reopened.recordChange(null, order(3, date, "CA", "Tile", "5.00"));
+
+        // Assert
+        assertEquals(2, totals.getOrderCount());
+        assertEquals(new BigDecimal("120.00"), totals.getTotal());
+        assertEquals(new BigDecimal("125.00"),
+                new RollupDaoFileImpl(rollupFile.getPath()).getTotalsForDate(date).getTotal());
+    }
+
+    private Order order(int orderNumber, LocalDate date, String state, String productType, String total) {
+        Order order = new Order(orderNumber);
+        order.setOrderDate(date);
+        order.setState(state);
+        order.setProductType(productType);
+        order.setMaterialCost(new BigDecimal(total));
+        order.setLaborCost(new BigDecimal("0.00"));
+        order.setTax(new BigDecimal("0.00"));
+        order.setTotal(new BigDecimal(total));
+        return order;
+    }
+}
@@ -0,0 +1,78 @@
+package com.wileyedge.flooring.dao;
+
+import com.wileyedge.flooring.dto.Tax;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class TaxDaoFileImplTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private File taxFile;
+    private TaxDao dao;
+
+    @Before
+    public void setUp() throws Exception {
+        taxFile = new File(tempFolder.getRoot(), "Taxes.txt");
+        Files.write(taxFile.toPath(), Arrays.asList("State,StateName,TaxRate", "TX,Texas,4.45",
+                "WA,Washington,9.25"));
+        dao = new TaxDaoFileImpl(taxFile.getPath());
+    }
+
+    @Test
+    public void testReloadsOnlyWhenFileChanges() throws Exception {
+        // Arrange
+        FileTime modified = Files.getLastModifiedTime(taxFile.toPath());
+        Tax first = dao.getTax("TX");
+        first.setTaxRate(BigDecimal.ZERO);
+
+        // Act - a copy handed out earlier is changed, and the file is rewritten
+        // with the same size and time, then with a new time
+        Tax unchanged = dao.getTax("TX");
+        Files.write(taxFile.toPath(), Arrays.asList("State,StateName,TaxRate", "TX,Texas,5.45",
+                "WA,Washington,9.25"));
+        Files.setLastModifiedTime(taxFile.toPath(), modified);
+        Tax cached = dao.getTax("TX");
+        Files.setLastModifiedTime(taxFile.toPath(), FileTime.fromMillis(modified.toMillis() + 2000));
+        Tax reloaded = dao.getTax("TX");
+
+        // Assert
+        assertEquals(new BigDecimal("4.45"), unchanged.getTaxRate());
+        assertEquals(new BigDecimal("4.45"), cached.getTaxRate());
+        assertEquals(new BigDecimal("5.45"), reloaded.getTaxRate());
+        assertEquals(2, dao.getAllTaxes().size());
+        assertEquals("TX", dao.getAllTaxes().get(0).getStateAbr());
+    }
+
+    @Test
+    public void testFindsRateInForceOnDate() throws Exception {
+        // Arrange - rows out of order, with one rate that has always applied
+        Files.write(taxFile.toPath(), Arrays.asList("State,StateName,TaxRate,EffectiveDate",
+                "TX,Texas,6.25,07-01-2026", "TX,Texas,4.45", "TX,Texas,5.00,01-01-2026",
+                "NV,Nevada,6.85,01-01-2026"));
+
+        // Act
+        RateSchedule<Tax> rates = dao.getTaxRates();
+
+        // Assert
+        assertEquals(new BigDecimal("4.45"), rates.get("TX", LocalDate.of(2025, 12, 31)).getTaxRate());
+        assertEquals(new BigDecimal("5.00"), rates.get("TX", LocalDate.of(2026, 1, 1)).getTaxRate());
+        assertEquals(new BigDecimal("5.00"), rates.get("TX", LocalDate.of(2026, 6, 30)).getTaxRate());
+        assertEquals(new BigDecimal("6.25"), dao.getTax("TX", LocalDate.of(2030, 1, 1)).getTaxRate());
+        assertNull(rates.get("NV", LocalDate.of(2025, 12, 31)));
+        assertNull(rates.get("WA", LocalDate.of(2026, 1, 1)));
+        assertEquals(2, rates.getAll(LocalDate.of(2026, 1, 1)).size());
+    }
+}
@@ -0,0 +1,63 @@
+package com.wileyedge.flooring.dao;
+
+import com.wileyedge.flooring.dto.TaxLiability;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class TaxLiabilityMatrixTest {
+
+    private static final String[] STATES = {"TX", "WA", "KY", "CA"};
+
+    @Test
+    public void testRangesMatchDailyTotals() {
+        // Arrange - changes scattered over three years, arriving out of date order
+        TaxLiabilityMatrix matrix = new TaxLiabilityMatrix();
+        LocalDate start = LocalDate.of(2024, 1, 1);
+        long[][] taxByStateAndDay = new long[STATES.length][3 * 365];
+        int[][] ordersByStateAndDay = new int[STATES.length][3 * 365];
+        Random random = new Random(50);
+
+        // Act
+        for (int i = 0; i < 5_000; i++) {
+            int state = random.nextInt(STATES.length);
+            int day = random.nextInt(3 * 365);
+            long tax = random.nextInt(10_000);
+            int orders = 1;
+            if (ordersByStateAndDay[state][day] > 0 && random.nextInt(4) == 0) {
+                // Take out what was added, as a removed order would
+                tax = -taxByStateAndDay[state][day];
+                orders = -ordersByStateAndDay[state][day];
+            }
+            matrix.add(STATES[state], start.plusDays(day), orders, 10 * tax, tax);
+            taxByStateAndDay[state][day] += tax;
+            ordersByStateAndDay[state][day] += orders;
+        }
+
+        // Assert
+        for (int i = 0; i < 200; i++) {
+            int from = random.nextInt(3 * 365);
+            int to = from + random.nextInt(3 * 365 - from);
+            Map<String, TaxLiability> expected = new TreeMap<>();
+            for (int state = 0; state < STATES.length; state++) {
+                long tax = 0;
+                int orders = 0;
+                for (int day = from; day <= to; day++) {
+                    tax += taxByStateAndDay[state][day];
+                    orders += ordersByStateAndDay[state][day];
+                }
+                if (orders > 0) {
+                    expected.put(STATES[state], new TaxLiability(STATES[state], orders,
+                            BigDecimal.valueOf(10 * tax, 2), BigDecimal.valueOf(tax, 2)));
+                }
+            }
+            assertEquals(new ArrayList<>(expected.values()),
+                    matrix.sum(start.plusDays(from), start.plusDays(to)));
+        }
+        assertTrue(matrix.sum(start.minusYears(10), start.minusDays(1)).isEmpty());
+    }
+}
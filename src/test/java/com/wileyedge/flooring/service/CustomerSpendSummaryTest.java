@@ -0,0 +1,73 @@
+package com.wileyedge.flooring.service;
+
+import com.wileyedge.flooring.dao.OrderSnapshot;
+import com.wileyedge.flooring.dto.CustomerSpend;
+import com.wileyedge.flooring.dto.Order;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class CustomerSpendSummaryTest {
+
+    private static final String[] BIG_SPENDERS = {"Big 1", "Big 2", "Big 3"};
+
+    @Test
+    public void testExactUnderLimit() {
+        // Arrange
+        CustomerSpendSummary summary = new CustomerSpendSummary(10);
+
+        // Act
+        summary.add("Ann", 10_000);
+        summary.add("Bob", 25_050);
+        summary.add("Ann", 20_000);
+        summary.add("Cal", 5);
+        List<CustomerSpend> top = summary.top(2);
+
+        // Assert
+        assertEquals(2, top.size());
+        assertEquals(new CustomerSpend("Ann", new BigDecimal("300.00"), new BigDecimal("0.00")), top.get(0));
+        assertEquals(new CustomerSpend("Bob", new BigDecimal("250.50"), new BigDecimal("0.00")), top.get(1));
+    }
+
+    @Test
+    public void testKeepsBigSpendersPastLimit() throws Exception {
+        // Arrange - thousands of one-off customers around a few big spenders, over many dates
+        Map<LocalDate, Map<Integer, Order>> orders = new HashMap<>();
+        Map<String, Long> trueCents = new HashMap<>();
+        Random random = new Random(47);
+        for (int i = 1; i <= 20_000; i++) {
+            boolean big = i % 10 == 0;
+            String name = big ? BIG_SPENDERS[random.nextInt(BIG_SPENDERS.length)] : "Customer " + i;
+            long cents = big ? 50_000 + random.nextInt(50_000) : 1 + random.nextInt(40_000);
+            Order order = new Order(i);
+            order.setCustomerName(name);
+            order.setTotal(BigDecimal.valueOf(cents, 2));
+            orders.computeIfAbsent(LocalDate.of(2025, 1, 1).plusDays(i % 100), k -> new HashMap<>()).put(i, order);
+            trueCents.merge(name, cents, Long::sum);
+        }
+
+        // Act
+        List<CustomerSpend> sequential;
+        List<CustomerSpend> parallel;
+        try (OrderSnapshot snapshot = OrderSnapshot.of(orders)) {
+            sequential = CustomerSpendSummary.of(snapshot, 200, false).top(3);
+            parallel = CustomerSpendSummary.of(snapshot, 200, true).top(3);
+        }
+
+        // Assert - the big spenders come first, and no spend is understated
+        for (List<CustomerSpend> top : Arrays.asList(sequential, parallel)) {
+            Set<String> names = new HashSet<>();
+            for (CustomerSpend customer : top) {
+                names.add(customer.getCustomerName());
+                BigDecimal actual = BigDecimal.valueOf(trueCents.get(customer.getCustomerName()), 2);
+                assertTrue(customer.getTotalSpend().compareTo(actual) >= 0);
+                assertTrue(customer.getTotalSpend().subtract(customer.getMaximumError()).compareTo(actual) <= 0);
+            }
+            assertEquals(new HashSet<>(Arrays.asList(BIG_SPENDERS)), names);
+        }
+    }
+}
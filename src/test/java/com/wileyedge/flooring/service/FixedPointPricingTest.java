@@ -0,0 +1,110 @@
+package com.wileyedge.flooring.service;
+
+import com.wileyedge.flooring.dto.Order;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class FixedPointPricingTest {
+
+    private final FixedPointPricing pricing = new FixedPointPricing();
+
+    @Test
+    public void testMatchesBigDecimalOnRandomOrders() {
+        // Arrange - a fixed seed so a failure can be replayed
+        Random random = new Random(20251201L);
+
+        for (int i = 0; i < 200_000; i++) {
+            Order order = randomOrder(random);
+
+            // Act
+            Order fixed = new Order(order);
+            boolean usedFixedPoint = pricing.calculateFixedPoint(fixed);
+            Order reference = new Order(order);
+            pricing.calculateWithBigDecimal(reference);
+
+            // Assert - equals also compares scale
+            assertTrue("Fell back for " + order, usedFixedPoint);
+            assertEquals("Material cost for " + order, reference.getMaterialCost(), fixed.getMaterialCost());
+            assertEquals("Labor cost for " + order, reference.getLaborCost(), fixed.getLaborCost());
+            assertEquals("Tax for " + order, reference.getTax(), fixed.getTax());
+            assertEquals("Total for " + order, reference.getTotal(), fixed.getTotal());
+        }
+    }
+
+    @Test
+    public void testRoundsTiesAwayFromZero() {
+        // Arrange - 0.5 cent material cost and a tax rate that is a tie at four places
+        Order order = new Order();
+        order.setArea(new BigDecimal("0.1"));
+        order.setCostPerSquareFoot(new BigDecimal("0.05"));
+        order.setLaborCostPerSquareFoot(new BigDecimal("-0.05"));
+        order.setTaxRate(new BigDecimal("12.34565"));
+
+        // Act
+        assertTrue(pricing.calculateFixedPoint(order));
+
+        // Assert
+        assertEquals(new BigDecimal("0.01"), order.getMaterialCost());
+        assertEquals(new BigDecimal("-0.01"), order.getLaborCost());
+        assertEquals(new BigDecimal("0.00"), order.getTax());
+        assertEquals(new BigDecimal("0.00"), order.getTotal());
+    }
+
+    @Test
+    public void testFallsBackWhenValuesDoNotFit() {
+        // Arrange
+        Order order = new Order();
+        order.setArea(new BigDecimal("123456789012345678.5"));
+        order.setCostPerSquareFoot(new BigDecimal("1E+3"));
+        order.setLaborCostPerSquareFoot(new BigDecimal("99999999999.99"));
+        order.setTaxRate(new BigDecimal("4.45"));
+        Order reference = new Order(order);
+
+        // Act
+        boolean usedFixedPoint = pricing.calculateFixedPoint(new Order(order));
+        pricing.calculateTotals(order);
+        pricing.calculateWithBigDecimal(reference);
+
+        // Assert
+        assertFalse(usedFixedPoint);
+        assertEquals(reference.getTotal(), order.getTotal());
+    }
+
+    private Order randomOrder(Random random) {
+        Order order = new Order();
+        // Up to 100,000 sq ft at up to $1,000 a sq ft, taxed at up to 100%
+        order.setArea(randomDecimal(random, 10_000_000, 2, 4));
+        order.setCostPerSquareFoot(randomDecimal(random, 100_000, 2, 4));
+        order.setLaborCostPerSquareFoot(randomDecimal(random, 100_000, 2, 4));
+        order.setTaxRate(randomDecimal(random, 10_000, 2, 6));
+        return order;
+    }
+
+    /**
+     * Mixes typical two-place values with odd scales, zeros, negatives and
+     * exact rounding ties
+     */
+    private BigDecimal randomDecimal(Random random, int bound, int minScale, int maxScale) {
+        int scale = minScale + random.nextInt(maxScale - minScale + 1);
+        long unscaled;
+        switch (random.nextInt(6)) {
+            case 0:
+                unscaled = 0;
+                break;
+            case 1:
+                unscaled = -random.nextInt(bound);
+                break;
+            case 2:
+                // Ends in 5, so the next rounding is often a tie
+                unscaled = random.nextInt(bound / 10 + 1) * 10L + 5;
+                break;
+            default:
+                unscaled = random.nextInt(bound);
+        }
+        return BigDecimal.valueOf(unscaled, scale);
+    }
+}
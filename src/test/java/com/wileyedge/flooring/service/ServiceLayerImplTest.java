@@ -1,22 +1,42 @@
 package com.wileyedge.flooring.service;
 
 import com.wileyedge.flooring.dao.*;
+import com.wileyedge.flooring.dto.CustomerSpend;
+import com.wileyedge.flooring.dto.ExportProgress;
 import com.wileyedge.flooring.dto.Order;
+import com.wileyedge.flooring.dto.OrderDistribution;
+import com.wileyedge.flooring.dto.OrderFilter;
+import com.wileyedge.flooring.dto.PartitionSummary;
+import com.wileyedge.flooring.dto.PivotRow;
+import com.wileyedge.flooring.dto.PricingTier;
 import com.wileyedge.flooring.dto.Product;
+import com.wileyedge.flooring.dto.Quote;
+import com.wileyedge.flooring.dto.ReplayResult;
+import com.wileyedge.flooring.dto.RevenueTotals;
 import com.wileyedge.flooring.dto.Tax;
+import com.wileyedge.flooring.dto.TaxLiability;
 import com.wileyedge.flooring.exceptions.NoSuchOrderException;
 import com.wileyedge.flooring.exceptions.PersistenceException;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.File;
+import java.io.StringWriter;
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.util.*;
 
 import static org.junit.Assert.*;
 
 public class ServiceLayerImplTest {
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     private ServiceLayer service;
 
     // Mock DAOs for testing
@@ -25,6 +45,8 @@ public class ServiceLayerImplTest {
     private TaxDao taxDao;
     private ExportDao exportDao;
     private AuditDao auditDao;
+    private RollupDao rollupDao;
+    private DistributionDao distributionDao;
 
     @Before
     public void setUp() {
@@ -34,8 +56,11 @@ public class ServiceLayerImplTest {
         taxDao = new TaxDaoStubImpl();
         exportDao = new ExportDaoStubImpl();
         auditDao = new AuditDaoStubImpl();
+        rollupDao = new RollupDaoFileImpl(new File(folder.getRoot(), "Rollups.txt").getPath());
+        distributionDao = new DistributionDaoFileImpl(new File(folder.getRoot(), "Distributions.txt").getPath());
 
-        service = new ServiceLayerImpl(orderDao, productDao, taxDao, exportDao, auditDao);
+        service = new ServiceLayerImpl(orderDao, productDao, taxDao, exportDao, auditDao, rollupDao,
+                distributionDao);
     }
 
     @Test
@@ -99,6 +124,41 @@ public class ServiceLayerImplTest {
         service.getOrder(LocalDate.of(2025, 12, 1), 999);
     }
 
+    @Test
+    public void testEditAndRemoveAuditOnlyChangedFields() throws Exception {
+        // Arrange
+        Order order = new Order();
+        order.setOrderNumber(1);
+        order.setCustomerName("Test Customer");
+        order.setState("TX");
+        order.setTaxRate(new BigDecimal("4.45"));
+        order.setProductType("Tile");
+        order.setArea(new BigDecimal("100.00"));
+        order.setCostPerSquareFoot(new BigDecimal("3.50"));
+        order.setLaborCostPerSquareFoot(new BigDecimal("4.15"));
+        order.setOrderDate(LocalDate.of(2025, 12, 1));
+        service.addOrder(order);
+
+        Order edited = new Order(order);
+        edited.setCustomerName("Test \"Quoted\" Customer");
+        edited.setArea(new BigDecimal("200"));
+
+        // Act
+        service.editOrder(edited);
+        service.removeOrder(LocalDate.of(2025, 12, 1), 1);
+
+        // Assert
+        List<String> entries = ((AuditDaoStubImpl) auditDao).entries;
+        assertEquals("{\"order\":1,\"event\":\"EDITED\",\"date\":\"12-01-2025\",\"changes\":{"
+                        + "\"customerName\":[\"Test Customer\",\"Test \\\"Quoted\\\" Customer\"],"
+                        + "\"area\":[100.00,200],\"materialCost\":[350.00,700.00],\"laborCost\":[415.00,830.00],"
+                        + "\"tax\":[34.04,68.09],\"total\":[799.04,1598.09]}}",
+                entries.get(1));
+        assertTrue(entries.get(2).startsWith("{\"order\":1,\"event\":\"REMOVED\",\"date\":\"12-01-2025\","
+                + "\"changes\":{\"customerName\":[\"Test \\\"Quoted\\\" Customer\",null],\"state\":[\"TX\",null],"));
+        assertTrue(entries.get(2).endsWith("\"total\":[1598.09,null]}}"));
+    }
+
     @Test
     public void testGetAllTaxes() throws Exception {
         // Act
@@ -146,10 +206,385 @@ public class ServiceLayerImplTest {
         assertEquals(new BigDecimal("799.04"), result.getTotal());
     }
 
+    @Test
+    public void testRepriceUsesRatesInForceOnOrderDate() throws Exception {
+        // Arrange - both orders saved at the old Texas rate, one dated after it changed
+        for (int orderNumber = 1; orderNumber <= 2; orderNumber++) {
+            Order order = new Order(orderNumber);
+            order.setCustomerName("Customer " + orderNumber);
+            order.setState("TX");
+            order.setTaxRate(new BigDecimal("4.45"));
+            order.setProductType("Tile");
+            order.setArea(new BigDecimal("100.00"));
+            order.setCostPerSquareFoot(new BigDecimal("3.50"));
+            order.setLaborCostPerSquareFoot(new BigDecimal("4.15"));
+            order.setOrderDate(orderNumber == 1 ? LocalDate.of(2025, 12, 31) : LocalDate.of(2026, 1, 1));
+            orderDao.addOrder(order);
+        }
+
+        // Act
+        int repriced = service.repriceOrders();
+
+        // Assert
+        assertEquals(1, repriced);
+        assertEquals(new BigDecimal("4.45"), orderDao.getOrder(LocalDate.of(2025, 12, 31), 1).getTaxRate());
+        Order changed = orderDao.getOrder(LocalDate.of(2026, 1, 1), 2);
+        assertEquals(new BigDecimal("6.25"), changed.getTaxRate());
+        // Tax = (350 + 415) * (6.25 / 100) = 47.81
+        assertEquals(new BigDecimal("47.81"), changed.getTax());
+        assertEquals(new BigDecimal("812.81"), changed.getTotal());
+        assertEquals(2, ((AuditDaoStubImpl) auditDao).entries.size());
+    }
+
+    @Test
+    public void testRepriceRereadsOrdersEditedMeanwhile() throws Exception {
+        // Arrange - two orders at the old Texas rate, one renamed while the date is being repriced
+        LocalDate date = LocalDate.of(2026, 1, 1);
+        for (int orderNumber = 1; orderNumber <= 2; orderNumber++) {
+            Order order = new Order(orderNumber);
+            order.setCustomerName("Customer " + orderNumber);
+            order.setState("TX");
+            order.setProductType("Tile");
+            order.setArea(new BigDecimal("100.00"));
+            order.setOrderDate(date);
+            service.priceOrder(order);
+            order.setTaxRate(new BigDecimal("4.45"));
+            orderDao.addOrder(order);
+        }
+        OrderDaoStubImpl stub = (OrderDaoStubImpl) orderDao;
+        stub.beforeEditOrders = () -> {
+            Order renamed = new Order(stub.orders.get(date).get(2));
+            renamed.setCustomerName("Renamed");
+            stub.orders.get(date).put(2, renamed);
+        };
+
+        // Act
+        int repriced = service.repriceOrders();
+
+        // Assert - the rename is kept, and the rollups match what was saved
+        assertEquals(2, repriced);
+        Order renamed = orderDao.getOrder(date, 2);
+        assertEquals("Renamed", renamed.getCustomerName());
+        assertEquals(new BigDecimal("6.25"), renamed.getTaxRate());
+        assertEquals(orderDao.getOrder(date, 1).getTotal().add(renamed.getTotal()),
+                service.getRevenueForDate(date).getTotal());
+    }
+
+    @Test
+    public void testLargerAreasGetTierDiscount() throws Exception {
+        // Arrange - Tile is 10% off from 500 sq ft and 20% off from 1000
+        ((ProductDaoStubImpl) productDao).tiers = new PricingTiers(Arrays.asList(
+                new PricingTier("Tile", new BigDecimal("1000"), new BigDecimal("20")),
+                new PricingTier("Tile", new BigDecimal("500"), new BigDecimal("10"))));
+        Order small = new Order();
+        small.setState("TX");
+        small.setProductType("Tile");
+        small.setArea(new BigDecimal("499.99"));
+        small.setOrderDate(LocalDate.of(2025, 12, 1));
+        Order large = new Order(small);
+        large.setArea(new BigDecimal("500"));
+
+        // Act
+        service.priceOrder(small);
+        service.priceOrder(large);
+
+        // Assert
+        assertEquals(new BigDecimal("3.50"), small.getCostPerSquareFoot());
+        assertEquals(new BigDecimal("3.15"), large.getCostPerSquareFoot());
+        assertEquals(new BigDecimal("3.735"), large.getLaborCostPerSquareFoot());
+        // MaterialCost = 500 * 3.15 = 1575.00, LaborCost = 500 * 3.735 = 1867.50
+        assertEquals(new BigDecimal("1575.00"), large.getMaterialCost());
+        assertEquals(new BigDecimal("1867.50"), large.getLaborCost());
+    }
+
+    @Test
+    public void testQuotesAreSharedUntilRatesChange() throws Exception {
+        // Arrange
+        LocalDate date = LocalDate.of(2025, 12, 1);
+        Order order = new Order();
+        order.setState("TX");
+        order.setProductType("Tile");
+        order.setArea(new BigDecimal("100"));
+        order.setOrderDate(date);
+
+        // Act - preview, then price again to save
+        Quote preview = service.quote(date, "TX", "Tile", new BigDecimal("100.00"));
+        service.priceOrder(order);
+
+        // Assert - the save reused the preview's calculation
+        assertEquals(new BigDecimal("799.04"), preview.getTotal());
+        assertSame(preview.getTotal(), order.getTotal());
+        assertNull(service.quote(date, "ZZ", "Tile", new BigDecimal("100")));
+
+        // Act - Texas raises its rate
+        TaxDaoStubImpl taxes = (TaxDaoStubImpl) taxDao;
+        taxes.rates = taxes.schedule(new Tax("TX", "Texas", new BigDecimal("10.00"), date));
+        Quote requote = service.quote(date, "TX", "Tile", new BigDecimal("100"));
+
+        // Assert - Tax = (350 + 415) * (10.00 / 100) = 76.50
+        assertEquals(new BigDecimal("76.50"), requote.getTax());
+        assertEquals(new BigDecimal("841.50"), requote.getTotal());
+    }
+
+    @Test
+    public void testEditTakesOutTheOrderItReplaced() throws Exception {
+        // Arrange - another user edits the order after this edit was read, but before it is saved
+        LocalDate date = LocalDate.of(2025, 12, 1);
+        Order order = new Order();
+        order.setCustomerName("Original");
+        order.setState("TX");
+        order.setProductType("Tile");
+        order.setArea(new BigDecimal("100"));
+        order.setOrderDate(date);
+        order = service.addOrder(order);
+        Order edited = new Order(order);
+        edited.setArea(new BigDecimal("300"));
+        Order meanwhile = new Order(order);
+        meanwhile.setProductType("Carpet");
+        ((OrderDaoStubImpl) orderDao).beforeEditOrder = () -> {
+            try {
+                service.editOrder(meanwhile);
+            } catch (Exception e) {
+                throw new AssertionError(e);
+            }
+        };
+
+        // Act
+        service.editOrder(edited);
+
+        // Assert - the Carpet order is taken out of the totals, not the original Tile one
+        RevenueTotals day = service.getRevenueForDate(date);
+        assertEquals(1, day.getOrderCount());
+        assertEquals(edited.getTotal(), day.getTotal());
+        assertEquals(day, service.getRevenueForProduct("Tile"));
+        assertEquals(0, service.getRevenueForProduct("Carpet").getOrderCount());
+        List<String> entries = ((AuditDaoStubImpl) auditDao).entries;
+        assertTrue(entries.get(entries.size() - 1).contains("\"productType\":[\"Carpet\",\"Tile\"]"));
+    }
+
+    @Test
+    public void testEditTakesTheReplacedOrderOutOfDistributions() throws Exception {
+        // Arrange - another user makes the order much larger before this edit is saved
+        LocalDate date = LocalDate.of(2025, 12, 1);
+        Order order = new Order();
+        order.setCustomerName("Original");
+        order.setState("TX");
+        order.setProductType("Tile");
+        order.setArea(new BigDecimal("100"));
+        order.setOrderDate(date);
+        order = service.addOrder(order);
+        Order edited = new Order(order);
+        edited.setArea(new BigDecimal("200"));
+        Order meanwhile = new Order(order);
+        meanwhile.setArea(new BigDecimal("5000"));
+        ((OrderDaoStubImpl) orderDao).beforeEditOrder = () -> {
+            try {
+                service.editOrder(meanwhile);
+            } catch (Exception e) {
+                throw new AssertionError(e);
+            }
+        };
+
+        // Act
+        service.editOrder(edited);
+        OrderDistribution distribution = service.getOrderDistribution(date, date);
+
+        // Assert - the 5000 sq ft order is gone from the day's buckets, not the original
+        assertEquals(1, distribution.getOrderCount());
+        assertWithinOnePercent(new BigDecimal("200"), distribution.getAreaP99());
+        assertWithinOnePercent(edited.getTotal(), distribution.getTotalP99());
+    }
+
+    @Test
+    public void testRevenueRollupsFollowOrderChanges() throws Exception {
+        // Arrange - an order saved before the rollups existed
+        LocalDate date = LocalDate.of(2025, 12, 1);
+        Order existing = new Order(1);
+        existing.setCustomerName("Existing");
+        existing.setState("TX");
+        existing.setProductType("Carpet");
+        existing.setArea(new BigDecimal("100"));
+        existing.setOrderDate(date);
+        service.priceOrder(existing);
+        orderDao.addOrder(existing);
+
+        Order added = new Order(2);
+        added.setCustomerName("Added");
+        added.setState("TX");
+        added.setProductType("Tile");
+        added.setArea(new BigDecimal("100"));
+        added.setOrderDate(date);
+
+        // Act
+        service.addOrder(added);
+        Order edited = new Order(added);
+        edited.setState("CA");
+        service.editOrder(edited);
+        service.removeOrder(date, 1);
+
+        // Assert - only the edited Tile order remains, now in California
+        RevenueTotals day = service.getRevenueForDate(date);
+        assertEquals(1, day.getOrderCount());
+        assertEquals(new BigDecimal("350.00"), day.getMaterialCost());
+        // Tax = (350 + 415) * (25.00 / 100) = 191.25
+        assertEquals(new BigDecimal("956.25"), day.getTotal());
+        assertEquals(day, service.getRevenueForMonth(YearMonth.of(2025, 12)));
+        assertEquals(day, service.getRevenueForState("CA"));
+        assertEquals(day, service.getRevenueForProduct("Tile"));
+        assertEquals(0, service.getRevenueForState("TX").getOrderCount());
+        assertEquals(0, service.getRevenueForProduct("Carpet").getOrderCount());
+    }
+
+    @Test
+    public void testTaxLiabilityReport() throws Exception {
+        // Arrange - 100 sq ft of Tile per order, one of them outside the range and one removed
+        LocalDate[] dates = {LocalDate.of(2025, 11, 30), LocalDate.of(2025, 12, 1), LocalDate.of(2025, 12, 1),
+                LocalDate.of(2025, 12, 15), LocalDate.of(2025, 12, 31)};
+        String[] states = {"CA", "TX", "CA", "TX", "TX"};
+        for (int i = 0; i < dates.length; i++) {
+            Order order = new Order(i + 1);
+            order.setCustomerName("Customer " + i);
+            order.setState(states[i]);
+            order.setProductType("Tile");
+            order.setArea(new BigDecimal("100"));
+            order.setOrderDate(dates[i]);
+            service.addOrder(order);
+        }
+        service.removeOrder(LocalDate.of(2025, 12, 31), 5);
+
+        // Act
+        StringWriter report = new StringWriter();
+        service.writeTaxLiabilityReport(LocalDate.of(2025, 12, 1), LocalDate.of(2025, 12, 31), report);
+
+        // Assert - taxable sales of 765.00 per order, taxed at 25% in CA and 4.45% in TX
+        assertEquals(Arrays.asList(
+                "State,OrderCount,TaxableSales,Tax",
+                "CA,1,765.00,191.25",
+                "TX,2,1530.00,68.08"), Arrays.asList(report.toString().split("\\R")));
+        assertEquals(Collections.singletonList(new TaxLiability("CA", 1, new BigDecimal("765.00"),
+                new BigDecimal("191.25"))), service.getTaxLiability(LocalDate.of(2025, 11, 1),
+                LocalDate.of(2025, 11, 30)));
+    }
+
+    @Test
+    public void testOrderDistributionFollowsOrderChanges() throws Exception {
+        // Arrange - an order saved before the histograms existed, then 100 orders of 1 to 100 sq ft
+        LocalDate firstDate = LocalDate.of(2025, 12, 1);
+        LocalDate secondDate = LocalDate.of(2025, 12, 2);
+        Order existing = new Order(1);
+        existing.setCustomerName("Existing");
+        existing.setState("TX");
+        existing.setProductType("Tile");
+        existing.setArea(new BigDecimal("5000"));
+        existing.setOrderDate(firstDate);
+        service.priceOrder(existing);
+        orderDao.addOrder(existing);
+
+        // Act
+        for (int area = 1; area <= 100; area++) {
+            Order order = new Order(area + 1);
+            order.setCustomerName("Customer " + area);
+            order.setState("CA");
+            order.setProductType("Tile");
+            order.setArea(new BigDecimal(area));
+            order.setOrderDate(area <= 50 ? firstDate : secondDate);
+            service.addOrder(order);
+        }
+        service.removeOrder(firstDate, 1);
+        OrderDistribution distribution = service.getOrderDistribution(firstDate, secondDate);
+
+        // Assert - each percentile within 1% of the true value
+        assertEquals(100, distribution.getOrderCount());
+        assertWithinOnePercent(new BigDecimal("50"), distribution.getAreaP50());
+        assertWithinOnePercent(new BigDecimal("95"), distribution.getAreaP95());
+        assertWithinOnePercent(new BigDecimal("99"), distribution.getAreaP99());
+        // Total = area * (3.50 + 4.15) * 1.25
+        assertWithinOnePercent(new BigDecimal("478.13"), distribution.getTotalP50());
+        assertWithinOnePercent(new BigDecimal("908.44"), distribution.getTotalP95());
+        assertEquals(50, service.getOrderDistribution(secondDate, secondDate).getOrderCount());
+        assertEquals(new BigDecimal("0.00"),
+                service.getOrderDistribution(secondDate.plusDays(1), secondDate.plusDays(7)).getAreaP99());
+    }
+
+    @Test
+    public void testTopCustomersBySpend() throws Exception {
+        // Arrange - a repeat customer on two dates outspends two single orders
+        String[] customers = {"Repeat", "Small", "Repeat", "Large"};
+        String[] totals = {"300.00", "100.00", "250.00", "500.00"};
+        for (int i = 0; i < customers.length; i++) {
+            Order order = new Order(i + 1);
+            order.setCustomerName(customers[i]);
+            order.setTotal(new BigDecimal(totals[i]));
+            order.setOrderDate(LocalDate.of(2025, 12, 1).plusDays(i % 2));
+            orderDao.addOrder(order);
+        }
+
+        // Act
+        List<CustomerSpend> top = service.getTopCustomers(2, false);
+
+        // Assert
+        assertEquals(2, top.size());
+        assertEquals("Repeat", top.get(0).getCustomerName());
+        assertEquals(new BigDecimal("550.00"), top.get(0).getTotalSpend());
+        assertEquals("Large", top.get(1).getCustomerName());
+        assertEquals(top, service.getTopCustomers(2, true));
+    }
+
+    @Test
+    public void testBatchPricingMatchesSingleOrders() throws Exception {
+        // Arrange - enough orders to be split across threads, either side of the Texas rate change
+        Random random = new Random(7);
+        String[] states = {"TX", "CA"};
+        String[] products = {"Tile", "Carpet"};
+        List<Order> singles = new ArrayList<>();
+        List<Order> batched = new ArrayList<>();
+        PricingBatch batch = new PricingBatch(16);
+        for (int i = 0; i < 10_000; i++) {
+            Order order = new Order(i + 1);
+            order.setState(states[random.nextInt(states.length)]);
+            order.setProductType(products[random.nextInt(products.length)]);
+            order.setArea(BigDecimal.valueOf(10_000 + random.nextInt(100_000), 2));
+            order.setOrderDate(LocalDate.of(2025, 12, 1).plusDays(random.nextInt(62)));
+            singles.add(order);
+            batched.add(new Order(order));
+            batch.add(order.getOrderDate(), order.getState(), order.getProductType(), order.getArea());
+        }
+        int unknownState = batch.add(LocalDate.of(2025, 12, 1), "ZZ", "Tile", new BigDecimal("100"));
+
+        // Act
+        for (Order order : singles) {
+            service.priceOrder(order);
+        }
+        service.priceOrders(batched);
+        service.priceOrders(batch);
+
+        // Assert
+        for (int i = 0; i < singles.size(); i++) {
+            Order expected = singles.get(i);
+            assertEquals(expected, batched.get(i));
+            assertTrue(batch.isPriced(i));
+            assertEquals(expected.getMaterialCost(), batch.getMaterialCost(i));
+            assertEquals(expected.getLaborCost(), batch.getLaborCost(i));
+            assertEquals(expected.getTax(), batch.getTax(i));
+            assertEquals(expected.getTotal(), batch.getTotal(i));
+        }
+        assertFalse(batch.isPriced(unknownState));
+        assertNull(batch.getTotal(unknownState));
+    }
+
+    private static void assertWithinOnePercent(BigDecimal expected, BigDecimal actual) {
+        BigDecimal error = actual.subtract(expected).abs();
+        assertTrue(expected + " but was " + actual, error.compareTo(expected.movePointLeft(2)) <= 0);
+    }
+
     // Stub implementations for testing
     private static class OrderDaoStubImpl implements OrderDao {
         private Map<LocalDate, Map<Integer, Order>> orders = new HashMap<>();
         private int nextOrderNumber = 1;
+        // Runs once before the next editOrders, as an edit from another user would
+        private Runnable beforeEditOrders;
+        // Runs once before the next editOrder, as an edit from another user would
+        private Runnable beforeEditOrder;
 
         @Override
         public int getNextOrderNumber() {
@@ -175,13 +610,38 @@ public class ServiceLayerImplTest {
 
         @Override
         public Order editOrder(Order order) throws NoSuchOrderException {
+            if (beforeEditOrder != null) {
+                Runnable concurrentEdit = beforeEditOrder;
+                beforeEditOrder = null;
+                concurrentEdit.run();
+            }
+
             LocalDate date = order.getOrderDate();
             Map<Integer, Order> dateOrders = orders.get(date);
             if (dateOrders == null || !dateOrders.containsKey(order.getOrderNumber())) {
                 throw new NoSuchOrderException("Order not found");
             }
-            dateOrders.put(order.getOrderNumber(), order);
-            return order;
+            return dateOrders.put(order.getOrderNumber(), order);
+        }
+
+        @Override
+        public boolean editOrders(LocalDate date, List<Order> previous, List<Order> edited) {
+            if (beforeEditOrders != null) {
+                Runnable concurrentEdit = beforeEditOrders;
+                beforeEditOrders = null;
+                concurrentEdit.run();
+            }
+
+            Map<Integer, Order> dateOrders = orders.get(date);
+            for (int i = 0; i < edited.size(); i++) {
+                if (dateOrders == null || !previous.get(i).equals(dateOrders.get(edited.get(i).getOrderNumber()))) {
+                    return false;
+                }
+            }
+            for (Order order : edited) {
+                dateOrders.put(order.getOrderNumber(), order);
+            }
+            return true;
         }
 
         @Override
@@ -195,6 +655,45 @@ public class ServiceLayerImplTest {
             return new HashMap<>(orders);
         }
 
+        @Override
+        public List<PartitionSummary> getPartitionSummaries() {
+            List<PartitionSummary> partitions = new ArrayList<>();
+            for (Map.Entry<LocalDate, Map<Integer, Order>> dateEntry : orders.entrySet()) {
+                BigDecimal revenue = BigDecimal.ZERO;
+                for (Order order : dateEntry.getValue().values()) {
+                    revenue = order.getTotal() == null ? revenue : revenue.add(order.getTotal());
+                }
+                partitions.add(new PartitionSummary(dateEntry.getKey(), dateEntry.getValue().size(),
+                        0, 0, revenue, 0, 0));
+            }
+            return partitions;
+        }
+
+        @Override
+        public Map<LocalDate, RevenueTotals> getDailyTotals(LocalDate from, LocalDate to) {
+            return new TreeMap<>();
+        }
+
+        @Override
+        public List<PivotRow> pivotOrders(OrderFilter filter, List<PivotDimension> dimensions) {
+            return new ArrayList<>();
+        }
+
+        @Override
+        public int restoreOrders(ExportReader export) {
+            return 0;
+        }
+
+        @Override
+        public ReplayResult rebuildOrders(AuditReader events) {
+            return new ReplayResult();
+        }
+
+        @Override
+        public OrderSnapshot getSnapshot() {
+            return OrderSnapshot.of(orders);
+        }
+
         @Override
         public Order removeOrder(LocalDate date, int orderNumber) throws NoSuchOrderException {
             Map<Integer, Order> dateOrders = orders.get(date);
@@ -206,6 +705,10 @@ public class ServiceLayerImplTest {
     }
 
     private static class ProductDaoStubImpl implements ProductDao {
+        private PricingTiers tiers = PricingTiers.NONE;
+        private RateSchedule<Product> rates = new RateSchedule<>(getAllProducts(), Product::getProductType,
+                Product::getEffectiveDate, product -> product);
+
         @Override
         public List<Product> getAllProducts() {
             List<Product> products = new ArrayList<>();
@@ -218,9 +721,27 @@ public class ServiceLayerImplTest {
         public Product getProduct(String productType) {
             return new Product(productType, new BigDecimal("3.50"), new BigDecimal("4.15"));
         }
+
+        @Override
+        public Product getProduct(String productType, LocalDate date) {
+            return getProductRates().get(productType, date);
+        }
+
+        @Override
+        public RateSchedule<Product> getProductRates() {
+            return rates;
+        }
+
+        @Override
+        public PricingTiers getPricingTiers() {
+            return tiers;
+        }
     }
 
     private static class TaxDaoStubImpl implements TaxDao {
+        private RateSchedule<Tax> rates = schedule(new Tax("TX", "Texas", new BigDecimal("6.25"),
+                LocalDate.of(2026, 1, 1)));
+
         @Override
         public List<Tax> getAllTaxes() {
             List<Tax> taxes = new ArrayList<>();
@@ -233,6 +754,25 @@ public class ServiceLayerImplTest {
         public Tax getTax(String stateAbr) {
             return new Tax(stateAbr, "Texas", new BigDecimal("4.45"));
         }
+
+        @Override
+        public Tax getTax(String stateAbr, LocalDate date) {
+            return getTaxRates().get(stateAbr, date);
+        }
+
+        @Override
+        public RateSchedule<Tax> getTaxRates() {
+            return rates;
+        }
+
+        /**
+         * @return the standard taxes plus a later rate
+         */
+        private RateSchedule<Tax> schedule(Tax laterRate) {
+            List<Tax> taxes = getAllTaxes();
+            taxes.add(laterRate);
+            return new RateSchedule<>(taxes, Tax::getStateAbr, Tax::getEffectiveDate, tax -> tax);
+        }
     }
 
     private static class ExportDaoStubImpl implements ExportDao {
@@ -240,12 +780,69 @@ public class ServiceLayerImplTest {
         public void exportAllData(Map<LocalDate, Map<Integer, Order>> allOrders) {
             // Stub - does nothing
         }
+
+        @Override
+        public void exportAllData(OrderPartitionSource source) {
+            // Stub - does nothing
+        }
+
+        @Override
+        public void exportAllData(OrderPartitionSource source, ExportProgress progress) {
+            // Stub - does nothing
+        }
+
+        @Override
+        public int exportChangedData(OrderPartitionSource source) {
+            return 0;
+        }
+
+        @Override
+        public int exportChangedData(OrderPartitionSource source, ExportProgress progress) {
+            return 0;
+        }
+
+        @Override
+        public void consolidateExports() {
+            // Stub - does nothing
+        }
+
+        @Override
+        public ExportReader openExport() {
+            return null;
+        }
     }
 
     private static class AuditDaoStubImpl implements AuditDao {
+        private final List<String> entries = new ArrayList<>();
+
         @Override
         public void writeAuditEntry(String entry) {
+            entries.add(entry);
+        }
+
+        @Override
+        public void flush() {
             // Stub - does nothing
         }
+
+        @Override
+        public AuditReader findEntriesForOrder(int orderNumber) {
+            return AuditReader.empty();
+        }
+
+        @Override
+        public AuditReader findEntriesBetween(LocalDateTime from, LocalDateTime to) {
+            return AuditReader.empty();
+        }
+
+        @Override
+        public AuditReader readAllEntries() {
+            return AuditReader.empty();
+        }
+
+        @Override
+        public AuditMode getMode() {
+            return AuditMode.CHANGES;
+        }
     }
 }
\ No newline at end of file